@@ -19,6 +19,9 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Account {
 
+    // Registration and withdrawals both keep a balance at or above this
+    public static final BigDecimal MINIMUM_BALANCE = new BigDecimal("10000.00");
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer uId;
@@ -3,6 +3,7 @@ package com.gap.bankapp.account;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Service
@@ -10,13 +11,26 @@ import java.util.List;
 public class AccountService {
 
     final AccountRepository accountRepository;
+    final HotAccountService hotAccountService;
 
     public List<Account> getAllAccounts() {
-        return accountRepository.findAll();
+        return accountRepository.findAll().stream().map(this::withShardBalance).toList();
     }
 
     public Account getAccountByAccountNumber(String accountNumber) {
         return accountRepository.findByAccountNumber(accountNumber)
+                .map(this::withShardBalance)
                 .orElseThrow(() -> new IllegalArgumentException("Account not found"));
     }
+
+    // A sharded account's balance includes credits still held in its shards. Returned as a copy so
+    // the sum is never written back to the Account row.
+    private Account withShardBalance(Account account) {
+        if (!hotAccountService.isSharded(account.getAccountNumber())) {
+            return account;
+        }
+        BigDecimal balance = account.getBalance().add(hotAccountService.shardBalance(account.getAccountNumber()));
+        return new Account(account.getUId(), account.getName(), account.getAge(), account.getEmail(),
+                account.getPhone(), account.getAccountNumber(), balance, account.getCreatedAt());
+    }
 }
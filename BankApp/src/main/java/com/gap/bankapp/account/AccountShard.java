@@ -0,0 +1,40 @@
+package com.gap.bankapp.account;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+// One of several sub-balances that take the credits of a hot account, so concurrent payments into it
+// lock different rows. HotAccountService folds them back into the Account row.
+@Entity
+@Table(name = "account_shards",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"account_number", "shard_index"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String accountNumber;
+    private int shardIndex;
+    private BigDecimal balance;
+
+    public AccountShard(String accountNumber, int shardIndex) {
+        this.accountNumber = accountNumber;
+        this.shardIndex = shardIndex;
+        this.balance = BigDecimal.ZERO;
+    }
+}
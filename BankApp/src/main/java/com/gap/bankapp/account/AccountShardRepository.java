@@ -0,0 +1,36 @@
+package com.gap.bankapp.account;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountShardRepository extends JpaRepository<AccountShard, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountShard s WHERE s.accountNumber = :accountNumber AND s.shardIndex = :shardIndex")
+    Optional<AccountShard> findForUpdate(@Param("accountNumber") String accountNumber, @Param("shardIndex") int shardIndex);
+
+    // Locked in shard order, the same order every caller uses
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountShard s WHERE s.accountNumber = :accountNumber ORDER BY s.shardIndex")
+    List<AccountShard> findAllForUpdate(@Param("accountNumber") String accountNumber);
+
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM AccountShard s WHERE s.accountNumber = :accountNumber")
+    BigDecimal sumBalance(@Param("accountNumber") String accountNumber);
+
+    @Query("SELECT s.accountNumber AS accountNumber, COUNT(s) AS shards FROM AccountShard s GROUP BY s.accountNumber")
+    List<ShardCount> countShards();
+
+    interface ShardCount {
+        String getAccountNumber();
+        long getShards();
+    }
+}
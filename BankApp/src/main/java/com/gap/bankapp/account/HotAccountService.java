@@ -0,0 +1,133 @@
+package com.gap.bankapp.account;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hot accounts, such as the e-commerce merchant that every payment credits. A sharded account takes
+// credits into one of its AccountShard rows, picked round-robin, so concurrent payments lock
+// different rows instead of all queueing on the Account row. Its balance is the Account row plus all
+// shards, and compact() periodically folds the shards back into the Account row.
+// Lock order, shared with FundTransferService: Account rows before shard rows, shards by index.
+// Withdrawals only see the Account row, so money still in a shard is spendable after the next compaction.
+@Slf4j
+@Service
+public class HotAccountService {
+
+    private final AccountRepository accountRepository;
+    private final AccountShardRepository accountShardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<String> configuredAccountNumbers;
+    private final int configuredShards;
+
+    private final Map<String, Integer> shardCounts = new ConcurrentHashMap<>();
+    private final AtomicLong nextShard = new AtomicLong();
+
+    public HotAccountService(AccountRepository accountRepository,
+                             AccountShardRepository accountShardRepository,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${bank.hot-accounts.account-numbers:}") List<String> configuredAccountNumbers,
+                             @Value("${bank.hot-accounts.shards:8}") int configuredShards) {
+        this.accountRepository = accountRepository;
+        this.accountShardRepository = accountShardRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.configuredAccountNumbers = configuredAccountNumbers;
+        this.configuredShards = configuredShards;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerConfiguredAccounts() {
+        accountShardRepository.countShards()
+                .forEach(count -> shardCounts.put(count.getAccountNumber(), (int) count.getShards()));
+        for (String accountNumber : configuredAccountNumbers) {
+            if (!accountNumber.isBlank()) {
+                shard(accountNumber.trim(), configuredShards);
+            }
+        }
+    }
+
+    // Gives the account at least the given number of shards; shards are never removed
+    public synchronized void shard(String accountNumber, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("An account needs at least one shard");
+        }
+        int existing = shardCounts.getOrDefault(accountNumber, 0);
+        if (shards <= existing) {
+            return;
+        }
+        List<AccountShard> added = new ArrayList<>(shards - existing);
+        for (int index = existing; index < shards; index++) {
+            added.add(new AccountShard(accountNumber, index));
+        }
+        accountShardRepository.saveAll(added);
+        shardCounts.put(accountNumber, shards);
+        log.info("Account {} now takes credits into {} shards", accountNumber, shards);
+    }
+
+    public boolean isSharded(String accountNumber) {
+        return shardCounts.containsKey(accountNumber);
+    }
+
+    // Must run in the transaction that takes the money from the payer
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void credit(String accountNumber, BigDecimal amount) {
+        int index = (int) Math.floorMod(nextShard.getAndIncrement(), (long) shardCounts.get(accountNumber));
+        AccountShard shard = accountShardRepository.findForUpdate(accountNumber, index)
+                .orElseThrow(() -> new IllegalStateException("Missing shard " + index + " of " + accountNumber));
+        shard.setBalance(shard.getBalance().add(amount));
+        accountShardRepository.save(shard);
+    }
+
+    // Credits not yet folded into the Account row
+    public BigDecimal shardBalance(String accountNumber) {
+        return accountShardRepository.sumBalance(accountNumber);
+    }
+
+    @Scheduled(fixedDelayString = "${bank.hot-accounts.compaction-interval-ms:5000}")
+    public void compactAll() {
+        for (String accountNumber : shardCounts.keySet()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> compact(accountNumber));
+            } catch (RuntimeException e) {
+                // Left in the shards for the next run
+                log.warn("Compaction of {} failed: {}", accountNumber, e.getMessage());
+            }
+        }
+    }
+
+    // Moves every shard's balance into the Account row and returns the amount moved
+    @Transactional
+    public BigDecimal compact(String accountNumber) {
+        Account account = accountRepository.findByAccountNumberForUpdate(accountNumber).orElse(null);
+        if (account == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal moved = BigDecimal.ZERO;
+        List<AccountShard> shards = accountShardRepository.findAllForUpdate(accountNumber);
+        for (AccountShard shard : shards) {
+            if (shard.getBalance().signum() != 0) {
+                moved = moved.add(shard.getBalance());
+                shard.setBalance(BigDecimal.ZERO);
+            }
+        }
+        if (moved.signum() != 0) {
+            account.setBalance(account.getBalance().add(moved));
+            accountRepository.save(account);
+            accountShardRepository.saveAll(shards);
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,66 @@
+package com.gap.bankapp.account;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+// An amount of money as a long of cents: exact, with no rounding mode to get wrong, and arithmetic
+// that would overflow throws ArithmeticException instead of wrapping around. In JSON a Money is the
+// same plain decimal number. Used where balances stay in cents throughout, like the ledger; code
+// that reads and writes BigDecimal entity fields does its arithmetic in BigDecimal, since converting
+// at both ends allocates more than it saves (see MoneyBenchmark).
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 2;
+
+    public static Money ofMajor(long majorUnits) {
+        return new Money(Math.multiplyExact(majorUnits, 100L));
+    }
+
+    // Exact: an amount with fractions of a cent, or beyond the range of a long of cents, is rejected
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) {
+        Objects.requireNonNull(amount, "amount");
+        try {
+            // Moves the decimal point without touching the digits, so 12.5 becomes 1250 and 0.001 stays fractional
+            return new Money(amount.scaleByPowerOfTen(SCALE).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount must be a whole number of cents within range: " + amount);
+        }
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
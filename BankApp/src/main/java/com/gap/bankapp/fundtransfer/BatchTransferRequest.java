@@ -0,0 +1,17 @@
+package com.gap.bankapp.fundtransfer;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferRequest {
+    // Applied in this order; a transfer can spend money credited by an earlier one
+    private List<TransferRequest> transfers;
+}
@@ -0,0 +1,19 @@
+package com.gap.bankapp.fundtransfer;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResponse {
+    private int succeededCount;
+    private int failedCount;
+    // One per requested transfer, in request order
+    private List<BatchTransferResult> results;
+}
@@ -0,0 +1,20 @@
+package com.gap.bankapp.fundtransfer;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResult {
+    // Position of the transfer in the request
+    private int index;
+    private boolean success;
+    // The TRANSFER transaction; null when the transfer failed
+    private Long transactionId;
+    // Why the transfer failed; null when it succeeded
+    private String error;
+}
@@ -0,0 +1,283 @@
+package com.gap.bankapp.fundtransfer;
+
+import com.gap.bankapp.account.Account;
+import com.gap.bankapp.account.HotAccountService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Applies many transfers with one database transaction per chunk of bank.transfers.batch.chunk-size.
+// A chunk locks each account it touches once, in account number order like FundTransferService,
+// applies its transfers in request order to those balances in memory, then writes the changed
+// balances and the TRANSFER rows with JDBC batches. A transfer that breaks a rule fails on its own;
+// a database error rolls back and fails its whole chunk, and the following chunks still run.
+// Credits to a sharded payee go through HotAccountService, one per payee and chunk, after the account
+// rows; its account row is only locked if the chunk also takes money from it.
+// A transfer whose reference is already recorded, earlier in the batch or by any earlier request, is
+// reported with the recorded transaction instead of being applied again; a batch racing another
+// request with the same reference fails its chunk on the unique index, and a retry is replayed.
+@Slf4j
+@Service
+public class BatchTransferService {
+
+    private static final String LOCK_ACCOUNT = "SELECT balance FROM account WHERE account_number = ? FOR UPDATE";
+    private static final String COUNT_ACCOUNT = "SELECT COUNT(*) FROM account WHERE account_number = ?";
+    private static final String UPDATE_BALANCE = "UPDATE account SET balance = ? WHERE account_number = ?";
+    private static final String INSERT_TRANSACTION = "INSERT INTO transaction "
+            + "(from_account_number, to_account_number, amount, type, description, transaction_date, reference) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String FIND_BY_REFERENCES = "SELECT id, from_account_number, to_account_number, amount, type, "
+            + "reference FROM transaction WHERE reference IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HotAccountService hotAccountService;
+    private final int chunkSize;
+    private final int maxTransfers;
+
+    public BatchTransferService(JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                HotAccountService hotAccountService,
+                                @Value("${bank.transfers.batch.chunk-size:500}") int chunkSize,
+                                @Value("${bank.transfers.batch.max-transfers:10000}") int maxTransfers) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.hotAccountService = hotAccountService;
+        this.chunkSize = chunkSize;
+        this.maxTransfers = maxTransfers;
+    }
+
+    public BatchTransferResponse transferBatch(List<TransferRequest> transfers) {
+        if (transfers == null || transfers.isEmpty()) {
+            throw new IllegalArgumentException("No transfers in batch");
+        }
+        if (transfers.size() > maxTransfers) {
+            throw new IllegalArgumentException("A batch holds at most " + maxTransfers + " transfers");
+        }
+
+        List<BatchTransferResult> results = new ArrayList<>(transfers.size());
+        for (int start = 0; start < transfers.size(); start += chunkSize) {
+            int first = start;
+            List<TransferRequest> chunk = transfers.subList(first, Math.min(first + chunkSize, transfers.size()));
+            try {
+                results.addAll(transactionTemplate.execute(status -> applyChunk(chunk, first)));
+            } catch (RuntimeException e) {
+                log.warn("Batch transfers {} to {} rolled back: {}", first, first + chunk.size() - 1, e.getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    results.add(new BatchTransferResult(first + i, false, null, "Chunk rolled back: " + e.getMessage()));
+                }
+            }
+        }
+
+        int succeeded = (int) results.stream().filter(BatchTransferResult::isSuccess).count();
+        return new BatchTransferResponse(succeeded, results.size() - succeeded, results);
+    }
+
+    private List<BatchTransferResult> applyChunk(List<TransferRequest> chunk, int first) {
+        // Each account is read and locked once, however many transfers in the chunk name it
+        SortedSet<String> accountNumbers = new TreeSet<>();
+        Set<String> shardedPayees = new HashSet<>();
+        for (TransferRequest transfer : chunk) {
+            if (transfer.getFromAccountNumber() != null) {
+                accountNumbers.add(transfer.getFromAccountNumber());
+            }
+            String to = transfer.getToAccountNumber();
+            if (to != null && hotAccountService.isSharded(to) && !to.equals(transfer.getFromAccountNumber())) {
+                shardedPayees.add(to);
+            } else if (to != null) {
+                accountNumbers.add(to);
+            }
+        }
+        Map<String, BigDecimal> locked = new HashMap<>();
+        for (String accountNumber : accountNumbers) {
+            List<BigDecimal> balance = jdbcTemplate.queryForList(LOCK_ACCOUNT, BigDecimal.class, accountNumber);
+            if (!balance.isEmpty()) {
+                locked.put(accountNumber, balance.get(0));
+            }
+        }
+        // Sharded payees only need to exist; their account row is left unlocked
+        shardedPayees.removeIf(accountNumber -> !locked.containsKey(accountNumber)
+                && jdbcTemplate.queryForObject(COUNT_ACCOUNT, Long.class, accountNumber) == 0);
+
+        Map<String, Transaction> recorded = findRecorded(chunk);
+        // Repeats of a reference first used in this chunk, with the result that first used it
+        Map<BatchTransferResult, BatchTransferResult> repeats = new HashMap<>();
+        Map<String, BatchTransferResult> appliedByReference = new HashMap<>();
+
+        Map<String, BigDecimal> balances = new HashMap<>(locked);
+        // Summed per payee and credited in account number order, so concurrent chunks lock shards in one order
+        SortedMap<String, BigDecimal> shardCredits = new TreeMap<>();
+        List<BatchTransferResult> results = new ArrayList<>(chunk.size());
+        List<TransferRequest> applied = new ArrayList<>();
+        List<BatchTransferResult> appliedResults = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            TransferRequest transfer = chunk.get(i);
+            Transaction original = transfer.getReference() == null ? null : recorded.get(transfer.getReference());
+            if (original != null) {
+                BatchTransferResult result = replay(transfer, original, first + i);
+                results.add(result);
+                if (result.isSuccess() && original.getId() == null) {
+                    repeats.put(result, appliedByReference.get(transfer.getReference()));
+                }
+                continue;
+            }
+            String error = apply(transfer, balances, shardedPayees, shardCredits);
+            BatchTransferResult result = new BatchTransferResult(first + i, error == null, null, error);
+            results.add(result);
+            if (error == null) {
+                applied.add(transfer);
+                appliedResults.add(result);
+                if (transfer.getReference() != null) {
+                    recorded.put(transfer.getReference(), new Transaction(transfer.getFromAccountNumber(),
+                            transfer.getToAccountNumber(), transfer.getAmount(), Transaction.TransactionType.TRANSFER, null));
+                    appliedByReference.put(transfer.getReference(), result);
+                }
+            }
+        }
+        if (applied.isEmpty()) {
+            return results;
+        }
+
+        List<Object[]> changedBalances = new ArrayList<>();
+        balances.forEach((accountNumber, balance) -> {
+            if (balance.compareTo(locked.get(accountNumber)) != 0) {
+                changedBalances.add(new Object[]{balance, accountNumber});
+            }
+        });
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE, changedBalances);
+        shardCredits.forEach((accountNumber, credit) -> hotAccountService.credit(accountNumber, credit));
+
+        List<Long> ids = insertTransactions(applied);
+        for (int i = 0; i < appliedResults.size(); i++) {
+            appliedResults.get(i).setTransactionId(ids.get(i));
+        }
+        repeats.forEach((repeat, original) -> repeat.setTransactionId(original.getTransactionId()));
+        return results;
+    }
+
+    // Same terms as the recorded transfer: reported as done with its transaction, like a retried
+    // single transfer; anything else reuses the reference and fails
+    private static BatchTransferResult replay(TransferRequest transfer, Transaction original, int index) {
+        if (!original.hasTerms(transfer.getFromAccountNumber(), transfer.getToAccountNumber(), transfer.getAmount(),
+                Transaction.TransactionType.TRANSFER)) {
+            return new BatchTransferResult(index, false, null,
+                    "Reference " + transfer.getReference() + " was already used for a different transfer");
+        }
+        return new BatchTransferResult(index, true, original.getId(), null);
+    }
+
+    // Read after the chunk's accounts are locked, so a transfer on them committed meanwhile is seen
+    private Map<String, Transaction> findRecorded(List<TransferRequest> chunk) {
+        Map<String, Transaction> recorded = new HashMap<>();
+        List<String> references = chunk.stream()
+                .map(TransferRequest::getReference)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (references.isEmpty()) {
+            return recorded;
+        }
+        String sql = String.format(FIND_BY_REFERENCES, String.join(", ", Collections.nCopies(references.size(), "?")));
+        jdbcTemplate.query(sql, resultSet -> {
+            Transaction transaction = new Transaction(resultSet.getString(2), resultSet.getString(3),
+                    resultSet.getBigDecimal(4), Transaction.TransactionType.valueOf(resultSet.getString(5)), null);
+            transaction.setId(resultSet.getLong(1));
+            recorded.put(resultSet.getString(6), transaction);
+        }, references.toArray());
+        return recorded;
+    }
+
+    // Same rules and messages as FundTransferService; returns null once the transfer is applied to balances
+    // or, for a sharded payee, to its pending shard credit
+    private String apply(TransferRequest transfer, Map<String, BigDecimal> balances, Set<String> shardedPayees,
+                         Map<String, BigDecimal> shardCredits) {
+        if (transfer.getAmount() == null) {
+            return "Amount is required";
+        }
+        BigDecimal amount = transfer.getAmount();
+        if (amount.signum() <= 0) {
+            return "Amount must be positive";
+        }
+        try {
+            FundTransferService.requireWholeCents(amount);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        BigDecimal fromBalance = balances.get(transfer.getFromAccountNumber());
+        if (fromBalance == null) {
+            return "From account not found";
+        }
+        String to = transfer.getToAccountNumber();
+        boolean toShard = shardedPayees.contains(to) && !to.equals(transfer.getFromAccountNumber());
+        if (!toShard && !balances.containsKey(to)) {
+            return "To account not found";
+        }
+        if (fromBalance.compareTo(amount) < 0) {
+            return "Insufficient balance";
+        }
+        BigDecimal remaining = fromBalance.subtract(amount);
+        if (remaining.compareTo(Account.MINIMUM_BALANCE) < 0) {
+            return "Cannot transfer: minimum balance of 10,000 must be maintained";
+        }
+        balances.put(transfer.getFromAccountNumber(), remaining);
+        if (toShard) {
+            shardCredits.merge(to, amount, BigDecimal::add);
+            return null;
+        }
+        // Read after the debit, so a transfer to the same account leaves its balance as it was
+        balances.put(to, balances.get(to).add(amount));
+        return null;
+    }
+
+    private List<Long> insertTransactions(List<TransferRequest> transfers) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_TRANSACTION, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        TransferRequest transfer = transfers.get(i);
+                        statement.setString(1, transfer.getFromAccountNumber());
+                        statement.setString(2, transfer.getToAccountNumber());
+                        statement.setBigDecimal(3, transfer.getAmount());
+                        statement.setString(4, Transaction.TransactionType.TRANSFER.name());
+                        statement.setString(5, "Fund transfer from " + transfer.getFromAccountNumber()
+                                + " to " + transfer.getToAccountNumber());
+                        statement.setTimestamp(6, now);
+                        statement.setString(7, transfer.getReference());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return transfers.size();
+                    }
+                }, keys);
+
+        // Only the id column was asked for, whatever case the driver reports its name in
+        return keys.getKeyList().stream()
+                .map(key -> ((Number) Objects.requireNonNull(key.values().iterator().next())).longValue())
+                .toList();
+    }
+}
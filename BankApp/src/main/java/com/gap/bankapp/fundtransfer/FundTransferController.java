@@ -1,10 +1,15 @@
 package com.gap.bankapp.fundtransfer;
 
+import com.gap.bankapp.ledger.LedgerEngine;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequiredArgsConstructor
@@ -12,21 +17,119 @@ import java.util.List;
 public class FundTransferController {
 
     private final FundTransferService fundTransferService;
+    private final BatchTransferService batchTransferService;
+    // Only present with bank.ledger.enabled=true
+    private final ObjectProvider<LedgerEngine> ledgerEngine;
 
     @PostMapping
     public ResponseEntity<Transaction> transferFunds(@RequestBody TransferRequest request) {
+        LedgerEngine ledger = ledgerEngine.getIfAvailable();
         try {
-            Transaction transaction = fundTransferService.transferFunds(
+            Transaction transaction = ledger != null
+                    ? ledger.transfer(request.getFromAccountNumber(), request.getToAccountNumber(), request.getAmount(),
+                            request.getReference())
+                    : fundTransferService.transferFunds(
+                            request.getFromAccountNumber(),
+                            request.getToAccountNumber(),
+                            request.getAmount(),
+                            request.getReference()
+                    );
+            return ResponseEntity.ok(transaction);
+        } catch (DataIntegrityViolationException e) {
+            return replay(request, Transaction.TransactionType.TRANSFER, e);
+        } catch (ReferenceConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(@RequestBody BatchTransferRequest request) {
+        // Works on the account rows directly, like debits and settlements
+        if (ledgerEngine.getIfAvailable() != null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        try {
+            return ResponseEntity.ok(batchTransferService.transferBatch(request.getTransfers()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/debits")
+    public ResponseEntity<Transaction> debit(@RequestBody TransferRequest request) {
+        // Debits and settlements change account rows the ledger does not read back
+        if (ledgerEngine.getIfAvailable() != null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        try {
+            Transaction transaction = fundTransferService.debit(
                     request.getFromAccountNumber(),
                     request.getToAccountNumber(),
-                    request.getAmount()
+                    request.getAmount(),
+                    request.getReference()
             );
             return ResponseEntity.ok(transaction);
+        } catch (DataIntegrityViolationException e) {
+            return replay(request, Transaction.TransactionType.DEBIT, e);
+        } catch (ReferenceConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @PostMapping("/settlements")
+    public ResponseEntity<SettlementResponse> settle(@RequestBody SettlementRequest request) {
+        if (ledgerEngine.getIfAvailable() != null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        try {
+            SettlementResponse response = fundTransferService.settle(
+                    request.getToAccountNumber(),
+                    request.getDebitTransactionIds()
+            );
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // 404 means no transfer or debit was recorded under the reference
+    @GetMapping("/references/{reference}")
+    public ResponseEntity<Transaction> getByReference(@PathVariable String reference) {
+        LedgerEngine ledger = ledgerEngine.getIfAvailable();
+        Optional<Transaction> transaction;
+        try {
+            transaction = ledger != null
+                    ? ledger.findByReference(reference)
+                    : fundTransferService.findByReference(reference);
+        } catch (ReferenceConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return transaction
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // A request with the same reference committed first and this one was rolled back: answer with
+    // the recorded transaction, as a sequential retry would get
+    private ResponseEntity<Transaction> replay(TransferRequest request, Transaction.TransactionType type,
+                                               DataIntegrityViolationException e) {
+        if (request.getReference() == null) {
+            throw e;
+        }
+        try {
+            return fundTransferService.findReplay(request.getReference(), request.getFromAccountNumber(),
+                            request.getToAccountNumber(), request.getAmount(), type)
+                    .map(ResponseEntity::ok)
+                    .orElseThrow(() -> e);
+        } catch (ReferenceConflictException conflict) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
     @GetMapping("/history/{accountNumber}")
     public ResponseEntity<List<Transaction>> getTransactionHistory(@PathVariable String accountNumber) {
         List<Transaction> transactions = fundTransferService.getTransactionHistory(accountNumber);
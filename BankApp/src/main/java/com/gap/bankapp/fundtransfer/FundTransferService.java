@@ -2,12 +2,20 @@ package com.gap.bankapp.fundtransfer;
 
 import com.gap.bankapp.account.Account;
 import com.gap.bankapp.account.AccountRepository;
+import com.gap.bankapp.account.HotAccountService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -15,35 +23,81 @@ public class FundTransferService {
 
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
+    private final HotAccountService hotAccountService;
 
     @Transactional
     public Transaction transferFunds(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
-        // Validate accounts exist
-        Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber)
-                .orElseThrow(() -> new IllegalArgumentException("From account not found"));
-
-        Account toAccount = accountRepository.findByAccountNumber(toAccountNumber)
-                .orElseThrow(() -> new IllegalArgumentException("To account not found"));
+        return transferFunds(fromAccountNumber, toAccountNumber, amount, null);
+    }
 
-        // Validate sufficient balance
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient balance");
+    // A repeated reference gets the transaction recorded for it the first time; no money moves again.
+    // A duplicate racing the original fails on the unique reference index and is rolled back; the
+    // controller then replays it with findReplay.
+    @Transactional
+    public Transaction transferFunds(String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                                     String reference) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        Optional<Transaction> replayed = findReplay(reference, fromAccountNumber, toAccountNumber, amount,
+                Transaction.TransactionType.TRANSFER);
+        if (replayed.isPresent()) {
+            return replayed.get();
+        }
+        requireWholeCents(amount);
+        if (!fromAccountNumber.equals(toAccountNumber) && hotAccountService.isSharded(toAccountNumber)) {
+            return transferToShardedAccount(fromAccountNumber, toAccountNumber, amount, reference);
         }
 
-        // Check minimum balance after transfer (should remain at least 10,000)
-        BigDecimal remainingBalance = fromAccount.getBalance().subtract(amount);
-        if (remainingBalance.compareTo(new BigDecimal("10000")) < 0) {
-            throw new IllegalArgumentException("Cannot transfer: minimum balance of 10,000 must be maintained");
+        // Both rows are locked for the rest of the transaction, always in account number order, so a
+        // transfer A->B racing one B->A waits for it instead of deadlocking
+        Optional<Account> from;
+        Optional<Account> to;
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            from = accountRepository.findByAccountNumberForUpdate(fromAccountNumber);
+            to = from;
+        } else if (fromAccountNumber.compareTo(toAccountNumber) < 0) {
+            from = accountRepository.findByAccountNumberForUpdate(fromAccountNumber);
+            to = accountRepository.findByAccountNumberForUpdate(toAccountNumber);
+        } else {
+            to = accountRepository.findByAccountNumberForUpdate(toAccountNumber);
+            from = accountRepository.findByAccountNumberForUpdate(fromAccountNumber);
         }
 
+        // Validate accounts exist
+        Account fromAccount = from.orElseThrow(() -> new IllegalArgumentException("From account not found"));
+        Account toAccount = to.orElseThrow(() -> new IllegalArgumentException("To account not found"));
+
+        BigDecimal remaining = checkCanWithdraw(fromAccount, amount);
+
         // Perform transfer
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
+        fromAccount.setBalance(remaining);
         toAccount.setBalance(toAccount.getBalance().add(amount));
 
         accountRepository.save(fromAccount);
         accountRepository.save(toAccount);
 
-        // Record transaction
+        return recordTransfer(fromAccountNumber, toAccountNumber, amount, reference);
+    }
+
+    // Only the payer's row and one of the payee's shards are locked, in that order (see HotAccountService)
+    private Transaction transferToShardedAccount(String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                                                 String reference) {
+        Account fromAccount = accountRepository.findByAccountNumberForUpdate(fromAccountNumber)
+                .orElseThrow(() -> new IllegalArgumentException("From account not found"));
+        if (!accountRepository.existsByAccountNumber(toAccountNumber)) {
+            throw new IllegalArgumentException("To account not found");
+        }
+
+        fromAccount.setBalance(checkCanWithdraw(fromAccount, amount));
+        accountRepository.save(fromAccount);
+        hotAccountService.credit(toAccountNumber, amount);
+
+        return recordTransfer(fromAccountNumber, toAccountNumber, amount, reference);
+    }
+
+    private Transaction recordTransfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                                       String reference) {
         Transaction transaction = new Transaction(
                 fromAccountNumber,
                 toAccountNumber,
@@ -51,10 +105,114 @@ public class FundTransferService {
                 Transaction.TransactionType.TRANSFER,
                 "Fund transfer from " + fromAccountNumber + " to " + toAccountNumber
         );
+        transaction.setReference(reference);
 
         return transactionRepository.save(transaction);
     }
 
+    // Takes a card payment from the customer only. The payee is credited later, together with other
+    // debits, by settle(), so concurrent payments to one merchant do not all queue on its row.
+    @Transactional
+    public Transaction debit(String fromAccountNumber, String payeeAccountNumber, BigDecimal amount) {
+        return debit(fromAccountNumber, payeeAccountNumber, amount, null);
+    }
+
+    @Transactional
+    public Transaction debit(String fromAccountNumber, String payeeAccountNumber, BigDecimal amount, String reference) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        Optional<Transaction> replayed = findReplay(reference, fromAccountNumber, payeeAccountNumber, amount,
+                Transaction.TransactionType.DEBIT);
+        if (replayed.isPresent()) {
+            return replayed.get();
+        }
+        requireWholeCents(amount);
+        if (!accountRepository.existsByAccountNumber(payeeAccountNumber)) {
+            throw new IllegalArgumentException("Payee account not found");
+        }
+        Account fromAccount = accountRepository.findByAccountNumberForUpdate(fromAccountNumber)
+                .orElseThrow(() -> new IllegalArgumentException("From account not found"));
+
+        fromAccount.setBalance(checkCanWithdraw(fromAccount, amount));
+        accountRepository.save(fromAccount);
+
+        Transaction debit = new Transaction(
+                fromAccountNumber,
+                payeeAccountNumber,
+                amount,
+                Transaction.TransactionType.DEBIT,
+                "Card payment from " + fromAccountNumber + " to " + payeeAccountNumber
+        );
+        debit.setReference(reference);
+        return transactionRepository.save(debit);
+    }
+
+    // Credits the payee once with the sum of its unsettled debits among the given ids. The amount is
+    // computed here rather than trusted from the caller, and each debit is paid out at most once, so
+    // a retried batch is harmless. Settlements for one payee are serialized on its row lock.
+    @Transactional
+    public SettlementResponse settle(String payeeAccountNumber, List<Long> debitTransactionIds) {
+        if (debitTransactionIds == null || debitTransactionIds.isEmpty()) {
+            throw new IllegalArgumentException("No debits to settle");
+        }
+        Account payee = accountRepository.findByAccountNumberForUpdate(payeeAccountNumber)
+                .orElseThrow(() -> new IllegalArgumentException("Payee account not found"));
+
+        Set<Long> requested = new LinkedHashSet<>(debitTransactionIds);
+        Map<Long, Transaction> debits = transactionRepository.findDebitsToPayee(payeeAccountNumber, requested).stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+
+        List<Transaction> toSettle = new ArrayList<>();
+        List<Long> unknownIds = new ArrayList<>();
+        int alreadySettled = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (Long id : requested) {
+            Transaction debit = debits.get(id);
+            if (debit == null) {
+                unknownIds.add(id);
+            } else if (debit.getSettlementId() != null) {
+                alreadySettled++;
+            } else {
+                toSettle.add(debit);
+                total = total.add(debit.getAmount());
+            }
+        }
+        if (toSettle.isEmpty()) {
+            return new SettlementResponse(null, 0, BigDecimal.ZERO, alreadySettled, unknownIds);
+        }
+        BigDecimal settledAmount = total;
+
+        payee.setBalance(payee.getBalance().add(total));
+        accountRepository.save(payee);
+        Transaction credit = transactionRepository.save(new Transaction(
+                null,
+                payeeAccountNumber,
+                settledAmount,
+                Transaction.TransactionType.CREDIT,
+                "Settlement of " + toSettle.size() + " card payments"
+        ));
+        toSettle.forEach(debit -> debit.setSettlementId(credit.getId()));
+        transactionRepository.saveAll(toSettle);
+
+        return new SettlementResponse(credit.getId(), toSettle.size(), settledAmount, alreadySettled, unknownIds);
+    }
+
+    public Optional<Transaction> findByReference(String reference) {
+        return reference == null ? Optional.empty() : transactionRepository.findByReference(reference);
+    }
+
+    // The transaction recorded under the reference, if the request matches it; a reference reused for
+    // a different transfer is refused rather than replayed
+    public Optional<Transaction> findReplay(String reference, String fromAccountNumber, String toAccountNumber,
+                                            BigDecimal amount, Transaction.TransactionType type) {
+        Optional<Transaction> recorded = findByReference(reference);
+        if (recorded.isPresent() && !recorded.get().hasTerms(fromAccountNumber, toAccountNumber, amount, type)) {
+            throw new ReferenceConflictException("Reference " + reference + " was already used for a different transfer");
+        }
+        return recorded;
+    }
+
     public List<Transaction> getTransactionHistory(String accountNumber) {
         return transactionRepository.findByFromAccountNumberOrToAccountNumberOrderByTransactionDateDesc(
                 accountNumber, accountNumber);
@@ -64,4 +222,28 @@ public class FundTransferService {
         return transactionRepository.findTransactionsByAccountNumberAndYearAndMonth(
                 accountNumber, year, month);
     }
+
+    // Balances are stored with cents; anything finer would be rounded away when the row is written
+    static void requireWholeCents(BigDecimal amount) {
+        if (amount.scale() > 2 && amount.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("Amount must be a whole number of cents: " + amount);
+        }
+    }
+
+    // Returns the balance left after taking the amount
+    private BigDecimal checkCanWithdraw(Account account, BigDecimal amount) {
+        BigDecimal balance = account.getBalance();
+
+        // Validate sufficient balance
+        if (balance.compareTo(amount) < 0) {
+            throw new IllegalArgumentException("Insufficient balance");
+        }
+
+        // Check minimum balance after transfer (should remain at least 10,000)
+        BigDecimal remainingBalance = balance.subtract(amount);
+        if (remainingBalance.compareTo(Account.MINIMUM_BALANCE) < 0) {
+            throw new IllegalArgumentException("Cannot transfer: minimum balance of 10,000 must be maintained");
+        }
+        return remainingBalance;
+    }
 }
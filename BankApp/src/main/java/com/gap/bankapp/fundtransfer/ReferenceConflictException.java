@@ -0,0 +1,9 @@
+package com.gap.bankapp.fundtransfer;
+
+// A reference sent again for a different transfer, or while its first request is still being applied
+public class ReferenceConflictException extends RuntimeException {
+
+    public ReferenceConflictException(String message) {
+        super(message);
+    }
+}
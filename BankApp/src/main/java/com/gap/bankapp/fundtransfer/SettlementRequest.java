@@ -0,0 +1,18 @@
+package com.gap.bankapp.fundtransfer;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementRequest {
+    // Payee credited with the sum of the debits
+    private String toAccountNumber;
+    private List<Long> debitTransactionIds;
+}
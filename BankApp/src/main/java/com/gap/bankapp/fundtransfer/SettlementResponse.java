@@ -0,0 +1,24 @@
+package com.gap.bankapp.fundtransfer;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementResponse {
+    // The CREDIT to the payee; null when nothing was left to settle
+    private Long settlementTransactionId;
+    private int settledCount;
+    private BigDecimal settledAmount;
+    // Debits settled by an earlier request, e.g. one whose response was lost
+    private int alreadySettledCount;
+    // Ids that are not debits to this payee
+    private List<Long> unknownIds;
+}
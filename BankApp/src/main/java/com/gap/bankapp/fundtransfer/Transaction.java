@@ -8,8 +8,10 @@ import lombok.Setter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 @Entity
+@Table(indexes = @Index(name = "idx_transaction_reference", columnList = "reference", unique = true))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,6 +32,13 @@ public class Transaction {
     private String description;
     private LocalDateTime transactionDate;
 
+    // For a DEBIT: id of the CREDIT that paid it out to the payee, null until settled
+    private Long settlementId;
+
+    // Caller's id for a transfer or debit (e.g. an order number), unique; lets the caller find out
+    // whether a request whose response it never got was applied
+    private String reference;
+
     public Transaction(String fromAccountNumber, String toAccountNumber, BigDecimal amount, TransactionType type, String description) {
         this.fromAccountNumber = fromAccountNumber;
         this.toAccountNumber = toAccountNumber;
@@ -39,6 +48,14 @@ public class Transaction {
         this.transactionDate = LocalDateTime.now();
     }
 
+    // Whether a request replayed under this transaction's reference asks for the same thing
+    public boolean hasTerms(String fromAccountNumber, String toAccountNumber, BigDecimal amount, TransactionType type) {
+        return Objects.equals(this.fromAccountNumber, fromAccountNumber)
+                && Objects.equals(this.toAccountNumber, toAccountNumber)
+                && amount != null && this.amount.compareTo(amount) == 0
+                && this.type == type;
+    }
+
     public enum TransactionType {
         CREDIT, DEBIT, TRANSFER
     }
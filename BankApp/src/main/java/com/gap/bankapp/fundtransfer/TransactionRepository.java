@@ -6,11 +6,15 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    Optional<Transaction> findByReference(String reference);
+
     List<Transaction> findByFromAccountNumberOrToAccountNumberOrderByTransactionDateDesc(
             String fromAccountNumber, String toAccountNumber);
 
@@ -21,4 +25,9 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("accountNumber") String accountNumber,
             @Param("year") int year,
             @Param("month") int month);
+
+    @Query("SELECT t FROM Transaction t WHERE t.id IN :ids AND t.toAccountNumber = :payeeAccountNumber " +
+           "AND t.type = com.gap.bankapp.fundtransfer.Transaction.TransactionType.DEBIT")
+    List<Transaction> findDebitsToPayee(@Param("payeeAccountNumber") String payeeAccountNumber,
+                                        @Param("ids") Collection<Long> ids);
 }
@@ -15,4 +15,10 @@ public class TransferRequest {
     private String fromAccountNumber;
     private String toAccountNumber;
     private BigDecimal amount;
+    // Optional; a second request with the same reference returns the first one's transaction
+    private String reference;
+
+    public TransferRequest(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
+        this(fromAccountNumber, toAccountNumber, amount, null);
+    }
 }
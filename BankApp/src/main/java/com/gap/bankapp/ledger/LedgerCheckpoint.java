@@ -0,0 +1,24 @@
+package com.gap.bankapp.ledger;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Single row: the last ledger log sequence whose effects are in the account and transaction tables
+@Entity
+@Table(name = "ledger_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerCheckpoint {
+
+    @Id
+    private Integer id;
+
+    private long projectedSequence;
+}
@@ -0,0 +1,425 @@
+package com.gap.bankapp.ledger;
+
+import com.gap.bankapp.account.Account;
+import com.gap.bankapp.account.Money;
+import com.gap.bankapp.fundtransfer.ReferenceConflictException;
+import com.gap.bankapp.fundtransfer.Transaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Optional in-memory ledger for transfers (bank.ledger.enabled=true). Balances are held as long cents
+// in memory, found through the numeric account number. A transfer locks the stripes of its two
+// accounts (lower stripe first), checks and applies the amounts and appends a LedgerEntry to the
+// write-ahead log, then waits outside the locks until the log has been forced to disk. The account
+// and transaction tables become a projection, caught up every projection-interval-ms; on startup
+// the engine loads them and replays the log entries after the projection checkpoint.
+// A transfer's reference is logged with it and kept in memory until its entry is projected, after
+// which the transaction table has it; a repeated reference is replayed, as without the ledger.
+// Debits and settlements still work on the account rows directly, so they are refused while the
+// ledger is enabled (see FundTransferController).
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "bank.ledger.enabled", havingValue = "true")
+public class LedgerEngine {
+
+    // Ledger transactions get ids far above those the database hands out itself
+    static final long TRANSACTION_ID_OFFSET = 1L << 40;
+
+    private static final long MINIMUM_BALANCE_MINOR = Money.of(Account.MINIMUM_BALANCE).minorUnits();
+    // A sharded account's money is its row plus its shards (see HotAccountService). Compaction only
+    // moves money from the shards into the row, so the sum stays right while the ledger runs.
+    private static final String LOAD_BALANCES = "SELECT a.account_number, a.balance + COALESCE("
+            + "(SELECT SUM(s.balance) FROM account_shards s WHERE s.account_number = a.account_number), 0) "
+            + "FROM account a";
+    private static final String LOAD_BALANCE = "SELECT a.balance + COALESCE("
+            + "(SELECT SUM(s.balance) FROM account_shards s WHERE s.account_number = a.account_number), 0) "
+            + "FROM account a WHERE a.account_number = ?";
+    private static final String FIND_BY_REFERENCE = "SELECT id, from_account_number, to_account_number, amount, type, "
+            + "description, transaction_date FROM transaction WHERE reference = ?";
+    // Stands in for a reference whose transfer is being applied
+    private static final LedgerEntry CLAIMED = new LedgerEntry(-1, 0, 0, 0, 0, null);
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerProjection projection;
+    private final Path walDirectory;
+    private final int segmentSize;
+    private final int projectionBatchSize;
+    private final ReentrantLock[] stripes;
+
+    // Slots only ever get added, under indexLock; both structures are replaced, never changed, once published
+    private final Object indexLock = new Object();
+    private volatile LongIntMap index = new LongIntMap(0);
+    private volatile long[][] balances = new long[0][];
+    private int slots;
+
+    private final ConcurrentLinkedQueue<LedgerEntry> unprojected = new ConcurrentLinkedQueue<>();
+    // References of unprojected entries, and claims; an entry leaves only once its rows are committed
+    private final ConcurrentHashMap<String, LedgerEntry> references = new ConcurrentHashMap<>();
+    private WriteAheadLog wal;
+
+    @Autowired
+    public LedgerEngine(JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        @Value("${bank.ledger.wal-dir:ledger-wal}") Path walDirectory,
+                        @Value("${bank.ledger.segment-size:64MB}") DataSize segmentSize,
+                        @Value("${bank.ledger.lock-stripes:1024}") int lockStripes,
+                        @Value("${bank.ledger.projection-batch-size:1000}") int projectionBatchSize) {
+        this(jdbcTemplate, transactionTemplate, walDirectory, (int) segmentSize.toBytes(), lockStripes,
+                projectionBatchSize);
+    }
+
+    LedgerEngine(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Path walDirectory,
+                 int segmentSize, int lockStripes, int projectionBatchSize) {
+        if (Integer.bitCount(lockStripes) != 1) {
+            throw new IllegalArgumentException("Lock stripes must be a power of two");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.projection = new LedgerProjection(jdbcTemplate);
+        this.walDirectory = walDirectory;
+        this.segmentSize = segmentSize;
+        this.projectionBatchSize = projectionBatchSize;
+        this.stripes = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        List<Long> checkpoint = jdbcTemplate.queryForList(
+                "SELECT projected_sequence FROM ledger_checkpoint WHERE id = ?", Long.class, LedgerProjection.CHECKPOINT_ID);
+        long projected;
+        if (checkpoint.isEmpty()) {
+            // A database the ledger has never written to; a log left in the directory belongs to another one
+            discardLog();
+            jdbcTemplate.update("INSERT INTO ledger_checkpoint (id, projected_sequence) VALUES (?, 0)",
+                    LedgerProjection.CHECKPOINT_ID);
+            projected = 0;
+        } else {
+            projected = checkpoint.get(0);
+        }
+
+        loadAccounts();
+        int[] replayed = {0};
+        wal = new WriteAheadLog(walDirectory, segmentSize, projected, entry -> {
+            if (entry.sequence() > projected) {
+                replay(entry);
+                // The tables have not seen it yet either
+                track(entry);
+                replayed[0]++;
+            }
+        }, this::track);
+        log.info("Ledger started with {} accounts, {} log entries replayed after checkpoint {}",
+                slots, replayed[0], projected);
+    }
+
+    public Transaction transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
+        return transfer(fromAccountNumber, toAccountNumber, amount, null);
+    }
+
+    public Transaction transfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount, String reference) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        long amountMinor = Money.of(amount).minorUnits();
+        long fromKey = toKey(fromAccountNumber);
+        long toKey = toKey(toAccountNumber);
+        if (reference == null) {
+            return apply(fromKey, toKey, amountMinor, null);
+        }
+        if (!WriteAheadLog.fitsReference(reference)) {
+            throw new IllegalArgumentException("Reference is longer than " + WriteAheadLog.MAX_REFERENCE_BYTES + " bytes");
+        }
+
+        // The claim keeps a duplicate from being applied while this one is; without an entry in
+        // memory the reference can only be in the table already
+        LedgerEntry existing = references.putIfAbsent(reference, CLAIMED);
+        if (existing == CLAIMED) {
+            throw new ReferenceConflictException("Reference " + reference + " is still being applied");
+        }
+        if (existing != null) {
+            return replayed(toTransaction(existing), reference, fromKey, toKey, amountMinor);
+        }
+        try {
+            Optional<Transaction> projected = findProjected(reference);
+            if (projected.isPresent()) {
+                return replayed(projected.get(), reference, fromKey, toKey, amountMinor);
+            }
+            return apply(fromKey, toKey, amountMinor, reference);
+        } finally {
+            // Already replaced by the entry if the transfer was logged
+            references.remove(reference, CLAIMED);
+        }
+    }
+
+    // 409 while the reference's transfer is still being applied, so a caller never reads it as missing
+    public Optional<Transaction> findByReference(String reference) {
+        LedgerEntry entry = references.get(reference);
+        if (entry == CLAIMED) {
+            throw new ReferenceConflictException("Reference " + reference + " is still being applied");
+        }
+        return entry != null ? Optional.of(toTransaction(entry)) : findProjected(reference);
+    }
+
+    private Transaction apply(long fromKey, long toKey, long amountMinor, String reference) {
+        int from = slotOf(fromKey, "From account not found");
+        int to = slotOf(toKey, "To account not found");
+
+        ReentrantLock first = stripes[Math.min(stripe(from), stripe(to))];
+        ReentrantLock second = stripes[Math.max(stripe(from), stripe(to))];
+        LedgerEntry entry;
+        first.lock();
+        second.lock();
+        try {
+            long fromBalance = balanceAt(from);
+            if (fromBalance < amountMinor) {
+                throw new IllegalArgumentException("Insufficient balance");
+            }
+            if (fromBalance - amountMinor < MINIMUM_BALANCE_MINOR) {
+                throw new IllegalArgumentException("Cannot transfer: minimum balance of 10,000 must be maintained");
+            }
+            if (from != to && balanceAt(to) > Long.MAX_VALUE - amountMinor) {
+                throw new IllegalArgumentException("Balance would overflow");
+            }
+            // Logged before it is applied, and both under the locks, so a transfer that relied on
+            // this one always comes after it in the log
+            entry = wal.append(System.currentTimeMillis(), fromKey, toKey, amountMinor, reference);
+            addAt(from, -amountMinor);
+            addAt(to, amountMinor);
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+        wal.awaitDurable(entry.sequence());
+        return toTransaction(entry);
+    }
+
+    public BigDecimal balance(String accountNumber) {
+        int slot = slotOf(toKey(accountNumber), "Account not found");
+        ReentrantLock lock = stripes[stripe(slot)];
+        lock.lock();
+        try {
+            return BigDecimal.valueOf(balanceAt(slot), 2);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bank.ledger.projection-interval-ms:200}")
+    public void project() {
+        int projected;
+        do {
+            projected = projectBatch();
+        } while (projected == projectionBatchSize);
+    }
+
+    // Entries only leave the queue once their batch has been committed
+    int projectBatch() {
+        long durable = wal.durableSequence();
+        List<LedgerEntry> batch = new ArrayList<>();
+        for (LedgerEntry entry : unprojected) {
+            if (batch.size() == projectionBatchSize || entry.sequence() > durable) {
+                break;
+            }
+            batch.add(entry);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> projection.apply(batch));
+        for (LedgerEntry entry : batch) {
+            unprojected.poll();
+            if (entry.reference() != null) {
+                references.remove(entry.reference(), entry);
+            }
+        }
+        wal.deleteSegmentsBefore(batch.get(batch.size() - 1).sequence() + 1);
+        return batch.size();
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            project();
+        } catch (RuntimeException e) {
+            log.warn("Could not project the ledger before shutdown, the log will be replayed: {}", e.getMessage());
+        }
+        wal.close();
+    }
+
+    static Transaction toTransaction(LedgerEntry entry) {
+        String from = Long.toString(entry.fromAccount());
+        String to = Long.toString(entry.toAccount());
+        Transaction transaction = new Transaction(from, to, BigDecimal.valueOf(entry.amountMinor(), 2),
+                Transaction.TransactionType.TRANSFER, "Fund transfer from " + from + " to " + to);
+        transaction.setId(TRANSACTION_ID_OFFSET + entry.sequence());
+        transaction.setTransactionDate(LedgerProjection.toDateTime(entry.timestampMillis()));
+        transaction.setReference(entry.reference());
+        return transaction;
+    }
+
+    // Called as entries are logged, under the append lock, or recovered; either way the reference is
+    // in the map before the entry can be projected
+    private void track(LedgerEntry entry) {
+        if (entry.reference() != null) {
+            references.put(entry.reference(), entry);
+        }
+        unprojected.add(entry);
+    }
+
+    private Optional<Transaction> findProjected(String reference) {
+        return jdbcTemplate.query(FIND_BY_REFERENCE, (resultSet, row) -> {
+            Transaction transaction = new Transaction(resultSet.getString(2), resultSet.getString(3),
+                    resultSet.getBigDecimal(4), Transaction.TransactionType.valueOf(resultSet.getString(5)),
+                    resultSet.getString(6));
+            transaction.setId(resultSet.getLong(1));
+            transaction.setTransactionDate(resultSet.getTimestamp(7).toLocalDateTime());
+            transaction.setReference(reference);
+            return transaction;
+        }, reference).stream().findFirst();
+    }
+
+    // Compared by account key, as the ledger writes account numbers without leading zeros
+    private static Transaction replayed(Transaction recorded, String reference, long fromKey, long toKey,
+                                        long amountMinor) {
+        boolean same = recorded.getType() == Transaction.TransactionType.TRANSFER
+                && toKey(recorded.getFromAccountNumber()) == fromKey
+                && toKey(recorded.getToAccountNumber()) == toKey
+                && recorded.getAmount().compareTo(BigDecimal.valueOf(amountMinor, 2)) == 0;
+        if (!same) {
+            throw new ReferenceConflictException("Reference " + reference + " was already used for a different transfer");
+        }
+        return recorded;
+    }
+
+    private void replay(LedgerEntry entry) {
+        int from = index.get(entry.fromAccount());
+        int to = index.get(entry.toAccount());
+        if (from == LongIntMap.MISSING || to == LongIntMap.MISSING) {
+            throw new IllegalStateException("Ledger log entry " + entry.sequence() + " names an account the database does not have");
+        }
+        addAt(from, -entry.amountMinor());
+        addAt(to, entry.amountMinor());
+    }
+
+    private void loadAccounts() {
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query(LOAD_BALANCES, resultSet -> {
+            rows.add(new Object[]{resultSet.getString(1), resultSet.getBigDecimal(2)});
+        });
+        synchronized (indexLock) {
+            LongIntMap loaded = new LongIntMap(rows.size());
+            for (Object[] row : rows) {
+                long key = toKey((String) row[0]);
+                if (key >= 0 && loaded.get(key) == LongIntMap.MISSING) {
+                    loaded.put(key, newSlot(Money.of((BigDecimal) row[1]).minorUnits()));
+                }
+            }
+            index = loaded;
+        }
+    }
+
+    // Accounts registered after startup are read from the database the first time they are used
+    private int slotOf(long key, String notFoundMessage) {
+        if (key < 0) {
+            throw new IllegalArgumentException(notFoundMessage);
+        }
+        int slot = index.get(key);
+        if (slot != LongIntMap.MISSING) {
+            return slot;
+        }
+        synchronized (indexLock) {
+            slot = index.get(key);
+            if (slot != LongIntMap.MISSING) {
+                return slot;
+            }
+            List<BigDecimal> balance = jdbcTemplate.queryForList(LOAD_BALANCE, BigDecimal.class, Long.toString(key));
+            if (balance.isEmpty()) {
+                throw new IllegalArgumentException(notFoundMessage);
+            }
+            slot = newSlot(Money.of(balance.get(0)).minorUnits());
+            LongIntMap next = index.copy();
+            next.put(key, slot);
+            index = next;
+            return slot;
+        }
+    }
+
+    // Called with indexLock held
+    private int newSlot(long balanceMinor) {
+        int slot = slots++;
+        long[][] chunks = balances;
+        if ((slot >>> CHUNK_BITS) == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = new long[CHUNK_MASK + 1];
+        }
+        chunks[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = balanceMinor;
+        balances = chunks;
+        return slot;
+    }
+
+    private long balanceAt(int slot) {
+        return balances[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+    }
+
+    private void addAt(int slot, long amountMinor) {
+        balances[slot >>> CHUNK_BITS][slot & CHUNK_MASK] += amountMinor;
+    }
+
+    private int stripe(int slot) {
+        return slot & (stripes.length - 1);
+    }
+
+    private void discardLog() throws IOException {
+        if (!Files.isDirectory(walDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(walDirectory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(".wal")).toList()) {
+                log.warn("Discarding ledger log segment {} written for another database", file);
+                Files.delete(file);
+            }
+        }
+    }
+
+    // Account numbers BankApp issues are plain decimals; anything else cannot be in the ledger
+    private static long toKey(String accountNumber) {
+        if (accountNumber == null || accountNumber.isEmpty() || accountNumber.length() > 18) {
+            return -1;
+        }
+        for (int i = 0; i < accountNumber.length(); i++) {
+            if (!Character.isDigit(accountNumber.charAt(i))) {
+                return -1;
+            }
+        }
+        long key = Long.parseLong(accountNumber);
+        // A leading zero would not survive the round trip back to a string
+        return Long.toString(key).equals(accountNumber) ? key : -1;
+    }
+}
@@ -0,0 +1,7 @@
+package com.gap.bankapp.ledger;
+
+// One applied transfer as written to the write-ahead log. Account numbers are the numeric account
+// numbers BankApp issues, the amount is in minor units (cents), the reference is the caller's or null.
+record LedgerEntry(long sequence, long timestampMillis, long fromAccount, long toAccount, long amountMinor,
+                   String reference) {
+}
@@ -0,0 +1,62 @@
+package com.gap.bankapp.ledger;
+
+import com.gap.bankapp.fundtransfer.Transaction;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes a batch of ledger entries to the JPA tables with JDBC batches: one balance update per
+// account touched, one transaction row per entry, and the checkpoint. Must run in a transaction so
+// the three either all land or none do, which is what lets recovery replay from the checkpoint.
+final class LedgerProjection {
+
+    static final int CHECKPOINT_ID = 1;
+
+    private static final String ADD_TO_BALANCE = "UPDATE account SET balance = balance + ? WHERE account_number = ?";
+    private static final String INSERT_TRANSACTION = "INSERT INTO transaction "
+            + "(id, from_account_number, to_account_number, amount, type, description, transaction_date, reference) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_CHECKPOINT = "UPDATE ledger_checkpoint SET projected_sequence = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    LedgerProjection(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    void apply(List<LedgerEntry> entries) {
+        Map<Long, Long> deltas = new LinkedHashMap<>();
+        List<Object[]> transactions = new ArrayList<>(entries.size());
+        for (LedgerEntry entry : entries) {
+            deltas.merge(entry.fromAccount(), -entry.amountMinor(), Long::sum);
+            deltas.merge(entry.toAccount(), entry.amountMinor(), Long::sum);
+            Transaction transaction = LedgerEngine.toTransaction(entry);
+            transactions.add(new Object[]{transaction.getId(), transaction.getFromAccountNumber(),
+                    transaction.getToAccountNumber(), transaction.getAmount(), transaction.getType().name(),
+                    transaction.getDescription(), Timestamp.valueOf(transaction.getTransactionDate()),
+                    transaction.getReference()});
+        }
+
+        List<Object[]> balances = new ArrayList<>(deltas.size());
+        deltas.forEach((account, delta) -> {
+            if (delta != 0) {
+                balances.add(new Object[]{BigDecimal.valueOf(delta, 2), Long.toString(account)});
+            }
+        });
+        jdbcTemplate.batchUpdate(ADD_TO_BALANCE, balances);
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, transactions);
+        jdbcTemplate.update(UPDATE_CHECKPOINT, entries.get(entries.size() - 1).sequence(), CHECKPOINT_ID);
+    }
+
+    static LocalDateTime toDateTime(long timestampMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis), ZoneId.systemDefault());
+    }
+}
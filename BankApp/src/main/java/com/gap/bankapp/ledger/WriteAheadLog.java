@@ -0,0 +1,352 @@
+package com.gap.bankapp.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Append-only log of ledger entries in memory-mapped segment files of segmentSize bytes, named after
+// the first sequence they hold. Records are fixed-size: payload length, CRC32C of the payload, then
+// sequence, timestamp, from, to, amount and the reference (its UTF-8 length, -1 for none, and room
+// for MAX_REFERENCE_BYTES). Appends only copy into the mapping; a flusher thread
+// forces everything appended since its last pass in one go, so concurrent transfers share an fsync.
+// On open, records are read back until the first one that is missing, torn or out of sequence, and
+// the rest of that segment is zeroed before appending resumes.
+@Slf4j
+final class WriteAheadLog implements Closeable {
+
+    static final int MAX_REFERENCE_BYTES = 64;
+    static final int PAYLOAD_SIZE = 5 * Long.BYTES + Short.BYTES + MAX_REFERENCE_BYTES;
+    static final int RECORD_SIZE = 2 * Integer.BYTES + PAYLOAD_SIZE;
+
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Consumer<LedgerEntry> appended;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private int forcedPosition;
+    private long nextSequence;
+    private volatile long appendedSequence;
+
+    private final Object flushMonitor = new Object();
+    private volatile long durableSequence;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    // Replays every valid record to recovered, then calls appended (under the append lock, so in
+    // sequence order) for each new record. Sequences continue after max(last record, minimumSequence).
+    WriteAheadLog(Path directory, int segmentSize, long minimumSequence,
+                  Consumer<LedgerEntry> recovered, Consumer<LedgerEntry> appended) throws IOException {
+        if (segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("Segment size must hold at least one record");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.appended = appended;
+        Files.createDirectories(directory);
+
+        long lastSequence = recover(recovered);
+        nextSequence = Math.max(lastSequence, minimumSequence) + 1;
+        appendedSequence = nextSequence - 1;
+        durableSequence = appendedSequence;
+        if (segment == null) {
+            openSegment(nextSequence);
+        }
+
+        flusher = Thread.ofPlatform().name("ledger-wal-flusher").daemon().start(this::flushLoop);
+    }
+
+    // Returns the entry with its sequence; durable only once awaitDurable returns
+    LedgerEntry append(long timestampMillis, long fromAccount, long toAccount, long amountMinor, String reference) {
+        if (!fitsReference(reference)) {
+            throw new IllegalArgumentException("Reference is longer than " + MAX_REFERENCE_BYTES + " bytes");
+        }
+        appendLock.lock();
+        try {
+            checkUsable();
+            if (position + RECORD_SIZE > segmentSize) {
+                roll();
+            }
+            LedgerEntry entry = new LedgerEntry(nextSequence++, timestampMillis, fromAccount, toAccount, amountMinor,
+                    reference);
+            write(segment, position, entry);
+            position += RECORD_SIZE;
+            appendedSequence = entry.sequence();
+            appended.accept(entry);
+            return entry;
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    static boolean fitsReference(String reference) {
+        return reference == null || reference.getBytes(StandardCharsets.UTF_8).length <= MAX_REFERENCE_BYTES;
+    }
+
+    void awaitDurable(long sequence) {
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+            while (durableSequence < sequence) {
+                checkUsable();
+                try {
+                    flushMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the ledger log");
+                }
+            }
+        }
+    }
+
+    long durableSequence() {
+        return durableSequence;
+    }
+
+    // Deletes segments whose entries all have a sequence below the given one; never the one in use
+    void deleteSegmentsBefore(long sequence) {
+        List<Path> segments;
+        try {
+            segments = segmentFiles();
+        } catch (IOException e) {
+            log.warn("Could not list ledger log segments: {}", e.getMessage());
+            return;
+        }
+        // A segment only holds sequences below the first sequence of the next one
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSequence(segments.get(i + 1)) <= sequence) {
+                try {
+                    Files.deleteIfExists(segments.get(i));
+                } catch (IOException e) {
+                    log.warn("Could not delete ledger log segment {}: {}", segments.get(i), e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.lock();
+        try {
+            if (channel != null) {
+                segment.force();
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Could not close ledger log: {}", e.getMessage());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (flushMonitor) {
+                // Woken by awaitDurable, which every appender calls
+                while (!closed && appendedSequence <= durableSequence && failure == null) {
+                    try {
+                        flushMonitor.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (failure != null || (closed && appendedSequence <= durableSequence)) {
+                    flushMonitor.notifyAll();
+                    return;
+                }
+            }
+            flushOnce();
+        }
+    }
+
+    private void flushOnce() {
+        MappedByteBuffer buffer;
+        int from;
+        int to;
+        long target;
+        appendLock.lock();
+        try {
+            buffer = segment;
+            from = forcedPosition;
+            to = position;
+            target = appendedSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            if (to > from) {
+                buffer.force(from, to - from);
+            }
+        } catch (UncheckedIOException e) {
+            fail(e.getCause());
+            return;
+        }
+        appendLock.lock();
+        try {
+            if (buffer == segment) {
+                forcedPosition = Math.max(forcedPosition, to);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        synchronized (flushMonitor) {
+            durableSequence = Math.max(durableSequence, target);
+            flushMonitor.notifyAll();
+        }
+    }
+
+    // Called with the append lock held; the old segment is forced completely before it is left
+    private void roll() throws IOException {
+        segment.force();
+        channel.close();
+        openSegment(nextSequence);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        position = 0;
+        forcedPosition = 0;
+    }
+
+    private long recover(Consumer<LedgerEntry> recovered) throws IOException {
+        long lastSequence = 0;
+        List<Path> segments = segmentFiles();
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            long expected = firstSequence(file);
+            if (lastSequence != 0 && expected != lastSequence + 1) {
+                throw new IllegalStateException("Ledger log jumps from " + lastSequence + " to " + expected + " at " + file);
+            }
+            FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            int offset = 0;
+            LedgerEntry entry;
+            while (offset + RECORD_SIZE <= segmentSize && (entry = read(buffer, offset, expected)) != null) {
+                recovered.accept(entry);
+                lastSequence = entry.sequence();
+                expected++;
+                offset += RECORD_SIZE;
+            }
+            boolean last = i == segments.size() - 1;
+            if (!last) {
+                fileChannel.close();
+                continue;
+            }
+            // Anything after the last good record is a torn or stale write
+            for (int zero = offset; zero < segmentSize; zero++) {
+                buffer.put(zero, (byte) 0);
+            }
+            buffer.force();
+            channel = fileChannel;
+            segment = buffer;
+            position = offset;
+            forcedPosition = offset;
+        }
+        return lastSequence;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static void write(MappedByteBuffer buffer, int offset, LedgerEntry entry) {
+        int payload = offset + 2 * Integer.BYTES;
+        buffer.putLong(payload, entry.sequence());
+        buffer.putLong(payload + 8, entry.timestampMillis());
+        buffer.putLong(payload + 16, entry.fromAccount());
+        buffer.putLong(payload + 24, entry.toAccount());
+        buffer.putLong(payload + 32, entry.amountMinor());
+        byte[] reference = entry.reference() == null ? null : entry.reference().getBytes(StandardCharsets.UTF_8);
+        buffer.putShort(payload + 40, (short) (reference == null ? -1 : reference.length));
+        if (reference != null) {
+            buffer.put(payload + 42, reference);
+        }
+        buffer.putInt(offset + Integer.BYTES, checksum(buffer, payload));
+        buffer.putInt(offset, PAYLOAD_SIZE);
+    }
+
+    private static LedgerEntry read(MappedByteBuffer buffer, int offset, long expectedSequence) {
+        int payload = offset + 2 * Integer.BYTES;
+        if (buffer.getInt(offset) != PAYLOAD_SIZE || buffer.getInt(offset + Integer.BYTES) != checksum(buffer, payload)) {
+            return null;
+        }
+        long sequence = buffer.getLong(payload);
+        if (sequence != expectedSequence) {
+            return null;
+        }
+        short referenceLength = buffer.getShort(payload + 40);
+        if (referenceLength < -1 || referenceLength > MAX_REFERENCE_BYTES) {
+            return null;
+        }
+        String reference = null;
+        if (referenceLength >= 0) {
+            byte[] bytes = new byte[referenceLength];
+            buffer.get(payload + 42, bytes);
+            reference = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new LedgerEntry(sequence, buffer.getLong(payload + 8), buffer.getLong(payload + 16),
+                buffer.getLong(payload + 24), buffer.getLong(payload + 32), reference);
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(payload, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new IllegalStateException("Ledger log is unusable: " + failure.getMessage());
+        }
+        if (closed) {
+            throw new IllegalStateException("Ledger log is closed");
+        }
+    }
+
+    private void fail(IOException e) {
+        log.error("Ledger log failed: {}", e.getMessage());
+        failure = e;
+        synchronized (flushMonitor) {
+            flushMonitor.notifyAll();
+        }
+    }
+
+}
@@ -5,7 +5,6 @@ import com.gap.bankapp.account.AccountRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.util.Random;
 
 @Service
@@ -20,7 +19,7 @@ public class RegistrationService {
         account.setAccountNumber(accountNumber);
 
         // Validate minimum balance
-        if (account.getBalance().compareTo(new BigDecimal("10000")) < 0) {
+        if (account.getBalance().compareTo(Account.MINIMUM_BALANCE) < 0) {
             throw new IllegalArgumentException("Minimum balance should be 10,000");
         }
 
@@ -21,6 +21,9 @@ class AccountServiceTest {
     @Mock
     private AccountRepository accountRepository;
 
+    @Mock
+    private HotAccountService hotAccountService;
+
     @InjectMocks
     private AccountService accountService;
 
@@ -86,6 +89,22 @@ class AccountServiceTest {
         verify(accountRepository, times(1)).findByAccountNumber(accountNumber);
     }
 
+    @Test
+    void getAccountByAccountNumber_ShouldIncludeShardBalances_WhenAccountIsSharded() {
+        // Arrange
+        String accountNumber = "1234567890";
+        when(accountRepository.findByAccountNumber(accountNumber)).thenReturn(Optional.of(testAccount));
+        when(hotAccountService.isSharded(accountNumber)).thenReturn(true);
+        when(hotAccountService.shardBalance(accountNumber)).thenReturn(new BigDecimal("1500"));
+
+        // Act
+        Account actualAccount = accountService.getAccountByAccountNumber(accountNumber);
+
+        // Assert
+        assertEquals(new BigDecimal("51500"), actualAccount.getBalance());
+        assertEquals(new BigDecimal("50000"), testAccount.getBalance()); // Stored row untouched
+    }
+
     @Test
     void getAccountByAccountNumber_ShouldThrowException_WhenAccountNotFound() {
         // Arrange
@@ -0,0 +1,133 @@
+package com.gap.bankapp.account;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotAccountServiceTest {
+
+    private static final String MERCHANT = "1349885778";
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private AccountShardRepository accountShardRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private HotAccountService hotAccountService;
+
+    @BeforeEach
+    void setUp() {
+        hotAccountService = new HotAccountService(accountRepository, accountShardRepository, transactionTemplate,
+                List.of(MERCHANT), 4);
+    }
+
+    @Test
+    void registerConfiguredAccounts_ShouldCreateMissingShards() {
+        // Arrange
+        when(accountShardRepository.countShards()).thenReturn(List.of());
+
+        // Act
+        hotAccountService.registerConfiguredAccounts();
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AccountShard>> saved = ArgumentCaptor.forClass(List.class);
+        verify(accountShardRepository).saveAll(saved.capture());
+        assertEquals(List.of(0, 1, 2, 3), saved.getValue().stream().map(AccountShard::getShardIndex).toList());
+        assertTrue(hotAccountService.isSharded(MERCHANT));
+        assertFalse(hotAccountService.isSharded("1234567890"));
+    }
+
+    @Test
+    void shard_ShouldOnlyAddShardsBeyondExistingOnes() {
+        // Arrange
+        hotAccountService.shard(MERCHANT, 2);
+
+        // Act
+        hotAccountService.shard(MERCHANT, 3);
+        hotAccountService.shard(MERCHANT, 1);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<AccountShard>> saved = ArgumentCaptor.forClass(List.class);
+        verify(accountShardRepository, times(2)).saveAll(saved.capture());
+        assertEquals(List.of(2), saved.getAllValues().get(1).stream().map(AccountShard::getShardIndex).toList());
+    }
+
+    @Test
+    void credit_ShouldSpreadCreditsOverShardsRoundRobin() {
+        // Arrange
+        hotAccountService.shard(MERCHANT, 2);
+        AccountShard first = new AccountShard(MERCHANT, 0);
+        AccountShard second = new AccountShard(MERCHANT, 1);
+        when(accountShardRepository.findForUpdate(MERCHANT, 0)).thenReturn(Optional.of(first));
+        when(accountShardRepository.findForUpdate(MERCHANT, 1)).thenReturn(Optional.of(second));
+
+        // Act
+        hotAccountService.credit(MERCHANT, new BigDecimal("10"));
+        hotAccountService.credit(MERCHANT, new BigDecimal("20"));
+        hotAccountService.credit(MERCHANT, new BigDecimal("30"));
+
+        // Assert
+        assertEquals(new BigDecimal("40"), first.getBalance());
+        assertEquals(new BigDecimal("20"), second.getBalance());
+    }
+
+    @Test
+    void compact_ShouldFoldShardsIntoAccountRow() {
+        // Arrange
+        Account merchant = new Account("GAP INC", "56", "gap@inc.com", "0687654321", MERCHANT, new BigDecimal("75000"));
+        AccountShard first = new AccountShard(MERCHANT, 0);
+        first.setBalance(new BigDecimal("40"));
+        AccountShard second = new AccountShard(MERCHANT, 1);
+        second.setBalance(new BigDecimal("20"));
+        when(accountRepository.findByAccountNumberForUpdate(MERCHANT)).thenReturn(Optional.of(merchant));
+        when(accountShardRepository.findAllForUpdate(MERCHANT)).thenReturn(List.of(first, second));
+
+        // Act
+        BigDecimal moved = hotAccountService.compact(MERCHANT);
+
+        // Assert
+        assertEquals(new BigDecimal("60"), moved);
+        assertEquals(new BigDecimal("75060"), merchant.getBalance());
+        assertEquals(0, first.getBalance().signum());
+        assertEquals(0, second.getBalance().signum());
+        verify(accountRepository).save(merchant);
+    }
+
+    @Test
+    void compact_ShouldWriteNothing_WhenShardsAreEmpty() {
+        // Arrange
+        Account merchant = new Account("GAP INC", "56", "gap@inc.com", "0687654321", MERCHANT, new BigDecimal("75000"));
+        when(accountRepository.findByAccountNumberForUpdate(MERCHANT)).thenReturn(Optional.of(merchant));
+        when(accountShardRepository.findAllForUpdate(MERCHANT)).thenReturn(List.of(new AccountShard(MERCHANT, 0)));
+
+        // Act
+        BigDecimal moved = hotAccountService.compact(MERCHANT);
+
+        // Assert
+        assertEquals(0, moved.signum());
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(accountShardRepository, never()).saveAll(anyList());
+        verify(accountShardRepository, never()).findForUpdate(anyString(), anyInt());
+    }
+}
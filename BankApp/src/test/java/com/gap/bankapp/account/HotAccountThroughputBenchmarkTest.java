@@ -0,0 +1,101 @@
+package com.gap.bankapp.account;
+
+import com.gap.bankapp.fundtransfer.FundTransferService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Concurrent transfers from many customers into one merchant account, first with the merchant as a
+// single row, then sharded into 4 and 16 rows. Each run ends with a compaction and checks that the
+// merchant received exactly what the successful transfers paid.
+// Excluded from the default build; run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hotaccountbenchmarkdb;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false",
+        "bank.hot-accounts.account-numbers=",
+        // Compaction runs explicitly at the end of each round
+        "bank.hot-accounts.compaction-interval-ms=3600000"
+})
+class HotAccountThroughputBenchmarkTest {
+
+    private static final int[] SHARD_COUNTS = {1, 4, 16};
+    private static final int THREADS = 32;
+    private static final int CUSTOMERS = 256;
+    private static final int TRANSFERS = 4000;
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000.00");
+
+    @Autowired
+    private FundTransferService fundTransferService;
+
+    @Autowired
+    private HotAccountService hotAccountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Test
+    void transfersIntoMerchant_ScaleWithShardCount() throws InterruptedException {
+        double[] perSecond = new double[SHARD_COUNTS.length];
+        System.out.printf("%n%-7s %12s %10s%n", "shards", "transfers/s", "failed");
+        for (int i = 0; i < SHARD_COUNTS.length; i++) {
+            int shards = SHARD_COUNTS[i];
+            List<String> customers = createAccounts("HOT" + shards + "-C", CUSTOMERS);
+            String merchant = createAccounts("HOT" + shards + "-M", 1).get(0);
+            if (shards > 1) {
+                hotAccountService.shard(merchant, shards);
+            }
+
+            AtomicInteger failed = new AtomicInteger();
+            ExecutorService payments = Executors.newFixedThreadPool(THREADS);
+            long started = System.nanoTime();
+            for (int t = 0; t < TRANSFERS; t++) {
+                String customer = customers.get(t % CUSTOMERS);
+                payments.execute(() -> {
+                    try {
+                        fundTransferService.transferFunds(customer, merchant, AMOUNT);
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                });
+            }
+            payments.shutdown();
+            assertTrue(payments.awaitTermination(5, TimeUnit.MINUTES));
+            perSecond[i] = (TRANSFERS - failed.get()) / ((System.nanoTime() - started) / 1e9);
+            System.out.printf("%-7d %12.0f %10d%n", shards, perSecond[i], failed.get());
+
+            hotAccountService.compact(merchant);
+            BigDecimal received = accountRepository.findByAccountNumber(merchant).orElseThrow().getBalance()
+                    .subtract(OPENING_BALANCE);
+            assertEquals(0, AMOUNT.multiply(BigDecimal.valueOf(TRANSFERS - failed.get())).compareTo(received));
+            assertEquals(0, hotAccountService.shardBalance(merchant).signum());
+        }
+        assertTrue(perSecond[SHARD_COUNTS.length - 1] > perSecond[0], "Sharding did not raise throughput");
+    }
+
+    private List<String> createAccounts(String prefix, int count) {
+        List<String> accountNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String accountNumber = prefix + "-" + i;
+            accountRepository.save(new Account("Benchmark " + accountNumber, "30", accountNumber + "@example.com",
+                    "0000000000", accountNumber, OPENING_BALANCE));
+            accountNumbers.add(accountNumber);
+        }
+        return accountNumbers;
+    }
+}
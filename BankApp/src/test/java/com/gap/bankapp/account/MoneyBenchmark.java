@@ -0,0 +1,89 @@
+package com.gap.bankapp.account;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// JMH comparison of the balance arithmetic of one transfer with BigDecimal, as FundTransferService
+// does it on the entity balances, converted to Money and back, and in Money alone, as the ledger
+// does it. The GC profiler reports bytes allocated per transfer (gc.alloc.rate.norm). Counting from
+// the code: bigDecimal() creates three BigDecimals, converted() six (three of() and two
+// toBigDecimal() calls, plus the final add), moneyOnly() none. Converting at both ends costs more
+// than it saves, which is why only the ledger, which keeps cents end to end, uses Money.
+// Excluded from the default build; run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final Money MINIMUM_BALANCE = Money.of(Account.MINIMUM_BALANCE);
+
+    private BigDecimal fromBalance = new BigDecimal("50000.00");
+    private BigDecimal toBalance = new BigDecimal("25000.00");
+    private BigDecimal amount = new BigDecimal("125.50");
+
+    private final Money fromMoney = Money.of(fromBalance);
+    private final Money toMoney = Money.of(toBalance);
+    private final Money amountMoney = Money.of(amount);
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        if (fromBalance.compareTo(amount) < 0) {
+            throw new IllegalArgumentException("Insufficient balance");
+        }
+        BigDecimal remaining = fromBalance.subtract(amount);
+        if (remaining.compareTo(Account.MINIMUM_BALANCE) < 0) {
+            throw new IllegalArgumentException("Cannot transfer: minimum balance of 10,000 must be maintained");
+        }
+        BigDecimal newTo = toBalance.add(amount);
+        return remaining.add(newTo);
+    }
+
+    @Benchmark
+    public BigDecimal converted() {
+        Money transferAmount = Money.of(amount);
+        Money balance = Money.of(fromBalance);
+        if (balance.isLessThan(transferAmount)) {
+            throw new IllegalArgumentException("Insufficient balance");
+        }
+        Money remaining = balance.minus(transferAmount);
+        if (remaining.isLessThan(MINIMUM_BALANCE)) {
+            throw new IllegalArgumentException("Cannot transfer: minimum balance of 10,000 must be maintained");
+        }
+        BigDecimal newFrom = remaining.toBigDecimal();
+        BigDecimal newTo = Money.of(toBalance).plus(transferAmount).toBigDecimal();
+        return newFrom.add(newTo);
+    }
+
+    // The arithmetic alone, for code such as the ledger that keeps amounts as Money or long cents throughout
+    @Benchmark
+    public long moneyOnly() {
+        if (fromMoney.isLessThan(amountMoney)) {
+            throw new IllegalArgumentException("Insufficient balance");
+        }
+        Money remaining = fromMoney.minus(amountMoney);
+        if (remaining.isLessThan(MINIMUM_BALANCE)) {
+            throw new IllegalArgumentException("Cannot transfer: minimum balance of 10,000 must be maintained");
+        }
+        return remaining.minorUnits() + toMoney.plus(amountMoney).minorUnits();
+    }
+
+    @Test
+    void runBenchmarks() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(MoneyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
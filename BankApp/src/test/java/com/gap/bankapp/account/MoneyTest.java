@@ -0,0 +1,64 @@
+package com.gap.bankapp.account;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void of_ShouldKeepEveryCent() {
+        assertEquals(1250L, Money.of(new BigDecimal("12.5")).minorUnits());
+        assertEquals(1000000L, Money.of(new BigDecimal("10000")).minorUnits());
+        assertEquals(7L, Money.of(new BigDecimal("0.070")).minorUnits());
+        assertEquals(new BigDecimal("12.50"), Money.of(new BigDecimal("12.5")).toBigDecimal());
+    }
+
+    @Test
+    void of_ShouldReject_FractionsOfACent() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void of_ShouldReject_AmountsBeyondTheRangeOfALong() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(new BigDecimal("1E+20")));
+    }
+
+    @Test
+    void plusAndMinus_ShouldThrow_InsteadOfOverflowing() {
+        Money max = new Money(Long.MAX_VALUE);
+        Money min = new Money(Long.MIN_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(new Money(1)));
+        assertThrows(ArithmeticException.class, () -> min.minus(new Money(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMajor(Long.MAX_VALUE / 10));
+    }
+
+    @Test
+    void arithmetic_ShouldMatchBigDecimal() {
+        // Arrange
+        Money balance = Money.of(new BigDecimal("50000.00"));
+        Money amount = Money.of(new BigDecimal("39999.99"));
+
+        // Act
+        Money remaining = balance.minus(amount);
+
+        // Assert
+        assertEquals(new BigDecimal("10000.01"), remaining.toBigDecimal());
+        Money minimum = Money.of(Account.MINIMUM_BALANCE);
+        assertFalse(remaining.isLessThan(minimum));
+        assertTrue(remaining.minus(new Money(2)).isLessThan(minimum));
+    }
+
+    @Test
+    void json_ShouldBeThePlainDecimalNumber() throws JsonProcessingException {
+        assertEquals("12.50", objectMapper.writeValueAsString(Money.of(new BigDecimal("12.5"))));
+        assertEquals(new Money(1250), objectMapper.readValue("12.5", Money.class));
+    }
+}
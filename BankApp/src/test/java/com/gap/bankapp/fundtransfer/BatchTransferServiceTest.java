@@ -0,0 +1,253 @@
+package com.gap.bankapp.fundtransfer;
+
+import com.gap.bankapp.account.Account;
+import com.gap.bankapp.account.AccountRepository;
+import com.gap.bankapp.account.HotAccountService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against the database, since the service locks and writes with plain JDBC. Chunks are three
+// transfers, so the tests cover transfers that share a chunk and ones that do not.
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batchtransferdb",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false",
+        "bank.transfers.batch.chunk-size=3",
+        "bank.transfers.batch.max-transfers=20000",
+        // Shard credits stay in the shards while the tests look at them
+        "bank.hot-accounts.compaction-interval-ms=3600000"
+})
+class BatchTransferServiceTest {
+
+    private static long nextAccountNumber = 9400000000L;
+
+    @Autowired
+    private BatchTransferService batchTransferService;
+
+    @Autowired
+    private FundTransferService fundTransferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private HotAccountService hotAccountService;
+
+    @Test
+    void transferBatch_ShouldApplyTransfersInOrderAndReportEachOne() {
+        // Arrange
+        String alice = createAccount("20000.00");
+        String bob = createAccount("15000.00");
+        String carol = createAccount("10000.00");
+        List<TransferRequest> transfers = List.of(
+                new TransferRequest(alice, bob, new BigDecimal("5000.00")),
+                // Only possible because of the transfer before it
+                new TransferRequest(bob, carol, new BigDecimal("10000.00")),
+                new TransferRequest(carol, alice, new BigDecimal("1.00")),
+                new TransferRequest(alice, "NO-SUCH-ACCOUNT", new BigDecimal("1.00")),
+                new TransferRequest(alice, bob, new BigDecimal("0.001")),
+                new TransferRequest(alice, bob, new BigDecimal("5000.00")));
+
+        // Act
+        BatchTransferResponse response = batchTransferService.transferBatch(transfers);
+
+        // Assert
+        assertEquals(4, response.getSucceededCount());
+        assertEquals(2, response.getFailedCount());
+        List<BatchTransferResult> results = response.getResults();
+        assertEquals(6, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals("To account not found", results.get(3).getError());
+        assertFalse(results.get(4).isSuccess());
+        assertNull(results.get(4).getTransactionId());
+        assertTrue(results.get(5).isSuccess());
+
+        assertBalance(alice, "10001.00");
+        assertBalance(bob, "15000.00");
+        assertBalance(carol, "19999.00");
+        Transaction first = transactionRepository.findById(results.get(0).getTransactionId()).orElseThrow();
+        assertEquals(alice, first.getFromAccountNumber());
+        assertEquals(bob, first.getToAccountNumber());
+        assertEquals(Transaction.TransactionType.TRANSFER, first.getType());
+        assertEquals(0, new BigDecimal("5000.00").compareTo(first.getAmount()));
+    }
+
+    @Test
+    void transferBatch_ShouldEnforceMinimumBalanceAcrossTransfersInOneChunk() {
+        // Arrange
+        String payer = createAccount("12000.00");
+        String payee = createAccount("10000.00");
+        List<TransferRequest> transfers = List.of(
+                new TransferRequest(payer, payee, new BigDecimal("1500.00")),
+                new TransferRequest(payer, payee, new BigDecimal("1500.00")),
+                new TransferRequest(payer, payer, new BigDecimal("100.00")));
+
+        // Act
+        BatchTransferResponse response = batchTransferService.transferBatch(transfers);
+
+        // Assert
+        assertTrue(response.getResults().get(0).isSuccess());
+        assertEquals("Cannot transfer: minimum balance of 10,000 must be maintained",
+                response.getResults().get(1).getError());
+        assertTrue(response.getResults().get(2).isSuccess());
+        assertBalance(payer, "10500.00");
+        assertBalance(payee, "11500.00");
+    }
+
+    @Test
+    void transferBatch_ShouldCreditShardedPayeeThroughItsShards() {
+        // Arrange
+        String payer = createAccount("20000.00");
+        String otherPayer = createAccount("20000.00");
+        String merchant = createAccount("20000.00");
+        hotAccountService.shard(merchant, 4);
+        List<TransferRequest> transfers = List.of(
+                new TransferRequest(payer, merchant, new BigDecimal("100.00")),
+                new TransferRequest(otherPayer, merchant, new BigDecimal("250.50")),
+                new TransferRequest(merchant, payer, new BigDecimal("10.00")),
+                new TransferRequest(payer, merchant, new BigDecimal("49.50")));
+
+        // Act
+        BatchTransferResponse response = batchTransferService.transferBatch(transfers);
+
+        // Assert
+        assertEquals(4, response.getSucceededCount());
+        assertBalance(payer, "19860.50");
+        assertBalance(otherPayer, "19749.50");
+        // Only the merchant's own debit touched its account row; the credits wait in the shards
+        assertBalance(merchant, "19990.00");
+        assertEquals(0, new BigDecimal("400.00").compareTo(hotAccountService.shardBalance(merchant)));
+    }
+
+    @Test
+    void transferBatch_ShouldRejectZeroAmounts() {
+        // Arrange
+        String payer = createAccount("20000.00");
+        String payee = createAccount("10000.00");
+
+        // Act
+        BatchTransferResponse response = batchTransferService.transferBatch(
+                List.of(new TransferRequest(payer, payee, new BigDecimal("0.00"))));
+
+        // Assert
+        assertEquals("Amount must be positive", response.getResults().get(0).getError());
+        assertEquals(0, transactionRepository.findByFromAccountNumberOrToAccountNumberOrderByTransactionDateDesc(
+                payer, payer).size());
+    }
+
+    @Test
+    void transferBatch_ShouldApplyEachReferenceOnce() {
+        // Arrange
+        String payer = createAccount("20000.00");
+        String payee = createAccount("10000.00");
+        Transaction single = fundTransferService.transferFunds(payer, payee, new BigDecimal("1.00"), "REF-" + payer);
+        List<TransferRequest> transfers = List.of(
+                new TransferRequest(payer, payee, new BigDecimal("100.00"), "BATCH-" + payer),
+                new TransferRequest(payer, payee, new BigDecimal("100.00"), "BATCH-" + payer),
+                new TransferRequest(payer, payee, new BigDecimal("1.00"), "REF-" + payer),
+                // Next chunk, after the first one committed
+                new TransferRequest(payer, payee, new BigDecimal("100.00"), "BATCH-" + payer),
+                new TransferRequest(payer, payee, new BigDecimal("999.00"), "BATCH-" + payer));
+
+        // Act
+        BatchTransferResponse response = batchTransferService.transferBatch(transfers);
+        BatchTransferResponse retried = batchTransferService.transferBatch(transfers.subList(0, 1));
+
+        // Assert
+        List<BatchTransferResult> results = response.getResults();
+        Long batchTransaction = results.get(0).getTransactionId();
+        assertNotNull(batchTransaction);
+        assertEquals(batchTransaction, results.get(1).getTransactionId());
+        assertEquals(single.getId(), results.get(2).getTransactionId());
+        assertEquals(batchTransaction, results.get(3).getTransactionId());
+        assertEquals("Reference BATCH-" + payer + " was already used for a different transfer", results.get(4).getError());
+        assertEquals(batchTransaction, retried.getResults().get(0).getTransactionId());
+        assertBalance(payer, "19899.00");
+        assertEquals("BATCH-" + payer, transactionRepository.findById(batchTransaction).orElseThrow().getReference());
+    }
+
+    @Test
+    void transferBatch_ShouldReject_EmptyAndOversizedBatches() {
+        String payer = createAccount("20000.00");
+        List<TransferRequest> tooMany = Collections.nCopies(20001,
+                new TransferRequest(payer, payer, BigDecimal.ONE));
+
+        assertThrows(IllegalArgumentException.class, () -> batchTransferService.transferBatch(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> batchTransferService.transferBatch(null));
+        assertThrows(IllegalArgumentException.class, () -> batchTransferService.transferBatch(tooMany));
+    }
+
+    // Excluded from the default build; run with: mvn test -Pbenchmark
+    @Tag("benchmark")
+    @Test
+    void batchThroughput_BeatsOneTransferPerCall() {
+        int accounts = 100;
+        int transfers = 20000;
+        List<String> single = new ArrayList<>();
+        List<String> batched = new ArrayList<>();
+        for (int i = 0; i < accounts; i++) {
+            single.add(createAccount("1000000.00"));
+            batched.add(createAccount("1000000.00"));
+        }
+
+        long started = System.nanoTime();
+        for (TransferRequest transfer : randomTransfers(single, transfers)) {
+            fundTransferService.transferFunds(transfer.getFromAccountNumber(), transfer.getToAccountNumber(),
+                    transfer.getAmount());
+        }
+        double singlePerSecond = transfers / ((System.nanoTime() - started) / 1e9);
+
+        List<TransferRequest> batch = randomTransfers(batched, transfers);
+        started = System.nanoTime();
+        BatchTransferResponse response = batchTransferService.transferBatch(batch);
+        double batchPerSecond = transfers / ((System.nanoTime() - started) / 1e9);
+
+        System.out.printf("%n%-10s %12s%n%-10s %12.0f%n%-10s %12.0f%n",
+                "path", "transfers/s", "single", singlePerSecond, "batch", batchPerSecond);
+        assertEquals(transfers, response.getSucceededCount());
+        assertTrue(batchPerSecond > singlePerSecond, "Batching did not raise throughput");
+    }
+
+    private List<TransferRequest> randomTransfers(List<String> accounts, int count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<TransferRequest> transfers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int from = random.nextInt(accounts.size());
+            int to = (from + 1 + random.nextInt(accounts.size() - 1)) % accounts.size();
+            transfers.add(new TransferRequest(accounts.get(from), accounts.get(to), new BigDecimal("10.00")));
+        }
+        return transfers;
+    }
+
+    private String createAccount(String balance) {
+        String accountNumber = Long.toString(nextAccountNumber++);
+        accountRepository.save(new Account("Batch " + accountNumber, "30", accountNumber + "@example.com",
+                "0000000000", accountNumber, new BigDecimal(balance)));
+        return accountNumber;
+    }
+
+    private void assertBalance(String accountNumber, String expected) {
+        BigDecimal balance = accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance();
+        assertEquals(0, new BigDecimal(expected).compareTo(balance));
+    }
+}
@@ -0,0 +1,160 @@
+package com.gap.bankapp.fundtransfer;
+
+import com.gap.bankapp.account.Account;
+import com.gap.bankapp.account.AccountRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Transfers between random pairs of a few accounts from many threads at once, so A->B and B->A
+// regularly race each other. Without row locks updates get lost and money appears or disappears;
+// with locks taken in the wrong order the database reports deadlocks or lock timeouts.
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transferconcurrencydb;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class FundTransferConcurrencyTest {
+
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000.00");
+
+    @Autowired
+    private FundTransferService fundTransferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void concurrentTransfersBetweenRandomPairs_ConserveTotalBalance() throws Exception {
+        // Arrange
+        List<String> accounts = createAccounts("STRESS", 6);
+        BigDecimal totalBefore = total(accounts);
+
+        // Act
+        Result result = run(accounts, 16, 3000);
+
+        // Assert
+        assertTrue(result.errors().isEmpty(), () -> "Transfers failed: " + result.errors());
+        assertEquals(0, totalBefore.compareTo(total(accounts)));
+        long recorded = accounts.stream()
+                .mapToLong(account -> transactionRepository
+                        .findByFromAccountNumberOrToAccountNumberOrderByTransactionDateDesc(account, account).stream()
+                        .filter(transaction -> account.equals(transaction.getFromAccountNumber()))
+                        .count())
+                .sum();
+        assertEquals(result.succeeded(), recorded);
+    }
+
+    @Test
+    void concurrentTransfersWithOneReference_MoveMoneyOnce() throws Exception {
+        // Arrange
+        List<String> accounts = createAccounts("REPLAY", 2);
+        BigDecimal amount = new BigDecimal("100.00");
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+
+        // Act - a duplicate either sees the recorded transfer or fails on the unique reference
+        for (int i = 0; i < 8; i++) {
+            clients.execute(() -> {
+                try {
+                    fundTransferService.transferFunds(accounts.get(0), accounts.get(1), amount, "REPLAY-ORDER");
+                } catch (DataIntegrityViolationException e) {
+                    // The controller answers these with the recorded transfer
+                } catch (RuntimeException e) {
+                    errors.add(e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            });
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(1, TimeUnit.MINUTES));
+
+        // Assert
+        assertTrue(errors.isEmpty(), () -> "Transfers failed: " + errors);
+        assertEquals(0, OPENING_BALANCE.subtract(amount).compareTo(
+                accountRepository.findByAccountNumber(accounts.get(0)).orElseThrow().getBalance()));
+        assertTrue(fundTransferService.findReplay("REPLAY-ORDER", accounts.get(0), accounts.get(1), amount,
+                Transaction.TransactionType.TRANSFER).isPresent());
+    }
+
+    // Excluded from the default build; run with: mvn test -Pbenchmark
+    @Tag("benchmark")
+    @Test
+    void transferThroughput_ScalesWithThreads() throws Exception {
+        int[] threadCounts = {1, 2, 4, 8, 16};
+        double[] perSecond = new double[threadCounts.length];
+        System.out.printf("%n%-8s %12s %10s%n", "threads", "transfers/s", "failed");
+        for (int i = 0; i < threadCounts.length; i++) {
+            List<String> accounts = createAccounts("SCALE" + threadCounts[i], 200);
+            BigDecimal totalBefore = total(accounts);
+            Result result = run(accounts, threadCounts[i], 5000);
+            perSecond[i] = result.perSecond();
+            System.out.printf("%-8d %12.0f %10d%n", threadCounts[i], result.perSecond(), result.errors().size());
+
+            assertTrue(result.errors().isEmpty(), () -> "Transfers failed: " + result.errors());
+            assertEquals(0, totalBefore.compareTo(total(accounts)));
+        }
+        // With many accounts most pairs do not collide, so extra threads should add throughput
+        assertTrue(perSecond[2] > perSecond[0], "4 threads did not beat 1 thread");
+    }
+
+    private Result run(List<String> accounts, int threads, int transfers) throws InterruptedException {
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        long started = System.nanoTime();
+        for (int i = 0; i < transfers; i++) {
+            clients.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = random.nextInt(accounts.size());
+                int to = (from + 1 + random.nextInt(accounts.size() - 1)) % accounts.size();
+                BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 10_000), 2);
+                try {
+                    fundTransferService.transferFunds(accounts.get(from), accounts.get(to), amount);
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    errors.add(e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            });
+        }
+        clients.shutdown();
+        assertTrue(clients.awaitTermination(5, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - started) / 1e9;
+        return new Result(succeeded.get(), List.copyOf(errors), succeeded.get() / seconds);
+    }
+
+    private List<String> createAccounts(String prefix, int count) {
+        List<String> accountNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String accountNumber = prefix + "-" + i;
+            accountRepository.save(new Account("Stress " + accountNumber, "30", accountNumber + "@example.com",
+                    "0000000000", accountNumber, OPENING_BALANCE));
+            accountNumbers.add(accountNumber);
+        }
+        return accountNumbers;
+    }
+
+    private BigDecimal total(List<String> accounts) {
+        return accounts.stream()
+                .map(account -> accountRepository.findByAccountNumber(account).orElseThrow().getBalance())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private record Result(int succeeded, List<String> errors, double perSecond) {
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -13,6 +14,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -27,6 +29,9 @@ class FundTransferControllerTest {
     @MockitoBean
     private FundTransferService fundTransferService;
 
+    @MockitoBean
+    private BatchTransferService batchTransferService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -57,7 +62,8 @@ class FundTransferControllerTest {
         when(fundTransferService.transferFunds(
                 transferRequest.getFromAccountNumber(),
                 transferRequest.getToAccountNumber(),
-                transferRequest.getAmount()
+                transferRequest.getAmount(),
+                transferRequest.getReference()
         )).thenReturn(testTransaction);
 
         // Act & Assert
@@ -73,7 +79,7 @@ class FundTransferControllerTest {
                 .andExpect(jsonPath("$.type").value("TRANSFER"));
 
         verify(fundTransferService, times(1)).transferFunds(
-                "1234567890", "0987654321", new BigDecimal("5000"));
+                "1234567890", "0987654321", new BigDecimal("5000"), null);
     }
 
     @Test
@@ -82,7 +88,8 @@ class FundTransferControllerTest {
         when(fundTransferService.transferFunds(
                 transferRequest.getFromAccountNumber(),
                 transferRequest.getToAccountNumber(),
-                transferRequest.getAmount()
+                transferRequest.getAmount(),
+                transferRequest.getReference()
         )).thenThrow(new IllegalArgumentException("Insufficient balance"));
 
         // Act & Assert
@@ -92,7 +99,7 @@ class FundTransferControllerTest {
                 .andExpect(status().isBadRequest());
 
         verify(fundTransferService, times(1)).transferFunds(
-                "1234567890", "0987654321", new BigDecimal("5000"));
+                "1234567890", "0987654321", new BigDecimal("5000"), null);
     }
 
     @Test
@@ -103,7 +110,7 @@ class FundTransferControllerTest {
                 .content("\"invalid\" \"json\""))
                 .andExpect(status().isBadRequest());
 
-        verify(fundTransferService, never()).transferFunds(anyString(), anyString(), any(BigDecimal.class));
+        verify(fundTransferService, never()).transferFunds(anyString(), anyString(), any(BigDecimal.class), any());
     }
 
     @Test
@@ -113,7 +120,8 @@ class FundTransferControllerTest {
         when(fundTransferService.transferFunds(
                 transferRequest.getFromAccountNumber(),
                 transferRequest.getToAccountNumber(),
-                transferRequest.getAmount()
+                transferRequest.getAmount(),
+                transferRequest.getReference()
         )).thenThrow(new IllegalArgumentException("Amount cannot be null"));
 
         // Act & Assert
@@ -130,7 +138,8 @@ class FundTransferControllerTest {
         when(fundTransferService.transferFunds(
                 transferRequest.getFromAccountNumber(),
                 transferRequest.getToAccountNumber(),
-                transferRequest.getAmount()
+                transferRequest.getAmount(),
+                transferRequest.getReference()
         )).thenReturn(testTransaction);
 
         // Act & Assert
@@ -140,7 +149,7 @@ class FundTransferControllerTest {
                 .andExpect(status().isOk());
 
         verify(fundTransferService, times(1)).transferFunds(
-                "1234567890", "0987654321", BigDecimal.ZERO);
+                "1234567890", "0987654321", BigDecimal.ZERO, null);
     }
 
     @Test
@@ -242,7 +251,8 @@ class FundTransferControllerTest {
         when(fundTransferService.transferFunds(
                 transferRequest.getFromAccountNumber(),
                 transferRequest.getToAccountNumber(),
-                transferRequest.getAmount()
+                transferRequest.getAmount(),
+                transferRequest.getReference()
         )).thenThrow(new IllegalArgumentException("Cannot transfer: minimum balance of 10,000 must be maintained"));
 
         // Act & Assert
@@ -252,7 +262,7 @@ class FundTransferControllerTest {
                 .andExpect(status().isBadRequest());
 
         verify(fundTransferService, times(1)).transferFunds(
-                "1234567890", "0987654321", new BigDecimal("5000"));
+                "1234567890", "0987654321", new BigDecimal("5000"), null);
     }
 
     @Test
@@ -261,7 +271,8 @@ class FundTransferControllerTest {
         when(fundTransferService.transferFunds(
                 transferRequest.getFromAccountNumber(),
                 transferRequest.getToAccountNumber(),
-                transferRequest.getAmount()
+                transferRequest.getAmount(),
+                transferRequest.getReference()
         )).thenThrow(new IllegalArgumentException("From account not found"));
 
         // Act & Assert
@@ -271,6 +282,138 @@ class FundTransferControllerTest {
                 .andExpect(status().isBadRequest());
 
         verify(fundTransferService, times(1)).transferFunds(
-                "1234567890", "0987654321", new BigDecimal("5000"));
+                "1234567890", "0987654321", new BigDecimal("5000"), null);
+    }
+
+    @Test
+    void transferFunds_ShouldReturnRecordedTransaction_WhenDuplicateLostTheRace() throws Exception {
+        // Arrange
+        transferRequest.setReference("ORD-1");
+        when(fundTransferService.transferFunds("1234567890", "0987654321", new BigDecimal("5000"), "ORD-1"))
+                .thenThrow(new DataIntegrityViolationException("idx_transaction_reference"));
+        when(fundTransferService.findReplay("ORD-1", "1234567890", "0987654321", new BigDecimal("5000"),
+                Transaction.TransactionType.TRANSFER)).thenReturn(Optional.of(testTransaction));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/transfers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    void transferFunds_ShouldReturnConflict_WhenReferenceWasUsedForADifferentTransfer() throws Exception {
+        // Arrange
+        transferRequest.setReference("ORD-1");
+        when(fundTransferService.transferFunds("1234567890", "0987654321", new BigDecimal("5000"), "ORD-1"))
+                .thenThrow(new ReferenceConflictException("Reference ORD-1 was already used for a different transfer"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/transfers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void debit_ShouldReturnDebitTransaction() throws Exception {
+        // Arrange
+        Transaction debit = new Transaction("1234567890", "0987654321", new BigDecimal("5000"),
+                Transaction.TransactionType.DEBIT, "Card payment from 1234567890 to 0987654321");
+        debit.setId(2L);
+        when(fundTransferService.debit("1234567890", "0987654321", new BigDecimal("5000"), null)).thenReturn(debit);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/transfers/debits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(2))
+                .andExpect(jsonPath("$.type").value("DEBIT"));
+    }
+
+    @Test
+    void debit_ShouldReturnBadRequest_WhenServiceThrowsException() throws Exception {
+        // Arrange
+        when(fundTransferService.debit("1234567890", "0987654321", new BigDecimal("5000"), null))
+                .thenThrow(new IllegalArgumentException("Insufficient balance"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/transfers/debits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(transferRequest)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getByReference_ShouldReturnTransaction_WhenRecorded() throws Exception {
+        // Arrange
+        when(fundTransferService.findByReference("ORD-1")).thenReturn(Optional.of(testTransaction));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/transfers/references/ORD-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    void getByReference_ShouldReturnNotFound_WhenNothingWasRecorded() throws Exception {
+        // Arrange
+        when(fundTransferService.findByReference("ORD-2")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/transfers/references/ORD-2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void settle_ShouldReturnSettlementSummary() throws Exception {
+        // Arrange
+        SettlementRequest settlementRequest = new SettlementRequest("0987654321", List.of(10L, 11L));
+        when(fundTransferService.settle("0987654321", List.of(10L, 11L)))
+                .thenReturn(new SettlementResponse(20L, 2, new BigDecimal("350.50"), 0, List.of()));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/transfers/settlements")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(settlementRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.settlementTransactionId").value(20))
+                .andExpect(jsonPath("$.settledCount").value(2))
+                .andExpect(jsonPath("$.settledAmount").value(350.50));
+    }
+
+    @Test
+    void transferBatch_ShouldReturnPerTransferResults() throws Exception {
+        // Arrange
+        BatchTransferRequest batchRequest = new BatchTransferRequest(List.of(transferRequest, transferRequest));
+        when(batchTransferService.transferBatch(anyList())).thenReturn(new BatchTransferResponse(1, 1, List.of(
+                new BatchTransferResult(0, true, 30L, null),
+                new BatchTransferResult(1, false, null, "Cannot transfer: minimum balance of 10,000 must be maintained"))));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/transfers/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeededCount").value(1))
+                .andExpect(jsonPath("$.failedCount").value(1))
+                .andExpect(jsonPath("$.results[0].transactionId").value(30))
+                .andExpect(jsonPath("$.results[1].success").value(false))
+                .andExpect(jsonPath("$.results[1].error").value("Cannot transfer: minimum balance of 10,000 must be maintained"));
+    }
+
+    @Test
+    void transferBatch_ShouldReturnBadRequest_WhenBatchIsEmpty() throws Exception {
+        // Arrange
+        when(batchTransferService.transferBatch(anyList()))
+                .thenThrow(new IllegalArgumentException("No transfers in batch"));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/transfers/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new BatchTransferRequest(List.of()))))
+                .andExpect(status().isBadRequest());
     }
 }
@@ -2,9 +2,11 @@ package com.gap.bankapp.fundtransfer;
 
 import com.gap.bankapp.account.Account;
 import com.gap.bankapp.account.AccountRepository;
+import com.gap.bankapp.account.HotAccountService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -17,6 +19,9 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +33,9 @@ class FundTransferServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private HotAccountService hotAccountService;
+
     @InjectMocks
     private FundTransferService fundTransferService;
 
@@ -62,8 +70,8 @@ class FundTransferServiceTest {
     void transferFunds_ShouldTransferSuccessfully_WhenValidRequest() {
         // Arrange
         BigDecimal transferAmount = new BigDecimal("5000");
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumberForUpdate("0987654321")).thenReturn(Optional.of(toAccount));
         when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
         // Act
@@ -82,7 +90,9 @@ class FundTransferServiceTest {
     void transferFunds_ShouldThrowException_WhenFromAccountNotFound() {
         // Arrange
         BigDecimal transferAmount = new BigDecimal("5000");
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.empty());
+        // The lower account number is locked first, so both lookups happen
+        when(accountRepository.findByAccountNumberForUpdate("0987654321")).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.empty());
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(
@@ -99,8 +109,8 @@ class FundTransferServiceTest {
     void transferFunds_ShouldThrowException_WhenToAccountNotFound() {
         // Arrange
         BigDecimal transferAmount = new BigDecimal("5000");
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.empty());
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumberForUpdate("0987654321")).thenReturn(Optional.empty());
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(
@@ -117,8 +127,8 @@ class FundTransferServiceTest {
     void transferFunds_ShouldThrowException_WhenInsufficientBalance() {
         // Arrange
         BigDecimal transferAmount = new BigDecimal("60000");
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumberForUpdate("0987654321")).thenReturn(Optional.of(toAccount));
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(
@@ -135,8 +145,8 @@ class FundTransferServiceTest {
     void transferFunds_ShouldThrowException_WhenMinimumBalanceViolated() {
         // Arrange
         BigDecimal transferAmount = new BigDecimal("45000"); // Would leave only 5000, below minimum 10000
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumberForUpdate("0987654321")).thenReturn(Optional.of(toAccount));
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(
@@ -153,8 +163,8 @@ class FundTransferServiceTest {
     void transferFunds_ShouldAllowTransfer_WhenExactlyMinimumBalanceRemains() {
         // Arrange
         BigDecimal transferAmount = new BigDecimal("40000"); // Would leave exactly 10000
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumberForUpdate("0987654321")).thenReturn(Optional.of(toAccount));
         when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
         // Act
@@ -170,20 +180,35 @@ class FundTransferServiceTest {
     }
 
     @Test
-    void transferFunds_ShouldHandleZeroAmount() {
-        // Arrange
-        BigDecimal transferAmount = BigDecimal.ZERO;
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findByAccountNumber("0987654321")).thenReturn(Optional.of(toAccount));
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
-
-        // Act
-        Transaction result = fundTransferService.transferFunds("1234567890", "0987654321", transferAmount);
+    void transferFunds_ShouldThrowException_WhenAmountIsZero() {
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(
+            IllegalArgumentException.class,
+            () -> fundTransferService.transferFunds("1234567890", "0987654321", BigDecimal.ZERO)
+        );
 
-        // Assert
-        assertNotNull(result);
+        assertEquals("Amount must be positive", exception.getMessage());
         assertEquals(new BigDecimal("50000"), fromAccount.getBalance()); // No change
         assertEquals(new BigDecimal("25000"), toAccount.getBalance()); // No change
+        verify(accountRepository, never()).findByAccountNumberForUpdate(anyString());
+    }
+
+    @Test
+    void transferFunds_ShouldThrowException_WhenAmountIsNegative() {
+        // A negative transfer would move money from the payee without checking its balance
+        assertThrows(IllegalArgumentException.class,
+                () -> fundTransferService.transferFunds("1234567890", "0987654321", new BigDecimal("-5000")));
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void transferFunds_ShouldThrowException_WhenAmountHasFractionsOfACent() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> fundTransferService.transferFunds("1234567890", "0987654321", new BigDecimal("0.005")));
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(transactionRepository, never()).save(any(Transaction.class));
     }
 
     @Test
@@ -262,7 +287,7 @@ class FundTransferServiceTest {
     void transferFunds_ShouldHandleSameAccount() {
         // Arrange
         BigDecimal transferAmount = new BigDecimal("5000");
-        when(accountRepository.findByAccountNumber("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
         when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
         // Act
@@ -274,4 +299,188 @@ class FundTransferServiceTest {
         assertEquals(new BigDecimal("50000"), fromAccount.getBalance());
         verify(accountRepository, times(2)).save(fromAccount); // Saved twice (as from and to)
     }
+
+    @Test
+    void transferFunds_ShouldLockAccountsInAccountNumberOrder_WhicheverWayMoneyMoves() {
+        // Arrange
+        BigDecimal transferAmount = new BigDecimal("5000");
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByAccountNumberForUpdate("0987654321")).thenReturn(Optional.of(toAccount));
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+
+        // Act
+        fundTransferService.transferFunds("1234567890", "0987654321", transferAmount);
+        fundTransferService.transferFunds("0987654321", "1234567890", transferAmount);
+
+        // Assert
+        InOrder locks = inOrder(accountRepository);
+        locks.verify(accountRepository).findByAccountNumberForUpdate("0987654321");
+        locks.verify(accountRepository).findByAccountNumberForUpdate("1234567890");
+        locks.verify(accountRepository).findByAccountNumberForUpdate("0987654321");
+        locks.verify(accountRepository).findByAccountNumberForUpdate("1234567890");
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+    }
+
+    @Test
+    void transferFunds_ToShardedAccount_ShouldCreditAShardAndNotLockPayeeRow() {
+        // Arrange
+        BigDecimal transferAmount = new BigDecimal("5000");
+        when(hotAccountService.isSharded("0987654321")).thenReturn(true);
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.existsByAccountNumber("0987654321")).thenReturn(true);
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
+
+        // Act
+        Transaction result = fundTransferService.transferFunds("1234567890", "0987654321", transferAmount);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(new BigDecimal("45000"), fromAccount.getBalance());
+        assertEquals(new BigDecimal("25000"), toAccount.getBalance());
+        verify(hotAccountService).credit("0987654321", transferAmount);
+        verify(accountRepository, never()).findByAccountNumberForUpdate("0987654321");
+    }
+
+    @Test
+    void transferFunds_ToShardedAccount_ShouldNotCredit_WhenMinimumBalanceViolated() {
+        // Arrange
+        when(hotAccountService.isSharded("0987654321")).thenReturn(true);
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.existsByAccountNumber("0987654321")).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> fundTransferService.transferFunds("1234567890", "0987654321", new BigDecimal("45000")));
+        verify(hotAccountService, never()).credit(anyString(), any(BigDecimal.class));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void debit_ShouldTakeFromCustomerOnly() {
+        // Arrange
+        when(accountRepository.existsByAccountNumber("0987654321")).thenReturn(true);
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Transaction result = fundTransferService.debit("1234567890", "0987654321", new BigDecimal("5000"));
+
+        // Assert
+        assertEquals(Transaction.TransactionType.DEBIT, result.getType());
+        assertEquals("0987654321", result.getToAccountNumber());
+        assertNull(result.getSettlementId());
+        assertEquals(new BigDecimal("45000"), fromAccount.getBalance());
+        assertEquals(new BigDecimal("25000"), toAccount.getBalance());
+        verify(accountRepository, never()).save(toAccount);
+    }
+
+    @Test
+    void debit_ShouldReturnRecordedTransaction_WhenReferenceWasAlreadyUsed() {
+        // Arrange
+        testTransaction.setType(Transaction.TransactionType.DEBIT);
+        testTransaction.setReference("ORD-1");
+        when(transactionRepository.findByReference("ORD-1")).thenReturn(Optional.of(testTransaction));
+
+        // Act
+        Transaction result = fundTransferService.debit("1234567890", "0987654321", new BigDecimal("5000"), "ORD-1");
+
+        // Assert
+        assertSame(testTransaction, result);
+        assertEquals(new BigDecimal("50000"), fromAccount.getBalance());
+        verify(accountRepository, never()).findByAccountNumberForUpdate(anyString());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void transferFunds_ShouldRefuseReference_WhenItWasUsedForADifferentTransfer() {
+        // Arrange
+        testTransaction.setReference("ORD-1");
+        when(transactionRepository.findByReference("ORD-1")).thenReturn(Optional.of(testTransaction));
+
+        // Act & Assert
+        assertThrows(ReferenceConflictException.class,
+                () -> fundTransferService.transferFunds("1234567890", "0987654321", new BigDecimal("6000"), "ORD-1"));
+        assertThrows(ReferenceConflictException.class,
+                () -> fundTransferService.debit("1234567890", "0987654321", new BigDecimal("5000"), "ORD-1"));
+        verify(accountRepository, never()).findByAccountNumberForUpdate(anyString());
+    }
+
+    @Test
+    void debit_ShouldThrowException_WhenMinimumBalanceViolated() {
+        // Arrange
+        when(accountRepository.existsByAccountNumber("0987654321")).thenReturn(true);
+        when(accountRepository.findByAccountNumberForUpdate("1234567890")).thenReturn(Optional.of(fromAccount));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> fundTransferService.debit("1234567890", "0987654321", new BigDecimal("45000")));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void debit_ShouldThrowException_WhenPayeeNotFound() {
+        // Arrange
+        when(accountRepository.existsByAccountNumber("0987654321")).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> fundTransferService.debit("1234567890", "0987654321", new BigDecimal("5000")));
+        verify(accountRepository, never()).save(any(Account.class));
+    }
+
+    @Test
+    void settle_ShouldCreditPayeeOnceWithSumOfUnsettledDebits() {
+        // Arrange
+        Transaction first = debit(10L, "100.00", null);
+        Transaction second = debit(11L, "250.50", null);
+        Transaction earlier = debit(12L, "75.00", 5L);
+        when(accountRepository.findByAccountNumberForUpdate("0987654321")).thenReturn(Optional.of(toAccount));
+        when(transactionRepository.findDebitsToPayee(eq("0987654321"), anyCollection()))
+                .thenReturn(List.of(first, second, earlier));
+        Transaction credit = new Transaction(null, "0987654321", new BigDecimal("350.50"),
+                Transaction.TransactionType.CREDIT, "Settlement of 2 card payments");
+        credit.setId(20L);
+        when(transactionRepository.save(any(Transaction.class))).thenReturn(credit);
+
+        // Act
+        SettlementResponse response = fundTransferService.settle("0987654321", List.of(10L, 11L, 12L, 99L));
+
+        // Assert
+        assertEquals(20L, response.getSettlementTransactionId());
+        assertEquals(2, response.getSettledCount());
+        assertEquals(new BigDecimal("350.50"), response.getSettledAmount());
+        assertEquals(1, response.getAlreadySettledCount());
+        assertEquals(List.of(99L), response.getUnknownIds());
+        assertEquals(new BigDecimal("25350.50"), toAccount.getBalance());
+        assertEquals(20L, first.getSettlementId());
+        assertEquals(20L, second.getSettlementId());
+        assertEquals(5L, earlier.getSettlementId());
+        verify(accountRepository, times(1)).save(toAccount);
+    }
+
+    @Test
+    void settle_ShouldNotCreditAgain_WhenBatchIsRetried() {
+        // Arrange
+        when(accountRepository.findByAccountNumberForUpdate("0987654321")).thenReturn(Optional.of(toAccount));
+        when(transactionRepository.findDebitsToPayee(eq("0987654321"), anyCollection()))
+                .thenReturn(List.of(debit(10L, "100.00", 20L)));
+
+        // Act
+        SettlementResponse response = fundTransferService.settle("0987654321", List.of(10L));
+
+        // Assert
+        assertNull(response.getSettlementTransactionId());
+        assertEquals(1, response.getAlreadySettledCount());
+        assertEquals(new BigDecimal("25000"), toAccount.getBalance());
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    private Transaction debit(Long id, String amount, Long settlementId) {
+        Transaction debit = new Transaction("1234567890", "0987654321", new BigDecimal(amount),
+                Transaction.TransactionType.DEBIT, "Card payment");
+        debit.setId(id);
+        debit.setSettlementId(settlementId);
+        return debit;
+    }
 }
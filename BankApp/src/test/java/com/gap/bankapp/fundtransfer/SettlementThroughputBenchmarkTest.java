@@ -0,0 +1,131 @@
+package com.gap.bankapp.fundtransfer;
+
+import com.gap.bankapp.account.Account;
+import com.gap.bankapp.account.AccountRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Concurrent checkouts paying one merchant: "direct" makes every payment a transfer into the merchant
+// account, "batched" debits each customer and credits the merchant from a settler that runs every
+// SETTLE_INTERVAL_MILLIS, as ecommerceapp does in batched settlement mode.
+// Excluded from the default build; run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:settlementbenchmarkdb",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class SettlementThroughputBenchmarkTest {
+
+    private static final int THREADS = 32;
+    private static final int CUSTOMERS = 64;
+    private static final int PAYMENTS = 4000;
+    private static final long SETTLE_INTERVAL_MILLIS = 20;
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000.00");
+
+    @Autowired
+    private FundTransferService fundTransferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Test
+    void merchantPayments_DirectVersusBatchedSettlement() throws Exception {
+        List<String> directCustomers = createAccounts("BENCH-D", CUSTOMERS);
+        String directMerchant = createAccounts("BENCH-DM", 1).get(0);
+        Result direct = run(i -> fundTransferService.transferFunds(
+                directCustomers.get(i % CUSTOMERS), directMerchant, AMOUNT));
+
+        List<String> batchedCustomers = createAccounts("BENCH-B", CUSTOMERS);
+        String batchedMerchant = createAccounts("BENCH-BM", 1).get(0);
+        Queue<Long> unsettled = new ConcurrentLinkedQueue<>();
+        ScheduledExecutorService settler = Executors.newSingleThreadScheduledExecutor();
+        settler.scheduleWithFixedDelay(() -> settle(batchedMerchant, unsettled),
+                SETTLE_INTERVAL_MILLIS, SETTLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Result batched = run(i -> unsettled.add(fundTransferService.debit(
+                batchedCustomers.get(i % CUSTOMERS), batchedMerchant, AMOUNT).getId()));
+        settler.shutdown();
+        assertTrue(settler.awaitTermination(10, TimeUnit.SECONDS));
+        settle(batchedMerchant, unsettled);
+
+        BigDecimal directReceived = received(directMerchant);
+        BigDecimal batchedReceived = received(batchedMerchant);
+        System.out.printf("%n%-8s %12s %10s %16s %16s%n", "mode", "payments/s", "failed", "merchant credit", "expected");
+        System.out.printf("%-8s %12.0f %10d %16s %16s%n", "direct", direct.perSecond(), direct.failed(),
+                directReceived, expected(direct));
+        System.out.printf("%-8s %12.0f %10d %16s %16s%n", "batched", batched.perSecond(), batched.failed(),
+                batchedReceived, expected(batched));
+
+        // Every debit must reach the merchant exactly once
+        assertEquals(0, batched.failed());
+        assertEquals(0, expected(batched).compareTo(batchedReceived));
+    }
+
+    private void settle(String merchant, Queue<Long> unsettled) {
+        List<Long> batch = new ArrayList<>();
+        Long id;
+        while (batch.size() < 1000 && (id = unsettled.poll()) != null) {
+            batch.add(id);
+        }
+        if (!batch.isEmpty()) {
+            fundTransferService.settle(merchant, batch);
+        }
+    }
+
+    private Result run(IntConsumer payment) throws InterruptedException {
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService checkouts = Executors.newFixedThreadPool(THREADS);
+        long started = System.nanoTime();
+        for (int i = 0; i < PAYMENTS; i++) {
+            int index = i;
+            checkouts.execute(() -> {
+                try {
+                    payment.accept(index);
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        checkouts.shutdown();
+        assertTrue(checkouts.awaitTermination(5, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - started) / 1e9;
+        return new Result(PAYMENTS - failed.get(), failed.get(), (PAYMENTS - failed.get()) / seconds);
+    }
+
+    private List<String> createAccounts(String prefix, int count) {
+        List<String> accountNumbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String accountNumber = prefix + "-" + i;
+            accountRepository.save(new Account("Benchmark " + accountNumber, "30", accountNumber + "@example.com",
+                    "0000000000", accountNumber, OPENING_BALANCE));
+            accountNumbers.add(accountNumber);
+        }
+        return accountNumbers;
+    }
+
+    private BigDecimal received(String merchant) {
+        return accountRepository.findByAccountNumber(merchant).orElseThrow().getBalance().subtract(OPENING_BALANCE);
+    }
+
+    private BigDecimal expected(Result result) {
+        return AMOUNT.multiply(BigDecimal.valueOf(result.succeeded()));
+    }
+
+    private record Result(int succeeded, int failed, double perSecond) {
+    }
+}
@@ -0,0 +1,244 @@
+package com.gap.bankapp.ledger;
+
+import com.gap.bankapp.account.Account;
+import com.gap.bankapp.account.AccountRepository;
+import com.gap.bankapp.fundtransfer.ReferenceConflictException;
+import com.gap.bankapp.fundtransfer.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Engines are built by hand on a temporary log directory, so a test can abandon one without
+// closing it (a crash) and start another on the same log and database.
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgerenginedb",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class LedgerEngineTest {
+
+    private static final int SEGMENT_SIZE = 64 * WriteAheadLog.RECORD_SIZE;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @TempDir
+    Path walDirectory;
+
+    private final List<LedgerEngine> engines = new ArrayList<>();
+
+    private static long nextAccountNumber = 9100000000L;
+
+    private String payer;
+    private String payee;
+
+    @BeforeEach
+    void setUp() {
+        // Every test starts a new log, so sequences and with them transaction ids start over
+        jdbcTemplate.update("DELETE FROM ledger_checkpoint");
+        jdbcTemplate.update("DELETE FROM transaction WHERE id > ?", LedgerEngine.TRANSACTION_ID_OFFSET);
+        payer = createAccount(new BigDecimal("50000.00"));
+        payee = createAccount(new BigDecimal("25000.00"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        engines.forEach(LedgerEngine::close);
+    }
+
+    @Test
+    void transfer_MovesBalancesInMemoryAndReturnsTheTransaction() throws IOException {
+        // Arrange
+        LedgerEngine ledger = start();
+
+        // Act
+        Transaction transaction = ledger.transfer(payer, payee, new BigDecimal("1234.56"));
+
+        // Assert
+        assertEquals(0, new BigDecimal("48765.44").compareTo(ledger.balance(payer)));
+        assertEquals(0, new BigDecimal("26234.56").compareTo(ledger.balance(payee)));
+        assertEquals(LedgerEngine.TRANSACTION_ID_OFFSET + 1, transaction.getId());
+        assertEquals(Transaction.TransactionType.TRANSFER, transaction.getType());
+        assertEquals("Fund transfer from " + payer + " to " + payee, transaction.getDescription());
+        // Not projected yet
+        assertEquals(0, new BigDecimal("50000.00").compareTo(databaseBalance(payer)));
+    }
+
+    @Test
+    void project_WritesBalancesAndTransactionsToTheTables() throws IOException {
+        // Arrange
+        LedgerEngine ledger = start();
+        ledger.transfer(payer, payee, new BigDecimal("1000.00"));
+        ledger.transfer(payee, payer, new BigDecimal("250.00"));
+
+        // Act
+        ledger.project();
+
+        // Assert
+        assertEquals(0, new BigDecimal("49250.00").compareTo(databaseBalance(payer)));
+        assertEquals(0, new BigDecimal("25750.00").compareTo(databaseBalance(payee)));
+        assertEquals(2, ledgerTransactionCount());
+        assertEquals(2L, jdbcTemplate.queryForObject("SELECT projected_sequence FROM ledger_checkpoint", Long.class));
+    }
+
+    @Test
+    void transfer_EnforcesTheSameRulesAsTheDatabasePath() throws IOException {
+        LedgerEngine ledger = start();
+
+        assertEquals("Insufficient balance", assertThrows(IllegalArgumentException.class,
+                () -> ledger.transfer(payee, payer, new BigDecimal("25000.01"))).getMessage());
+        assertEquals("Cannot transfer: minimum balance of 10,000 must be maintained",
+                assertThrows(IllegalArgumentException.class,
+                        () -> ledger.transfer(payee, payer, new BigDecimal("15000.01"))).getMessage());
+        assertEquals("From account not found", assertThrows(IllegalArgumentException.class,
+                () -> ledger.transfer("9999999999", payee, BigDecimal.ONE)).getMessage());
+        assertEquals("To account not found", assertThrows(IllegalArgumentException.class,
+                () -> ledger.transfer(payer, "NOT-A-NUMBER", BigDecimal.ONE)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> ledger.transfer(payer, payee, new BigDecimal("-1")));
+        assertEquals("Amount must be positive", assertThrows(IllegalArgumentException.class,
+                () -> ledger.transfer(payer, payee, BigDecimal.ZERO)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> ledger.transfer(payer, payee, new BigDecimal("0.001")));
+        assertEquals(0, new BigDecimal("25000.00").compareTo(ledger.balance(payee)));
+    }
+
+    @Test
+    void transfer_FindsAccountsRegisteredAfterStartup() throws IOException {
+        // Arrange
+        LedgerEngine ledger = start();
+        String registered = createAccount(new BigDecimal("10000.00"));
+
+        // Act
+        ledger.transfer(payer, registered, new BigDecimal("500.00"));
+
+        // Assert
+        assertEquals(0, new BigDecimal("10500.00").compareTo(ledger.balance(registered)));
+    }
+
+    @Test
+    void transfer_CountsUncompactedShardsOfAHotAccount() throws IOException {
+        // Arrange
+        jdbcTemplate.update("INSERT INTO account_shards (account_number, shard_index, balance) VALUES (?, 0, ?)",
+                payee, new BigDecimal("600.00"));
+        LedgerEngine ledger = start();
+        // Loaded on first use rather than at startup
+        String registered = createAccount(new BigDecimal("10000.00"));
+        jdbcTemplate.update("INSERT INTO account_shards (account_number, shard_index, balance) VALUES (?, 0, ?)",
+                registered, new BigDecimal("500.00"));
+
+        // Act
+        ledger.transfer(registered, payer, new BigDecimal("500.00"));
+
+        // Assert
+        assertEquals(0, new BigDecimal("25600.00").compareTo(ledger.balance(payee)));
+        assertEquals(0, new BigDecimal("10000.00").compareTo(ledger.balance(registered)));
+    }
+
+    @Test
+    void transfer_ReplaysARepeatedReference_BeforeAndAfterProjection() throws IOException {
+        // Arrange
+        LedgerEngine ledger = start();
+        Transaction first = ledger.transfer(payer, payee, new BigDecimal("100.00"), "LEDGER-" + payer);
+
+        // Act
+        Transaction unprojected = ledger.transfer(payer, payee, new BigDecimal("100.00"), "LEDGER-" + payer);
+        ledger.project();
+        Transaction projected = ledger.transfer(payer, payee, new BigDecimal("100.00"), "LEDGER-" + payer);
+
+        // Assert
+        assertEquals(first.getId(), unprojected.getId());
+        assertEquals(first.getId(), projected.getId());
+        assertEquals("LEDGER-" + payer, projected.getReference());
+        assertEquals(first.getId(), ledger.findByReference("LEDGER-" + payer).orElseThrow().getId());
+        assertEquals(0, new BigDecimal("49900.00").compareTo(ledger.balance(payer)));
+        assertEquals(0, new BigDecimal("49900.00").compareTo(databaseBalance(payer)));
+        assertEquals(1, ledgerTransactionCount());
+        assertTrue(ledger.findByReference("LEDGER-UNKNOWN").isEmpty());
+    }
+
+    @Test
+    void transfer_RefusesAReferenceUsedForADifferentTransfer() throws IOException {
+        // Arrange
+        LedgerEngine ledger = start();
+        ledger.transfer(payer, payee, new BigDecimal("100.00"), "LEDGER-" + payer);
+
+        // Act & Assert
+        assertThrows(ReferenceConflictException.class,
+                () -> ledger.transfer(payer, payee, new BigDecimal("200.00"), "LEDGER-" + payer));
+        ledger.project();
+        assertThrows(ReferenceConflictException.class,
+                () -> ledger.transfer(payee, payer, new BigDecimal("100.00"), "LEDGER-" + payer));
+        assertEquals(0, new BigDecimal("49900.00").compareTo(ledger.balance(payer)));
+    }
+
+    @Test
+    void start_ReplaysTransfersThatWereNotProjectedBeforeACrash() throws IOException {
+        // Arrange
+        LedgerEngine crashed = new LedgerEngine(jdbcTemplate, transactionTemplate, walDirectory, SEGMENT_SIZE, 16, 100);
+        crashed.start();
+        crashed.transfer(payer, payee, new BigDecimal("100.00"));
+        crashed.project();
+        Transaction second = crashed.transfer(payer, payee, new BigDecimal("200.00"), "LEDGER-" + payer);
+        // Abandoned without close(), which would have projected the second transfer
+
+        // Act
+        LedgerEngine recovered = start();
+
+        // Assert
+        assertEquals(0, new BigDecimal("49700.00").compareTo(recovered.balance(payer)));
+        assertEquals(second.getId(),
+                recovered.transfer(payer, payee, new BigDecimal("200.00"), "LEDGER-" + payer).getId());
+        assertEquals(0, new BigDecimal("49900.00").compareTo(databaseBalance(payer)));
+        Transaction next = recovered.transfer(payer, payee, new BigDecimal("300.00"));
+        assertEquals(LedgerEngine.TRANSACTION_ID_OFFSET + 3, next.getId());
+
+        recovered.project();
+        assertEquals(0, new BigDecimal("49400.00").compareTo(databaseBalance(payer)));
+        assertEquals(0, new BigDecimal("25600.00").compareTo(databaseBalance(payee)));
+        assertEquals(3, ledgerTransactionCount());
+    }
+
+    private LedgerEngine start() throws IOException {
+        LedgerEngine ledger = new LedgerEngine(jdbcTemplate, transactionTemplate, walDirectory, SEGMENT_SIZE, 16, 100);
+        ledger.start();
+        engines.add(ledger);
+        return ledger;
+    }
+
+    private String createAccount(BigDecimal balance) {
+        String accountNumber = Long.toString(nextAccountNumber++);
+        accountRepository.save(new Account("Ledger " + accountNumber, "30", accountNumber + "@example.com",
+                "0000000000", accountNumber, balance));
+        return accountNumber;
+    }
+
+    private BigDecimal databaseBalance(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber).orElseThrow().getBalance();
+    }
+
+    private int ledgerTransactionCount() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transaction WHERE id > ? AND (from_account_number = ? OR to_account_number = ?)",
+                Integer.class, LedgerEngine.TRANSACTION_ID_OFFSET, payer, payer);
+    }
+}
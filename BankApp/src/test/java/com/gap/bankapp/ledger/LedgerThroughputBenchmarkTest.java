@@ -0,0 +1,122 @@
+package com.gap.bankapp.ledger;
+
+import com.gap.bankapp.account.Account;
+import com.gap.bankapp.account.AccountRepository;
+import com.gap.bankapp.fundtransfer.FundTransferService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The same random transfers between a few hundred accounts, once through FundTransferService (row
+// locks, one database transaction each) and once through the ledger (striped locks, a shared log
+// fsync per batch of transfers). The ledger run ends with a projection and checks the tables add up.
+// Excluded from the default build; run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgerbenchmarkdb;LOCK_TIMEOUT=10000",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class LedgerThroughputBenchmarkTest {
+
+    private static final int THREADS = 32;
+    private static final int ACCOUNTS = 256;
+    private static final int TRANSFERS = 20000;
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000000.00");
+
+    @Autowired
+    private FundTransferService fundTransferService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path walDirectory;
+
+    @Test
+    void ledgerTransfers_OutpaceDatabaseTransfers() throws InterruptedException, IOException {
+        List<String> databaseAccounts = createAccounts(9200000000L);
+        double database = run(databaseAccounts,
+                (from, to) -> fundTransferService.transferFunds(from, to, AMOUNT));
+
+        List<String> ledgerAccounts = createAccounts(9300000000L);
+        LedgerEngine ledger = new LedgerEngine(jdbcTemplate, transactionTemplate, walDirectory,
+                64 * 1024 * 1024, 1024, 1000);
+        ledger.start();
+        double inMemory;
+        try {
+            inMemory = run(ledgerAccounts, (from, to) -> ledger.transfer(from, to, AMOUNT));
+            ledger.project();
+        } finally {
+            ledger.close();
+        }
+
+        System.out.printf("%n%-10s %12s%n%-10s %12.0f%n%-10s %12.0f%n",
+                "path", "transfers/s", "database", database, "ledger", inMemory);
+        BigDecimal total = ledgerAccounts.stream()
+                .map(account -> accountRepository.findByAccountNumber(account).orElseThrow().getBalance())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, OPENING_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)).compareTo(total));
+        assertTrue(inMemory > database, "The ledger was not faster than the database path");
+    }
+
+    private double run(List<String> accounts, BiConsumer<String, String> transfer) throws InterruptedException {
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService transfers = Executors.newFixedThreadPool(THREADS);
+        long started = System.nanoTime();
+        for (int t = 0; t < TRANSFERS; t++) {
+            transfers.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = random.nextInt(ACCOUNTS);
+                int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                try {
+                    transfer.accept(accounts.get(from), accounts.get(to));
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        transfers.shutdown();
+        assertTrue(transfers.awaitTermination(5, TimeUnit.MINUTES));
+        assertEquals(0, failed.get());
+        return TRANSFERS / ((System.nanoTime() - started) / 1e9);
+    }
+
+    private List<String> createAccounts(long firstAccountNumber) {
+        List<String> accountNumbers = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String accountNumber = Long.toString(firstAccountNumber + i);
+            accountRepository.save(new Account("Benchmark " + accountNumber, "30", accountNumber + "@example.com",
+                    "0000000000", accountNumber, OPENING_BALANCE));
+            accountNumbers.add(accountNumber);
+        }
+        return accountNumbers;
+    }
+}
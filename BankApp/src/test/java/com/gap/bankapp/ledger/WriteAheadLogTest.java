@@ -0,0 +1,143 @@
+package com.gap.bankapp.ledger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 10 * WriteAheadLog.RECORD_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_AssignsSequencesAndBecomesDurable() throws IOException {
+        // Arrange
+        List<LedgerEntry> appended = new ArrayList<>();
+        try (WriteAheadLog wal = open(0, new ArrayList<>(), appended)) {
+            // Act
+            LedgerEntry first = wal.append(1000L, 2349885777L, 4352602652L, 5000L, null);
+            LedgerEntry second = wal.append(2000L, 4352602652L, 2349885777L, 250L, null);
+            wal.awaitDurable(second.sequence());
+
+            // Assert
+            assertEquals(1, first.sequence());
+            assertEquals(2, second.sequence());
+            assertEquals(List.of(first, second), appended);
+            assertTrue(wal.durableSequence() >= 2);
+        }
+    }
+
+    @Test
+    void reopen_ReplaysEveryEntryAndContinuesTheSequence() throws IOException {
+        // Arrange
+        List<LedgerEntry> written = new ArrayList<>();
+        try (WriteAheadLog wal = open(0, new ArrayList<>(), written)) {
+            for (int i = 1; i <= 25; i++) {
+                wal.append(i, 1L, 2L, i * 100L, i % 2 == 0 ? "ORD-" + i : null);
+            }
+            wal.awaitDurable(25);
+        }
+
+        // Act
+        List<LedgerEntry> recovered = new ArrayList<>();
+        try (WriteAheadLog wal = open(0, recovered, new ArrayList<>())) {
+            LedgerEntry next = wal.append(26L, 1L, 2L, 2600L, null);
+
+            // Assert
+            assertEquals(written, recovered);
+            assertEquals(26, next.sequence());
+        }
+        assertEquals(3, segments().size());
+    }
+
+    @Test
+    void reopen_StopsAtATornRecord() throws IOException {
+        // Arrange
+        try (WriteAheadLog wal = open(0, new ArrayList<>(), new ArrayList<>())) {
+            wal.append(1L, 1L, 2L, 100L, null);
+            wal.append(2L, 1L, 2L, 200L, null);
+            wal.awaitDurable(2);
+        }
+        // Flip the last payload byte of the second record, as a write cut short would leave it
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(2L * WriteAheadLog.RECORD_SIZE - 1);
+            file.write(0x7F);
+        }
+
+        // Act
+        List<LedgerEntry> recovered = new ArrayList<>();
+        try (WriteAheadLog wal = open(0, recovered, new ArrayList<>())) {
+            LedgerEntry next = wal.append(3L, 1L, 2L, 300L, null);
+
+            // Assert
+            assertEquals(1, recovered.size());
+            assertEquals(100L, recovered.get(0).amountMinor());
+            assertEquals(2, next.sequence());
+        }
+    }
+
+    @Test
+    void open_StartsAfterMinimumSequence_WhenLogIsEmpty() throws IOException {
+        try (WriteAheadLog wal = open(41, new ArrayList<>(), new ArrayList<>())) {
+            assertEquals(42, wal.append(1L, 1L, 2L, 100L, null).sequence());
+        }
+    }
+
+    @Test
+    void deleteSegmentsBefore_KeepsSegmentsWithLaterEntries() throws IOException {
+        // Arrange
+        try (WriteAheadLog wal = open(0, new ArrayList<>(), new ArrayList<>())) {
+            for (int i = 1; i <= 25; i++) {
+                wal.append(i, 1L, 2L, 100L, null);
+            }
+            wal.awaitDurable(25);
+
+            // Act
+            wal.deleteSegmentsBefore(15);
+
+            // Assert
+            List<Path> remaining = segments();
+            assertEquals(2, remaining.size());
+            assertEquals(String.format("%020d.wal", 11), remaining.get(0).getFileName().toString());
+        }
+    }
+
+    @Test
+    void append_RejectsReferenceThatDoesNotFitTheRecord() throws IOException {
+        try (WriteAheadLog wal = open(0, new ArrayList<>(), new ArrayList<>())) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> wal.append(1L, 1L, 2L, 100L, "R".repeat(WriteAheadLog.MAX_REFERENCE_BYTES + 1)));
+            assertEquals(1, wal.append(2L, 1L, 2L, 100L, "R".repeat(WriteAheadLog.MAX_REFERENCE_BYTES)).sequence());
+        }
+    }
+
+    @Test
+    void append_Throws_WhenClosed() throws IOException {
+        WriteAheadLog wal = open(0, new ArrayList<>(), new ArrayList<>());
+        wal.close();
+
+        assertThrows(IllegalStateException.class, () -> wal.append(1L, 1L, 2L, 100L, null));
+    }
+
+    private WriteAheadLog open(long minimumSequence, List<LedgerEntry> recovered, List<LedgerEntry> appended)
+            throws IOException {
+        return new WriteAheadLog(directory, SEGMENT_SIZE, minimumSequence, recovered::add, appended::add);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.gap.ecommerceapp.client;
 
+import com.gap.ecommerceapp.dto.BankAccount;
+import com.gap.ecommerceapp.dto.SettlementRequest;
+import com.gap.ecommerceapp.dto.SettlementResponse;
 import com.gap.ecommerceapp.dto.Transaction;
 import com.gap.ecommerceapp.dto.TransferRequest;
 import org.springframework.cloud.openfeign.FeignClient;
@@ -10,6 +13,22 @@ import org.springframework.web.bind.annotation.*;
 @FeignClient(name = "BankApp", url = "${bank.service.url}")
 public interface BankServiceClient {
 
+    // 404 when the bank has no such account
+    @GetMapping("/api/accounts/{accountNumber}")
+    ResponseEntity<BankAccount> getAccount(@PathVariable("accountNumber") String accountNumber);
+
     @PostMapping("/api/transfers")
     ResponseEntity<Transaction> transferFunds(@RequestBody TransferRequest request);
+
+    // Takes the amount from the customer only; the payee is credited by a later settlement
+    @PostMapping("/api/transfers/debits")
+    ResponseEntity<Transaction> debit(@RequestBody TransferRequest request);
+
+    // The transaction recorded under a transfer or debit reference; 404 when there is none
+    @GetMapping("/api/transfers/references/{reference}")
+    ResponseEntity<Transaction> findByReference(@PathVariable("reference") String reference);
+
+    // Credits the payee once with the sum of the listed debits; already-settled debits are skipped
+    @PostMapping("/api/transfers/settlements")
+    ResponseEntity<SettlementResponse> settle(@RequestBody SettlementRequest request);
 }
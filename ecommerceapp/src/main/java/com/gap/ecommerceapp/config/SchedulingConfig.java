@@ -0,0 +1,13 @@
+package com.gap.ecommerceapp.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Background jobs (outbox relay, settlement, hold sweeper, cart flushes, ...). Tests that count
+// statements switch them off with ecommerce.scheduling.enabled=false so no poller queries in between.
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "ecommerce.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,36 @@
+package com.gap.ecommerceapp.controller;
+
+import com.gap.ecommerceapp.dto.CacheStatsResponse;
+import com.gap.ecommerceapp.dto.OutboxStatsResponse;
+import com.gap.ecommerceapp.dto.PaymentStatsResponse;
+import com.gap.ecommerceapp.service.OutboxService;
+import com.gap.ecommerceapp.service.PaymentGateway;
+import com.gap.ecommerceapp.service.ProductCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final ProductCache productCache;
+    private final OutboxService outboxService;
+    private final PaymentGateway paymentGateway;
+
+    @GetMapping("/product-cache")
+    public ResponseEntity<CacheStatsResponse> getProductCacheStats() {
+        return ResponseEntity.ok(productCache.stats());
+    }
+
+    @GetMapping("/outbox")
+    public ResponseEntity<OutboxStatsResponse> getOutboxStats() {
+        return ResponseEntity.ok(outboxService.stats());
+    }
+
+    @GetMapping("/payments")
+    public ResponseEntity<PaymentStatsResponse> getPaymentStats() {
+        return ResponseEntity.ok(paymentGateway.stats());
+    }
+}
@@ -2,6 +2,7 @@ package com.gap.ecommerceapp.controller;
 
 import com.gap.ecommerceapp.dto.BuyNowRequest;
 import com.gap.ecommerceapp.dto.CheckoutRequest;
+import com.gap.ecommerceapp.dto.OrderHistoryResponse;
 import com.gap.ecommerceapp.dto.OrderResponse;
 import com.gap.ecommerceapp.service.OrderService;
 import lombok.RequiredArgsConstructor;
@@ -9,31 +10,85 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    private static final int MAX_WAIT_SECONDS = 30;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final OrderService orderService;
 
+    // Retries that repeat the Idempotency-Key get the first attempt's result instead of a second order
     @PostMapping("/checkout")
-    public ResponseEntity<OrderResponse> checkout(@Valid @RequestBody CheckoutRequest request) {
-        OrderResponse orderResponse = orderService.checkout(request);
+    public ResponseEntity<OrderResponse> checkout(
+            @Valid @RequestBody CheckoutRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        OrderResponse orderResponse = orderService.checkout(request, idempotencyKey);
         return ResponseEntity.ok(orderResponse);
     }
 
+    // Answers as soon as the order is PENDING; poll or wait on the status endpoint for the outcome.
+    // A retry with the same Idempotency-Key gets the same PENDING order back.
+    @PostMapping("/checkout/async")
+    public ResponseEntity<OrderResponse> checkoutAsync(
+            @Valid @RequestBody CheckoutRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        OrderResponse orderResponse = orderService.checkoutAsync(request, idempotencyKey);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/orders/" + orderResponse.getOrderId() + "/status"))
+                .body(orderResponse);
+    }
+
+    // Without waitSeconds this is a plain poll; with it, the response is held until the order
+    // leaves PENDING or the wait runs out (at most MAX_WAIT_SECONDS)
+    @GetMapping("/{orderId}/status")
+    public CompletableFuture<ResponseEntity<OrderResponse>> getOrderStatus(
+            @PathVariable Long orderId,
+            @RequestParam(defaultValue = "0") int waitSeconds) {
+        Duration wait = Duration.ofSeconds(Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS)));
+        return orderService.awaitOrder(orderId, wait).thenApply(ResponseEntity::ok);
+    }
+
     @PostMapping("/buy-now")
-    public ResponseEntity<OrderResponse> buyNow(@Valid @RequestBody BuyNowRequest request) {
-        OrderResponse orderResponse = orderService.buyNow(request);
+    public ResponseEntity<OrderResponse> buyNow(
+            @Valid @RequestBody BuyNowRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        OrderResponse orderResponse = orderService.buyNow(request, idempotencyKey);
         return ResponseEntity.ok(orderResponse);
     }
 
+    // The user's orders with their items, newest first, in the original array shape. At most 100
+    // per call; when there are more, X-Next-Cursor holds the cursor for the following page.
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<OrderResponse>> getUserOrders(@PathVariable Long userId) {
-        List<OrderResponse> orders = orderService.getUserOrderResponses(userId);
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<List<OrderResponse>> getUserOrders(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        OrderHistoryResponse page = orderService.getUserOrderResponses(userId, cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getOrders());
+    }
+
+    // Newest first, one page at a time; pass nextCursor back as cursor for the following page
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<OrderHistoryResponse> getUserOrderHistory(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "false") boolean includeItems) {
+        OrderHistoryResponse history = orderService.getOrderHistory(userId, cursor, size, includeItems);
+        return ResponseEntity.ok(history);
     }
 
     @GetMapping("/{orderId}")
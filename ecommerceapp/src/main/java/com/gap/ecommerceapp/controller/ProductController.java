@@ -1,11 +1,25 @@
 package com.gap.ecommerceapp.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gap.ecommerceapp.dto.CategoryFacetResponse;
+import com.gap.ecommerceapp.dto.ProductSearchResponse;
 import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.dto.ProductImportReport;
+import com.gap.ecommerceapp.service.ProductImportService;
 import com.gap.ecommerceapp.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,7 +28,12 @@ import java.util.Optional;
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts() {
@@ -29,18 +48,55 @@ public class ProductController {
                      .orElse(ResponseEntity.notFound().build());
     }
 
-    @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam(required = false) String keyword) {
-        List<Product> products = productService.searchProducts(keyword);
+    @PostMapping("/batch")
+    public ResponseEntity<List<Product>> getProductsByIds(@RequestBody List<Long> ids) {
+        List<Product> products = productService.getProductsByIds(ids);
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<ProductSearchResponse> searchProducts(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ProductSearchResponse response = productService.searchProducts(keyword, cursor, size);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/search/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamSearchResults(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer limit) {
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            productService.streamSearchResults(keyword, limit, product -> {
+                try {
+                    writer.write(objectMapper.writeValueAsString(product));
+                    writer.write('\n');
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
     @GetMapping("/category/{category}")
     public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category) {
         List<Product> products = productService.getProductsByCategory(category);
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/facets")
+    public ResponseEntity<List<CategoryFacetResponse>> getCategoryFacets() {
+        List<CategoryFacetResponse> facets = productService.getCategoryFacets();
+        return ResponseEntity.ok(facets);
+    }
+
     @GetMapping("/available")
     public ResponseEntity<List<Product>> getAvailableProducts() {
         List<Product> products = productService.getAvailableProducts();
@@ -52,4 +108,17 @@ public class ProductController {
         Product savedProduct = productService.saveProduct(product);
         return ResponseEntity.ok(savedProduct);
     }
+
+    // Body is streamed, never buffered: CSV with a header row, or one JSON object per line
+    @PostMapping(value = "/import", consumes = {CSV, NDJSON})
+    public ResponseEntity<ProductImportReport> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestParam(required = false) Integer batchSize,
+            InputStream body) {
+        ProductImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV))
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        ProductImportReport report = productImportService.importProducts(body, format, batchSize);
+        return ResponseEntity.ok(report);
+    }
 }
@@ -0,0 +1,35 @@
+package com.gap.ecommerceapp.controller;
+
+import com.gap.ecommerceapp.dto.MonthlyOrderReport;
+import com.gap.ecommerceapp.service.OrderReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/reports")
+public class ReportController {
+
+    private final OrderReportService orderReportService;
+
+    // from/to are inclusive months (yyyy-MM); both default to the last 12 months
+    @GetMapping("/users/{userId}/monthly")
+    public ResponseEntity<List<MonthlyOrderReport>> getUserMonthlyReports(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        return ResponseEntity.ok(orderReportService.getUserMonthlyReports(userId, from, to));
+    }
+
+    @GetMapping("/monthly")
+    public ResponseEntity<List<MonthlyOrderReport>> getGlobalMonthlyReports(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        return ResponseEntity.ok(orderReportService.getGlobalMonthlyReports(from, to));
+    }
+}
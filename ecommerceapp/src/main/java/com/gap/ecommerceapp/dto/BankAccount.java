@@ -0,0 +1,13 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BankAccount {
+    private String accountNumber;
+    private String name;
+}
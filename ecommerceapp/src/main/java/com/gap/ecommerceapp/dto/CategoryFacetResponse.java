@@ -0,0 +1,16 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryFacetResponse {
+    private String category;
+    private Integer totalProducts;
+    private Integer inStockProducts;
+}
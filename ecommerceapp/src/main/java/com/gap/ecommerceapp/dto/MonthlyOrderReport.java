@@ -0,0 +1,23 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MonthlyOrderReport {
+    // yyyy-MM
+    private String month;
+    private Long orderCount;
+    private Long confirmedCount;
+    private Long paymentFailedCount;
+    private BigDecimal revenue;
+    private Long itemCount;
+    private BigDecimal averageOrderValue;
+}
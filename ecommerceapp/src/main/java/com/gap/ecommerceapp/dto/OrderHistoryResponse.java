@@ -0,0 +1,18 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderHistoryResponse {
+    // Order summaries; orderItems is only filled in when the items were asked for
+    private List<OrderResponse> orders;
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxStatsResponse {
+    // Lag: events written but not yet acknowledged by Kafka, and how long the oldest has waited
+    private Long pendingEvents;
+    private Long oldestPendingAgeMillis;
+    // Throughput
+    private Long publishedTotal;
+    // Events a relay batch read but could not publish; they are retried on the next poll
+    private Long failedTotal;
+    private Double publishedPerSecond;
+    private Integer lastBatchSize;
+    private Long lastBatchMillis;
+}
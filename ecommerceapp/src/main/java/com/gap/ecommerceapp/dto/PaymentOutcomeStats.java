@@ -0,0 +1,19 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentOutcomeStats {
+    // SUCCESS, DECLINED, TIMEOUT, ERROR or REJECTED
+    private String outcome;
+    private Long count;
+    private Double p50Millis;
+    private Double p99Millis;
+    private Double maxMillis;
+}
@@ -0,0 +1,22 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PaymentStatsResponse {
+    // CLOSED, OPEN or HALF_OPEN
+    private String circuitState;
+    // Bulkhead: calls to the bank in progress and the limit
+    private Integer inFlightCalls;
+    private Integer maxConcurrentCalls;
+    private Long retriesTotal;
+    private List<PaymentOutcomeStats> outcomes;
+}
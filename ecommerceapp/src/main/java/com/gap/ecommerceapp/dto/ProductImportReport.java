@@ -0,0 +1,48 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductImportReport {
+    private Integer totalRows;
+    private Integer importedRows;
+    private Integer rejectedRows;
+    // Valid rows in batches the database refused
+    private Integer failedRows;
+    private Long elapsedMillis;
+    private Double rowsPerSecond;
+    private List<BatchResult> batches;
+    private List<RejectedRow> rejected;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class BatchResult {
+        private Integer batch;
+        private Integer firstLine;
+        private Integer lastLine;
+        private Integer rows;
+        private Integer failedRows;
+        private String error;
+        private Long elapsedMillis;
+        private Double rowsPerSecond;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RejectedRow {
+        private Integer line;
+        private String reason;
+    }
+}
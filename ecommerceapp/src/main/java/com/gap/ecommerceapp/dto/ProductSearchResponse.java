@@ -0,0 +1,19 @@
+package com.gap.ecommerceapp.dto;
+
+import com.gap.ecommerceapp.model.Product;
+import lombok.Data;
+import lombok.Builder;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSearchResponse {
+    private List<Product> items;
+    private Integer totalMatches;
+    private String nextCursor;
+}
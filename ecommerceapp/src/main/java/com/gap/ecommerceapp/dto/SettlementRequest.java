@@ -0,0 +1,15 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementRequest {
+    private String toAccountNumber;
+    private List<Long> debitTransactionIds;
+}
@@ -0,0 +1,19 @@
+package com.gap.ecommerceapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SettlementResponse {
+    private Long settlementTransactionId;
+    private int settledCount;
+    private BigDecimal settledAmount;
+    private int alreadySettledCount;
+    private List<Long> unknownIds;
+}
@@ -13,4 +13,11 @@ public class TransferRequest {
     private String fromAccountNumber;
     private String toAccountNumber;
     private BigDecimal amount;
+    // The order number; the bank records it with the transaction and returns that transaction if
+    // the same reference is sent again, so a payment whose outcome was lost can be looked up
+    private String reference;
+
+    public TransferRequest(String fromAccountNumber, String toAccountNumber, BigDecimal amount) {
+        this(fromAccountNumber, toAccountNumber, amount, null);
+    }
 }
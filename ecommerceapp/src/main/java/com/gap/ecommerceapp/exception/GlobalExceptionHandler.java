@@ -29,6 +29,13 @@ public class GlobalExceptionHandler {
         return createErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST, request.getContextPath());
     }
 
+    @ExceptionHandler(RequestInProgressException.class)
+    public ResponseEntity<Map<String, Object>> handleRequestInProgressException(
+            RequestInProgressException ex, WebRequest request) {
+        log.warn("Request in progress: {}", ex.getMessage());
+        return createErrorResponse(ex.getMessage(), HttpStatus.CONFLICT, request.getContextPath());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgumentException(
             IllegalArgumentException ex, WebRequest request) {
@@ -0,0 +1,34 @@
+package com.gap.ecommerceapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// The stored outcome of a request sent with an Idempotency-Key header, replayed on retries. Inserted
+// without a response when the request starts, so only one node runs it.
+@Entity
+@Table(name = "idempotency_records")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    // Operation and client key, e.g. "checkout:3f2a..."
+    @Id
+    @Column(name = "record_key", length = 150)
+    private String recordKey;
+
+    // SHA-256 of the request body, so a key reused for a different request is rejected
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    // Null while the request is still running
+    @Lob
+    @Column(name = "response_body")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
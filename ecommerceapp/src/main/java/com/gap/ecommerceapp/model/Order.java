@@ -9,7 +9,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_orders_status_created", columnList = "status, created_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -39,6 +42,10 @@ public class Order {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Placed from the cart rather than with buy-now; only cart orders publish an order event
+    @Column(name = "from_cart")
+    private boolean fromCart;
+
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<OrderItem> orderItems = new ArrayList<>();
 
@@ -50,7 +57,33 @@ public class Order {
         }
     }
 
+    // Moves the order along the status state machine, rejecting transitions it does not allow
+    public void transitionTo(OrderStatus next) {
+        if (!status.canTransitionTo(next)) {
+            throw new IllegalStateException("Order " + id + " cannot move from " + status + " to " + next);
+        }
+        status = next;
+    }
+
+    // PENDING: stock reserved, payment outstanding. PAYMENT_UNKNOWN: the bank call timed out or failed
+    // without an answer, so the money may have moved; stock stays reserved until the payment is looked
+    // up again. PAYMENT_FAILED, DELIVERED and CANCELLED are final.
     public enum OrderStatus {
-        PENDING, CONFIRMED, PAYMENT_FAILED, SHIPPED, DELIVERED, CANCELLED
+        PENDING, CONFIRMED, PAYMENT_FAILED, SHIPPED, DELIVERED, CANCELLED, PAYMENT_UNKNOWN;
+
+        public boolean canTransitionTo(OrderStatus next) {
+            return switch (this) {
+                case PENDING -> next == CONFIRMED || next == PAYMENT_FAILED || next == CANCELLED
+                        || next == PAYMENT_UNKNOWN;
+                case PAYMENT_UNKNOWN -> next == CONFIRMED || next == PAYMENT_FAILED;
+                case CONFIRMED -> next == SHIPPED || next == CANCELLED;
+                case SHIPPED -> next == DELIVERED;
+                case PAYMENT_FAILED, DELIVERED, CANCELLED -> false;
+            };
+        }
+
+        public boolean isFinal() {
+            return this == PAYMENT_FAILED || this == DELIVERED || this == CANCELLED;
+        }
     }
 }
@@ -0,0 +1,49 @@
+package com.gap.ecommerceapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Running monthly totals of finalized orders, per user and across all users (userId = GLOBAL_USER_ID).
+// Kept up to date by OrderReportService as orders are finalized, so reports never scan orders.
+@Entity
+@Table(name = "order_monthly_rollups",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "month_start"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderMonthlyRollup {
+
+    public static final long GLOBAL_USER_ID = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // First day of the month the orders were placed in
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "confirmed_count", nullable = false)
+    private Long confirmedCount;
+
+    @Column(name = "payment_failed_count", nullable = false)
+    private Long paymentFailedCount;
+
+    // Confirmed orders only
+    @Column(nullable = false)
+    private BigDecimal revenue;
+
+    // Units in confirmed orders
+    @Column(name = "item_count", nullable = false)
+    private Long itemCount;
+}
@@ -0,0 +1,33 @@
+package com.gap.ecommerceapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// A customer debit the bank has taken but not yet paid out to the merchant. Written in the same
+// transaction that confirms the order, at checkout or when reconciliation finds the debit at the
+// bank; MerchantSettlementService deletes it once the bank has settled the debit.
+@Entity
+@Table(name = "pending_settlements", indexes = @Index(name = "idx_pending_settlements_created_at", columnList = "created_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingSettlement {
+
+    // Id of the DEBIT transaction in BankApp
+    @Id
+    @Column(name = "debit_transaction_id")
+    private Long debitTransactionId;
+
+    @Column(name = "merchant_account_number", nullable = false)
+    private String merchantAccountNumber;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
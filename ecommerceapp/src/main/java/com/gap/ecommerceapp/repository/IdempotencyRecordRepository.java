@@ -0,0 +1,39 @@
+package com.gap.ecommerceapp.repository;
+
+import com.gap.ecommerceapp.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // A plain INSERT, unlike save(), so a key another node already holds fails on the primary key
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_records (record_key, request_hash, created_at) "
+            + "VALUES (:recordKey, :requestHash, :createdAt)", nativeQuery = true)
+    int insertClaim(@Param("recordKey") String recordKey,
+                    @Param("requestHash") String requestHash,
+                    @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.recordKey = :recordKey AND r.responseBody IS NULL")
+    int deleteClaim(@Param("recordKey") String recordKey);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.recordKey = :recordKey AND r.createdAt < :cutoff")
+    int deleteExpired(@Param("recordKey") String recordKey, @Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,34 @@
+package com.gap.ecommerceapp.repository;
+
+import com.gap.ecommerceapp.model.OrderMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OrderMonthlyRollupRepository extends JpaRepository<OrderMonthlyRollup, Long> {
+
+    boolean existsByUserIdAndMonthStart(Long userId, LocalDate monthStart);
+
+    List<OrderMonthlyRollup> findByUserIdAndMonthStartBetweenOrderByMonthStart(Long userId, LocalDate from, LocalDate to);
+
+    // Increments in place, so concurrent finalizations never lose an update
+    @Modifying
+    @Query("UPDATE OrderMonthlyRollup r SET r.orderCount = r.orderCount + 1, " +
+           "r.confirmedCount = r.confirmedCount + :confirmed, " +
+           "r.paymentFailedCount = r.paymentFailedCount + :paymentFailed, " +
+           "r.revenue = r.revenue + :revenue, r.itemCount = r.itemCount + :items " +
+           "WHERE r.userId = :userId AND r.monthStart = :monthStart")
+    int increment(@Param("userId") Long userId,
+                  @Param("monthStart") LocalDate monthStart,
+                  @Param("confirmed") long confirmed,
+                  @Param("paymentFailed") long paymentFailed,
+                  @Param("revenue") BigDecimal revenue,
+                  @Param("items") long items);
+}
@@ -2,12 +2,17 @@ package com.gap.ecommerceapp.repository;
 
 import com.gap.ecommerceapp.model.Order;
 import com.gap.ecommerceapp.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,4 +28,52 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findOrdersByUserAndDateRange(@Param("userId") Long userId,
                                            @Param("startDate") LocalDateTime startDate,
                                            @Param("endDate") LocalDateTime endDate);
+
+    // Locks the order row, so the checkout that placed the order and the reconciliation sweep
+    // cannot both finalize it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
+    // Oldest first, for the payment reconciliation sweep
+    @Query("SELECT o FROM Order o WHERE o.status IN :statuses AND o.createdAt < :cutoff ORDER BY o.createdAt")
+    List<Order> findByStatusInCreatedBefore(@Param("statuses") Collection<Order.OrderStatus> statuses,
+                                            @Param("cutoff") LocalDateTime cutoff,
+                                            Pageable pageable);
+
+    // Keyset pages of a user's order history, newest first, ordered by (createdAt, id) so the
+    // cursor stays stable while new orders arrive. Only summary columns are read.
+    @Query("SELECT o.id AS id, o.orderNumber AS orderNumber, u.id AS userId, u.name AS userName, " +
+           "o.totalAmount AS totalAmount, o.status AS status, o.paymentTransactionId AS paymentTransactionId, " +
+           "o.createdAt AS createdAt FROM Order o JOIN o.user u WHERE u.id = :userId " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT o.id AS id, o.orderNumber AS orderNumber, u.id AS userId, u.name AS userName, " +
+           "o.totalAmount AS totalAmount, o.status AS status, o.paymentTransactionId AS paymentTransactionId, " +
+           "o.createdAt AS createdAt FROM Order o JOIN o.user u WHERE u.id = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesByUserIdBefore(@Param("userId") Long userId,
+                                                   @Param("createdAt") LocalDateTime createdAt,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
+
+    interface OrderSummary {
+        Long getId();
+
+        String getOrderNumber();
+
+        Long getUserId();
+
+        String getUserName();
+
+        BigDecimal getTotalAmount();
+
+        Order.OrderStatus getStatus();
+
+        String getPaymentTransactionId();
+
+        LocalDateTime getCreatedAt();
+    }
 }
@@ -0,0 +1,16 @@
+package com.gap.ecommerceapp.repository;
+
+import com.gap.ecommerceapp.model.PendingSettlement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PendingSettlementRepository extends JpaRepository<PendingSettlement, Long> {
+
+    @Query("SELECT s FROM PendingSettlement s ORDER BY s.createdAt, s.debitTransactionId")
+    List<PendingSettlement> findOldest(Pageable pageable);
+}
@@ -0,0 +1,21 @@
+package com.gap.ecommerceapp.repository;
+
+import com.gap.ecommerceapp.model.StockHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface StockHoldRepository extends JpaRepository<StockHold, Long> {
+    Optional<StockHold> findByUserIdAndProductId(Long userId, Long productId);
+
+    @Modifying(flushAutomatically = true)
+    @Transactional
+    @Query("DELETE FROM StockHold h WHERE h.userId = :userId AND h.productId = :productId")
+    int deleteByUserIdAndProductId(@Param("userId") Long userId, @Param("productId") Long productId);
+}
@@ -11,11 +11,13 @@ import com.gap.ecommerceapp.repository.CartItemRepository;
 import com.gap.ecommerceapp.exception.ResourceNotFoundException;
 import com.gap.ecommerceapp.exception.InsufficientStockException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -26,20 +28,31 @@ public class CartService {
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ProductService productService;
+    private final StockHoldService stockHoldService;
+    // Only present with ecommerce.cart.store=write-behind; otherwise carts are read and written through JPA
+    private final ObjectProvider<WriteBehindCartStore> cartStoreProvider;
 
     public CartResponse getCartByUserId(Long userId) {
-        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
-
-        List<CartItemResponse> cartItemResponses = cartItems.stream()
-                .map(this::convertToCartItemResponse)
-                .collect(Collectors.toList());
+        Map<Long, StockHoldService.Hold> holds = stockHoldService.getHolds(userId);
+        WriteBehindCartStore cartStore = cartStoreProvider.getIfAvailable();
+
+        List<CartItemResponse> cartItemResponses;
+        if (cartStore != null) {
+            cartItemResponses = cartStore.getLines(userId).stream()
+                    .map(line -> convertToCartItemResponse(line, holds.get(line.getProductId())))
+                    .collect(Collectors.toList());
+        } else {
+            cartItemResponses = cartItemRepository.findByUserId(userId).stream()
+                    .map(cartItem -> convertToCartItemResponse(cartItem, holds.get(cartItem.getProduct().getId())))
+                    .collect(Collectors.toList());
+        }
 
-        BigDecimal totalAmount = cartItems.stream()
-                .map(CartItem::getTotalPrice)
+        BigDecimal totalAmount = cartItemResponses.stream()
+                .map(CartItemResponse::getTotalPrice)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        int totalItems = cartItems.stream()
-                .mapToInt(CartItem::getQuantity)
+        int totalItems = cartItemResponses.stream()
+                .mapToInt(CartItemResponse::getQuantity)
                 .sum();
 
         return CartResponse.builder()
@@ -59,6 +72,17 @@ public class CartService {
             throw new InsufficientStockException("Insufficient stock. Available: " + product.getStockQuantity() + ", Requested: " + quantity);
         }
 
+        WriteBehindCartStore cartStore = cartStoreProvider.getIfAvailable();
+        if (cartStore != null) {
+            WriteBehindCartStore.Line line = cartStore.addQuantity(user.getId(), product, quantity, newQuantity -> {
+                if (!stockHoldService.isEnabled() && product.getStockQuantity() < newQuantity) {
+                    throw new InsufficientStockException("Insufficient stock. Available: " + product.getStockQuantity() + ", Total requested: " + newQuantity);
+                }
+                holdStock(user.getId(), product.getId(), product.getName(), newQuantity);
+            });
+            return convertToCartItemResponse(line, stockHoldService.getHolds(user.getId()).get(productId));
+        }
+
         // Find or create cart for user
         Cart cart = cartRepository.findByUserId(user.getId())
                 .orElseGet(() -> {
@@ -74,7 +98,7 @@ public class CartService {
             cartItem = existingCartItem.get();
             int newQuantity = cartItem.getQuantity() + quantity;
 
-            if (product.getStockQuantity() < newQuantity) {
+            if (!stockHoldService.isEnabled() && product.getStockQuantity() < newQuantity) {
                 throw new InsufficientStockException("Insufficient stock. Available: " + product.getStockQuantity() + ", Total requested: " + newQuantity);
             }
 
@@ -88,38 +112,84 @@ public class CartService {
             cartItem.setUnitPrice(product.getPrice());
         }
 
+        holdStock(user.getId(), productId, product.getName(), cartItem.getQuantity());
+
         cartItem = cartItemRepository.save(cartItem);
-        return convertToCartItemResponse(cartItem);
+        return convertToCartItemResponse(user.getId(), cartItem);
     }
 
     @Transactional
     public void removeFromCart(Long cartItemId) {
-        if (!cartItemRepository.existsById(cartItemId)) {
-            throw new ResourceNotFoundException("Cart item not found with id: " + cartItemId);
+        WriteBehindCartStore cartStore = cartStoreProvider.getIfAvailable();
+        if (cartStore != null) {
+            WriteBehindCartStore.Line removed = cartStore.removeLine(cartItemId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + cartItemId));
+            stockHoldService.releaseHold(removed.getUserId(), removed.getProductId());
+            return;
         }
+
+        // Released even with holds switched off, like clearCart: holds taken before still count
+        CartItem cartItem = cartItemRepository.findById(cartItemId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + cartItemId));
+        stockHoldService.releaseHold(cartItem.getCart().getUser().getId(), cartItem.getProduct().getId());
         cartItemRepository.deleteById(cartItemId);
     }
 
     @Transactional
     public void clearCart(Long userId) {
-        cartItemRepository.deleteByUserId(userId);
+        stockHoldService.releaseAll(userId);
+        WriteBehindCartStore cartStore = cartStoreProvider.getIfAvailable();
+        if (cartStore != null) {
+            cartStore.clear(userId);
+        } else {
+            cartItemRepository.deleteByUserId(userId);
+        }
     }
 
     @Transactional
     public CartItemResponse updateCartItemQuantity(Long cartItemId, Integer quantity) {
+        WriteBehindCartStore cartStore = cartStoreProvider.getIfAvailable();
+        if (cartStore != null) {
+            WriteBehindCartStore.Line line = cartStore.updateQuantity(cartItemId, quantity, current -> {
+                if (!stockHoldService.isEnabled()) {
+                    Product product = productService.getProductById(current.getProductId())
+                            .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + current.getProductId()));
+                    if (product.getStockQuantity() < quantity) {
+                        throw new InsufficientStockException("Insufficient stock. Available: " + product.getStockQuantity() + ", Requested: " + quantity);
+                    }
+                }
+                holdStock(current.getUserId(), current.getProductId(), current.getProductName(), quantity);
+            }).orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + cartItemId));
+            return convertToCartItemResponse(line, stockHoldService.getHolds(line.getUserId()).get(line.getProductId()));
+        }
+
         CartItem cartItem = cartItemRepository.findById(cartItemId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart item not found with id: " + cartItemId));
 
-        if (cartItem.getProduct().getStockQuantity() < quantity) {
+        if (!stockHoldService.isEnabled() && cartItem.getProduct().getStockQuantity() < quantity) {
             throw new InsufficientStockException("Insufficient stock. Available: " + cartItem.getProduct().getStockQuantity() + ", Requested: " + quantity);
         }
 
+        Long userId = cartItem.getCart().getUser().getId();
+        holdStock(userId, cartItem.getProduct().getId(), cartItem.getProduct().getName(), quantity);
+
         cartItem.setQuantity(quantity);
         cartItem = cartItemRepository.save(cartItem);
-        return convertToCartItemResponse(cartItem);
+        return convertToCartItemResponse(userId, cartItem);
+    }
+
+    // With holds enabled the cart line's quantity is taken from stock now, for a limited time
+    private void holdStock(Long userId, Long productId, String productName, int quantity) {
+        if (stockHoldService.isEnabled() && !stockHoldService.hold(userId, productId, quantity)) {
+            throw new InsufficientStockException("Insufficient stock for product: " + productName + ". Requested: " + quantity);
+        }
     }
 
-    private CartItemResponse convertToCartItemResponse(CartItem cartItem) {
+    private CartItemResponse convertToCartItemResponse(Long userId, CartItem cartItem) {
+        return convertToCartItemResponse(cartItem, stockHoldService.getHolds(userId).get(cartItem.getProduct().getId()));
+    }
+
+    private CartItemResponse convertToCartItemResponse(CartItem cartItem, StockHoldService.Hold hold) {
         return CartItemResponse.builder()
                 .cartItemId(cartItem.getId())
                 .productId(cartItem.getProduct().getId())
@@ -128,6 +198,22 @@ public class CartService {
                 .quantity(cartItem.getQuantity())
                 .unitPrice(cartItem.getUnitPrice())
                 .totalPrice(cartItem.getTotalPrice())
+                .heldQuantity(hold == null ? null : hold.getQuantity())
+                .holdExpiresAt(hold == null ? null : hold.getExpiresAt())
+                .build();
+    }
+
+    private CartItemResponse convertToCartItemResponse(WriteBehindCartStore.Line line, StockHoldService.Hold hold) {
+        return CartItemResponse.builder()
+                .cartItemId(line.getCartItemId())
+                .productId(line.getProductId())
+                .productName(line.getProductName())
+                .productDescription(line.getProductDescription())
+                .quantity(line.getQuantity())
+                .unitPrice(line.getUnitPrice())
+                .totalPrice(line.getTotalPrice())
+                .heldQuantity(hold == null ? null : hold.getQuantity())
+                .holdExpiresAt(hold == null ? null : hold.getExpiresAt())
                 .build();
     }
 }
@@ -0,0 +1,107 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.dto.CategoryFacetResponse;
+import com.gap.ecommerceapp.model.Product;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-category product and in-stock counts, kept in memory and adjusted by the delta of each
+// product write so that reading the facets never queries the database.
+@Slf4j
+@Component
+public class CategoryFacetService {
+
+    static final String UNCATEGORIZED = "Uncategorized";
+
+    private final ConcurrentHashMap<String, FacetCounts> facets = new ConcurrentHashMap<>();
+
+    // product id -> what the product currently contributes to the counts
+    private final Map<Long, Contribution> contributions = new HashMap<>();
+
+    public synchronized void rebuild(Collection<Product> products) {
+        facets.clear();
+        contributions.clear();
+        products.forEach(this::update);
+        log.info("Category facets built: {} categories over {} products", facets.size(), contributions.size());
+    }
+
+    public synchronized void update(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Contribution current = new Contribution(categoryOf(product),
+                product.getStockQuantity() != null && product.getStockQuantity() > 0);
+        Contribution previous = contributions.put(product.getId(), current);
+        if (current.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(current, 1);
+    }
+
+    // Stock-only change for a product whose category is already known
+    public synchronized void updateStockLevel(Long productId, int stockQuantity) {
+        Contribution previous = contributions.get(productId);
+        if (previous == null || previous.isInStock() == stockQuantity > 0) {
+            return;
+        }
+        Contribution current = new Contribution(previous.getCategory(), stockQuantity > 0);
+        contributions.put(productId, current);
+        apply(previous, -1);
+        apply(current, 1);
+    }
+
+    public synchronized void remove(Long productId) {
+        Contribution previous = contributions.remove(productId);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+    }
+
+    public List<CategoryFacetResponse> getFacets() {
+        List<CategoryFacetResponse> result = new ArrayList<>();
+        facets.forEach((category, counts) -> {
+            int total = counts.total.get();
+            if (total > 0) {
+                result.add(CategoryFacetResponse.builder()
+                        .category(category)
+                        .totalProducts(total)
+                        .inStockProducts(counts.inStock.get())
+                        .build());
+            }
+        });
+        result.sort(Comparator.comparing(CategoryFacetResponse::getCategory));
+        return result;
+    }
+
+    private void apply(Contribution contribution, int delta) {
+        FacetCounts counts = facets.computeIfAbsent(contribution.getCategory(), c -> new FacetCounts());
+        counts.total.addAndGet(delta);
+        if (contribution.isInStock()) {
+            counts.inStock.addAndGet(delta);
+        }
+    }
+
+    private static String categoryOf(Product product) {
+        String category = product.getCategory();
+        return category == null || category.isBlank() ? UNCATEGORIZED : category;
+    }
+
+    private static final class FacetCounts {
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger inStock = new AtomicInteger();
+    }
+
+    @Value
+    private static class Contribution {
+        String category;
+        boolean inStock;
+    }
+}
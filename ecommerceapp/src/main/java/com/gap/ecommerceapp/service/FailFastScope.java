@@ -0,0 +1,77 @@
+package com.gap.ecommerceapp.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Runs a few independent blocking calls on their own virtual threads. join waits for all of them;
+// the first failure interrupts the others and is rethrown unchanged, and close waits for every fork
+// to end, so none outlives the block that started it. Same shape as StructuredTaskScope's
+// ShutdownOnFailure, which is still a preview API on Java 24.
+final class FailFastScope implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<CompletableFuture<?>> results = new ArrayList<>();
+    private final CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+
+    // The returned supplier may only be read after join has returned normally
+    <T> Supplier<T> fork(Callable<? extends T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        results.add(result);
+        executor.execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                firstFailure.completeExceptionally(e);
+            }
+        });
+        return result::resultNow;
+    }
+
+    void join(Duration timeout) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(results.toArray(CompletableFuture[]::new));
+        try {
+            CompletableFuture.anyOf(all, firstFailure).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            throw rethrow(firstFailure.isCompletedExceptionally() ? firstFailure.exceptionNow() : e.getCause());
+        } catch (TimeoutException e) {
+            executor.shutdownNow();
+            throw new IllegalStateException("Lookups did not finish within " + timeout);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for lookups");
+        }
+    }
+
+    @Override
+    public void close() {
+        // Interrupts whatever is still running (only after a failure or when join was skipped) and waits for it
+        executor.shutdownNow();
+        executor.close();
+    }
+
+    private static RuntimeException rethrow(Throwable failure) {
+        while (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(failure.getMessage(), failure);
+    }
+}
@@ -0,0 +1,221 @@
+package com.gap.ecommerceapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gap.ecommerceapp.dto.OrderResponse;
+import com.gap.ecommerceapp.exception.RequestInProgressException;
+import com.gap.ecommerceapp.model.IdempotencyRecord;
+import com.gap.ecommerceapp.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Deduplicates order requests that carry an Idempotency-Key header. The first request with a key
+// inserts an in-progress row into idempotency_records before it runs; the primary key lets only one
+// node do so. Duplicates on the same instance wait on its in-flight future, duplicates on other
+// instances get a RequestInProgressException (409), and later retries are answered from the stored
+// OrderResponse. Recent keys also live in a bounded LRU map. Failed requests delete their row, so
+// the client can retry them; a row left by an instance that went down mid-request holds the key
+// until retention expires, rather than risk a second order.
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final Duration retention;
+    private final Clock clock;
+
+    // Access-ordered so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Entry> entries;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${ecommerce.idempotency.max-entries:10000}") int maxEntries,
+                              @Value("${ecommerce.idempotency.retention:24h}") Duration retention) {
+        this(idempotencyRecordRepository, objectMapper, maxEntries, retention, Clock.systemDefaultZone());
+    }
+
+    IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                       ObjectMapper objectMapper,
+                       int maxEntries,
+                       Duration retention,
+                       Clock clock) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.retention = retention;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                // In-flight entries are never evicted, or a duplicate could slip past them
+                return size() > IdempotencyService.this.maxEntries && eldest.getValue().future.isDone();
+            }
+        };
+    }
+
+    // Runs the action once per (operation, key); without a key it simply runs the action
+    public OrderResponse execute(String idempotencyKey, String operation, Object request, Supplier<OrderResponse> action) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String recordKey = operation + ":" + idempotencyKey;
+        String requestHash = hash(request);
+        Entry created = new Entry(requestHash);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.putIfAbsent(recordKey, created);
+        }
+        if (entry != null) {
+            return join(entry, requestHash);
+        }
+
+        boolean claimed = false;
+        try {
+            Optional<OrderResponse> stored = claim(recordKey, requestHash);
+            OrderResponse response;
+            if (stored.isPresent()) {
+                response = stored.get();
+            } else {
+                claimed = true;
+                response = store(recordKey, requestHash, action.get());
+            }
+            created.future.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            if (claimed) {
+                releaseClaim(recordKey);
+            }
+            synchronized (entries) {
+                entries.remove(recordKey, created);
+            }
+            created.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpiredRecords() {
+        int purged = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now(clock).minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency records", purged);
+        }
+    }
+
+    private OrderResponse join(Entry entry, String requestHash) {
+        checkSameRequest(entry.requestHash, requestHash);
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Empty once this instance holds the key and may run the request; the stored response if the
+    // key already completed. A row past retention is deleted and the claim tried again.
+    private Optional<OrderResponse> claim(String recordKey, String requestHash) {
+        while (true) {
+            LocalDateTime now = LocalDateTime.now(clock);
+            try {
+                idempotencyRecordRepository.insertClaim(recordKey, requestHash, now);
+                return Optional.empty();
+            } catch (DataIntegrityViolationException e) {
+                Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findById(recordKey);
+                if (existing.isEmpty()) {
+                    continue; // released by a failed request in the meantime
+                }
+                IdempotencyRecord record = existing.get();
+                if (record.getCreatedAt().isBefore(now.minus(retention))) {
+                    idempotencyRecordRepository.deleteExpired(recordKey, now.minus(retention));
+                    continue;
+                }
+                checkSameRequest(record.getRequestHash(), requestHash);
+                if (record.getResponseBody() == null) {
+                    throw new RequestInProgressException("A request with this Idempotency-Key is still being processed");
+                }
+                log.info("Replaying stored response for {}", recordKey);
+                return Optional.of(fromJson(record.getResponseBody()));
+            }
+        }
+    }
+
+    private void releaseClaim(String recordKey) {
+        try {
+            idempotencyRecordRepository.deleteClaim(recordKey);
+        } catch (RuntimeException e) {
+            log.error("Could not release idempotency claim {}: {}", recordKey, e.getMessage());
+        }
+    }
+
+    // The order has already committed at this point; if this write fails the response is still
+    // returned, and the claim row keeps other instances from running the request again
+    private OrderResponse store(String recordKey, String requestHash, OrderResponse response) {
+        try {
+            idempotencyRecordRepository.save(new IdempotencyRecord(recordKey, requestHash,
+                    objectMapper.writeValueAsString(response), LocalDateTime.now(clock)));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Could not store idempotency record {}: {}", recordKey, e.getMessage());
+        }
+        return response;
+    }
+
+    private void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different request");
+        }
+    }
+
+    private OrderResponse fromJson(String body) {
+        try {
+            return objectMapper.readValue(body, OrderResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotency record is unreadable", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private static final class Entry {
+        private final String requestHash;
+        private final CompletableFuture<OrderResponse> future = new CompletableFuture<>();
+
+        private Entry(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gap.ecommerceapp.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+// Lock-free latency histogram with logarithmic buckets: each bucket is 2^(1/4) (about 19%) wider
+// than the previous one, starting at 1 microsecond, so a reported percentile is at most 19% above
+// the true value while the whole histogram stays a fixed array of counters.
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    // 2^40 microseconds is about 12 days; anything slower lands in the last bucket
+    private static final int BUCKETS = 40 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    void record(long nanos) {
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+        int bucket = (int) Math.min(BUCKETS - 1, Math.floor(Math.log(micros) / Math.log(2) * SUB_BUCKETS));
+        counts.incrementAndGet(bucket);
+        maxMicros.accumulate(micros);
+    }
+
+    long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100), capped at the slowest call seen
+    double percentileMillis(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        int bucket = 0;
+        while (bucket < BUCKETS - 1 && (seen += snapshot[bucket]) < rank) {
+            bucket++;
+        }
+        double upperMicros = Math.pow(2, (bucket + 1) / (double) SUB_BUCKETS);
+        return Math.min(upperMicros, maxMicros.get()) / 1000.0;
+    }
+
+    double maxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+}
@@ -0,0 +1,127 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.client.BankServiceClient;
+import com.gap.ecommerceapp.dto.SettlementRequest;
+import com.gap.ecommerceapp.dto.SettlementResponse;
+import com.gap.ecommerceapp.model.PendingSettlement;
+import com.gap.ecommerceapp.repository.PendingSettlementRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Settlement mode for payments. "immediate" (the default) pays each order with one transfer into the
+// merchant account, so every checkout updates that one row in BankApp. "batched" only debits the
+// customer per order and records the debit here; a scheduled job then asks the bank to credit the
+// merchant once per batch. The bank sums and marks the debits itself, so a batch that is retried
+// after a lost response is not paid out twice. Each debit carries its order number as reference,
+// so a debit whose order was never confirmed here (a lost response, or the instance going down
+// after the payment) is found again by OrderService.reconcilePayments and enqueued then.
+@Slf4j
+@Service
+public class MerchantSettlementService {
+
+    private static final String BATCHED = "batched";
+
+    private final PendingSettlementRepository pendingSettlementRepository;
+    private final BankServiceClient bankServiceClient;
+    private final boolean batched;
+    private final int batchSize;
+    private final Clock clock;
+
+    @Autowired
+    public MerchantSettlementService(PendingSettlementRepository pendingSettlementRepository,
+                                     BankServiceClient bankServiceClient,
+                                     @Value("${ecommerce.payment.settlement.mode:immediate}") String mode,
+                                     @Value("${ecommerce.payment.settlement.batch-size:500}") int batchSize) {
+        this(pendingSettlementRepository, bankServiceClient, mode, batchSize, Clock.systemDefaultZone());
+    }
+
+    MerchantSettlementService(PendingSettlementRepository pendingSettlementRepository,
+                              BankServiceClient bankServiceClient,
+                              String mode,
+                              int batchSize,
+                              Clock clock) {
+        if (!BATCHED.equals(mode) && !"immediate".equals(mode)) {
+            throw new IllegalArgumentException("Unknown settlement mode: " + mode);
+        }
+        this.pendingSettlementRepository = pendingSettlementRepository;
+        this.bankServiceClient = bankServiceClient;
+        this.batched = BATCHED.equals(mode);
+        this.batchSize = batchSize;
+        this.clock = clock;
+    }
+
+    public boolean isBatched() {
+        return batched;
+    }
+
+    // Must run in the transaction that confirms the order. A debit already queued keeps its place.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String debitTransactionId, String merchantAccountNumber, BigDecimal amount) {
+        Long debitId = Long.valueOf(debitTransactionId);
+        if (pendingSettlementRepository.existsById(debitId)) {
+            return;
+        }
+        pendingSettlementRepository.save(new PendingSettlement(debitId, merchantAccountNumber, amount,
+                LocalDateTime.now(clock)));
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.payment.settlement.interval-ms:5000}")
+    public void settle() {
+        // Also drains debits left over from an earlier run in batched mode
+        int read;
+        do {
+            read = settleBatch();
+        } while (read == batchSize);
+    }
+
+    // Settles one batch and returns how many debits it read, or 0 if the bank could not be reached
+    int settleBatch() {
+        List<PendingSettlement> pending = pendingSettlementRepository.findOldest(PageRequest.of(0, batchSize));
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Map<String, List<Long>> debitsByMerchant = pending.stream().collect(Collectors.groupingBy(
+                PendingSettlement::getMerchantAccountNumber, LinkedHashMap::new,
+                Collectors.mapping(PendingSettlement::getDebitTransactionId, Collectors.toList())));
+
+        for (Map.Entry<String, List<Long>> merchant : debitsByMerchant.entrySet()) {
+            List<Long> debitIds = merchant.getValue();
+            try {
+                ResponseEntity<SettlementResponse> response =
+                        bankServiceClient.settle(new SettlementRequest(merchant.getKey(), debitIds));
+                SettlementResponse settlement = response.getBody();
+                if (!response.getStatusCode().is2xxSuccessful() || settlement == null) {
+                    log.warn("Settlement for {} failed: HTTP {}", merchant.getKey(), response.getStatusCode());
+                    return 0;
+                }
+                if (!settlement.getUnknownIds().isEmpty()) {
+                    // Nothing to retry: the bank has no such debit for this merchant
+                    log.error("Bank does not know debits {} for {}", settlement.getUnknownIds(), merchant.getKey());
+                }
+                log.info("Settled {} debits ({}) to {}, {} already settled", settlement.getSettledCount(),
+                        settlement.getSettledAmount(), merchant.getKey(), settlement.getAlreadySettledCount());
+            } catch (RuntimeException e) {
+                // Left in place for the next run
+                log.warn("Settlement for {} failed: {}", merchant.getKey(), e.getMessage());
+                return 0;
+            }
+            pendingSettlementRepository.deleteAllByIdInBatch(debitIds);
+        }
+        return pending.size();
+    }
+}
@@ -0,0 +1,7 @@
+package com.gap.ecommerceapp.service;
+
+// Source of order numbers; pick one with ecommerce.order-number.generator (snowflake or uuid)
+public interface OrderNumberGenerator {
+
+    String next();
+}
@@ -0,0 +1,152 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.dto.MonthlyOrderReport;
+import com.gap.ecommerceapp.model.Order;
+import com.gap.ecommerceapp.model.OrderMonthlyRollup;
+import com.gap.ecommerceapp.repository.OrderMonthlyRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Monthly order reports read from pre-aggregated rollups. Each finalized order adds itself to its
+// user's row and the global row for the month it was placed in, inside the transaction that
+// finalizes it, so a report for N months reads N rows however many orders there are.
+@Slf4j
+@Service
+public class OrderReportService {
+
+    private static final int DEFAULT_MONTHS = 12;
+    private static final int MAX_MONTHS = 120;
+
+    private final OrderMonthlyRollupRepository rollupRepository;
+    private final TransactionTemplate newTransaction;
+    private final Clock clock;
+
+    @Autowired
+    public OrderReportService(OrderMonthlyRollupRepository rollupRepository,
+                              PlatformTransactionManager transactionManager) {
+        this(rollupRepository, transactionManager, Clock.systemDefaultZone());
+    }
+
+    OrderReportService(OrderMonthlyRollupRepository rollupRepository,
+                       PlatformTransactionManager transactionManager,
+                       Clock clock) {
+        this.rollupRepository = rollupRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.clock = clock;
+    }
+
+    // Must run in the transaction that finalizes the order; other statuses are not reported
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOutcome(Long userId, LocalDateTime placedAt, Order.OrderStatus status,
+                              BigDecimal totalAmount, int units) {
+        if (status != Order.OrderStatus.CONFIRMED && status != Order.OrderStatus.PAYMENT_FAILED) {
+            return;
+        }
+        boolean confirmed = status == Order.OrderStatus.CONFIRMED;
+        LocalDate monthStart = YearMonth.from(placedAt).atDay(1);
+        BigDecimal revenue = confirmed ? totalAmount : BigDecimal.ZERO;
+        long items = confirmed ? units : 0;
+
+        for (Long rollupUserId : List.of(userId, OrderMonthlyRollup.GLOBAL_USER_ID)) {
+            if (increment(rollupUserId, monthStart, confirmed, revenue, items) == 0) {
+                createRow(rollupUserId, monthStart);
+                increment(rollupUserId, monthStart, confirmed, revenue, items);
+            }
+        }
+    }
+
+    public List<MonthlyOrderReport> getUserMonthlyReports(Long userId, YearMonth from, YearMonth to) {
+        return monthlyReports(userId, from, to);
+    }
+
+    public List<MonthlyOrderReport> getGlobalMonthlyReports(YearMonth from, YearMonth to) {
+        return monthlyReports(OrderMonthlyRollup.GLOBAL_USER_ID, from, to);
+    }
+
+    // Defaults to the last 12 months; months without orders are reported as zeros
+    private List<MonthlyOrderReport> monthlyReports(Long userId, YearMonth from, YearMonth to) {
+        YearMonth end = to != null ? to : YearMonth.now(clock);
+        YearMonth start = from != null ? from : end.minusMonths(DEFAULT_MONTHS - 1);
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Report start " + start + " is after end " + end);
+        }
+        if (start.plusMonths(MAX_MONTHS).isBefore(end.plusMonths(1))) {
+            throw new IllegalArgumentException("Reports cover at most " + MAX_MONTHS + " months");
+        }
+
+        Map<LocalDate, OrderMonthlyRollup> rollups = rollupRepository
+                .findByUserIdAndMonthStartBetweenOrderByMonthStart(userId, start.atDay(1), end.atDay(1))
+                .stream()
+                .collect(Collectors.toMap(OrderMonthlyRollup::getMonthStart, Function.identity()));
+
+        List<MonthlyOrderReport> reports = new ArrayList<>();
+        for (YearMonth month = start; !month.isAfter(end); month = month.plusMonths(1)) {
+            reports.add(toReport(month, rollups.get(month.atDay(1))));
+        }
+        return reports;
+    }
+
+    private int increment(Long userId, LocalDate monthStart, boolean confirmed, BigDecimal revenue, long items) {
+        return rollupRepository.increment(userId, monthStart, confirmed ? 1 : 0, confirmed ? 0 : 1, revenue, items);
+    }
+
+    // The first order of a month creates the row in its own transaction, so a concurrent first
+    // order for the same month just finds it there; both then increment the same row
+    private void createRow(Long userId, LocalDate monthStart) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                if (!rollupRepository.existsByUserIdAndMonthStart(userId, monthStart)) {
+                    rollupRepository.saveAndFlush(new OrderMonthlyRollup(null, userId, monthStart,
+                            0L, 0L, 0L, BigDecimal.ZERO, 0L));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Rollup row for user {} and {} was created concurrently", userId, monthStart);
+        }
+    }
+
+    private MonthlyOrderReport toReport(YearMonth month, OrderMonthlyRollup rollup) {
+        if (rollup == null) {
+            return MonthlyOrderReport.builder()
+                    .month(month.toString())
+                    .orderCount(0L)
+                    .confirmedCount(0L)
+                    .paymentFailedCount(0L)
+                    .revenue(BigDecimal.ZERO)
+                    .itemCount(0L)
+                    .averageOrderValue(BigDecimal.ZERO)
+                    .build();
+        }
+        BigDecimal average = rollup.getConfirmedCount() == 0 ? BigDecimal.ZERO
+                : rollup.getRevenue().divide(BigDecimal.valueOf(rollup.getConfirmedCount()), 2, RoundingMode.HALF_UP);
+        return MonthlyOrderReport.builder()
+                .month(month.toString())
+                .orderCount(rollup.getOrderCount())
+                .confirmedCount(rollup.getConfirmedCount())
+                .paymentFailedCount(rollup.getPaymentFailedCount())
+                .revenue(rollup.getRevenue())
+                .itemCount(rollup.getItemCount())
+                .averageOrderValue(average)
+                .build();
+    }
+}
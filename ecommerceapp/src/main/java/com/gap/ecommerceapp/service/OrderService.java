@@ -5,17 +5,27 @@ import com.gap.ecommerceapp.exception.InsufficientStockException;
 import com.gap.ecommerceapp.exception.ResourceNotFoundException;
 import com.gap.ecommerceapp.model.*;
 import com.gap.ecommerceapp.repository.*;
-import com.gap.ecommerceapp.client.BankServiceClient;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -28,27 +38,133 @@ public class OrderService {
     private final CartItemRepository cartItemRepository;
     private final ProductService productService;
     private final UserService userService;
-    private final BankServiceClient bankServiceClient;
+    private final PaymentGateway paymentGateway;
+    private final StockHoldService stockHoldService;
+    private final ObjectProvider<WriteBehindCartStore> cartStoreProvider;
     private final String ORDERS_TOPIC = "orders";
-    private final KafkaTemplate<String, OrderResponse> kafkaTemplate;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyService idempotencyService;
+    private final OrderReportService orderReportService;
+    private final MerchantSettlementService merchantSettlementService;
+    private final OrderNumberGenerator orderNumberGenerator;
+
+    // Payment stage of async checkouts; the bank call blocks, which is cheap on a virtual thread
+    private final ExecutorService paymentExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<Long, CompletableFuture<OrderResponse>> inFlightOrders = new ConcurrentHashMap<>();
+
+    // Bounds the buy-now lookups; the bank account check is already bounded by the Feign timeouts
+    private static final Duration BUY_NOW_LOOKUP_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
+    // Orders left PENDING or PAYMENT_UNKNOWN are looked up once their bank call cannot still be in
+    // flight, which the Feign read timeout bounds well below this
+    private static final Duration PAYMENT_LOOKUP_DELAY = Duration.ofMinutes(1);
+    private static final int RECONCILE_BATCH_SIZE = 100;
+    private static final List<Order.OrderStatus> UNRESOLVED_STATUSES =
+            List.of(Order.OrderStatus.PENDING, Order.OrderStatus.PAYMENT_UNKNOWN);
+    private static final Duration PAYMENT_SHUTDOWN_WAIT = Duration.ofSeconds(10);
 
     // E-commerce company bank account for receiving payments
     private static final String GAP_ECOMMERCE_BANK_ACCOUNT = "1349885778";
 
-    @Transactional
+    // Checkout runs in three stages so no JDBC connection is held while the bank is called:
+    // 1. reserve stock and create a PENDING order (committed), 2. pay outside any transaction,
+    // 3. move the order to CONFIRMED or PAYMENT_FAILED in a second short transaction, or to
+    // PAYMENT_UNKNOWN when the bank gave no answer (see reconcilePayments).
+    public OrderResponse checkout(CheckoutRequest request, String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "checkout", request, () -> checkout(request));
+    }
+
     public OrderResponse checkout(CheckoutRequest request) {
+        PendingOrder pending = transactionTemplate.execute(status -> createPendingCartOrder(request));
+        return completeOrder(pending);
+    }
+
+    // Same as checkout, but returns the PENDING order right after stage 1; payment and
+    // finalization continue in the background and can be followed with awaitOrder. Only the
+    // futures are kept in memory: an order whose background stage never finishes, because the
+    // instance went down, stays PENDING in the database until reconcilePayments resolves it.
+    public OrderResponse checkoutAsync(CheckoutRequest request, String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "checkout-async", request, () -> checkoutAsync(request));
+    }
+
+    public OrderResponse checkoutAsync(CheckoutRequest request) {
+        PendingOrder pending = transactionTemplate.execute(status -> createPendingCartOrder(request));
+        CompletableFuture<OrderResponse> result = new CompletableFuture<>();
+        inFlightOrders.put(pending.getOrderId(), result);
+        try {
+            paymentExecutor.execute(() -> {
+                try {
+                    result.complete(completeOrder(pending));
+                } catch (Throwable e) {
+                    log.error("Checkout of order {} failed after payment stage: {}", pending.getOrderId(), e.getMessage());
+                    result.completeExceptionally(e);
+                } finally {
+                    inFlightOrders.remove(pending.getOrderId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down; nothing was sent to the bank, and the sweep fails the order
+            inFlightOrders.remove(pending.getOrderId());
+            log.warn("Payment of order {} not started, shutting down", pending.getOrderId());
+        }
+        return pending.getResponse();
+    }
+
+    // Lets payments already sent to the bank finish; orders cut off stay PENDING for reconcilePayments
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        paymentExecutor.shutdown();
+        if (!paymentExecutor.awaitTermination(PAYMENT_SHUTDOWN_WAIT.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("{} async checkouts still in flight at shutdown", inFlightOrders.size());
+        }
+    }
+
+    public OrderResponse buyNow(BuyNowRequest request, String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, "buy-now", request, () -> buyNow(request));
+    }
+
+    public OrderResponse buyNow(BuyNowRequest request) {
+        BuyNowLookups lookups = lookUpBuyNow(request);
+        PendingOrder pending = transactionTemplate.execute(status ->
+                createPendingBuyNowOrder(request, lookups.user(), lookups.product()));
+        return completeOrder(pending);
+    }
+
+    // Completes with the order once it leaves PENDING, or with its current state after the timeout
+    public CompletableFuture<OrderResponse> awaitOrder(Long orderId, Duration timeout) {
+        CompletableFuture<OrderResponse> inFlight = inFlightOrders.get(orderId);
+        if (inFlight == null) {
+            return CompletableFuture.completedFuture(getOrderResponseById(orderId));
+        }
+        return inFlight.copy()
+                .completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((response, error) -> response != null ? response : getOrderResponseById(orderId));
+    }
+
+    private PendingOrder createPendingCartOrder(CheckoutRequest request) {
         User user = userService.findById(request.getUserId())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + request.getUserId()));
 
+        // With the write-behind cart store, pending cart edits must reach the database before it is read
+        WriteBehindCartStore cartStore = cartStoreProvider.getIfAvailable();
+        if (cartStore != null) {
+            cartStore.flush(request.getUserId());
+        }
+
         List<CartItem> cartItems = cartItemRepository.findByUserId(request.getUserId());
         if (cartItems.isEmpty()) {
             throw new IllegalArgumentException("Cart is empty");
         }
 
-        // Validate stock availability
+        // Validate stock availability; units held for the cart are already off the shelf
         for (CartItem cartItem : cartItems) {
             Product product = cartItem.getProduct();
-            if (product.getStockQuantity() < cartItem.getQuantity()) {
+            int held = stockHoldService.getHeldQuantity(user.getId(), product.getId());
+            if (product.getStockQuantity() + held < cartItem.getQuantity()) {
                 throw new InsufficientStockException("Insufficient stock for product: " + product.getName() +
                     ". Available: " + product.getStockQuantity() + ", Requested: " + cartItem.getQuantity());
             }
@@ -59,77 +175,82 @@ public class OrderService {
                 .map(CartItem::getTotalPrice)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        // Create order
-        Order order = new Order();
-        order.setUser(user);
-        order.setOrderNumber(generateOrderNumber());
-        order.setTotalAmount(totalAmount);
-        order.setStatus(Order.OrderStatus.PENDING);
-        order = orderRepository.save(order);
+        Order order = createOrder(user, totalAmount, true);
 
-        // Create order items and update stock
+        // Create order items and work out how much stock each product still needs: units held
+        // for the cart are claimed, only the rest is taken
+        List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+        Map<Long, Integer> toTake = new LinkedHashMap<>();
+        Map<Long, Integer> toRelease = new LinkedHashMap<>();
         for (CartItem cartItem : cartItems) {
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             orderItem.setProduct(cartItem.getProduct());
             orderItem.setQuantity(cartItem.getQuantity());
             orderItem.setUnitPrice(cartItem.getUnitPrice());
-            orderItemRepository.save(orderItem);
+            orderItems.add(orderItem);
 
-            // Update product stock
             Product product = cartItem.getProduct();
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productService.saveProduct(product);
+            int missing = cartItem.getQuantity() - stockHoldService.claim(user.getId(), product.getId());
+            if (missing > 0) {
+                toTake.merge(product.getId(), missing, Integer::sum);
+            } else if (missing < 0) {
+                toRelease.merge(product.getId(), -missing, Integer::sum);
+            }
+            reserved.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
         }
 
-        // Process payment
-        String transactionId = processPayment(order.getId(), request.getBankAccountNumber(), totalAmount);
-
-        if (transactionId != null && !transactionId.startsWith("ERROR")) {
-            order.setStatus(Order.OrderStatus.CONFIRMED);
-            order.setPaymentTransactionId(transactionId);
-            log.info("Order confirmed: {}, transaction: {}", order.getId(), transactionId);
-            var orderResponse = convertToOrderResponse(order);
-            kafkaTemplate.send(ORDERS_TOPIC, orderResponse);
-
-            // Clear cart after successful order
-            cartItemRepository.deleteByUserId(request.getUserId());
-        } else {
-            order.setStatus(Order.OrderStatus.PAYMENT_FAILED);
-
-            // Restore stock if payment failed
-            for (CartItem cartItem : cartItems) {
-                Product product = cartItem.getProduct();
-                product.setStockQuantity(product.getStockQuantity() + cartItem.getQuantity());
-                productService.saveProduct(product);
-            }
+        // One batched conditional update for every product; a concurrent checkout may have got there first
+        List<Long> shortfall = productService.updateStocks(toTake);
+        if (!shortfall.isEmpty()) {
+            String names = cartItems.stream()
+                    .map(CartItem::getProduct)
+                    .filter(product -> shortfall.contains(product.getId()))
+                    .map(Product::getName)
+                    .distinct()
+                    .collect(Collectors.joining(", "));
+            throw new InsufficientStockException("Insufficient stock for product: " + names);
+        }
+        if (!toRelease.isEmpty()) {
+            productService.releaseStocks(toRelease);
         }
 
-        order = orderRepository.save(order);
-        return convertToOrderResponse(order);
-    }
+        // Sequence ids let Hibernate send all order items as one JDBC batch at flush
+        orderItemRepository.saveAll(orderItems);
 
-    @Transactional
-    public OrderResponse buyNow(BuyNowRequest request) {
-        User user = userService.findById(request.getUserId())
-                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + request.getUserId()));
-
-        Product product = productService.getProductById(request.getProductId())
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + request.getProductId()));
+        return new PendingOrder(order.getId(), order.getOrderNumber(), user.getId(), request.getBankAccountNumber(),
+                totalAmount, reserved, true, convertToOrderResponse(order));
+    }
 
-        if (product.getStockQuantity() < request.getQuantity()) {
-            throw new InsufficientStockException("Insufficient stock. Available: " + product.getStockQuantity() + ", Requested: " + request.getQuantity());
+    // User, product and bank account are independent reads, so they run at the same time on virtual
+    // threads instead of one after another; the first to fail cancels the others and its exception
+    // reaches the caller unchanged
+    private BuyNowLookups lookUpBuyNow(BuyNowRequest request) {
+        try (FailFastScope scope = new FailFastScope()) {
+            Supplier<User> user = scope.fork(() -> userService.findById(request.getUserId())
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + request.getUserId())));
+            Supplier<Product> product = scope.fork(() -> {
+                Product found = productService.getProductById(request.getProductId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + request.getProductId()));
+                if (found.getStockQuantity() < request.getQuantity()) {
+                    throw new InsufficientStockException("Insufficient stock. Available: " + found.getStockQuantity() + ", Requested: " + request.getQuantity());
+                }
+                return found;
+            });
+            scope.fork(() -> {
+                paymentGateway.verifyAccount(request.getBankAccountNumber());
+                return null;
+            });
+            scope.join(BUY_NOW_LOOKUP_TIMEOUT);
+            return new BuyNowLookups(user.get(), product.get());
         }
+    }
 
+    private PendingOrder createPendingBuyNowOrder(BuyNowRequest request, User user, Product product) {
         BigDecimal totalAmount = product.getPrice().multiply(BigDecimal.valueOf(request.getQuantity()));
 
-        // Create order
-        Order order = new Order();
-        order.setUser(user);
-        order.setOrderNumber(generateOrderNumber());
-        order.setTotalAmount(totalAmount);
-        order.setStatus(Order.OrderStatus.PENDING);
-        order = orderRepository.save(order);
+        Order order = createOrder(user, totalAmount, false);
 
         // Create order item
         OrderItem orderItem = new OrderItem();
@@ -139,33 +260,186 @@ public class OrderService {
         orderItem.setUnitPrice(product.getPrice());
         orderItemRepository.save(orderItem);
 
-        // Update product stock
-        product.setStockQuantity(product.getStockQuantity() - request.getQuantity());
-        productService.saveProduct(product);
+        // Atomically take the stock; a concurrent checkout may have got there first
+        if (!productService.updateStock(product.getId(), request.getQuantity())) {
+            throw new InsufficientStockException("Insufficient stock for product: " + product.getName() +
+                ". Requested: " + request.getQuantity());
+        }
+
+        return new PendingOrder(order.getId(), order.getOrderNumber(), user.getId(), request.getBankAccountNumber(),
+                totalAmount, Map.of(product.getId(), request.getQuantity()), false, convertToOrderResponse(order));
+    }
 
-        // Process payment
-        String transactionId = processPayment(order.getId(), request.getBankAccountNumber(), totalAmount);
+    private Order createOrder(User user, BigDecimal totalAmount, boolean fromCart) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderNumber(orderNumberGenerator.next());
+        order.setTotalAmount(totalAmount);
+        order.setStatus(Order.OrderStatus.PENDING);
+        order.setFromCart(fromCart);
+        return orderRepository.save(order);
+    }
 
-        if (transactionId != null && !transactionId.startsWith("ERROR")) {
-            order.setStatus(Order.OrderStatus.CONFIRMED);
-            order.setPaymentTransactionId(transactionId);
-        } else {
-            order.setStatus(Order.OrderStatus.PAYMENT_FAILED);
+    // Stages 2 and 3
+    private OrderResponse completeOrder(PendingOrder pending) {
+        // Process payment, outside any transaction
+        PaymentGateway.PaymentResult payment = processPayment(pending.getOrderId(), pending.getOrderNumber(),
+                pending.getBankAccountNumber(), pending.getTotalAmount());
+        return transactionTemplate.execute(status -> finalizeOrder(pending, payment));
+    }
+
+    private OrderResponse finalizeOrder(PendingOrder pending, PaymentGateway.PaymentResult payment) {
+        Order order = orderRepository.findByIdForUpdate(pending.getOrderId())
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + pending.getOrderId()));
+        if (order.getStatus() != Order.OrderStatus.PENDING) {
+            // Only possible if the payment took longer than PAYMENT_LOOKUP_DELAY and the sweep got here first
+            log.error("Order {} was already {} when its payment returned {}", order.getId(), order.getStatus(),
+                    payment.getOutcome());
+            return convertToOrderResponse(order);
+        }
+        return applyPayment(order, pending.getUserId(), payment, pending.getReservedStock(),
+                pending.isFromCart(), pending.isFromCart());
+    }
+
+    // Looks up the payment of each PAYMENT_UNKNOWN order, and each order still PENDING well after its
+    // checkout (the instance went down between the stages), at the bank by its order number, and
+    // confirms or fails the order as if that answer had come back at checkout. The cart is left alone:
+    // it may have been edited or checked out again since. Orders the bank cannot answer for stay for
+    // the next run.
+    @Scheduled(fixedDelayString = "${ecommerce.payment.reconcile-interval-ms:60000}")
+    public void reconcilePayments() {
+        List<Order> unresolved = orderRepository.findByStatusInCreatedBefore(UNRESOLVED_STATUSES,
+                LocalDateTime.now().minus(PAYMENT_LOOKUP_DELAY), PageRequest.of(0, RECONCILE_BATCH_SIZE));
+        for (Order order : unresolved) {
+            if (inFlightOrders.containsKey(order.getId())) {
+                continue;
+            }
+            PaymentGateway.PaymentResult payment = paymentGateway.findPayment(order.getOrderNumber());
+            if (payment.getOutcome() == PaymentGateway.Outcome.REJECTED) {
+                log.warn("Payment reconciliation stopped: {}", payment.getMessage());
+                return;
+            }
+            if (payment.getOutcome() != PaymentGateway.Outcome.SUCCESS
+                    && payment.getOutcome() != PaymentGateway.Outcome.DECLINED) {
+                log.warn("Payment of {} order {} still unknown: {}", order.getStatus(), order.getId(), payment.getMessage());
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> resolvePayment(order.getId(), payment));
+        }
+    }
 
-            // Restore stock if payment failed
-            product.setStockQuantity(product.getStockQuantity() + request.getQuantity());
-            productService.saveProduct(product);
+    private void resolvePayment(Long orderId, PaymentGateway.PaymentResult payment) {
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
+        if (!UNRESOLVED_STATUSES.contains(order.getStatus())) {
+            return;
+        }
+        Map<Long, Integer> reservedStock = new LinkedHashMap<>();
+        for (OrderItem orderItem : orderItemRepository.findByOrderId(orderId)) {
+            reservedStock.merge(orderItem.getProduct().getId(), orderItem.getQuantity(), Integer::sum);
+        }
+        applyPayment(order, order.getUser().getId(), payment, reservedStock, order.isFromCart(), false);
+    }
+
+    // Moves the order on according to the payment outcome. A TIMEOUT or ERROR may have moved the money
+    // all the same, so the order keeps its stock and waits in PAYMENT_UNKNOWN instead of failing.
+    private OrderResponse applyPayment(Order order, Long userId, PaymentGateway.PaymentResult payment,
+                                       Map<Long, Integer> reservedStock, boolean fromCart, boolean clearCart) {
+        switch (payment.getOutcome()) {
+            case SUCCESS -> {
+                String transactionId = payment.getTransactionId();
+                order.transitionTo(Order.OrderStatus.CONFIRMED);
+                order.setPaymentTransactionId(transactionId);
+                log.info("Order confirmed: {}, transaction: {}", order.getId(), transactionId);
+                if (merchantSettlementService.isBatched()) {
+                    // The payment was a debit; the merchant is credited with the next settlement batch
+                    merchantSettlementService.enqueue(transactionId, GAP_ECOMMERCE_BANK_ACCOUNT, order.getTotalAmount());
+                }
+
+                if (clearCart) {
+                    // Clear cart after successful order
+                    WriteBehindCartStore cartStore = cartStoreProvider.getIfAvailable();
+                    if (cartStore != null) {
+                        TransactionHooks.afterCommit(() -> cartStore.clear(userId));
+                    } else {
+                        cartItemRepository.deleteByUserId(userId);
+                    }
+                }
+            }
+            case TIMEOUT, ERROR -> {
+                order.transitionTo(Order.OrderStatus.PAYMENT_UNKNOWN);
+                log.warn("Payment outcome of order {} unknown, left for reconciliation", order.getId());
+            }
+            default -> {
+                order.transitionTo(Order.OrderStatus.PAYMENT_FAILED);
+
+                // Restore stock if payment failed
+                productService.releaseStocks(reservedStock);
+            }
         }
 
         order = orderRepository.save(order);
-        return convertToOrderResponse(order);
+        orderReportService.recordOutcome(userId, order.getCreatedAt(), order.getStatus(),
+                order.getTotalAmount(), reservedStock.values().stream().mapToInt(Integer::intValue).sum());
+        OrderResponse orderResponse = convertToOrderResponse(order);
+        if (order.getStatus() == Order.OrderStatus.CONFIRMED && fromCart) {
+            // Published by the outbox relay once this transaction has committed
+            outboxService.enqueue(ORDERS_TOPIC, order.getId(), orderResponse);
+        }
+        return orderResponse;
     }
 
-    public List<OrderResponse> getUserOrderResponses(Long userId) {
-        List<Order> orders = orderRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return orders.stream()
-                .map(this::convertToOrderResponse)
-                .collect(Collectors.toList());
+    // The user's orders with their items, newest first, as GET /api/orders/user/{userId} returns
+    // them: a page of up to MAX_HISTORY_PAGE_SIZE by default, so a long history is never read whole
+    public OrderHistoryResponse getUserOrderResponses(Long userId, String cursor, Integer size) {
+        return getOrderHistory(userId, cursor, size == null ? MAX_HISTORY_PAGE_SIZE : size, true);
+    }
+
+    // One page of a user's orders, newest first, behind an opaque (createdAt, id) cursor. Items are
+    // left out unless asked for, and then come from a single IN query for the whole page.
+    public OrderHistoryResponse getOrderHistory(Long userId, String cursor, Integer size, boolean includeItems) {
+        int pageSize = size == null ? DEFAULT_HISTORY_PAGE_SIZE : Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        // One extra row tells whether there is a next page
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<OrderRepository.OrderSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = orderRepository.findSummariesByUserId(userId, limit);
+        } else {
+            HistoryCursor position = decodeHistoryCursor(cursor);
+            rows = orderRepository.findSummariesByUserIdBefore(userId, position.createdAt(), position.orderId(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderRepository.OrderSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        Map<Long, List<OrderItemResponse>> itemsByOrder = Map.of();
+        if (includeItems && !page.isEmpty()) {
+            List<Long> orderIds = page.stream().map(OrderRepository.OrderSummary::getId).toList();
+            itemsByOrder = orderItemRepository.findByOrderIdIn(orderIds).stream()
+                    .collect(Collectors.groupingBy(orderItem -> orderItem.getOrder().getId(),
+                            Collectors.mapping(this::convertToOrderItemResponse, Collectors.toList())));
+        }
+
+        List<OrderResponse> orders = new ArrayList<>(page.size());
+        for (OrderRepository.OrderSummary summary : page) {
+            orders.add(OrderResponse.builder()
+                    .orderId(summary.getId())
+                    .orderNumber(summary.getOrderNumber())
+                    .userId(summary.getUserId())
+                    .userName(summary.getUserName())
+                    .totalAmount(summary.getTotalAmount())
+                    .status(summary.getStatus().toString())
+                    .paymentTransactionId(summary.getPaymentTransactionId())
+                    .createdAt(summary.getCreatedAt())
+                    .orderItems(includeItems ? itemsByOrder.getOrDefault(summary.getId(), List.of()) : null)
+                    .build());
+        }
+
+        OrderRepository.OrderSummary last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return OrderHistoryResponse.builder()
+                .orders(orders)
+                .nextCursor(hasMore ? encodeHistoryCursor(last.getCreatedAt(), last.getId()) : null)
+                .build();
     }
 
     public OrderResponse getOrderResponseById(Long orderId) {
@@ -174,31 +448,45 @@ public class OrderService {
         return convertToOrderResponse(order);
     }
 
-    private String processPayment(Long orderId, String bankAccountNumber, BigDecimal amount) {
+    private PaymentGateway.PaymentResult processPayment(Long orderId, String orderNumber, String bankAccountNumber,
+                                                        BigDecimal amount) {
+        TransferRequest transferRequest = new TransferRequest();
+        transferRequest.setFromAccountNumber(bankAccountNumber);
+        transferRequest.setToAccountNumber(GAP_ECOMMERCE_BANK_ACCOUNT);
+        transferRequest.setAmount(amount);
+        transferRequest.setReference(orderNumber);
+
+        PaymentGateway.PaymentResult result = merchantSettlementService.isBatched()
+                ? paymentGateway.debit(transferRequest)
+                : paymentGateway.transfer(transferRequest);
+        if (result.isSuccess()) {
+            log.info("Payment processed successfully for order: {}, transaction: {}", orderId, result.getTransactionId());
+        } else {
+            log.error("Payment failed for order: {}, outcome: {}, error: {}", orderId, result.getOutcome(), result.getMessage());
+        }
+        return result;
+    }
+
+    private String encodeHistoryCursor(LocalDateTime createdAt, Long orderId) {
+        String position = createdAt + "|" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private HistoryCursor decodeHistoryCursor(String cursor) {
         try {
-            TransferRequest transferRequest = new TransferRequest();
-            transferRequest.setFromAccountNumber(bankAccountNumber);
-            transferRequest.setToAccountNumber(GAP_ECOMMERCE_BANK_ACCOUNT);
-            transferRequest.setAmount(amount);
-
-            ResponseEntity<Transaction> response = bankServiceClient.transferFunds(transferRequest);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                Transaction transaction = response.getBody();
-                log.info("Payment processed successfully for order: {}, transaction: {}", orderId, transaction.getId());
-                return transaction.getId().toString();
-            } else {
-                log.error("Payment failed for order: {}, HTTP status: {}", orderId, response.getStatusCode());
-                return "ERROR: Payment processing failed";
-            }
-        } catch (Exception e) {
-            log.error("Payment failed for order: {}, error: {}", orderId, e.getMessage());
-            return "ERROR: " + e.getMessage();
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            return new HistoryCursor(LocalDateTime.parse(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid order history cursor: " + cursor);
         }
     }
 
-    private String generateOrderNumber() {
-        return "ORD-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    private record HistoryCursor(LocalDateTime createdAt, Long orderId) {
+    }
+
+    private record BuyNowLookups(User user, Product product) {
     }
 
     private OrderResponse convertToOrderResponse(Order order) {
@@ -232,4 +520,18 @@ public class OrderService {
                 .totalPrice(orderItem.getUnitPrice().multiply(BigDecimal.valueOf(orderItem.getQuantity())))
                 .build();
     }
+
+    // What stage 1 hands to the payment and finalize stages
+    @Value
+    private static class PendingOrder {
+        Long orderId;
+        String orderNumber;
+        Long userId;
+        String bankAccountNumber;
+        BigDecimal totalAmount;
+        // product id -> units taken from stock, returned if payment fails
+        Map<Long, Integer> reservedStock;
+        boolean fromCart;
+        OrderResponse response;
+    }
 }
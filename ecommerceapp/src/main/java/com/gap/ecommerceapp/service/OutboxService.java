@@ -0,0 +1,195 @@
+package com.gap.ecommerceapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gap.ecommerceapp.dto.OrderResponse;
+import com.gap.ecommerceapp.dto.OutboxStatsResponse;
+import com.gap.ecommerceapp.model.OutboxEvent;
+import com.gap.ecommerceapp.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Transactional outbox for order events. enqueue() only inserts a row, inside the caller's
+// transaction, so an order that rolls back never publishes and checkout never waits on the broker.
+// A scheduled relay drains the table to Kafka in batches: events of the same order are sent one
+// after the other (and keyed by order id, so they share a partition), different orders in parallel.
+// Delivery is at least once; a crash between the send and the delete re-sends the event.
+@Slf4j
+@Service
+public class OutboxService {
+
+    // Window the publishedPerSecond rate is averaged over
+    private static final long RATE_WINDOW_MILLIS = 60_000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, OrderResponse> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Clock clock;
+
+    private final LongAdder publishedTotal = new LongAdder();
+    private final LongAdder failedTotal = new LongAdder();
+    // (time, events published) per relay batch within the rate window
+    private final Deque<long[]> recentBatches = new ArrayDeque<>();
+    private volatile int lastBatchSize;
+    private volatile long lastBatchMillis;
+
+    @Autowired
+    public OutboxService(OutboxEventRepository outboxEventRepository,
+                         KafkaTemplate<String, OrderResponse> kafkaTemplate,
+                         ObjectMapper objectMapper,
+                         @Value("${ecommerce.outbox.batch-size:200}") int batchSize,
+                         @Value("${ecommerce.outbox.send-timeout:10s}") Duration sendTimeout) {
+        this(outboxEventRepository, kafkaTemplate, objectMapper, batchSize, sendTimeout, Clock.systemDefaultZone());
+    }
+
+    OutboxService(OutboxEventRepository outboxEventRepository,
+                  KafkaTemplate<String, OrderResponse> kafkaTemplate,
+                  ObjectMapper objectMapper,
+                  int batchSize,
+                  Duration sendTimeout,
+                  Clock clock) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.clock = clock;
+    }
+
+    // Must run in the transaction that writes the order
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String topic, Long orderId, OrderResponse orderResponse) {
+        try {
+            outboxEventRepository.save(new OutboxEvent(null, topic, orderId,
+                    objectMapper.writeValueAsString(orderResponse), LocalDateTime.now(clock)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize event for order " + orderId, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.outbox.poll-interval-ms:500}")
+    public void relay() {
+        // Keep draining while batches come back full
+        int read;
+        do {
+            read = relayBatch();
+        } while (read == batchSize);
+    }
+
+    // Publishes one batch and returns how many events it read
+    int relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findOldest(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        long started = System.nanoTime();
+
+        // One send chain per order; a failed event stops the rest of its chain so order is kept
+        Map<Long, CompletableFuture<Void>> chains = new LinkedHashMap<>();
+        List<Long> published = Collections.synchronizedList(new ArrayList<>());
+        for (OutboxEvent event : events) {
+            chains.compute(event.getAggregateId(), (orderId, previous) ->
+                    (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous)
+                            .thenCompose(ignored -> send(event))
+                            .thenRun(() -> published.add(event.getId())));
+        }
+
+        int failedOrders = 0;
+        for (Map.Entry<Long, CompletableFuture<Void>> chain : chains.entrySet()) {
+            try {
+                chain.getValue().get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                failedOrders++;
+                log.warn("Outbox relay for order {} stopped: {}", chain.getKey(), e.getMessage());
+            }
+        }
+
+        List<Long> publishedIds;
+        synchronized (published) {
+            publishedIds = new ArrayList<>(published);
+        }
+        if (!publishedIds.isEmpty()) {
+            outboxEventRepository.deleteAllByIdInBatch(publishedIds);
+        }
+        recordBatch(publishedIds.size(), events.size() - publishedIds.size(), System.nanoTime() - started);
+        if (failedOrders > 0) {
+            // Leave the rest for the next poll rather than spinning on a broker that is down
+            return 0;
+        }
+        return events.size();
+    }
+
+    public OutboxStatsResponse stats() {
+        long pending = outboxEventRepository.count();
+        Long oldestAge = outboxEventRepository.findOldestCreatedAt()
+                .map(createdAt -> Math.max(0, Duration.between(createdAt, LocalDateTime.now(clock)).toMillis()))
+                .orElse(0L);
+        return OutboxStatsResponse.builder()
+                .pendingEvents(pending)
+                .oldestPendingAgeMillis(oldestAge)
+                .publishedTotal(publishedTotal.sum())
+                .failedTotal(failedTotal.sum())
+                .publishedPerSecond(publishedPerSecond())
+                .lastBatchSize(lastBatchSize)
+                .lastBatchMillis(lastBatchMillis)
+                .build();
+    }
+
+    private CompletableFuture<Void> send(OutboxEvent event) {
+        OrderResponse orderResponse;
+        try {
+            orderResponse = objectMapper.readValue(event.getPayload(), OrderResponse.class);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return kafkaTemplate.send(event.getTopic(), String.valueOf(event.getAggregateId()), orderResponse)
+                .thenApply(result -> null);
+    }
+
+    private void recordBatch(int published, int failed, long elapsedNanos) {
+        publishedTotal.add(published);
+        failedTotal.add(failed);
+        lastBatchSize = published + failed;
+        lastBatchMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        long now = clock.millis();
+        synchronized (recentBatches) {
+            recentBatches.addLast(new long[]{now, published});
+            pruneRecentBatches(now);
+        }
+    }
+
+    private double publishedPerSecond() {
+        long now = clock.millis();
+        long published = 0;
+        synchronized (recentBatches) {
+            pruneRecentBatches(now);
+            for (long[] batch : recentBatches) {
+                published += batch[1];
+            }
+        }
+        return published * 1000.0 / RATE_WINDOW_MILLIS;
+    }
+
+    private void pruneRecentBatches(long now) {
+        while (!recentBatches.isEmpty() && now - recentBatches.peekFirst()[0] > RATE_WINDOW_MILLIS) {
+            recentBatches.removeFirst();
+        }
+    }
+}
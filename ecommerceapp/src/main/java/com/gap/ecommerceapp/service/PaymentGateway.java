@@ -0,0 +1,255 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.client.BankServiceClient;
+import com.gap.ecommerceapp.dto.PaymentOutcomeStats;
+import com.gap.ecommerceapp.dto.PaymentStatsResponse;
+import com.gap.ecommerceapp.dto.Transaction;
+import com.gap.ecommerceapp.dto.TransferRequest;
+import feign.FeignException;
+import feign.RetryableException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// All calls to the bank go through here. Each transfer is bounded by the Feign connect/read timeouts
+// (spring.cloud.openfeign.client.config.BankApp.*), waits at most bulkheadWait for one of
+// maxConcurrentCalls slots, and fails fast while the circuit breaker is open. Only failures where
+// the request never reached the bank (the connection could not be made) are retried: a timeout or
+// 5xx may already have moved the money, so its outcome is settled later with findPayment instead.
+// Never throws; every call ends in a PaymentResult and is timed into the histogram of its outcome.
+@Slf4j
+@Service
+public class PaymentGateway {
+
+    public enum Outcome { SUCCESS, DECLINED, TIMEOUT, ERROR, REJECTED }
+
+    private final BankServiceClient bankServiceClient;
+    private final int maxConcurrentCalls;
+    private final Semaphore bulkhead;
+    private final Duration bulkheadWait;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final CircuitBreaker circuitBreaker;
+
+    private final Map<Outcome, LatencyHistogram> latencies = new EnumMap<>(Outcome.class);
+    private final LongAdder retriesTotal = new LongAdder();
+
+    @Autowired
+    public PaymentGateway(BankServiceClient bankServiceClient,
+                          @Value("${ecommerce.payment.max-concurrent-calls:20}") int maxConcurrentCalls,
+                          @Value("${ecommerce.payment.bulkhead-wait:100ms}") Duration bulkheadWait,
+                          @Value("${ecommerce.payment.max-attempts:3}") int maxAttempts,
+                          @Value("${ecommerce.payment.retry-backoff:100ms}") Duration retryBackoff,
+                          @Value("${ecommerce.payment.circuit.window-size:20}") int windowSize,
+                          @Value("${ecommerce.payment.circuit.minimum-calls:10}") int minimumCalls,
+                          @Value("${ecommerce.payment.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+                          @Value("${ecommerce.payment.circuit.open-duration:10s}") Duration openDuration,
+                          @Value("${ecommerce.payment.circuit.half-open-calls:3}") int halfOpenCalls) {
+        this(bankServiceClient, maxConcurrentCalls, bulkheadWait, maxAttempts, retryBackoff,
+                new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls,
+                        Clock.systemDefaultZone()));
+    }
+
+    PaymentGateway(BankServiceClient bankServiceClient,
+                   int maxConcurrentCalls,
+                   Duration bulkheadWait,
+                   int maxAttempts,
+                   Duration retryBackoff,
+                   CircuitBreaker circuitBreaker) {
+        this.bankServiceClient = bankServiceClient;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.bulkheadWait = bulkheadWait;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+        this.circuitBreaker = circuitBreaker;
+        for (Outcome outcome : Outcome.values()) {
+            latencies.put(outcome, new LatencyHistogram());
+        }
+    }
+
+    // Customer to merchant in one transfer
+    public PaymentResult transfer(TransferRequest request) {
+        return call(() -> bankServiceClient.transferFunds(request));
+    }
+
+    // Customer debit only, for batched settlement; the merchant is credited by MerchantSettlementService
+    public PaymentResult debit(TransferRequest request) {
+        return call(() -> bankServiceClient.debit(request));
+    }
+
+    // Looks up the payment sent with the given reference, after a TIMEOUT or ERROR left its outcome
+    // open. SUCCESS carries the transaction id and DECLINED means the bank recorded no payment; any
+    // other outcome means the bank could not say. Not timed into the payment histograms.
+    public PaymentResult findPayment(String reference) {
+        return guardedCall(() -> {
+            try {
+                return bankServiceClient.findByReference(reference);
+            } catch (FeignException.NotFound e) {
+                return ResponseEntity.notFound().build();
+            } catch (FeignException e) {
+                if (e.status() >= 400 && e.status() < 500) {
+                    // e.g. 409 from a ledger-backed bank; not an answer about this payment
+                    throw new IllegalStateException("Bank cannot look up payments: HTTP " + e.status(), e);
+                }
+                throw e;
+            }
+        });
+    }
+
+    // Pre-validation before an order is placed: fails only when the bank says the account does not
+    // exist. If the bank cannot answer, or the circuit is open, the payment itself will report it.
+    public void verifyAccount(String accountNumber) {
+        if (circuitBreaker.state() == CircuitBreaker.State.OPEN) {
+            return;
+        }
+        try {
+            bankServiceClient.getAccount(accountNumber);
+        } catch (FeignException.NotFound e) {
+            throw new IllegalArgumentException("Bank account not found: " + accountNumber);
+        } catch (RuntimeException e) {
+            log.warn("Could not verify bank account {}: {}", accountNumber, e.getMessage());
+        }
+    }
+
+    public PaymentStatsResponse stats() {
+        List<PaymentOutcomeStats> outcomes = new ArrayList<>();
+        latencies.forEach((outcome, histogram) -> outcomes.add(PaymentOutcomeStats.builder()
+                .outcome(outcome.name())
+                .count(histogram.count())
+                .p50Millis(histogram.percentileMillis(50))
+                .p99Millis(histogram.percentileMillis(99))
+                .maxMillis(histogram.maxMillis())
+                .build()));
+        return PaymentStatsResponse.builder()
+                .circuitState(circuitBreaker.state().name())
+                .inFlightCalls(maxConcurrentCalls - bulkhead.availablePermits())
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .retriesTotal(retriesTotal.sum())
+                .outcomes(outcomes)
+                .build();
+    }
+
+    private PaymentResult call(Supplier<ResponseEntity<Transaction>> bankCall) {
+        long started = System.nanoTime();
+        PaymentResult result = guardedCall(bankCall);
+        latencies.get(result.getOutcome()).record(System.nanoTime() - started);
+        return result;
+    }
+
+    private PaymentResult guardedCall(Supplier<ResponseEntity<Transaction>> bankCall) {
+        long permit = circuitBreaker.tryAcquire();
+        if (permit == CircuitBreaker.NOT_PERMITTED) {
+            return new PaymentResult(Outcome.REJECTED, null, "Bank circuit is open");
+        }
+        try {
+            if (!bulkhead.tryAcquire(bulkheadWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                circuitBreaker.onIgnored(permit);
+                return new PaymentResult(Outcome.REJECTED, null, "Too many payments in progress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.onIgnored(permit);
+            return new PaymentResult(Outcome.REJECTED, null, "Interrupted waiting for a payment slot");
+        }
+
+        try {
+            PaymentResult result = callWithRetry(bankCall);
+            // A declined transfer is the bank working as intended, not a sign it is unhealthy
+            if (result.getOutcome() == Outcome.SUCCESS || result.getOutcome() == Outcome.DECLINED) {
+                circuitBreaker.onSuccess(permit);
+            } else {
+                circuitBreaker.onFailure(permit);
+            }
+            return result;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private PaymentResult callWithRetry(Supplier<ResponseEntity<Transaction>> bankCall) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return toResult(bankCall.get());
+            } catch (RetryableException e) {
+                if (e.getCause() instanceof SocketTimeoutException) {
+                    return new PaymentResult(Outcome.TIMEOUT, null, "Bank did not answer in time");
+                }
+                if (!neverReachedBank(e) || attempt >= maxAttempts) {
+                    return new PaymentResult(Outcome.ERROR, null, e.getMessage());
+                }
+                log.warn("Could not reach bank (attempt {} of {}): {}", attempt, maxAttempts, e.getMessage());
+                retriesTotal.increment();
+                if (!backOff(attempt)) {
+                    return new PaymentResult(Outcome.ERROR, null, e.getMessage());
+                }
+            } catch (FeignException e) {
+                if (e.status() >= 400 && e.status() < 500) {
+                    return new PaymentResult(Outcome.DECLINED, null, "Bank declined the transfer: HTTP " + e.status());
+                }
+                return new PaymentResult(Outcome.ERROR, null, e.getMessage());
+            } catch (RuntimeException e) {
+                return new PaymentResult(Outcome.ERROR, null, e.getMessage());
+            }
+        }
+    }
+
+    private PaymentResult toResult(ResponseEntity<Transaction> response) {
+        if (response != null && response.getStatusCode().is2xxSuccessful() && response.getBody() != null
+                && response.getBody().getId() != null) {
+            return new PaymentResult(Outcome.SUCCESS, response.getBody().getId().toString(), null);
+        }
+        String status = response == null ? "no response" : "HTTP " + response.getStatusCode().value();
+        return new PaymentResult(Outcome.DECLINED, null, "Payment processing failed: " + status);
+    }
+
+    private boolean neverReachedBank(RetryableException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof ConnectException
+                || cause instanceof NoRouteToHostException
+                || cause instanceof UnknownHostException;
+    }
+
+    // Linear backoff; returns false if interrupted
+    private boolean backOff(int attempt) {
+        try {
+            Thread.sleep(retryBackoff.toMillis() * attempt);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class PaymentResult {
+        private final Outcome outcome;
+        // Bank transaction id, set on SUCCESS only
+        private final String transactionId;
+        private final String message;
+
+        public boolean isSuccess() {
+            return outcome == Outcome.SUCCESS;
+        }
+    }
+}
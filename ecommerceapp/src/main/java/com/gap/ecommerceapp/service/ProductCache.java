@@ -0,0 +1,172 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.dto.CacheStatsResponse;
+import com.gap.ecommerceapp.model.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Bounded, TTL-evicting read-through cache for product catalog data. Only the fields that rarely
+// change (name, category, description, price) are cached; stock is never served from here.
+@Component
+public class ProductCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    // Access-ordered so the eldest entry is the least recently used one
+    private final LinkedHashMap<Long, CatalogEntry> entries;
+
+    // Invalidation counters, one per stripe of product ids, guarded by entries. A read-through fill
+    // takes the version before loading and is dropped if an invalidation of the id came in between.
+    private static final int VERSION_STRIPES = 64;
+    private final long[] versions = new long[VERSION_STRIPES];
+
+    @Autowired
+    public ProductCache(@Value("${ecommerce.product-cache.max-size:1000}") int maxSize,
+                        @Value("${ecommerce.product-cache.ttl:10m}") Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    ProductCache(int maxSize, Duration ttl, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CatalogEntry> eldest) {
+                if (size() > ProductCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Returns a detached copy of the cached catalog fields with stockQuantity left null, or null on a miss
+    public Product get(Long productId) {
+        CatalogEntry entry;
+        synchronized (entries) {
+            entry = entries.get(productId);
+            if (entry != null && entry.expiresAt - clock.getAsLong() <= 0) {
+                entries.remove(productId);
+                expirations.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.toProduct(productId);
+    }
+
+    // Take before reading the product from the database, and hand to put(product, version)
+    public long version(Long productId) {
+        synchronized (entries) {
+            return versions[stripe(productId)];
+        }
+    }
+
+    public void put(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        put(product, version(product.getId()));
+    }
+
+    // Caches the product unless it was invalidated after the version was taken, so a fill that
+    // read the row before a concurrent save cannot bring the old catalog fields back
+    public void put(Product product, long version) {
+        if (product == null || product.getId() == null || maxSize <= 0) {
+            return;
+        }
+        CatalogEntry entry = new CatalogEntry(product.getName(), product.getCategory(),
+                product.getDescription(), product.getPrice(), clock.getAsLong() + ttlNanos);
+        synchronized (entries) {
+            if (versions[stripe(product.getId())] == version) {
+                entries.put(product.getId(), entry);
+            }
+        }
+    }
+
+    public void invalidate(Long productId) {
+        synchronized (entries) {
+            versions[stripe(productId)]++;
+            entries.remove(productId);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            for (int i = 0; i < VERSION_STRIPES; i++) {
+                versions[i]++;
+            }
+            entries.clear();
+        }
+    }
+
+    public CacheStatsResponse stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        return CacheStatsResponse.builder()
+                .size(size)
+                .maxSize(maxSize)
+                .hits(hitCount)
+                .misses(missCount)
+                .evictions(evictions.sum())
+                .expirations(expirations.sum())
+                .hitRate(requests == 0 ? 0.0 : (double) hitCount / requests)
+                .build();
+    }
+
+    private static int stripe(Long productId) {
+        return Math.floorMod(Long.hashCode(productId == null ? 0L : productId), VERSION_STRIPES);
+    }
+
+    private static final class CatalogEntry {
+        private final String name;
+        private final String category;
+        private final String description;
+        private final BigDecimal price;
+        private final long expiresAt;
+
+        private CatalogEntry(String name, String category, String description, BigDecimal price, long expiresAt) {
+            this.name = name;
+            this.category = category;
+            this.description = description;
+            this.price = price;
+            this.expiresAt = expiresAt;
+        }
+
+        private Product toProduct(Long productId) {
+            Product product = new Product();
+            product.setId(productId);
+            product.setName(name);
+            product.setCategory(category);
+            product.setDescription(description);
+            product.setPrice(price);
+            return product;
+        }
+    }
+}
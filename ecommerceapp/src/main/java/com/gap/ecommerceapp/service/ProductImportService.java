@@ -0,0 +1,296 @@
+package com.gap.ecommerceapp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gap.ecommerceapp.dto.ProductImportReport;
+import com.gap.ecommerceapp.dto.ProductImportReport.BatchResult;
+import com.gap.ecommerceapp.dto.ProductImportReport.RejectedRow;
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Streams a catalog file from the request body, validating each row as it is read and inserting
+// valid rows in JDBC batches. Each batch is its own transaction, so a 100k-row file never holds
+// more than one batch in memory or in the persistence context. A batch the database refuses is
+// rolled back and reported as failed with its line range; the import goes on with the next batch.
+@Slf4j
+@Service
+public class ProductImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final List<String> CSV_COLUMNS = List.of("name", "category", "description", "price", "stockQuantity");
+    private static final int MAX_BATCH_SIZE = 5_000;
+    // Keeps the report small when a whole file is bad
+    private static final int MAX_REPORTED_REJECTIONS = 1_000;
+
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int defaultBatchSize;
+
+    public ProductImportService(ProductRepository productRepository,
+                                ProductService productService,
+                                EntityManager entityManager,
+                                TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${ecommerce.product-import.batch-size:500}") int defaultBatchSize) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.defaultBatchSize = defaultBatchSize;
+    }
+
+    public ProductImportReport importProducts(InputStream body, Format format, Integer batchSize) {
+        int size = batchSize == null ? defaultBatchSize : batchSize;
+        if (size < 1 || size > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+
+        long started = System.nanoTime();
+        List<BatchResult> batches = new ArrayList<>();
+        List<RejectedRow> rejected = new ArrayList<>();
+        List<Product> batch = new ArrayList<>(size);
+        int totalRows = 0;
+        int rejectedRows = 0;
+        int importedRows = 0;
+        int batchFirstLine = 0;
+        int batchLastLine = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<String> columns = null;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && columns == null) {
+                    columns = parseCsvHeader(line);
+                    continue;
+                }
+
+                totalRows++;
+                try {
+                    batch.add(format == Format.CSV ? parseCsvRow(columns, line) : parseJsonRow(line));
+                    if (batch.size() == 1) {
+                        batchFirstLine = lineNumber;
+                    }
+                    batchLastLine = lineNumber;
+                } catch (IllegalArgumentException e) {
+                    rejectedRows++;
+                    if (rejected.size() < MAX_REPORTED_REJECTIONS) {
+                        rejected.add(new RejectedRow(lineNumber, e.getMessage()));
+                    }
+                }
+
+                if (batch.size() == size) {
+                    importedRows += insertBatch(batch, batchFirstLine, batchLastLine, batches);
+                    batch = new ArrayList<>(size);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read product import", e);
+        }
+        if (!batch.isEmpty()) {
+            importedRows += insertBatch(batch, batchFirstLine, batchLastLine, batches);
+        }
+
+        long elapsedNanos = System.nanoTime() - started;
+        int failedRows = totalRows - rejectedRows - importedRows;
+        log.info("Product import finished: {} imported, {} rejected, {} failed in {} batches",
+                importedRows, rejectedRows, failedRows, batches.size());
+        return ProductImportReport.builder()
+                .totalRows(totalRows)
+                .importedRows(importedRows)
+                .rejectedRows(rejectedRows)
+                .failedRows(failedRows)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(rate(importedRows, elapsedNanos))
+                .batches(batches)
+                .rejected(rejected)
+                .build();
+    }
+
+    // saveAll only persists; the flush sends the rows as JDBC batches (hibernate.jdbc.batch_size)
+    // and the clear keeps the persistence context from growing with every batch
+    private int insertBatch(List<Product> batch, int firstLine, int lastLine, List<BatchResult> batches) {
+        long started = System.nanoTime();
+        List<Product> saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                List<Product> products = productRepository.saveAll(batch);
+                entityManager.flush();
+                entityManager.clear();
+                return products;
+            });
+        } catch (RuntimeException e) {
+            // Rolled back as a whole: none of its rows were imported
+            log.warn("Product import batch {} (lines {}-{}) failed: {}", batches.size() + 1, firstLine, lastLine, e.getMessage());
+            batches.add(BatchResult.builder()
+                    .batch(batches.size() + 1)
+                    .firstLine(firstLine)
+                    .lastLine(lastLine)
+                    .rows(0)
+                    .failedRows(batch.size())
+                    .error(e.getMessage())
+                    .elapsedMillis((System.nanoTime() - started) / 1_000_000)
+                    .rowsPerSecond(0.0)
+                    .build());
+            return 0;
+        }
+        long elapsedNanos = System.nanoTime() - started;
+
+        productService.refreshCatalogIndexes(saved);
+        batches.add(BatchResult.builder()
+                .batch(batches.size() + 1)
+                .firstLine(firstLine)
+                .lastLine(lastLine)
+                .rows(saved.size())
+                .failedRows(0)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(rate(saved.size(), elapsedNanos))
+                .build());
+        return saved.size();
+    }
+
+    private List<String> parseCsvHeader(String line) {
+        List<String> columns = parseCsvLine(line).stream().map(String::trim).toList();
+        for (String required : List.of("name", "price", "stockQuantity")) {
+            if (!columns.contains(required)) {
+                throw new IllegalArgumentException("CSV header must contain " + CSV_COLUMNS + ", missing: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private Product parseCsvRow(List<String> columns, String line) {
+        List<String> values = parseCsvLine(line);
+        if (values.size() != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " fields, found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            fields.put(columns.get(i), values.get(i));
+        }
+        return toProduct(fields.get("name"), fields.get("category"), fields.get("description"),
+                fields.get("price"), fields.get("stockQuantity"));
+    }
+
+    private Product parseJsonRow(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return toProduct(text(node, "name"), text(node, "category"), text(node, "description"),
+                text(node, "price"), text(node, "stockQuantity"));
+    }
+
+    private Product toProduct(String name, String category, String description, String price, String stockQuantity) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        Product product = new Product();
+        product.setName(name.trim());
+        product.setCategory(blankToNull(category));
+        product.setDescription(blankToNull(description));
+        product.setPrice(parsePrice(price));
+        product.setStockQuantity(parseStock(stockQuantity));
+        return product;
+    }
+
+    private BigDecimal parsePrice(String value) {
+        BigDecimal price;
+        try {
+            price = new BigDecimal(value.trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("price is not a number: " + value);
+        }
+        if (price.signum() < 0) {
+            throw new IllegalArgumentException("price must not be negative: " + value);
+        }
+        return price;
+    }
+
+    private Integer parseStock(String value) {
+        int stock;
+        try {
+            stock = Integer.parseInt(value.trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("stockQuantity is not a whole number: " + value);
+        }
+        if (stock < 0) {
+            throw new IllegalArgumentException("stockQuantity must not be negative: " + value);
+        }
+        return stock;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static double rate(int rows, long elapsedNanos) {
+        return elapsedNanos == 0 ? rows : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    // RFC 4180 fields on a single line: commas separate, double quotes enclose, "" is a literal quote
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
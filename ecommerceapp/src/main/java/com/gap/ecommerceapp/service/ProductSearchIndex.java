@@ -0,0 +1,202 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.Product;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+// In-process inverted index over product name, description and category.
+// Writes are serialized, reads are lock-free and only return product ids with their BM25 score.
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // BM25 parameters and per-field boosts (a name hit counts three times a description hit)
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    // A query token that only matches as a prefix ("jean" -> "jeans") ranks below an exact match
+    private static final double PREFIX_MATCH_FACTOR = 0.8;
+
+    // Orders hits by score descending, then product id ascending
+    public static final Comparator<SearchHit> RANKING = Comparator
+            .<SearchHit>comparingDouble(SearchHit::getScore).reversed()
+            .thenComparing(SearchHit::getProductId);
+
+    // term -> (product id -> weighted term frequency), sorted so prefix lookups are a range scan
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+
+    // product id -> weighted term frequencies currently indexed for it, needed to unindex on update
+    private final ConcurrentHashMap<Long, Map<String, Integer>> documentTerms = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Integer> documentLengths = new ConcurrentHashMap<>();
+    private final AtomicLong totalLength = new AtomicLong();
+
+    @Value
+    public static class SearchHit {
+        Long productId;
+        double score;
+    }
+
+    public synchronized void rebuild(Collection<Product> products) {
+        postings.clear();
+        documentTerms.clear();
+        documentLengths.clear();
+        totalLength.set(0);
+        products.forEach(this::index);
+        log.info("Product search index built: {} products, {} terms", documentTerms.size(), postings.size());
+    }
+
+    public synchronized void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, product.getName(), NAME_WEIGHT);
+        addTerms(terms, product.getCategory(), CATEGORY_WEIGHT);
+        addTerms(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        Map<String, Integer> previous = documentTerms.get(product.getId());
+        if (terms.equals(previous)) {
+            return; // Stock or price change only, postings are unchanged
+        }
+        if (previous != null) {
+            unindex(product.getId(), previous);
+        }
+
+        documentTerms.put(product.getId(), terms);
+        int length = terms.values().stream().mapToInt(Integer::intValue).sum();
+        documentLengths.put(product.getId(), length);
+        totalLength.addAndGet(length);
+        terms.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(product.getId(), frequency));
+    }
+
+    public synchronized void remove(Long productId) {
+        Map<String, Integer> previous = documentTerms.remove(productId);
+        if (previous != null) {
+            unindex(productId, previous);
+        }
+    }
+
+    // Every query token must match (AND); a token matches any indexed term it is a prefix of.
+    // Returns hits ordered by RANKING. A query without tokens matches nothing.
+    public List<SearchHit> search(String query) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        int documentCount = Math.max(documentTerms.size(), 1);
+        double averageLength = Math.max((double) totalLength.get() / documentCount, 1.0);
+
+        Map<Long, Double> scores = null;
+        for (String token : tokens) {
+            Map<Long, Double> tokenScores = scoreToken(token, documentCount, averageLength);
+            if (tokenScores.isEmpty()) {
+                return List.of();
+            }
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                // Intersect: keep documents matched by every token so far
+                Map<Long, Double> previous = scores;
+                scores = new HashMap<>();
+                Map<Long, Double> smaller = previous.size() <= tokenScores.size() ? previous : tokenScores;
+                Map<Long, Double> larger = smaller == previous ? tokenScores : previous;
+                for (Map.Entry<Long, Double> entry : smaller.entrySet()) {
+                    Double other = larger.get(entry.getKey());
+                    if (other != null) {
+                        scores.put(entry.getKey(), entry.getValue() + other);
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(scores.size());
+        scores.forEach((productId, score) -> hits.add(new SearchHit(productId, score)));
+        hits.sort(RANKING);
+        return hits;
+    }
+
+    // Every indexed product in id order with a zero score, used to page the catalog without a keyword
+    public List<SearchHit> all() {
+        List<Long> productIds = new ArrayList<>(documentTerms.keySet());
+        Collections.sort(productIds);
+        List<SearchHit> hits = new ArrayList<>(productIds.size());
+        productIds.forEach(productId -> hits.add(new SearchHit(productId, 0.0)));
+        return hits;
+    }
+
+    public int size() {
+        return documentTerms.size();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Best BM25 contribution of any term the token matches, per document
+    private Map<Long, Double> scoreToken(String token, int documentCount, double averageLength) {
+        Map<Long, Double> tokenScores = new HashMap<>();
+        NavigableMap<String, Map<Long, Integer>> matches =
+                postings.subMap(token, true, token + Character.MAX_VALUE, false);
+
+        for (Map.Entry<String, Map<Long, Integer>> match : matches.entrySet()) {
+            Map<Long, Integer> frequencies = match.getValue();
+            int documentFrequency = frequencies.size();
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            double factor = match.getKey().equals(token) ? 1.0 : PREFIX_MATCH_FACTOR;
+
+            for (Map.Entry<Long, Integer> posting : frequencies.entrySet()) {
+                int length = documentLengths.getOrDefault(posting.getKey(), 0);
+                double tf = posting.getValue();
+                double score = factor * idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * length / averageLength));
+                tokenScores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return tokenScores;
+    }
+
+    private void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void unindex(Long productId, Map<String, Integer> terms) {
+        for (String term : terms.keySet()) {
+            postings.computeIfPresent(term, (t, frequencies) -> {
+                frequencies.remove(productId);
+                return frequencies.isEmpty() ? null : frequencies;
+            });
+        }
+        Integer length = documentLengths.remove(productId);
+        if (length != null) {
+            totalLength.addAndGet(-length);
+        }
+    }
+}
@@ -1,36 +1,158 @@
 package com.gap.ecommerceapp.service;
 
+import com.gap.ecommerceapp.dto.CategoryFacetResponse;
+import com.gap.ecommerceapp.dto.ProductSearchResponse;
 import com.gap.ecommerceapp.model.Product;
 import com.gap.ecommerceapp.repository.ProductRepository;
+import com.gap.ecommerceapp.service.ProductSearchIndex.SearchHit;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductCache productCache;
+    private final CategoryFacetService categoryFacetService;
+    private final StockReservationService stockReservationService;
+
+    private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int STREAM_CHUNK_SIZE = 100;
+    private static final int MAX_BATCH_SIZE = 100;
+
+    // Runs after DataInitializer (a CommandLineRunner) has seeded the catalog
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeCatalogIndexes() {
+        List<Product> products = productRepository.findAll();
+        productSearchIndex.rebuild(products);
+        categoryFacetService.rebuild(products);
+    }
 
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
 
+    // Catalog fields come from the cache; stock is always read from the database
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        Product cached = productCache.get(id);
+        if (cached != null) {
+            Optional<Integer> stockQuantity = productRepository.findStockQuantityById(id);
+            if (stockQuantity.isEmpty()) {
+                forgetDeletedProduct(id);
+                return Optional.empty();
+            }
+            cached.setStockQuantity(stockQuantity.get());
+            return Optional.of(cached);
+        }
+
+        long version = productCache.version(id);
+        Optional<Product> product = productRepository.findById(id);
+        product.ifPresent(loaded -> productCache.put(loaded, version));
+        return product;
+    }
+
+    // Multi-get in request order: cached products cost one stock query for all of them, and
+    // every cache miss is loaded by a single findAllById. Unknown ids are skipped.
+    public List<Product> getProductsByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<Long> productIds = ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (productIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " product ids per batch, got " + productIds.size());
+        }
+
+        Map<Long, Product> productsById = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long productId : productIds) {
+            Product cached = productCache.get(productId);
+            if (cached != null) {
+                productsById.put(productId, cached);
+            } else {
+                misses.add(productId);
+            }
+        }
+
+        if (!productsById.isEmpty()) {
+            Set<Long> hits = new HashSet<>(productsById.keySet());
+            for (ProductRepository.StockLevel stockLevel : productRepository.findStockLevelsByIdIn(hits)) {
+                productsById.get(stockLevel.getId()).setStockQuantity(stockLevel.getStockQuantity());
+                hits.remove(stockLevel.getId());
+            }
+            // Cached but deleted since
+            hits.forEach(productId -> {
+                forgetDeletedProduct(productId);
+                productsById.remove(productId);
+            });
+        }
+
+        if (!misses.isEmpty()) {
+            Map<Long, Long> versions = new HashMap<>();
+            misses.forEach(productId -> versions.put(productId, productCache.version(productId)));
+            for (Product product : productRepository.findAllById(misses)) {
+                productCache.put(product, versions.get(product.getId()));
+                productsById.put(product.getId(), product);
+            }
+        }
+
+        List<Product> products = new ArrayList<>(productsById.size());
+        for (Long productId : productIds) {
+            Product product = productsById.get(productId);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
     }
 
     public List<Product> getProductsByCategory(String category) {
         return productRepository.findByCategory(category);
     }
 
-    public List<Product> searchProducts(String keyword) {
-        if (keyword == null || keyword.trim().isEmpty()) {
-            return getAllProducts();
+    // Ranked (BM25) search, paged with an opaque cursor over (score, id). A blank keyword pages
+    // through the whole catalog in id order instead of returning it in one response.
+    public ProductSearchResponse searchProducts(String keyword, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_SEARCH_PAGE_SIZE : Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        List<SearchHit> hits = rankedHits(keyword);
+
+        int start = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            int position = Collections.binarySearch(hits, decodeCursor(cursor), ProductSearchIndex.RANKING);
+            start = position >= 0 ? position + 1 : -(position + 1);
+        }
+        int end = Math.min(start + pageSize, hits.size());
+        List<SearchHit> page = start < end ? hits.subList(start, end) : List.of();
+
+        return ProductSearchResponse.builder()
+                .items(hydrate(page))
+                .totalMatches(hits.size())
+                .nextCursor(end < hits.size() ? encodeCursor(hits.get(end - 1)) : null)
+                .build();
+    }
+
+    // Same ranking as searchProducts, but hands products to the sink chunk by chunk so the
+    // full result set is never materialized
+    public void streamSearchResults(String keyword, Integer limit, Consumer<Product> sink) {
+        List<SearchHit> hits = rankedHits(keyword);
+        int total = limit == null ? hits.size() : Math.max(0, Math.min(limit, hits.size()));
+        for (int start = 0; start < total; start += STREAM_CHUNK_SIZE) {
+            hydrate(hits.subList(start, Math.min(start + STREAM_CHUNK_SIZE, total))).forEach(sink);
         }
-        return productRepository.searchProducts(keyword.trim());
+    }
+
+    public List<CategoryFacetResponse> getCategoryFacets() {
+        return categoryFacetService.getFacets();
     }
 
     public List<Product> getAvailableProducts() {
@@ -38,19 +160,92 @@ public class ProductService {
     }
 
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        productCache.invalidate(savedProduct.getId());
+        refreshCatalogIndexes(List.of(savedProduct));
+        return savedProduct;
+    }
+
+    // Brings the search index, facet counts and stock counters in line with products that were
+    // written without going through saveProduct (e.g. a bulk import)
+    public void refreshCatalogIndexes(Collection<Product> products) {
+        for (Product product : products) {
+            productSearchIndex.index(product);
+            categoryFacetService.update(product);
+            stockReservationService.refresh(product);
+        }
     }
 
     public boolean updateStock(Long productId, Integer quantity) {
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (productOpt.isPresent()) {
-            Product product = productOpt.get();
-            if (product.getStockQuantity() >= quantity) {
-                product.setStockQuantity(product.getStockQuantity() - quantity);
-                productRepository.save(product);
-                return true;
+        boolean reserved = stockReservationService.reserve(productId, quantity);
+        if (reserved) {
+            productCache.invalidate(productId);
+        }
+        return reserved;
+    }
+
+    public void releaseStock(Long productId, Integer quantity) {
+        stockReservationService.release(productId, quantity);
+    }
+
+    // Batched forms for multi-line orders; returns the ids of products that were short (nothing is taken then)
+    public List<Long> updateStocks(Map<Long, Integer> quantities) {
+        List<Long> shortfall = stockReservationService.reserveAll(quantities);
+        if (shortfall.isEmpty()) {
+            quantities.keySet().forEach(productCache::invalidate);
+        }
+        return shortfall;
+    }
+
+    public void releaseStocks(Map<Long, Integer> quantities) {
+        stockReservationService.releaseAll(quantities);
+    }
+
+    // A product deleted behind the service's back must not keep counting towards its category
+    private void forgetDeletedProduct(Long productId) {
+        productCache.invalidate(productId);
+        categoryFacetService.remove(productId);
+    }
+
+    private List<SearchHit> rankedHits(String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return productSearchIndex.all();
+        }
+        return productSearchIndex.search(keyword.trim());
+    }
+
+    // The index answers the query, the database is only used to hydrate one page of matches
+    private List<Product> hydrate(List<SearchHit> hits) {
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        List<Long> productIds = hits.stream().map(SearchHit::getProductId).collect(Collectors.toList());
+        Map<Long, Product> productsById = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<Product> products = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            Product product = productsById.get(productId);
+            if (product != null) {
+                products.add(product);
             }
         }
-        return false;
+        return products;
+    }
+
+    private String encodeCursor(SearchHit hit) {
+        String position = Long.toHexString(Double.doubleToLongBits(hit.getScore())) + ":" + hit.getProductId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private SearchHit decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(':');
+            double score = Double.longBitsToDouble(Long.parseUnsignedLong(position.substring(0, separator), 16));
+            return new SearchHit(Long.parseLong(position.substring(separator + 1)), score);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+        }
     }
 }
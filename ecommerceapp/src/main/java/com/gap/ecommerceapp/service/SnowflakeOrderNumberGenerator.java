@@ -0,0 +1,97 @@
+package com.gap.ecommerceapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Snowflake-style order numbers: a 63-bit id of 41 bits of milliseconds since EPOCH_MILLIS, a 10-bit
+// node id and a 12-bit per-millisecond sequence, written as "ORD-" plus 13 Crockford base32 digits.
+// Numbers are unique as long as every instance has its own ecommerce.order-number.node-id, and sort
+// (as strings too) in the order they were handed out on a node. No locks and no randomness: one CAS
+// per id, and the only allocations are the digits and the String.
+// If the clock steps back, ids keep counting on the last millisecond seen, and generation waits for
+// the clock once that millisecond's 4096 numbers are used up.
+@Component
+@ConditionalOnProperty(name = "ecommerce.order-number.generator", havingValue = "snowflake", matchIfMissing = true)
+public class SnowflakeOrderNumberGenerator implements OrderNumberGenerator {
+
+    // 2025-01-01T00:00:00Z; 41 bits of milliseconds from here run out in 2094
+    static final long EPOCH_MILLIS = 1_735_689_600_000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    // A clock that jumps back further than this is treated as broken rather than waited out
+    private static final long MAX_CLOCK_STEP_BACK_MILLIS = 1_000;
+
+    private static final String PREFIX = "ORD-";
+    // Crockford base32, in ASCII order so the encoded numbers sort like the ids
+    private static final byte[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+    // 13 digits of 5 bits cover all 63 bits
+    private static final int ENCODED_DIGITS = 13;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    // (milliseconds since EPOCH_MILLIS << SEQUENCE_BITS) | sequence, of the last id handed out
+    private final AtomicLong lastState = new AtomicLong();
+
+    @Autowired
+    public SnowflakeOrderNumberGenerator(@Value("${ecommerce.order-number.node-id:0}") long nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeOrderNumberGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Order number node id must be 0 to " + MAX_NODE_ID + ", got " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    @Override
+    public String next() {
+        return format(nextId());
+    }
+
+    long nextId() {
+        while (true) {
+            long last = lastState.get();
+            long lastMillis = last >>> SEQUENCE_BITS;
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            long next;
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else if (lastMillis - now > MAX_CLOCK_STEP_BACK_MILLIS) {
+                throw new IllegalStateException("Clock moved back " + (lastMillis - now) + " ms; refusing to issue order numbers");
+            } else if ((last & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                next = last + 1;
+            } else {
+                // This millisecond is used up
+                Thread.onSpinWait();
+                continue;
+            }
+            if (lastState.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & MAX_SEQUENCE);
+            }
+        }
+    }
+
+    static String format(long id) {
+        byte[] chars = new byte[PREFIX.length() + ENCODED_DIGITS];
+        for (int i = 0; i < PREFIX.length(); i++) {
+            chars[i] = (byte) PREFIX.charAt(i);
+        }
+        for (int i = chars.length - 1; i >= PREFIX.length(); i--) {
+            chars[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars, StandardCharsets.US_ASCII);
+    }
+}
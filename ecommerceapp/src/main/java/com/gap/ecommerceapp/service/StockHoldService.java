@@ -0,0 +1,275 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.StockHold;
+import com.gap.ecommerceapp.repository.StockHoldRepository;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Timed stock holds for cart lines. Adding to the cart takes the stock up front for a limited
+// time; checkout claims the hold instead of reserving again, and a scheduled sweeper releases
+// holds that expire. Expiry is driven by an in-memory DelayQueue, so sweeping never scans the
+// stock_holds table; the table only makes holds survive a restart. Queue entries are never removed
+// when a hold is replaced or dropped: each hold carries a version, and the sweeper skips entries
+// whose version is no longer the tracked one. Stale entries leave the queue when they expire.
+@Slf4j
+@Service
+public class StockHoldService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final StockReservationService stockReservationService;
+    private final StockHoldRepository stockHoldRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Duration holdDuration;
+    private final Clock clock;
+
+    // user id -> (product id -> active hold)
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Long, Hold>> holds = new ConcurrentHashMap<>();
+    private final DelayQueue<Hold> expiryQueue = new DelayQueue<>();
+    private final AtomicLong holdVersions = new AtomicLong();
+    private final Object[] userLocks = new Object[LOCK_STRIPES];
+
+    @Autowired
+    public StockHoldService(StockReservationService stockReservationService,
+                            StockHoldRepository stockHoldRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${ecommerce.cart.holds.enabled:false}") boolean enabled,
+                            @Value("${ecommerce.cart.holds.duration:15m}") Duration holdDuration) {
+        this(stockReservationService, stockHoldRepository, transactionTemplate, enabled, holdDuration,
+                Clock.systemDefaultZone());
+    }
+
+    StockHoldService(StockReservationService stockReservationService,
+                     StockHoldRepository stockHoldRepository,
+                     TransactionTemplate transactionTemplate,
+                     boolean enabled,
+                     Duration holdDuration,
+                     Clock clock) {
+        this.stockReservationService = stockReservationService;
+        this.stockHoldRepository = stockHoldRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.holdDuration = holdDuration;
+        this.clock = clock;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            userLocks[i] = new Object();
+        }
+    }
+
+    // Only new holds are gated by the flag; existing ones are still claimed and swept when it is off
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Makes the user's hold on the product cover exactly the given quantity, taking or returning
+    // the difference, and restarts the hold timer. Returns false if the extra stock is not available.
+    @Transactional
+    public boolean hold(Long userId, Long productId, int quantity) {
+        synchronized (lockFor(userId)) {
+            LocalDateTime expiresAt = LocalDateTime.now(clock).plus(holdDuration);
+            StockHold row = stockHoldRepository.findByUserIdAndProductId(userId, productId)
+                    .orElseGet(() -> new StockHold(null, userId, productId, 0, expiresAt));
+
+            int delta = quantity - row.getQuantity();
+            if (delta > 0 && !stockReservationService.reserve(productId, delta)) {
+                return false;
+            }
+            if (delta < 0) {
+                stockReservationService.release(productId, -delta);
+            }
+
+            row.setQuantity(quantity);
+            row.setExpiresAt(expiresAt);
+            stockHoldRepository.save(row);
+
+            Hold previous = holdsOf(userId).get(productId);
+            Hold updated = newHold(userId, productId, quantity, expiresAt);
+            track(updated);
+            TransactionHooks.onRollback(() -> restore(updated, previous));
+            return true;
+        }
+    }
+
+    // Hands the held quantity over to checkout: the stock stays taken, the hold disappears.
+    // Returns the number of units that were held (0 if none). Under the user's lock, so a hold the
+    // sweeper is releasing is either claimed first or already gone, never both.
+    @Transactional
+    public int claim(Long userId, Long productId) {
+        synchronized (lockFor(userId)) {
+            Hold current = untrack(userId, productId);
+            if (current == null) {
+                return 0;
+            }
+            stockHoldRepository.deleteByUserIdAndProductId(userId, productId);
+            TransactionHooks.onRollback(() -> track(current));
+            return current.getQuantity();
+        }
+    }
+
+    @Transactional
+    public void releaseHold(Long userId, Long productId) {
+        synchronized (lockFor(userId)) {
+            Hold current = untrack(userId, productId);
+            if (current == null) {
+                return;
+            }
+            stockReservationService.release(productId, current.getQuantity());
+            stockHoldRepository.deleteByUserIdAndProductId(userId, productId);
+            TransactionHooks.onRollback(() -> track(current));
+        }
+    }
+
+    @Transactional
+    public void releaseAll(Long userId) {
+        for (Long productId : new ArrayList<>(holdsOf(userId).keySet())) {
+            releaseHold(userId, productId);
+        }
+    }
+
+    public int getHeldQuantity(Long userId, Long productId) {
+        Hold hold = holdsOf(userId).get(productId);
+        return hold == null ? 0 : hold.getQuantity();
+    }
+
+    // product id -> hold, for rendering the cart
+    public Map<Long, Hold> getHolds(Long userId) {
+        Map<Long, Hold> userHolds = holds.get(userId);
+        return userHolds == null ? Map.of() : Map.copyOf(userHolds);
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.cart.holds.sweep-interval-ms:5000}")
+    public void releaseExpiredHolds() {
+        List<Hold> failed = new ArrayList<>();
+        int released = 0;
+        Hold expired;
+        while ((expired = expiryQueue.poll()) != null) {
+            Hold hold = expired;
+            synchronized (lockFor(hold.getUserId())) {
+                Map<Long, Hold> userHolds = holds.get(hold.getUserId());
+                Hold current = userHolds == null ? null : userHolds.get(hold.getProductId());
+                // Skip queue entries superseded by a newer hold or already claimed
+                if (current == null || current.getVersion() != hold.getVersion()
+                        || !userHolds.remove(hold.getProductId(), current)) {
+                    continue;
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        stockReservationService.release(hold.getProductId(), hold.getQuantity());
+                        stockHoldRepository.deleteByUserIdAndProductId(hold.getUserId(), hold.getProductId());
+                    });
+                    released++;
+                } catch (RuntimeException e) {
+                    log.error("Failed to release expired hold of user {} on product {}: {}",
+                            hold.getUserId(), hold.getProductId(), e.getMessage());
+                    failed.add(hold);
+                }
+            }
+        }
+        failed.forEach(this::track); // retried on the next sweep
+        if (released > 0) {
+            log.info("Released {} expired stock holds", released);
+        }
+    }
+
+    // The only table scan: reload surviving holds once at startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadHolds() {
+        List<StockHold> rows = stockHoldRepository.findAll();
+        rows.forEach(row -> track(newHold(row.getUserId(), row.getProductId(), row.getQuantity(),
+                row.getExpiresAt())));
+        if (!rows.isEmpty()) {
+            log.info("Restored {} stock holds", rows.size());
+        }
+    }
+
+    private Hold newHold(Long userId, Long productId, int quantity, LocalDateTime expiresAt) {
+        return new Hold(userId, productId, quantity, expiresAt, clock, holdVersions.incrementAndGet());
+    }
+
+    // The entry of a hold this replaces stays queued and is skipped once it expires
+    private void track(Hold hold) {
+        holds.computeIfAbsent(hold.getUserId(), id -> new ConcurrentHashMap<>())
+                .put(hold.getProductId(), hold);
+        expiryQueue.add(hold);
+    }
+
+    // Puts back the hold a rolled back change replaced, unless something newer replaced it since
+    private void restore(Hold replacement, Hold previous) {
+        Map<Long, Hold> userHolds = holds.get(replacement.getUserId());
+        if (userHolds == null || !userHolds.remove(replacement.getProductId(), replacement)) {
+            return;
+        }
+        if (previous != null) {
+            track(previous);
+        }
+    }
+
+    private Hold untrack(Long userId, Long productId) {
+        Map<Long, Hold> userHolds = holds.get(userId);
+        return userHolds == null ? null : userHolds.remove(productId);
+    }
+
+    private Map<Long, Hold> holdsOf(Long userId) {
+        Map<Long, Hold> userHolds = holds.get(userId);
+        return userHolds == null ? Map.of() : userHolds;
+    }
+
+    private Object lockFor(Long userId) {
+        return userLocks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    @Getter
+    public static final class Hold implements Delayed {
+        private final Long userId;
+        private final Long productId;
+        private final int quantity;
+        private final LocalDateTime expiresAt;
+        private final long expiresAtMillis;
+        private final Clock clock;
+        private final long version;
+
+        Hold(Long userId, Long productId, int quantity, LocalDateTime expiresAt, Clock clock) {
+            this(userId, productId, quantity, expiresAt, clock, 0L);
+        }
+
+        Hold(Long userId, Long productId, int quantity, LocalDateTime expiresAt, Clock clock, long version) {
+            this.userId = userId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+            this.expiresAtMillis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            this.clock = clock;
+            this.version = version;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtMillis - clock.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
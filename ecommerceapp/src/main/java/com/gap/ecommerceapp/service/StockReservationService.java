@@ -0,0 +1,256 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Takes stock with a conditional UPDATE (stock = stock - ? WHERE id = ? AND stock >= ?), so
+// concurrent checkouts can never oversell. An in-memory CAS counter per product sits in front
+// of it and rejects requests that obviously cannot be served without touching the database.
+// The database stays authoritative; the counter is only a filter and is resynced when they disagree.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    // How often a product whose counter rejects requests may be re-read from the database,
+    // so stock added by another node is picked up without letting a stampede through
+    private static final long RESYNC_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+    private static final String INCREMENT_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity + ? WHERE id = ?";
+
+    private final ProductRepository productRepository;
+    private final CategoryFacetService categoryFacetService;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<Long, StockCounter> counters = new ConcurrentHashMap<>();
+
+    @Transactional
+    public boolean reserve(Long productId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity must not be negative");
+        }
+        StockCounter counter = counterFor(productId);
+        if (counter == null) {
+            return false;
+        }
+
+        if (!counter.tryTake(quantity)) {
+            if (!counter.resyncDue() || !resync(productId, counter) || !counter.tryTake(quantity)) {
+                return false;
+            }
+        }
+
+        if (productRepository.decrementStock(productId, quantity) == 0) {
+            // The database had less than the counter thought: give back and resync
+            counter.available.addAndGet(quantity);
+            resync(productId, counter);
+            return false;
+        }
+
+        TransactionHooks.onRollback(() -> counter.available.addAndGet(quantity));
+        categoryFacetService.updateStockLevel(productId, counter.available.get());
+        return true;
+    }
+
+    @Transactional
+    public void release(Long productId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        if (productRepository.incrementStock(productId, quantity) == 0) {
+            log.warn("Could not release {} units of product {}: product not found", quantity, productId);
+            return;
+        }
+        StockCounter counter = counters.get(productId);
+        if (counter != null) {
+            counter.available.addAndGet(quantity);
+            TransactionHooks.onRollback(() -> counter.available.addAndGet(-quantity));
+            categoryFacetService.updateStockLevel(productId, counter.available.get());
+        }
+    }
+
+    // Multi-product reserve: all counters are checked first, then every decrement goes to the
+    // database as one JDBC batch of conditional updates. All or nothing: on any shortfall whatever
+    // was taken is given back and the short product ids are returned; an empty list means success.
+    @Transactional
+    public List<Long> reserveAll(Map<Long, Integer> quantities) {
+        List<Long> productIds = new ArrayList<>();
+        List<StockCounter> taken = new ArrayList<>();
+        List<Long> shortfall = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Long productId = entry.getKey();
+            int quantity = entry.getValue();
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Quantity must not be negative");
+            }
+            StockCounter counter = counterFor(productId);
+            if (counter == null || !(counter.tryTake(quantity)
+                    || counter.resyncDue() && resync(productId, counter) && counter.tryTake(quantity))) {
+                shortfall.add(productId);
+                continue;
+            }
+            productIds.add(productId);
+            taken.add(counter);
+        }
+        if (!shortfall.isEmpty()) {
+            giveBack(productIds, taken, quantities);
+            return shortfall;
+        }
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, productIds.stream()
+                .map(id -> new Object[]{quantities.get(id), id, quantities.get(id)})
+                .toList());
+
+        List<Object[]> undo = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                shortfall.add(productIds.get(i));
+            } else {
+                undo.add(new Object[]{quantities.get(productIds.get(i)), productIds.get(i)});
+            }
+        }
+        if (!shortfall.isEmpty()) {
+            // The database had less than the counters thought: undo the rows that did update
+            if (!undo.isEmpty()) {
+                jdbcTemplate.batchUpdate(INCREMENT_SQL, undo);
+            }
+            giveBack(productIds, taken, quantities);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    resync(productIds.get(i), taken.get(i));
+                }
+            }
+            return shortfall;
+        }
+
+        for (int i = 0; i < productIds.size(); i++) {
+            StockCounter counter = taken.get(i);
+            int quantity = quantities.get(productIds.get(i));
+            TransactionHooks.onRollback(() -> counter.available.addAndGet(quantity));
+            categoryFacetService.updateStockLevel(productIds.get(i), counter.available.get());
+        }
+        return List.of();
+    }
+
+    // Multi-product release, sent as one JDBC batch
+    @Transactional
+    public void releaseAll(Map<Long, Integer> quantities) {
+        List<Long> productIds = quantities.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (productIds.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(INCREMENT_SQL, productIds.stream()
+                .map(id -> new Object[]{quantities.get(id), id})
+                .toList());
+        for (int i = 0; i < productIds.size(); i++) {
+            Long productId = productIds.get(i);
+            int quantity = quantities.get(productId);
+            if (updated[i] == 0) {
+                log.warn("Could not release {} units of product {}: product not found", quantity, productId);
+                continue;
+            }
+            StockCounter counter = counters.get(productId);
+            if (counter != null) {
+                counter.available.addAndGet(quantity);
+                TransactionHooks.onRollback(() -> counter.available.addAndGet(-quantity));
+                categoryFacetService.updateStockLevel(productId, counter.available.get());
+            }
+        }
+    }
+
+    // Called after a product row has been written outside this service (create, admin edit)
+    public void refresh(Product product) {
+        if (product == null || product.getId() == null || product.getStockQuantity() == null) {
+            return;
+        }
+        counters.compute(product.getId(), (id, counter) -> {
+            StockCounter updated = counter != null ? counter : new StockCounter();
+            updated.reset(product.getStockQuantity());
+            return updated;
+        });
+    }
+
+    public Optional<Integer> getAvailableStock(Long productId) {
+        StockCounter counter = counterFor(productId);
+        return counter == null ? Optional.empty() : Optional.of(counter.available.get());
+    }
+
+    private StockCounter counterFor(Long productId) {
+        StockCounter counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        Optional<Integer> stock = productRepository.findStockQuantityById(productId);
+        if (stock.isEmpty()) {
+            return null;
+        }
+        return counters.computeIfAbsent(productId, id -> {
+            StockCounter created = new StockCounter();
+            created.reset(stock.get());
+            return created;
+        });
+    }
+
+    private void giveBack(List<Long> productIds, List<StockCounter> taken, Map<Long, Integer> quantities) {
+        for (int i = 0; i < productIds.size(); i++) {
+            taken.get(i).available.addAndGet(quantities.get(productIds.get(i)));
+        }
+    }
+
+    private boolean resync(Long productId, StockCounter counter) {
+        Optional<Integer> stock = productRepository.findStockQuantityById(productId);
+        if (stock.isEmpty()) {
+            counters.remove(productId);
+            return false;
+        }
+        counter.reset(stock.get());
+        return true;
+    }
+
+    private static final class StockCounter {
+        private final AtomicInteger available = new AtomicInteger();
+        private volatile long syncedAt;
+
+        private boolean tryTake(int quantity) {
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            return true;
+        }
+
+        private boolean resyncDue() {
+            return System.nanoTime() - syncedAt >= RESYNC_INTERVAL_NANOS;
+        }
+
+        private void reset(int stockQuantity) {
+            available.set(stockQuantity);
+            syncedAt = System.nanoTime();
+        }
+    }
+}
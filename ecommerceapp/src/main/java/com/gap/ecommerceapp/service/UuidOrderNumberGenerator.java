@@ -0,0 +1,18 @@
+package com.gap.ecommerceapp.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+// The original scheme: wall-clock millis plus 8 hex digits of a random UUID. Every call goes through
+// SecureRandom, and numbers from the same millisecond do not sort in creation order.
+@Component
+@ConditionalOnProperty(name = "ecommerce.order-number.generator", havingValue = "uuid")
+public class UuidOrderNumberGenerator implements OrderNumberGenerator {
+
+    @Override
+    public String next() {
+        return "ORD-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+}
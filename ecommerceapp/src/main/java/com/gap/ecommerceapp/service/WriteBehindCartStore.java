@@ -0,0 +1,457 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.Cart;
+import com.gap.ecommerceapp.model.CartItem;
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.repository.CartItemRepository;
+import com.gap.ecommerceapp.repository.CartRepository;
+import com.gap.ecommerceapp.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+// Optional cart storage (ecommerce.cart.store=write-behind): active carts live in memory keyed by
+// user id and every mutation is a map update. Dirty carts are written to carts/cart_items in one
+// coalesced JDBC batch once the oldest unflushed change reaches max-lag (or max-batch carts are
+// dirty), so a crash loses at most max-lag of cart edits. Carts not in memory are reloaded on access.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ecommerce.cart.store", havingValue = "write-behind")
+public class WriteBehindCartStore {
+
+    private static final String UPSERT_LINE_SQL =
+            "MERGE INTO cart_items (id, cart_id, product_id, quantity, unit_price) KEY (id) VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_LINE_SQL = "DELETE FROM cart_items WHERE id = ?";
+    // Shared with CartItem's pooled-lo generator: each value starts a block of LINE_ID_BLOCK ids
+    private static final String NEXT_LINE_ID_BLOCK_SQL = "SELECT NEXT VALUE FOR cart_item_seq";
+    private static final int LINE_ID_BLOCK = 50;
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate flushTransaction;
+    private final long maxLagNanos;
+    private final int maxBatch;
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock;
+
+    private final ConcurrentHashMap<Long, CartState> carts = new ConcurrentHashMap<>();
+    // cart item id -> user id, for the endpoints that only know the line
+    private final ConcurrentHashMap<Long, Long> lineOwners = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    private long nextLineId;
+    private long lineIdBlockEnd = -1;
+
+    @Getter
+    @AllArgsConstructor
+    public static final class Line {
+        private final Long cartItemId;
+        private final Long userId;
+        private final Long productId;
+        private final String productName;
+        private final String productDescription;
+        private final int quantity;
+        private final BigDecimal unitPrice;
+
+        public BigDecimal getTotalPrice() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+
+        Line withQuantity(int newQuantity) {
+            return new Line(cartItemId, userId, productId, productName, productDescription, newQuantity, unitPrice);
+        }
+    }
+
+    @Autowired
+    public WriteBehindCartStore(CartRepository cartRepository,
+                                CartItemRepository cartItemRepository,
+                                UserRepository userRepository,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${ecommerce.cart.write-behind.max-lag:1s}") Duration maxLag,
+                                @Value("${ecommerce.cart.write-behind.max-batch:500}") int maxBatch,
+                                @Value("${ecommerce.cart.write-behind.idle-timeout:30m}") Duration idleTimeout) {
+        this(cartRepository, cartItemRepository, userRepository, jdbcTemplate, transactionManager,
+                maxLag, maxBatch, idleTimeout, System::nanoTime);
+    }
+
+    WriteBehindCartStore(CartRepository cartRepository,
+                         CartItemRepository cartItemRepository,
+                         UserRepository userRepository,
+                         JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         Duration maxLag,
+                         int maxBatch,
+                         Duration idleTimeout,
+                         LongSupplier clock) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Flushes commit on their own, never as part of a caller's transaction that might roll back
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxLagNanos = maxLag.toNanos();
+        this.maxBatch = maxBatch;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.clock = clock;
+    }
+
+    public List<Line> getLines(Long userId) {
+        return withCart(userId, cart -> new ArrayList<>(cart.lines.values()));
+    }
+
+    // Adds to the line for the product (creating it if needed). The check sees the new total
+    // quantity and runs under the cart's lock; throwing from it leaves the cart unchanged.
+    public Line addQuantity(Long userId, Product product, int quantity, IntConsumer check) {
+        return withCart(userId, cart -> {
+            Line current = cart.lines.get(product.getId());
+            int newQuantity = (current == null ? 0 : current.getQuantity()) + quantity;
+            check.accept(newQuantity);
+
+            Line line = current != null
+                    ? new Line(current.getCartItemId(), userId, product.getId(), product.getName(),
+                            product.getDescription(), newQuantity, product.getPrice())
+                    : new Line(allocateLineId(), userId, product.getId(), product.getName(),
+                            product.getDescription(), newQuantity, product.getPrice());
+            cart.put(line, clock.getAsLong());
+            lineOwners.put(line.getCartItemId(), userId);
+            markDirty(userId);
+            return line;
+        });
+    }
+
+    // The check receives the current line and runs under the cart's lock. Empty if there is no such line.
+    public Optional<Line> updateQuantity(Long cartItemId, int quantity, Consumer<Line> check) {
+        Long userId = ownerOf(cartItemId);
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return withCart(userId, cart -> {
+            Line current = cart.lineById(cartItemId);
+            if (current == null) {
+                return Optional.empty();
+            }
+            check.accept(current);
+            Line line = current.withQuantity(quantity);
+            cart.put(line, clock.getAsLong());
+            markDirty(userId);
+            return Optional.of(line);
+        });
+    }
+
+    public Optional<Line> removeLine(Long cartItemId) {
+        Long userId = ownerOf(cartItemId);
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return withCart(userId, cart -> {
+            Line removed = cart.remove(cartItemId, clock.getAsLong());
+            if (removed != null) {
+                lineOwners.remove(cartItemId);
+                markDirty(userId);
+            }
+            return Optional.ofNullable(removed);
+        });
+    }
+
+    public void clear(Long userId) {
+        withCart(userId, cart -> {
+            for (Line line : new ArrayList<>(cart.lines.values())) {
+                cart.remove(line.getCartItemId(), clock.getAsLong());
+                lineOwners.remove(line.getCartItemId());
+            }
+            markDirty(userId);
+            return null;
+        });
+    }
+
+    // Writes the user's pending changes now, e.g. before checkout reads the cart from the database.
+    // Also waits for a write of this cart that a concurrent flushAll already has in flight.
+    public void flush(Long userId) {
+        dirtyUsers.remove(userId);
+        write(List.of(userId));
+    }
+
+    @Scheduled(fixedDelayString = "${ecommerce.cart.write-behind.tick-ms:100}")
+    public void flushDue() {
+        long now = clock.getAsLong();
+        boolean due = dirtyUsers.size() >= maxBatch;
+        for (Iterator<Long> userIds = dirtyUsers.iterator(); !due && userIds.hasNext(); ) {
+            CartState cart = carts.get(userIds.next());
+            if (cart != null) {
+                synchronized (cart) {
+                    due = cart.dirtySince != 0 && now - cart.dirtySince >= maxLagNanos;
+                }
+            }
+        }
+        if (due) {
+            flushAll();
+        }
+        evictIdle(now);
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        List<Long> userIds = new ArrayList<>(dirtyUsers);
+        userIds.forEach(dirtyUsers::remove);
+        if (!userIds.isEmpty()) {
+            write(userIds);
+        }
+    }
+
+    public int getDirtyCartCount() {
+        return dirtyUsers.size();
+    }
+
+    // Each cart's write lock is held from draining its changes until they are committed or put
+    // back, so a flush that finds nothing left to drain knows the changes are in the database
+    private void write(List<Long> userIds) {
+        List<CartState> locked = new ArrayList<>(userIds.size());
+        for (Long userId : new TreeSet<>(userIds)) {
+            CartState cart = carts.get(userId);
+            if (cart != null) {
+                cart.writeLock.lock();
+                locked.add(cart);
+            }
+        }
+        try {
+            writeLocked(locked);
+        } finally {
+            locked.forEach(cart -> cart.writeLock.unlock());
+        }
+    }
+
+    private void writeLocked(List<CartState> lockedCarts) {
+        List<Snapshot> snapshots = new ArrayList<>(lockedCarts.size());
+        for (CartState cart : lockedCarts) {
+            synchronized (cart) {
+                Snapshot snapshot = cart.drain();
+                if (!snapshot.upserts.isEmpty() || !snapshot.deletes.isEmpty()) {
+                    snapshots.add(snapshot);
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        // Cart ids created in this transaction only become the cart's once it commits
+        Map<CartState, Long> newCartIds = new HashMap<>();
+        try {
+            flushTransaction.executeWithoutResult(status -> {
+                List<Object[]> upserts = new ArrayList<>();
+                List<Object[]> deletes = new ArrayList<>();
+                for (Snapshot snapshot : snapshots) {
+                    Long cartId = cartIdFor(snapshot.cart, newCartIds);
+                    snapshot.upserts.forEach(line -> upserts.add(new Object[]{
+                            line.getCartItemId(), cartId, line.getProductId(), line.getQuantity(), line.getUnitPrice()}));
+                    snapshot.deletes.forEach(cartItemId -> deletes.add(new Object[]{cartItemId}));
+                }
+                if (!upserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPSERT_LINE_SQL, upserts);
+                }
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELETE_LINE_SQL, deletes);
+                }
+            });
+            newCartIds.forEach((cart, cartId) -> cart.cartId = cartId);
+            log.debug("Flushed {} carts", snapshots.size());
+        } catch (RuntimeException e) {
+            log.error("Cart flush failed, will retry: {}", e.getMessage());
+            for (Snapshot snapshot : snapshots) {
+                synchronized (snapshot.cart) {
+                    snapshot.cart.restore(snapshot);
+                }
+                dirtyUsers.add(snapshot.cart.userId);
+            }
+        }
+    }
+
+    // Carts created in memory get their row on first flush
+    private Long cartIdFor(CartState cart, Map<CartState, Long> newCartIds) {
+        if (cart.cartId != null) {
+            return cart.cartId;
+        }
+        return newCartIds.computeIfAbsent(cart, c -> cartRepository.findByUserId(c.userId)
+                .map(Cart::getId)
+                .orElseGet(() -> {
+                    Cart newCart = new Cart();
+                    newCart.setUser(userRepository.getReferenceById(c.userId));
+                    return cartRepository.save(newCart).getId();
+                }));
+    }
+
+    // A cart whose write is in flight looks clean but its rows are not committed yet, so it stays
+    private void evictIdle(long now) {
+        for (CartState cart : carts.values()) {
+            if (!cart.writeLock.tryLock()) {
+                continue;
+            }
+            try {
+                synchronized (cart) {
+                    if (cart.dirtySince == 0 && now - cart.lastAccess >= idleTimeoutNanos) {
+                        cart.evicted = true;
+                        carts.remove(cart.userId, cart);
+                        cart.lines.values().forEach(line -> lineOwners.remove(line.getCartItemId()));
+                    }
+                }
+            } finally {
+                cart.writeLock.unlock();
+            }
+        }
+    }
+
+    // Runs the action under the cart's lock, loading the cart first if it is not in memory.
+    // Retries if the cart was evicted between lookup and lock.
+    private <T> T withCart(Long userId, Function<CartState, T> action) {
+        while (true) {
+            CartState cart = carts.get(userId);
+            if (cart == null) {
+                CartState loaded = load(userId);
+                cart = Objects.requireNonNullElse(carts.putIfAbsent(userId, loaded), loaded);
+            }
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    cart.lastAccess = clock.getAsLong();
+                    return action.apply(cart);
+                }
+            }
+        }
+    }
+
+    private CartState load(Long userId) {
+        CartState cart = new CartState(userId, clock.getAsLong());
+        List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+        for (CartItem cartItem : cartItems) {
+            Product product = cartItem.getProduct();
+            cart.lines.put(product.getId(), new Line(cartItem.getId(), userId, product.getId(), product.getName(),
+                    product.getDescription(), cartItem.getQuantity(), cartItem.getUnitPrice()));
+            lineOwners.put(cartItem.getId(), userId);
+            cart.cartId = cartItem.getCart().getId();
+        }
+        return cart;
+    }
+
+    private Long ownerOf(Long cartItemId) {
+        Long userId = lineOwners.get(cartItemId);
+        return userId != null ? userId : cartItemRepository.findUserIdById(cartItemId).orElse(null);
+    }
+
+    private void markDirty(Long userId) {
+        dirtyUsers.add(userId);
+    }
+
+    private synchronized long allocateLineId() {
+        if (nextLineId > lineIdBlockEnd) {
+            Long blockStart = jdbcTemplate.queryForObject(NEXT_LINE_ID_BLOCK_SQL, Long.class);
+            nextLineId = Objects.requireNonNull(blockStart);
+            lineIdBlockEnd = nextLineId + LINE_ID_BLOCK - 1;
+        }
+        return nextLineId++;
+    }
+
+    private static final class CartState {
+        private final Long userId;
+        // Held while the cart's drained changes are being written
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private Long cartId;
+        // product id -> line, in the order the lines were added
+        private final LinkedHashMap<Long, Line> lines = new LinkedHashMap<>();
+        private final Set<Long> dirtyLineIds = new HashSet<>();
+        private final Set<Long> deletedLineIds = new HashSet<>();
+        private long dirtySince;
+        private long lastAccess;
+        private boolean evicted;
+
+        private CartState(Long userId, long now) {
+            this.userId = userId;
+            this.lastAccess = now;
+        }
+
+        private Line lineById(Long cartItemId) {
+            for (Line line : lines.values()) {
+                if (line.getCartItemId().equals(cartItemId)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        private void put(Line line, long now) {
+            lines.put(line.getProductId(), line);
+            dirtyLineIds.add(line.getCartItemId());
+            touch(now);
+        }
+
+        private Line remove(Long cartItemId, long now) {
+            Line line = lineById(cartItemId);
+            if (line == null) {
+                return null;
+            }
+            lines.remove(line.getProductId());
+            dirtyLineIds.remove(cartItemId);
+            deletedLineIds.add(cartItemId);
+            touch(now);
+            return line;
+        }
+
+        private void touch(long now) {
+            if (dirtySince == 0) {
+                dirtySince = now;
+            }
+        }
+
+        // Takes the pending changes, collapsed to the latest state of each line
+        private Snapshot drain() {
+            List<Line> upserts = new ArrayList<>();
+            for (Long cartItemId : dirtyLineIds) {
+                Line line = lineById(cartItemId);
+                if (line != null) {
+                    upserts.add(line);
+                }
+            }
+            Snapshot snapshot = new Snapshot(this, upserts, new ArrayList<>(deletedLineIds), dirtySince);
+            dirtyLineIds.clear();
+            deletedLineIds.clear();
+            dirtySince = 0;
+            return snapshot;
+        }
+
+        // Puts back changes from a failed flush unless newer changes have superseded them
+        private void restore(Snapshot snapshot) {
+            for (Line line : snapshot.upserts) {
+                if (lineById(line.getCartItemId()) != null) {
+                    dirtyLineIds.add(line.getCartItemId());
+                }
+            }
+            deletedLineIds.addAll(snapshot.deletes);
+            dirtySince = dirtySince == 0 ? snapshot.dirtySince : Math.min(dirtySince, snapshot.dirtySince);
+        }
+    }
+
+    private record Snapshot(CartState cart, List<Line> upserts, List<Long> deletes, long dirtySince) {
+    }
+}
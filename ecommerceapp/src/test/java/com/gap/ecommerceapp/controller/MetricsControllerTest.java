@@ -0,0 +1,85 @@
+package com.gap.ecommerceapp.controller;
+
+import com.gap.ecommerceapp.dto.CacheStatsResponse;
+import com.gap.ecommerceapp.dto.OutboxStatsResponse;
+import com.gap.ecommerceapp.dto.PaymentOutcomeStats;
+import com.gap.ecommerceapp.dto.PaymentStatsResponse;
+import com.gap.ecommerceapp.service.OutboxService;
+import com.gap.ecommerceapp.service.PaymentGateway;
+import com.gap.ecommerceapp.service.ProductCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(MetricsController.class)
+class MetricsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ProductCache productCache;
+
+    @MockitoBean
+    private OutboxService outboxService;
+
+    @MockitoBean
+    private PaymentGateway paymentGateway;
+
+    @Test
+    void getProductCacheStats_ShouldReturnCounters() throws Exception {
+        // Arrange
+        when(productCache.stats()).thenReturn(CacheStatsResponse.builder()
+                .size(3).maxSize(1000).hits(8L).misses(2L).evictions(0L).expirations(1L).hitRate(0.8)
+                .build());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/metrics/product-cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits").value(8))
+                .andExpect(jsonPath("$.misses").value(2))
+                .andExpect(jsonPath("$.hitRate").value(0.8));
+    }
+
+    @Test
+    void getOutboxStats_ShouldReturnLagAndThroughput() throws Exception {
+        // Arrange
+        when(outboxService.stats()).thenReturn(OutboxStatsResponse.builder()
+                .pendingEvents(4L).oldestPendingAgeMillis(1500L).publishedTotal(120L).failedTotal(0L)
+                .publishedPerSecond(2.0).lastBatchSize(20).lastBatchMillis(35L)
+                .build());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/metrics/outbox"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pendingEvents").value(4))
+                .andExpect(jsonPath("$.oldestPendingAgeMillis").value(1500))
+                .andExpect(jsonPath("$.publishedPerSecond").value(2.0));
+    }
+
+    @Test
+    void getPaymentStats_ShouldReturnCircuitStateAndLatencyPercentiles() throws Exception {
+        // Arrange
+        when(paymentGateway.stats()).thenReturn(PaymentStatsResponse.builder()
+                .circuitState("OPEN").inFlightCalls(0).maxConcurrentCalls(20).retriesTotal(3L)
+                .outcomes(List.of(PaymentOutcomeStats.builder()
+                        .outcome("SUCCESS").count(10L).p50Millis(12.5).p99Millis(80.0).maxMillis(95.0)
+                        .build()))
+                .build());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/metrics/payments"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.circuitState").value("OPEN"))
+                .andExpect(jsonPath("$.outcomes[0].outcome").value("SUCCESS"))
+                .andExpect(jsonPath("$.outcomes[0].p99Millis").value(80.0));
+    }
+}
@@ -3,6 +3,7 @@ package com.gap.ecommerceapp.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gap.ecommerceapp.dto.*;
 import com.gap.ecommerceapp.exception.InsufficientStockException;
+import com.gap.ecommerceapp.exception.RequestInProgressException;
 import com.gap.ecommerceapp.exception.ResourceNotFoundException;
 import com.gap.ecommerceapp.service.OrderService;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,13 +13,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -75,7 +81,7 @@ class OrderControllerTest {
 
     @Test
     void checkout_Success() throws Exception {
-        when(orderService.checkout(any(CheckoutRequest.class))).thenReturn(orderResponse);
+        when(orderService.checkout(any(CheckoutRequest.class), any())).thenReturn(orderResponse);
 
         mockMvc.perform(post("/api/orders/checkout")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -88,12 +94,38 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.totalAmount").value(59.98))
                 .andExpect(jsonPath("$.status").value("CONFIRMED"));
 
-        verify(orderService).checkout(any(CheckoutRequest.class));
+        verify(orderService).checkout(any(CheckoutRequest.class), isNull());
+    }
+
+    @Test
+    void checkout_PassesIdempotencyKeyToService() throws Exception {
+        when(orderService.checkout(any(CheckoutRequest.class), eq("retry-key-1"))).thenReturn(orderResponse);
+
+        mockMvc.perform(post("/api/orders/checkout")
+                .header("Idempotency-Key", "retry-key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(checkoutRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderId").value(1L));
+
+        verify(orderService).checkout(any(CheckoutRequest.class), eq("retry-key-1"));
+    }
+
+    @Test
+    void checkout_ReturnsConflict_WhileKeyIsInProgress() throws Exception {
+        when(orderService.checkout(any(CheckoutRequest.class), eq("retry-key-1")))
+                .thenThrow(new RequestInProgressException("A request with this Idempotency-Key is still being processed"));
+
+        mockMvc.perform(post("/api/orders/checkout")
+                .header("Idempotency-Key", "retry-key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(checkoutRequest)))
+                .andExpect(status().isConflict());
     }
 
     @Test
     void checkout_InsufficientStock_ThrowsException() throws Exception {
-        when(orderService.checkout(any(CheckoutRequest.class)))
+        when(orderService.checkout(any(CheckoutRequest.class), any()))
                 .thenThrow(new InsufficientStockException("Insufficient stock"));
 
         mockMvc.perform(post("/api/orders/checkout")
@@ -104,7 +136,7 @@ class OrderControllerTest {
 
     @Test
     void checkout_UserNotFound_ThrowsException() throws Exception {
-        when(orderService.checkout(any(CheckoutRequest.class)))
+        when(orderService.checkout(any(CheckoutRequest.class), any()))
                 .thenThrow(new ResourceNotFoundException("User not found"));
 
         mockMvc.perform(post("/api/orders/checkout")
@@ -113,9 +145,41 @@ class OrderControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void checkoutAsync_ReturnsAcceptedWithStatusLocation() throws Exception {
+        orderResponse.setStatus("PENDING");
+        orderResponse.setPaymentTransactionId(null);
+        when(orderService.checkoutAsync(any(CheckoutRequest.class), eq("key-1"))).thenReturn(orderResponse);
+
+        mockMvc.perform(post("/api/orders/checkout/async")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(checkoutRequest)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/orders/1/status"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void getOrderStatus_WaitsUpToTheCap() throws Exception {
+        when(orderService.awaitOrder(eq(1L), any(Duration.class)))
+                .thenReturn(CompletableFuture.completedFuture(orderResponse));
+
+        MvcResult result = mockMvc.perform(get("/api/orders/1/status")
+                .param("waitSeconds", "120"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMED"));
+
+        verify(orderService).awaitOrder(1L, Duration.ofSeconds(30));
+    }
+
     @Test
     void buyNow_Success() throws Exception {
-        when(orderService.buyNow(any(BuyNowRequest.class))).thenReturn(orderResponse);
+        when(orderService.buyNow(any(BuyNowRequest.class), any())).thenReturn(orderResponse);
 
         mockMvc.perform(post("/api/orders/buy-now")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -126,12 +190,12 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.orderNumber").value("ORD-123456"))
                 .andExpect(jsonPath("$.totalAmount").value(59.98));
 
-        verify(orderService).buyNow(any(BuyNowRequest.class));
+        verify(orderService).buyNow(any(BuyNowRequest.class), isNull());
     }
 
     @Test
     void buyNow_InsufficientStock_ThrowsException() throws Exception {
-        when(orderService.buyNow(any(BuyNowRequest.class)))
+        when(orderService.buyNow(any(BuyNowRequest.class), any()))
                 .thenThrow(new InsufficientStockException("Insufficient stock"));
 
         mockMvc.perform(post("/api/orders/buy-now")
@@ -141,30 +205,76 @@ class OrderControllerTest {
     }
 
     @Test
-    void getUserOrders_Success() throws Exception {
-        List<OrderResponse> orders = List.of(orderResponse);
-        when(orderService.getUserOrderResponses(1L)).thenReturn(orders);
+    void getUserOrderHistory_Success() throws Exception {
+        orderResponse.setOrderItems(null);
+        OrderHistoryResponse history = OrderHistoryResponse.builder()
+                .orders(List.of(orderResponse))
+                .nextCursor("abc")
+                .build();
+        when(orderService.getOrderHistory(1L, null, null, false)).thenReturn(history);
 
-        mockMvc.perform(get("/api/orders/user/1"))
+        mockMvc.perform(get("/api/orders/user/1/history"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$").isArray())
-                .andExpect(jsonPath("$[0].orderId").value(1L))
-                .andExpect(jsonPath("$[0].orderNumber").value("ORD-123456"));
+                .andExpect(jsonPath("$.orders").isArray())
+                .andExpect(jsonPath("$.orders[0].orderId").value(1L))
+                .andExpect(jsonPath("$.orders[0].orderNumber").value("ORD-123456"))
+                .andExpect(jsonPath("$.nextCursor").value("abc"));
+
+        verify(orderService).getOrderHistory(1L, null, null, false);
+    }
+
+    @Test
+    void getUserOrderHistory_EmptyList() throws Exception {
+        when(orderService.getOrderHistory(1L, null, null, false))
+                .thenReturn(OrderHistoryResponse.builder().orders(List.of()).build());
+
+        mockMvc.perform(get("/api/orders/user/1/history"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.orders").isArray())
+                .andExpect(jsonPath("$.orders").isEmpty());
 
-        verify(orderService).getUserOrderResponses(1L);
+        verify(orderService).getOrderHistory(1L, null, null, false);
     }
 
     @Test
-    void getUserOrders_EmptyList() throws Exception {
-        when(orderService.getUserOrderResponses(1L)).thenReturn(List.of());
+    void getUserOrders_KeepsListShape() throws Exception {
+        when(orderService.getUserOrderResponses(1L, null, null))
+                .thenReturn(OrderHistoryResponse.builder().orders(List.of(orderResponse)).build());
 
         mockMvc.perform(get("/api/orders/user/1"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
                 .andExpect(jsonPath("$").isArray())
-                .andExpect(jsonPath("$").isEmpty());
+                .andExpect(jsonPath("$[0].orderId").value(1L))
+                .andExpect(jsonPath("$[0].orderItems[0].productName").value("Test Product"));
+
+        verify(orderService).getUserOrderResponses(1L, null, null);
+    }
+
+    @Test
+    void getUserOrders_PutsNextCursorInHeader() throws Exception {
+        when(orderService.getUserOrderResponses(1L, "abc", 10))
+                .thenReturn(OrderHistoryResponse.builder().orders(List.of(orderResponse)).nextCursor("def").build());
 
-        verify(orderService).getUserOrderResponses(1L);
+        mockMvc.perform(get("/api/orders/user/1").param("cursor", "abc").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "def"))
+                .andExpect(jsonPath("$[0].orderId").value(1L));
+    }
+
+    @Test
+    void getUserOrderHistory_PassesCursorSizeAndIncludeItems() throws Exception {
+        when(orderService.getOrderHistory(1L, "abc", 50, true))
+                .thenReturn(OrderHistoryResponse.builder().orders(List.of(orderResponse)).build());
+
+        mockMvc.perform(get("/api/orders/user/1/history")
+                .param("cursor", "abc")
+                .param("size", "50")
+                .param("includeItems", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders[0].orderItems[0].productName").value("Test Product"));
     }
 }
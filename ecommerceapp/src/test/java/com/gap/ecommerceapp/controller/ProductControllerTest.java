@@ -1,7 +1,11 @@
 package com.gap.ecommerceapp.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gap.ecommerceapp.dto.CategoryFacetResponse;
+import com.gap.ecommerceapp.dto.ProductSearchResponse;
 import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.dto.ProductImportReport;
+import com.gap.ecommerceapp.service.ProductImportService;
 import com.gap.ecommerceapp.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,13 +14,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,6 +39,9 @@ class ProductControllerTest {
     @MockitoBean
     private ProductService productService;
 
+    @MockitoBean
+    private ProductImportService productImportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -128,55 +140,123 @@ class ProductControllerTest {
     }
 
     @Test
-    void searchProducts_ShouldReturnMatchingProducts() throws Exception {
+    void getProductsByIds_ShouldReturnProductsInOneCall() throws Exception {
+        // Arrange
+        when(productService.getProductsByIds(List.of(2L, 1L))).thenReturn(Arrays.asList(testProduct2, testProduct1));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/products/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[2, 1]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("Jeans"))
+                .andExpect(jsonPath("$[1].name").value("T-Shirt"));
+
+        verify(productService, times(1)).getProductsByIds(List.of(2L, 1L));
+    }
+
+    @Test
+    void searchProducts_ShouldReturnRankedPage() throws Exception {
         // Arrange
         String keyword = "shirt";
-        List<Product> products = Arrays.asList(testProduct1);
-        when(productService.searchProducts(keyword)).thenReturn(products);
+        ProductSearchResponse response = ProductSearchResponse.builder()
+                .items(Arrays.asList(testProduct1))
+                .totalMatches(3)
+                .nextCursor("next")
+                .build();
+        when(productService.searchProducts(keyword, null, 1)).thenReturn(response);
 
         // Act & Assert
         mockMvc.perform(get("/api/products/search")
                 .param("keyword", keyword)
+                .param("size", "1")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.length()").value(1))
-                .andExpect(jsonPath("$[0].name").value("T-Shirt"));
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("T-Shirt"))
+                .andExpect(jsonPath("$.totalMatches").value(3))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
 
-        verify(productService, times(1)).searchProducts(keyword);
+        verify(productService, times(1)).searchProducts(keyword, null, 1);
     }
 
     @Test
-    void searchProducts_ShouldReturnAllProducts_WhenNoKeyword() throws Exception {
+    void searchProducts_ShouldPassCursorThrough() throws Exception {
         // Arrange
-        List<Product> products = Arrays.asList(testProduct1, testProduct2);
-        when(productService.searchProducts(null)).thenReturn(products);
+        ProductSearchResponse response = ProductSearchResponse.builder()
+                .items(Arrays.asList(testProduct2))
+                .totalMatches(2)
+                .build();
+        when(productService.searchProducts(null, "abc", null)).thenReturn(response);
 
         // Act & Assert
         mockMvc.perform(get("/api/products/search")
+                .param("cursor", "abc")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.length()").value(2));
-
-        verify(productService, times(1)).searchProducts(null);
+                .andExpect(jsonPath("$.items[0].name").value("Jeans"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
     }
 
     @Test
-    void searchProducts_ShouldReturnEmptyList_WhenNoMatches() throws Exception {
+    void searchProducts_ShouldReturnBadRequest_WhenCursorIsInvalid() throws Exception {
         // Arrange
-        String keyword = "nonexistent";
-        when(productService.searchProducts(keyword)).thenReturn(Arrays.asList());
+        when(productService.searchProducts("shirt", "bad", null))
+                .thenThrow(new IllegalArgumentException("Invalid search cursor: bad"));
 
         // Act & Assert
         mockMvc.perform(get("/api/products/search")
-                .param("keyword", keyword)
+                .param("keyword", "shirt")
+                .param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamSearchResults_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            Consumer<Product> sink = invocation.getArgument(2);
+            sink.accept(testProduct1);
+            sink.accept(testProduct2);
+            return null;
+        }).when(productService).streamSearchResults(eq("clothing"), isNull(), any());
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/products/search/stream")
+                .param("keyword", "clothing"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("T-Shirt", objectMapper.readTree(lines[0]).get("name").asText());
+        assertEquals("Jeans", objectMapper.readTree(lines[1]).get("name").asText());
+    }
+
+    @Test
+    void getCategoryFacets_ShouldReturnCountsPerCategory() throws Exception {
+        // Arrange
+        when(productService.getCategoryFacets()).thenReturn(Arrays.asList(
+                new CategoryFacetResponse("Clothing", 2, 1),
+                new CategoryFacetResponse("Shoes", 4, 4)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products/facets")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.length()").value(0));
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].category").value("Clothing"))
+                .andExpect(jsonPath("$[0].totalProducts").value(2))
+                .andExpect(jsonPath("$[0].inStockProducts").value(1));
 
-        verify(productService, times(1)).searchProducts(keyword);
+        verify(productService, times(1)).getCategoryFacets();
     }
 
     @Test
@@ -281,41 +361,6 @@ class ProductControllerTest {
         verify(productService, times(1)).saveProduct(any(Product.class));
     }
 
-    @Test
-    void searchProducts_ShouldHandleEmptyKeyword() throws Exception {
-        // Arrange
-        List<Product> products = Arrays.asList(testProduct1, testProduct2);
-        when(productService.searchProducts("")).thenReturn(products);
-
-        // Act & Assert
-        mockMvc.perform(get("/api/products/search")
-                .param("keyword", "")
-                .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.length()").value(2));
-
-        verify(productService, times(1)).searchProducts("");
-    }
-
-    @Test
-    void searchProducts_ShouldHandleWhitespaceKeyword() throws Exception {
-        // Arrange
-        String keyword = "   ";
-        List<Product> products = Arrays.asList(testProduct1, testProduct2);
-        when(productService.searchProducts(keyword)).thenReturn(products);
-
-        // Act & Assert
-        mockMvc.perform(get("/api/products/search")
-                .param("keyword", keyword)
-                .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.length()").value(2));
-
-        verify(productService, times(1)).searchProducts(keyword);
-    }
-
     @Test
     void getProductsByCategory_ShouldHandleSpecialCharactersInCategory() throws Exception {
         // Arrange
@@ -389,4 +434,39 @@ class ProductControllerTest {
 
         verify(productService, times(1)).saveProduct(any(Product.class));
     }
+
+    @Test
+    void importProducts_ShouldStreamCsvBodyToImportService() throws Exception {
+        // Arrange
+        ProductImportReport report = ProductImportReport.builder()
+                .totalRows(2)
+                .importedRows(1)
+                .rejectedRows(1)
+                .rejected(List.of(new ProductImportReport.RejectedRow(3, "price is not a number: abc")))
+                .build();
+        when(productImportService.importProducts(any(), eq(ProductImportService.Format.CSV), eq(100))).thenReturn(report);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/products/import")
+                .param("batchSize", "100")
+                .contentType("text/csv")
+                .content("name,price,stockQuantity\nTee,9.99,5\nHat,abc,1\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importedRows").value(1))
+                .andExpect(jsonPath("$.rejected[0].line").value(3));
+    }
+
+    @Test
+    void importProducts_ShouldTreatNdjsonBodyAsJsonLines() throws Exception {
+        // Arrange
+        when(productImportService.importProducts(any(), eq(ProductImportService.Format.NDJSON), isNull()))
+                .thenReturn(ProductImportReport.builder().importedRows(1).build());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/products/import")
+                .contentType("application/x-ndjson")
+                .content("{\"name\":\"Tee\",\"price\":9.99,\"stockQuantity\":5}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.importedRows").value(1));
+    }
 }
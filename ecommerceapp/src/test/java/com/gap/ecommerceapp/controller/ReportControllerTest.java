@@ -0,0 +1,72 @@
+package com.gap.ecommerceapp.controller;
+
+import com.gap.ecommerceapp.dto.MonthlyOrderReport;
+import com.gap.ecommerceapp.service.OrderReportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ReportController.class)
+class ReportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private OrderReportService orderReportService;
+
+    @Test
+    void getUserMonthlyReports_ShouldParseMonthRange() throws Exception {
+        // Arrange
+        when(orderReportService.getUserMonthlyReports(1L, YearMonth.of(2025, 1), YearMonth.of(2025, 2)))
+                .thenReturn(List.of(report("2025-01", 2L), report("2025-02", 0L)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/reports/users/1/monthly").param("from", "2025-01").param("to", "2025-02"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].month").value("2025-01"))
+                .andExpect(jsonPath("$[0].orderCount").value(2));
+    }
+
+    @Test
+    void getGlobalMonthlyReports_WithoutRange_ShouldUseDefaults() throws Exception {
+        // Arrange
+        when(orderReportService.getGlobalMonthlyReports(isNull(), isNull()))
+                .thenReturn(List.of(report("2025-06", 5L)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/reports/monthly"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].orderCount").value(5));
+    }
+
+    @Test
+    void getUserMonthlyReports_InvalidRange_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(orderReportService.getUserMonthlyReports(1L, YearMonth.of(2025, 5), YearMonth.of(2025, 4)))
+                .thenThrow(new IllegalArgumentException("Report start 2025-05 is after end 2025-04"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/reports/users/1/monthly").param("from", "2025-05").param("to", "2025-04"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MonthlyOrderReport report(String month, Long orderCount) {
+        return MonthlyOrderReport.builder()
+                .month(month).orderCount(orderCount).confirmedCount(orderCount).paymentFailedCount(0L)
+                .revenue(BigDecimal.TEN).itemCount(orderCount).averageOrderValue(BigDecimal.ONE)
+                .build();
+    }
+}
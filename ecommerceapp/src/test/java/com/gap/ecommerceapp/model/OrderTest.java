@@ -51,5 +51,48 @@ class OrderTest {
         assertEquals("SHIPPED", Order.OrderStatus.SHIPPED.toString());
         assertEquals("DELIVERED", Order.OrderStatus.DELIVERED.toString());
         assertEquals("CANCELLED", Order.OrderStatus.CANCELLED.toString());
+        assertEquals("PAYMENT_UNKNOWN", Order.OrderStatus.PAYMENT_UNKNOWN.toString());
+    }
+
+    @Test
+    void transitionTo_FollowsTheStatusStateMachine() {
+        // Given
+        order.setStatus(Order.OrderStatus.PENDING);
+
+        // When
+        order.transitionTo(Order.OrderStatus.CONFIRMED);
+        order.transitionTo(Order.OrderStatus.SHIPPED);
+        order.transitionTo(Order.OrderStatus.DELIVERED);
+
+        // Then
+        assertEquals(Order.OrderStatus.DELIVERED, order.getStatus());
+        assertTrue(order.getStatus().isFinal());
+    }
+
+    @Test
+    void transitionTo_RejectsInvalidTransitions() {
+        // Given
+        order.setStatus(Order.OrderStatus.PAYMENT_FAILED);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> order.transitionTo(Order.OrderStatus.CONFIRMED));
+        assertEquals(Order.OrderStatus.PAYMENT_FAILED, order.getStatus());
+        assertFalse(Order.OrderStatus.PENDING.canTransitionTo(Order.OrderStatus.SHIPPED));
+        assertFalse(Order.OrderStatus.PENDING.isFinal());
+    }
+
+    @Test
+    void transitionTo_PaymentUnknown_IsResolvedOnlyByThePaymentOutcome() {
+        // Given
+        order.setStatus(Order.OrderStatus.PENDING);
+
+        // When
+        order.transitionTo(Order.OrderStatus.PAYMENT_UNKNOWN);
+
+        // Then
+        assertFalse(order.getStatus().isFinal());
+        assertTrue(Order.OrderStatus.PAYMENT_UNKNOWN.canTransitionTo(Order.OrderStatus.CONFIRMED));
+        assertTrue(Order.OrderStatus.PAYMENT_UNKNOWN.canTransitionTo(Order.OrderStatus.PAYMENT_FAILED));
+        assertThrows(IllegalStateException.class, () -> order.transitionTo(Order.OrderStatus.CANCELLED));
     }
 }
@@ -0,0 +1,101 @@
+package com.gap.ecommerceapp.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Latency of the three buy-now lookups (user, product, bank account) run one after another versus
+// forked on a FailFastScope. Each lookup sleeps for a simulated latency with a slow tail, drawn once
+// so both modes see exactly the same delays; 64 requests are in flight at a time.
+// Excluded from the default build; run with: mvn test -Pbenchmark
+@Tag("benchmark")
+class BuyNowLookupLatencyBenchmarkTest {
+
+    private static final int REQUESTS = 2_000;
+    private static final int IN_FLIGHT = 64;
+
+    @Test
+    void buyNowLookups_SequentialVersusConcurrent() throws Exception {
+        SplittableRandom random = new SplittableRandom(42);
+        long[][] delays = new long[REQUESTS][];
+        for (int i = 0; i < REQUESTS; i++) {
+            delays[i] = new long[]{
+                    // User row by primary key
+                    latencyMicros(random, 1_000, 0.02, 20_000),
+                    // Product, usually from the cache
+                    latencyMicros(random, 200, 0.02, 15_000),
+                    // Bank account over HTTP
+                    latencyMicros(random, 8_000, 0.02, 80_000)};
+        }
+
+        LatencyHistogram sequential = measure(delays, this::sequential);
+        LatencyHistogram concurrent = measure(delays, this::concurrent);
+
+        System.out.printf("%n%-11s %10s %10s %10s%n", "mode", "p50 ms", "p99 ms", "max ms");
+        System.out.printf("%-11s %10.2f %10.2f %10.2f%n", "sequential",
+                sequential.percentileMillis(50), sequential.percentileMillis(99), sequential.maxMillis());
+        System.out.printf("%-11s %10.2f %10.2f %10.2f%n", "concurrent",
+                concurrent.percentileMillis(50), concurrent.percentileMillis(99), concurrent.maxMillis());
+
+        assertTrue(concurrent.percentileMillis(99) < sequential.percentileMillis(99));
+        assertTrue(concurrent.percentileMillis(50) < sequential.percentileMillis(50));
+    }
+
+    private void sequential(long[] delays) throws Exception {
+        for (long micros : delays) {
+            lookup(micros);
+        }
+    }
+
+    private void concurrent(long[] delays) {
+        try (FailFastScope scope = new FailFastScope()) {
+            for (long micros : delays) {
+                scope.fork(() -> lookup(micros));
+            }
+            scope.join(Duration.ofSeconds(10));
+        }
+    }
+
+    private LatencyHistogram measure(long[][] delays, Lookups lookups) throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        try (ExecutorService clients = Executors.newFixedThreadPool(IN_FLIGHT, Thread.ofVirtual().factory())) {
+            List<Future<?>> requests = new ArrayList<>(REQUESTS);
+            for (long[] request : delays) {
+                requests.add(clients.submit(() -> {
+                    long started = System.nanoTime();
+                    lookups.run(request);
+                    histogram.record(System.nanoTime() - started);
+                    return null;
+                }));
+            }
+            for (Future<?> request : requests) {
+                request.get();
+            }
+        }
+        return histogram;
+    }
+
+    private static long latencyMicros(SplittableRandom random, long typicalMicros, double tailShare, long tailMicros) {
+        long base = typicalMicros / 2 + random.nextLong(typicalMicros);
+        return random.nextDouble() < tailShare ? base + tailMicros : base;
+    }
+
+    private static Void lookup(long micros) throws InterruptedException {
+        Thread.sleep(Duration.ofNanos(micros * 1_000));
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface Lookups {
+        void run(long[] delays) throws Exception;
+    }
+}
@@ -0,0 +1,99 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.dto.CartResponse;
+import com.gap.ecommerceapp.model.Cart;
+import com.gap.ecommerceapp.model.CartItem;
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.model.User;
+import com.gap.ecommerceapp.repository.CartItemRepository;
+import com.gap.ecommerceapp.repository.CartRepository;
+import com.gap.ecommerceapp.repository.ProductRepository;
+import com.gap.ecommerceapp.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Guards the cart read path against N+1 regressions by counting the JDBC statements it prepares
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartquerycountdb",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "eureka.client.enabled=false",
+        "ecommerce.scheduling.enabled=false"
+})
+class CartQueryCountTest {
+
+    private static final int CART_LINES = 30;
+    private static final long MAX_STATEMENTS = 1;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void getCartByUserId_ShouldRenderCartInFixedNumberOfStatements() {
+        // Given
+        User user = new User();
+        user.setName("Query Count");
+        user.setEmail("query.count@example.com");
+        user.setPassword("password");
+        user = userRepository.save(user);
+
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart = cartRepository.save(cart);
+
+        for (int i = 0; i < CART_LINES; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setDescription("Description " + i);
+            product.setPrice(new BigDecimal("10.00"));
+            product.setStockQuantity(100);
+            product = productRepository.save(product);
+
+            CartItem cartItem = new CartItem();
+            cartItem.setCart(cart);
+            cartItem.setProduct(product);
+            cartItem.setQuantity(2);
+            cartItem.setUnitPrice(product.getPrice());
+            cartItemRepository.save(cartItem);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        CartResponse cartResponse = cartService.getCartByUserId(user.getId());
+
+        // Then
+        assertEquals(CART_LINES, cartResponse.getItems().size());
+        assertEquals("Product 0", cartResponse.getItems().get(0).getProductName());
+        assertEquals(CART_LINES * 2, cartResponse.getTotalItems());
+        assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS,
+                "Cart render used " + statistics.getPrepareStatementCount() + " statements");
+    }
+}
@@ -12,9 +12,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,6 +37,12 @@ class CartServiceTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private StockHoldService stockHoldService;
+
+    @Mock
+    private ObjectProvider<WriteBehindCartStore> cartStoreProvider;
+
     @InjectMocks
     private CartService cartService;
 
@@ -206,7 +216,7 @@ class CartServiceTest {
     @Test
     void removeFromCart_Success() {
         // Given
-        when(cartItemRepository.existsById(1L)).thenReturn(true);
+        when(cartItemRepository.findById(1L)).thenReturn(Optional.of(testCartItem));
 
         // When
         cartService.removeFromCart(1L);
@@ -218,7 +228,7 @@ class CartServiceTest {
     @Test
     void removeFromCart_ItemNotFound_ThrowsException() {
         // Given
-        when(cartItemRepository.existsById(1L)).thenReturn(false);
+        when(cartItemRepository.findById(1L)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(ResourceNotFoundException.class, () -> cartService.removeFromCart(1L));
@@ -232,4 +242,114 @@ class CartServiceTest {
         // Then
         verify(cartItemRepository).deleteByUserId(1L);
     }
+
+    @Test
+    void getCartByUserId_ShouldShowHolds() {
+        // Given
+        LocalDateTime expiresAt = LocalDateTime.of(2025, 1, 1, 12, 15);
+        when(cartItemRepository.findByUserId(1L)).thenReturn(List.of(testCartItem));
+        when(stockHoldService.getHolds(1L)).thenReturn(Map.of(1L,
+                new StockHoldService.Hold(1L, 1L, 2, expiresAt, Clock.systemDefaultZone())));
+
+        // When
+        CartResponse result = cartService.getCartByUserId(1L);
+
+        // Then
+        assertEquals(2, result.getItems().get(0).getHeldQuantity());
+        assertEquals(expiresAt, result.getItems().get(0).getHoldExpiresAt());
+    }
+
+    @Test
+    void addToCart_WithHolds_ShouldHoldNewLineQuantity() {
+        // Given
+        User user = new User();
+        user.setId(1L);
+        testCartItem.setQuantity(1);
+
+        when(stockHoldService.isEnabled()).thenReturn(true);
+        when(stockHoldService.hold(1L, 1L, 3)).thenReturn(true);
+        when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(testCart));
+        when(cartItemRepository.findByUserIdAndProductId(1L, 1L)).thenReturn(Optional.of(testCartItem));
+        when(cartItemRepository.save(testCartItem)).thenReturn(testCartItem);
+
+        // When
+        cartService.addToCart(user, 1L, 2);
+
+        // Then
+        verify(stockHoldService).hold(1L, 1L, 3);
+        assertEquals(3, testCartItem.getQuantity());
+    }
+
+    @Test
+    void addToCart_WithHolds_HoldRejected_ThrowsException() {
+        // Given
+        User user = new User();
+        user.setId(1L);
+
+        when(stockHoldService.isEnabled()).thenReturn(true);
+        when(stockHoldService.hold(1L, 1L, 2)).thenReturn(false);
+        when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(testCart));
+        when(cartItemRepository.findByUserIdAndProductId(1L, 1L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(InsufficientStockException.class, () -> cartService.addToCart(user, 1L, 2));
+        verify(cartItemRepository, never()).save(any(CartItem.class));
+    }
+
+    @Test
+    void removeFromCart_WithHoldsDisabled_ShouldStillReleaseExistingHold() {
+        // Given
+        when(cartItemRepository.findById(1L)).thenReturn(Optional.of(testCartItem));
+
+        // When
+        cartService.removeFromCart(1L);
+
+        // Then
+        verify(stockHoldService).releaseHold(1L, 1L);
+        verify(cartItemRepository).deleteById(1L);
+    }
+
+    @Test
+    void clearCart_ShouldReleaseHolds() {
+        // When
+        cartService.clearCart(1L);
+
+        // Then
+        verify(stockHoldService).releaseAll(1L);
+    }
+
+    @Test
+    void getCartByUserId_WithWriteBehindStore_ShouldReadFromMemory() {
+        // Given
+        WriteBehindCartStore cartStore = mock(WriteBehindCartStore.class);
+        when(cartStoreProvider.getIfAvailable()).thenReturn(cartStore);
+        when(cartStore.getLines(1L)).thenReturn(List.of(
+                new WriteBehindCartStore.Line(5L, 1L, 1L, "Test Product", null, 3, new BigDecimal("29.99"))));
+
+        // When
+        CartResponse result = cartService.getCartByUserId(1L);
+
+        // Then
+        assertEquals(3, result.getTotalItems());
+        assertEquals(new BigDecimal("89.97"), result.getTotalAmount());
+        verify(cartItemRepository, never()).findByUserId(anyLong());
+    }
+
+    @Test
+    void removeFromCart_WithWriteBehindStore_ShouldRemoveLineInMemory() {
+        // Given
+        WriteBehindCartStore cartStore = mock(WriteBehindCartStore.class);
+        when(cartStoreProvider.getIfAvailable()).thenReturn(cartStore);
+        when(cartStore.removeLine(5L)).thenReturn(Optional.of(
+                new WriteBehindCartStore.Line(5L, 1L, 1L, "Test Product", null, 3, new BigDecimal("29.99"))));
+
+        // When
+        cartService.removeFromCart(5L);
+
+        // Then
+        verify(stockHoldService).releaseHold(1L, 1L);
+        verify(cartItemRepository, never()).deleteById(anyLong());
+    }
 }
@@ -0,0 +1,106 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.dto.CategoryFacetResponse;
+import com.gap.ecommerceapp.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryFacetServiceTest {
+
+    private CategoryFacetService categoryFacetService;
+
+    @BeforeEach
+    void setUp() {
+        categoryFacetService = new CategoryFacetService();
+        categoryFacetService.rebuild(List.of(
+                createProduct(1L, "Shoes", 10),
+                createProduct(2L, "Shoes", 0),
+                createProduct(3L, "Accessories", 5)
+        ));
+    }
+
+    @Test
+    void getFacets_ShouldCountTotalAndInStockPerCategory() {
+        List<CategoryFacetResponse> facets = categoryFacetService.getFacets();
+
+        assertEquals(2, facets.size());
+        assertFacet(facets.get(0), "Accessories", 1, 1);
+        assertFacet(facets.get(1), "Shoes", 2, 1);
+    }
+
+    @Test
+    void update_ShouldAdjustInStockCount_WhenStockRunsOut() {
+        categoryFacetService.update(createProduct(1L, "Shoes", 0));
+
+        assertFacet(categoryFacetService.getFacets().get(1), "Shoes", 2, 0);
+    }
+
+    @Test
+    void update_ShouldMoveProductBetweenCategories() {
+        categoryFacetService.update(createProduct(3L, "Shoes", 5));
+
+        List<CategoryFacetResponse> facets = categoryFacetService.getFacets();
+        assertEquals(1, facets.size());
+        assertFacet(facets.get(0), "Shoes", 3, 2);
+    }
+
+    @Test
+    void update_ShouldCountNewProduct_AndGroupMissingCategory() {
+        categoryFacetService.update(createProduct(4L, null, 3));
+
+        List<CategoryFacetResponse> facets = categoryFacetService.getFacets();
+        assertEquals(3, facets.size());
+        assertFacet(facets.get(2), CategoryFacetService.UNCATEGORIZED, 1, 1);
+    }
+
+    @Test
+    void update_ShouldBeIdempotent_ForUnchangedProduct() {
+        categoryFacetService.update(createProduct(1L, "Shoes", 8));
+
+        assertFacet(categoryFacetService.getFacets().get(1), "Shoes", 2, 1);
+    }
+
+    @Test
+    void updateStockLevel_ShouldFlipInStockCount() {
+        categoryFacetService.updateStockLevel(2L, 4);
+
+        assertFacet(categoryFacetService.getFacets().get(1), "Shoes", 2, 2);
+    }
+
+    @Test
+    void updateStockLevel_ShouldIgnoreUnknownProduct() {
+        categoryFacetService.updateStockLevel(99L, 4);
+
+        assertEquals(2, categoryFacetService.getFacets().size());
+    }
+
+    @Test
+    void remove_ShouldDropProductFromCounts() {
+        categoryFacetService.remove(3L);
+
+        List<CategoryFacetResponse> facets = categoryFacetService.getFacets();
+        assertEquals(1, facets.size());
+        assertEquals("Shoes", facets.get(0).getCategory());
+    }
+
+    private void assertFacet(CategoryFacetResponse facet, String category, int total, int inStock) {
+        assertEquals(category, facet.getCategory());
+        assertEquals(total, facet.getTotalProducts());
+        assertEquals(inStock, facet.getInStockProducts());
+    }
+
+    private Product createProduct(Long id, String category, int stockQuantity) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setCategory(category);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(stockQuantity);
+        return product;
+    }
+}
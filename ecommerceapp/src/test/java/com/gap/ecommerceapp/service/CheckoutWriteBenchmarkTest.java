@@ -0,0 +1,217 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.Order;
+import com.gap.ecommerceapp.model.OrderItem;
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.model.User;
+import com.gap.ecommerceapp.repository.OrderItemRepository;
+import com.gap.ecommerceapp.repository.OrderRepository;
+import com.gap.ecommerceapp.repository.ProductRepository;
+import com.gap.ecommerceapp.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compares the checkout write path before and after batching, for 1, 10 and 100-line carts:
+// "per-line" saves each order item and takes each product's stock on its own, flushing after every
+// item as IDENTITY ids forced; "batched" is what OrderService does now (saveAll + one batched update).
+// Excluded from the default build; run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:checkoutbenchmarkdb",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class CheckoutWriteBenchmarkTest {
+
+    private static final int[] CART_SIZES = {1, 10, 100};
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    private static final AtomicLong STATEMENTS = new AtomicLong();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void checkoutWrites_PerLineVersusBatched() {
+        User user = new User();
+        user.setName("Benchmark");
+        user.setEmail("benchmark@example.com");
+        user.setPassword("password");
+        User buyer = userRepository.save(user);
+
+        StringBuilder report = new StringBuilder(String.format("%n%-6s %-9s %12s %12s%n", "lines", "mode", "statements", "median ms"));
+        for (int lines : CART_SIZES) {
+            List<Product> products = createProducts(lines);
+            Result perLine = measure(() -> writePerLine(buyer, products));
+            Result batched = measure(() -> writeBatched(buyer, products));
+            report.append(String.format("%-6d %-9s %12d %12.3f%n", lines, "per-line", perLine.statements, perLine.medianMillis));
+            report.append(String.format("%-6d %-9s %12d %12.3f%n", lines, "batched", batched.statements, batched.medianMillis));
+
+            if (lines > 1) {
+                assertTrue(batched.statements < perLine.statements,
+                        lines + " lines: batched used " + batched.statements + " statements, per-line " + perLine.statements);
+            }
+        }
+        System.out.println(report);
+    }
+
+    private void writePerLine(User buyer, List<Product> products) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = saveOrder(buyer);
+            for (Product product : products) {
+                orderItemRepository.save(orderItem(order, product));
+                entityManager.flush();
+                assertTrue(productService.updateStock(product.getId(), 1));
+            }
+        });
+    }
+
+    private void writeBatched(User buyer, List<Product> products) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = saveOrder(buyer);
+            List<OrderItem> orderItems = new ArrayList<>(products.size());
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            for (Product product : products) {
+                orderItems.add(orderItem(order, product));
+                quantities.put(product.getId(), 1);
+            }
+            assertTrue(productService.updateStocks(quantities).isEmpty());
+            orderItemRepository.saveAll(orderItems);
+            entityManager.flush();
+        });
+    }
+
+    // Statements are counted for the last measured round, when every cache and id block is warm
+    private Result measure(Runnable write) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            write.run();
+        }
+        long[] nanos = new long[MEASURED_ROUNDS];
+        long statements = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long before = STATEMENTS.get();
+            long started = System.nanoTime();
+            write.run();
+            nanos[i] = System.nanoTime() - started;
+            statements = STATEMENTS.get() - before;
+        }
+        Arrays.sort(nanos);
+        return new Result(statements, nanos[MEASURED_ROUNDS / 2] / 1_000_000.0);
+    }
+
+    private Order saveOrder(User buyer) {
+        Order order = new Order();
+        order.setUser(buyer);
+        order.setOrderNumber("BENCH-" + UUID.randomUUID());
+        order.setTotalAmount(BigDecimal.TEN);
+        order.setStatus(Order.OrderStatus.PENDING);
+        return orderRepository.save(order);
+    }
+
+    private OrderItem orderItem(Order order, Product product) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setOrder(order);
+        orderItem.setProduct(product);
+        orderItem.setQuantity(1);
+        orderItem.setUnitPrice(product.getPrice());
+        return orderItem;
+    }
+
+    private List<Product> createProducts(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product();
+            product.setName("Benchmark product " + i);
+            product.setPrice(new BigDecimal("10.00"));
+            product.setStockQuantity(1_000_000);
+            products.add(product);
+        }
+        List<Product> saved = productRepository.saveAll(products);
+        productService.refreshCatalogIndexes(saved);
+        return saved;
+    }
+
+    private record Result(long statements, double medianMillis) {
+    }
+
+    // Counts every statement execution (a JDBC batch counts once) on connections from the pool
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? countingProxy(dataSource, DataSource.class) : bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T countingProxy(T target, Class<T> type) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    STATEMENTS.incrementAndGet();
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof Connection connection) {
+                    return countingProxy(connection, Connection.class);
+                }
+                if (result instanceof PreparedStatement statement) {
+                    return countingProxy(statement, PreparedStatement.class);
+                }
+                if (result instanceof Statement statement) {
+                    return countingProxy(statement, Statement.class);
+                }
+                return result;
+            });
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.gap.ecommerceapp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private MutableClock clock;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T12:00:00Z"));
+        // Window of 4 calls, judged once 4 have been seen, opens at 50% failures
+        circuitBreaker = new CircuitBreaker(4, 4, 0.5, Duration.ofSeconds(10), 2, clock);
+    }
+
+    @Test
+    void staysClosed_BelowMinimumCalls() {
+        // When
+        fail(3);
+
+        // Then
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+        assertNotEquals(CircuitBreaker.NOT_PERMITTED, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void opensAtFailureRateThreshold_AndRejectsCalls() {
+        // When
+        succeed(2);
+        fail(2);
+
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertEquals(CircuitBreaker.NOT_PERMITTED, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void oldOutcomesLeaveTheWindow() {
+        // Given - two failures, then enough successes to push them out
+        fail(1);
+        succeed(3);
+        fail(1);
+
+        // Then - the window now holds 3 successes and 1 failure
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+    }
+
+    @Test
+    void halfOpenAfterOpenDuration_ClosesWhenProbesSucceed() {
+        // Given
+        fail(4);
+        clock.advance(Duration.ofSeconds(10));
+
+        // When - two probes are let through, a third caller is not
+        long first = circuitBreaker.tryAcquire();
+        long second = circuitBreaker.tryAcquire();
+        long third = circuitBreaker.tryAcquire();
+
+        // Then
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+        assertNotEquals(CircuitBreaker.NOT_PERMITTED, first);
+        assertNotEquals(CircuitBreaker.NOT_PERMITTED, second);
+        assertEquals(CircuitBreaker.NOT_PERMITTED, third);
+
+        circuitBreaker.onSuccess(first);
+        circuitBreaker.onSuccess(second);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+    }
+
+    @Test
+    void halfOpenProbeFailure_ReopensCircuit() {
+        // Given
+        fail(4);
+        clock.advance(Duration.ofSeconds(10));
+        long probe = circuitBreaker.tryAcquire();
+
+        // When
+        circuitBreaker.onFailure(probe);
+
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertEquals(CircuitBreaker.NOT_PERMITTED, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void callsFromBeforeATransition_DoNotCount() {
+        // Given - a call starts while closed, the circuit then opens and moves to half-open
+        long stale = circuitBreaker.tryAcquire();
+        fail(4);
+        clock.advance(Duration.ofSeconds(10));
+        long probe = circuitBreaker.tryAcquire();
+
+        // When
+        circuitBreaker.onFailure(stale);
+
+        // Then
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+        circuitBreaker.onIgnored(probe);
+        assertNotEquals(CircuitBreaker.NOT_PERMITTED, circuitBreaker.tryAcquire());
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            circuitBreaker.onSuccess(circuitBreaker.tryAcquire());
+        }
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
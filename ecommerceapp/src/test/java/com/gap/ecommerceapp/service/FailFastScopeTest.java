@@ -0,0 +1,84 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailFastScopeTest {
+
+    @Test
+    void join_RunsForksConcurrently_AndReturnsTheirResults() {
+        // Given - each fork waits for the other, so they only finish if both run at once
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Supplier<String> first;
+        Supplier<Integer> second;
+
+        // When
+        try (FailFastScope scope = new FailFastScope()) {
+            first = scope.fork(() -> {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                return "user";
+            });
+            second = scope.fork(() -> {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                return 42;
+            });
+            scope.join(Duration.ofSeconds(5));
+        }
+
+        // Then
+        assertEquals("user", first.get());
+        assertEquals(42, second.get());
+    }
+
+    @Test
+    void join_FirstFailureIsRethrownAsIs_AndInterruptsTheOtherForks() throws InterruptedException {
+        // Given
+        CountDownLatch slowInterrupted = new CountDownLatch(1);
+        long started = System.nanoTime();
+
+        // When
+        ResourceNotFoundException thrown = assertThrows(ResourceNotFoundException.class, () -> {
+            try (FailFastScope scope = new FailFastScope()) {
+                scope.fork(() -> {
+                    try {
+                        Thread.sleep(Duration.ofSeconds(30));
+                    } catch (InterruptedException e) {
+                        slowInterrupted.countDown();
+                        throw e;
+                    }
+                    return null;
+                });
+                scope.fork(() -> {
+                    throw new ResourceNotFoundException("Product not found with id: 1");
+                });
+                scope.join(Duration.ofSeconds(30));
+            }
+        });
+
+        // Then
+        assertEquals("Product not found with id: 1", thrown.getMessage());
+        assertTrue(slowInterrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    void join_Timeout_ThrowsException() {
+        try (FailFastScope scope = new FailFastScope()) {
+            scope.fork(() -> {
+                Thread.sleep(Duration.ofSeconds(30));
+                return null;
+            });
+
+            assertThrows(IllegalStateException.class, () -> scope.join(Duration.ofMillis(50)));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.gap.ecommerceapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gap.ecommerceapp.dto.CheckoutRequest;
+import com.gap.ecommerceapp.dto.OrderResponse;
+import com.gap.ecommerceapp.exception.RequestInProgressException;
+import com.gap.ecommerceapp.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotencyclaimdb",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class IdempotencyClaimTest {
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void twoInstancesWithOneKey_RunTheRequestOnce() throws Exception {
+        // Two services over one database stand in for two application instances
+        IdempotencyService nodeA = newInstance();
+        IdempotencyService nodeB = newInstance();
+        CheckoutRequest request = new CheckoutRequest();
+        request.setUserId(1L);
+        request.setBankAccountNumber("1234567890");
+        OrderResponse response = OrderResponse.builder().orderId(9L).status("CONFIRMED").build();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<OrderResponse> first = executor.submit(() -> nodeA.execute("key-1", "checkout", request, () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return response;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertThrows(RequestInProgressException.class, () -> nodeB.execute("key-1", "checkout", request, () -> {
+                runs.incrementAndGet();
+                return response;
+            }));
+
+            release.countDown();
+            assertEquals(9L, first.get(5, TimeUnit.SECONDS).getOrderId());
+            OrderResponse replayed = nodeB.execute("key-1", "checkout", request, () -> {
+                runs.incrementAndGet();
+                return response;
+            });
+
+            assertEquals(9L, replayed.getOrderId());
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedRequest_ReleasesTheKeyForOtherInstances() {
+        IdempotencyService nodeA = newInstance();
+        IdempotencyService nodeB = newInstance();
+        CheckoutRequest request = new CheckoutRequest();
+        request.setUserId(2L);
+        request.setBankAccountNumber("1234567890");
+        OrderResponse response = OrderResponse.builder().orderId(10L).status("CONFIRMED").build();
+
+        assertThrows(IllegalStateException.class, () -> nodeA.execute("key-2", "checkout", request, () -> {
+            throw new IllegalStateException("payment declined");
+        }));
+
+        assertSame(response, nodeB.execute("key-2", "checkout", request, () -> response));
+        assertNotNull(idempotencyRecordRepository.findById("checkout:key-2").orElseThrow().getResponseBody());
+    }
+
+    private IdempotencyService newInstance() {
+        return new IdempotencyService(idempotencyRecordRepository, objectMapper, 100, Duration.ofHours(24), Clock.systemDefaultZone());
+    }
+}
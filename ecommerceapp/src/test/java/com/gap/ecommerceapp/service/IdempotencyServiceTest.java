@@ -0,0 +1,235 @@
+package com.gap.ecommerceapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gap.ecommerceapp.dto.CheckoutRequest;
+import com.gap.ecommerceapp.dto.OrderResponse;
+import com.gap.ecommerceapp.exception.InsufficientStockException;
+import com.gap.ecommerceapp.exception.RequestInProgressException;
+import com.gap.ecommerceapp.model.IdempotencyRecord;
+import com.gap.ecommerceapp.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Clock clock = Clock.fixed(Instant.parse("2025-01-01T12:00:00Z"), ZoneId.systemDefault());
+    private IdempotencyService idempotencyService;
+    private CheckoutRequest request;
+    private OrderResponse response;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, objectMapper, 2, Duration.ofHours(24), clock);
+        request = new CheckoutRequest();
+        request.setUserId(1L);
+        request.setBankAccountNumber("1234567890");
+        response = OrderResponse.builder()
+                .orderId(5L)
+                .orderNumber("ORD-5")
+                .userId(1L)
+                .totalAmount(new BigDecimal("59.98"))
+                .status("CONFIRMED")
+                .createdAt(LocalDateTime.now(clock))
+                .build();
+        lenient().when(idempotencyRecordRepository.findById(anyString())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void execute_ShouldRunActionOnce_AndReplayFromMemory() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+
+        // When
+        OrderResponse first = idempotencyService.execute("key-1", "checkout", request, () -> {
+            runs.incrementAndGet();
+            return response;
+        });
+        OrderResponse second = idempotencyService.execute("key-1", "checkout", request, () -> {
+            runs.incrementAndGet();
+            return response;
+        });
+
+        // Then
+        assertEquals(1, runs.get());
+        assertSame(first, second);
+        ArgumentCaptor<IdempotencyRecord> stored = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).insertClaim(eq("checkout:key-1"), anyString(), eq(LocalDateTime.now(clock)));
+        verify(idempotencyRecordRepository).save(stored.capture());
+        assertEquals("checkout:key-1", stored.getValue().getRecordKey());
+    }
+
+    @Test
+    void execute_ShouldJoinInFlightDuplicate() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // When
+            Future<OrderResponse> first = executor.submit(() -> idempotencyService.execute("key-1", "checkout", request, () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                await(release);
+                return response;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<OrderResponse> duplicate = executor.submit(() -> idempotencyService.execute("key-1", "checkout", request, () -> {
+                runs.incrementAndGet();
+                return response;
+            }));
+            Thread.sleep(50);
+            assertFalse(duplicate.isDone());
+            release.countDown();
+
+            // Then
+            assertEquals(5L, first.get(5, TimeUnit.SECONDS).getOrderId());
+            assertEquals(5L, duplicate.get(5, TimeUnit.SECONDS).getOrderId());
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_ShouldReplayStoredResponse_AfterRestart() throws Exception {
+        // Given
+        IdempotencyService first = new IdempotencyService(idempotencyRecordRepository, objectMapper, 2, Duration.ofHours(24), clock);
+        first.execute("key-1", "checkout", request, () -> response);
+        ArgumentCaptor<IdempotencyRecord> stored = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).save(stored.capture());
+        when(idempotencyRecordRepository.insertClaim(eq("checkout:key-1"), anyString(), any(LocalDateTime.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(idempotencyRecordRepository.findById("checkout:key-1")).thenReturn(Optional.of(stored.getValue()));
+
+        // When
+        OrderResponse replayed = idempotencyService.execute("key-1", "checkout", request, () -> {
+            throw new AssertionError("must not run again");
+        });
+
+        // Then
+        assertEquals(5L, replayed.getOrderId());
+        assertEquals("CONFIRMED", replayed.getStatus());
+        assertEquals(response.getCreatedAt(), replayed.getCreatedAt());
+    }
+
+    @Test
+    void execute_ShouldNotRun_WhileAnotherInstanceHoldsTheKey() {
+        // Given
+        IdempotencyRecord claim = new IdempotencyRecord("checkout:key-1", null, null, LocalDateTime.now(clock));
+        when(idempotencyRecordRepository.insertClaim(eq("checkout:key-1"), anyString(), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> {
+                    claim.setRequestHash(invocation.getArgument(1));
+                    throw new DataIntegrityViolationException("duplicate key");
+                });
+        when(idempotencyRecordRepository.findById("checkout:key-1")).thenReturn(Optional.of(claim));
+
+        // When & Then
+        assertThrows(RequestInProgressException.class, () -> idempotencyService.execute("key-1", "checkout", request, () -> {
+            throw new AssertionError("must not run while another instance holds the key");
+        }));
+        verify(idempotencyRecordRepository, never()).deleteClaim(anyString());
+        verify(idempotencyRecordRepository, never()).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void execute_ShouldClaimAgain_WhenStoredRecordExpired() {
+        // Given
+        LocalDateTime now = LocalDateTime.now(clock);
+        IdempotencyRecord expired = new IdempotencyRecord("checkout:key-1", "other", null, now.minusDays(2));
+        when(idempotencyRecordRepository.insertClaim(eq("checkout:key-1"), anyString(), any(LocalDateTime.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenReturn(1);
+        when(idempotencyRecordRepository.findById("checkout:key-1")).thenReturn(Optional.of(expired));
+
+        // When
+        OrderResponse result = idempotencyService.execute("key-1", "checkout", request, () -> response);
+
+        // Then
+        assertSame(response, result);
+        verify(idempotencyRecordRepository).deleteExpired("checkout:key-1", now.minusHours(24));
+    }
+
+    @Test
+    void execute_ShouldRejectKeyReusedForDifferentRequest() {
+        // Given
+        idempotencyService.execute("key-1", "checkout", request, () -> response);
+        CheckoutRequest other = new CheckoutRequest();
+        other.setUserId(2L);
+        other.setBankAccountNumber("1234567890");
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.execute("key-1", "checkout", other, () -> response));
+    }
+
+    @Test
+    void execute_ShouldForgetFailures_SoTheClientCanRetry() {
+        // Given
+        assertThrows(InsufficientStockException.class, () -> idempotencyService.execute("key-1", "checkout", request, () -> {
+            throw new InsufficientStockException("Insufficient stock");
+        }));
+
+        // When
+        OrderResponse retried = idempotencyService.execute("key-1", "checkout", request, () -> response);
+
+        // Then
+        assertSame(response, retried);
+        verify(idempotencyRecordRepository).deleteClaim("checkout:key-1");
+        verify(idempotencyRecordRepository, times(2)).insertClaim(eq("checkout:key-1"), anyString(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void execute_ShouldRunDirectly_WithoutKey() {
+        // When
+        OrderResponse result = idempotencyService.execute(null, "checkout", request, () -> response);
+
+        // Then
+        assertSame(response, result);
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void execute_ShouldRejectOverlongKey() {
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.execute("k".repeat(101), "checkout", request, () -> response));
+    }
+
+    @Test
+    void purgeExpiredRecords_ShouldDeleteRecordsPastRetention() {
+        // When
+        idempotencyService.purgeExpiredRecords();
+
+        // Then
+        verify(idempotencyRecordRepository).deleteCreatedBefore(LocalDateTime.now(clock).minusHours(24));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.client.BankServiceClient;
+import com.gap.ecommerceapp.dto.SettlementRequest;
+import com.gap.ecommerceapp.dto.SettlementResponse;
+import com.gap.ecommerceapp.model.PendingSettlement;
+import com.gap.ecommerceapp.repository.PendingSettlementRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MerchantSettlementServiceTest {
+
+    @Mock
+    private PendingSettlementRepository pendingSettlementRepository;
+
+    @Mock
+    private BankServiceClient bankServiceClient;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2025-01-01T12:00:00Z"), ZoneId.systemDefault());
+    private MerchantSettlementService merchantSettlementService;
+
+    @BeforeEach
+    void setUp() {
+        merchantSettlementService = new MerchantSettlementService(pendingSettlementRepository, bankServiceClient, "batched", 10, clock);
+    }
+
+    @Test
+    void enqueue_ShouldStoreDebitForNextBatch() {
+        // When
+        merchantSettlementService.enqueue("42", "1349885778", new BigDecimal("59.98"));
+
+        // Then
+        ArgumentCaptor<PendingSettlement> saved = ArgumentCaptor.forClass(PendingSettlement.class);
+        verify(pendingSettlementRepository).save(saved.capture());
+        assertEquals(42L, saved.getValue().getDebitTransactionId());
+        assertEquals("1349885778", saved.getValue().getMerchantAccountNumber());
+        assertEquals(new BigDecimal("59.98"), saved.getValue().getAmount());
+        verifyNoInteractions(bankServiceClient);
+    }
+
+    @Test
+    void enqueue_DebitAlreadyQueued_KeepsTheQueuedRow() {
+        // Given
+        when(pendingSettlementRepository.existsById(42L)).thenReturn(true);
+
+        // When
+        merchantSettlementService.enqueue("42", "1349885778", new BigDecimal("59.98"));
+
+        // Then
+        verify(pendingSettlementRepository, never()).save(any(PendingSettlement.class));
+    }
+
+    @Test
+    void settleBatch_ShouldSettleOnceAndDeleteSettledDebits() {
+        // Given
+        when(pendingSettlementRepository.findOldest(any(Pageable.class)))
+                .thenReturn(List.of(pending(1L, "10.00"), pending(2L, "15.50")));
+        when(bankServiceClient.settle(any(SettlementRequest.class)))
+                .thenReturn(ResponseEntity.ok(new SettlementResponse(99L, 2, new BigDecimal("25.50"), 0, List.of())));
+
+        // When
+        int read = merchantSettlementService.settleBatch();
+
+        // Then
+        assertEquals(2, read);
+        ArgumentCaptor<SettlementRequest> request = ArgumentCaptor.forClass(SettlementRequest.class);
+        verify(bankServiceClient, times(1)).settle(request.capture());
+        assertEquals("1349885778", request.getValue().getToAccountNumber());
+        assertEquals(List.of(1L, 2L), request.getValue().getDebitTransactionIds());
+        verify(pendingSettlementRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+    }
+
+    @Test
+    void settleBatch_BankUnavailable_KeepsDebitsForNextRun() {
+        // Given
+        when(pendingSettlementRepository.findOldest(any(Pageable.class))).thenReturn(List.of(pending(1L, "10.00")));
+        when(bankServiceClient.settle(any(SettlementRequest.class))).thenThrow(new RuntimeException("Connection refused"));
+
+        // When
+        int read = merchantSettlementService.settleBatch();
+
+        // Then
+        assertEquals(0, read);
+        verify(pendingSettlementRepository, never()).deleteAllByIdInBatch(anyList());
+    }
+
+    @Test
+    void settle_NothingPending_DoesNotCallBank() {
+        // Given
+        when(pendingSettlementRepository.findOldest(any(Pageable.class))).thenReturn(List.of());
+
+        // When
+        merchantSettlementService.settle();
+
+        // Then
+        verifyNoInteractions(bankServiceClient);
+    }
+
+    @Test
+    void constructor_UnknownMode_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MerchantSettlementService(pendingSettlementRepository, bankServiceClient, "weekly", 10, clock));
+    }
+
+    private PendingSettlement pending(Long debitId, String amount) {
+        return new PendingSettlement(debitId, "1349885778", new BigDecimal(amount), LocalDateTime.now(clock));
+    }
+}
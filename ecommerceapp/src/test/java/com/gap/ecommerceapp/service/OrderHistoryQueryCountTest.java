@@ -0,0 +1,115 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.dto.OrderHistoryResponse;
+import com.gap.ecommerceapp.model.Order;
+import com.gap.ecommerceapp.model.OrderItem;
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.model.User;
+import com.gap.ecommerceapp.repository.OrderItemRepository;
+import com.gap.ecommerceapp.repository.OrderRepository;
+import com.gap.ecommerceapp.repository.ProductRepository;
+import com.gap.ecommerceapp.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Guards the order history against N+1 regressions: a page costs one summary query, plus one
+// item query when items are requested, however many orders and items it holds
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orderhistoryquerycountdb",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "eureka.client.enabled=false",
+        "ecommerce.scheduling.enabled=false"
+})
+class OrderHistoryQueryCountTest {
+
+    private static final int ORDERS = 25;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void getOrderHistory_ShouldPageInFixedNumberOfStatements() {
+        // Given
+        User user = new User();
+        user.setName("Order History");
+        user.setEmail("order.history@example.com");
+        user.setPassword("password");
+        user = userRepository.save(user);
+
+        Product product = new Product();
+        product.setName("Tee");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(100);
+        product = productRepository.save(product);
+
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUser(user);
+            order.setOrderNumber("ORD-HISTORY-" + i);
+            order.setTotalAmount(new BigDecimal("30.00"));
+            order.setStatus(Order.OrderStatus.CONFIRMED);
+            order = orderRepository.save(order);
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                OrderItem orderItem = new OrderItem();
+                orderItem.setOrder(order);
+                orderItem.setProduct(product);
+                orderItem.setQuantity(1);
+                orderItem.setUnitPrice(product.getPrice());
+                orderItemRepository.save(orderItem);
+            }
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            OrderHistoryResponse page = orderService.getOrderHistory(user.getId(), cursor, 10, true);
+            page.getOrders().forEach(order -> {
+                assertTrue(seen.add(order.getOrderId()), "Order " + order.getOrderId() + " returned twice");
+                assertEquals(ITEMS_PER_ORDER, order.getOrderItems().size());
+            });
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertEquals(ORDERS, seen.size());
+        assertEquals(3, pages);
+        assertTrue(statistics.getPrepareStatementCount() <= pages * 2L,
+                "Order history used " + statistics.getPrepareStatementCount() + " statements for " + pages + " pages");
+    }
+}
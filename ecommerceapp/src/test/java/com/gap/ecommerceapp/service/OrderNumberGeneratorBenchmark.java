@@ -0,0 +1,57 @@
+package com.gap.ecommerceapp.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// JMH comparison of the old timestamp + UUID order numbers with the Snowflake generator, single
+// threaded and with 8 threads sharing one generator; the GC profiler reports bytes allocated per
+// number (gc.alloc.rate.norm). Excluded from the default build; run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderNumberGeneratorBenchmark {
+
+    private final UuidOrderNumberGenerator uuid = new UuidOrderNumberGenerator();
+    private final SnowflakeOrderNumberGenerator snowflake = new SnowflakeOrderNumberGenerator(1);
+
+    @Benchmark
+    public String uuidScheme() {
+        return uuid.next();
+    }
+
+    @Benchmark
+    public String snowflake() {
+        return snowflake.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uuidScheme_8Threads() {
+        return uuid.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String snowflake_8Threads() {
+        return snowflake.next();
+    }
+
+    @Test
+    void runBenchmarks() throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(OrderNumberGeneratorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
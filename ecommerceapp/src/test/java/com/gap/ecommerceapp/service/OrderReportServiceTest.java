@@ -0,0 +1,165 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.dto.MonthlyOrderReport;
+import com.gap.ecommerceapp.model.Order;
+import com.gap.ecommerceapp.model.OrderMonthlyRollup;
+import com.gap.ecommerceapp.repository.OrderMonthlyRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderReportServiceTest {
+
+    private static final LocalDate MARCH = LocalDate.of(2025, 3, 1);
+    private static final LocalDateTime PLACED_IN_MARCH = LocalDateTime.of(2025, 3, 14, 10, 30);
+
+    @Mock
+    private OrderMonthlyRollupRepository rollupRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2025-06-15T12:00:00Z"), ZoneId.systemDefault());
+    private OrderReportService orderReportService;
+
+    @BeforeEach
+    void setUp() {
+        orderReportService = new OrderReportService(rollupRepository, transactionManager, clock);
+    }
+
+    @Test
+    void recordOutcome_Confirmed_IncrementsUserAndGlobalRows() {
+        // Given
+        when(rollupRepository.increment(anyLong(), eq(MARCH), eq(1L), eq(0L), any(BigDecimal.class), eq(3L))).thenReturn(1);
+
+        // When
+        orderReportService.recordOutcome(7L, PLACED_IN_MARCH, Order.OrderStatus.CONFIRMED, new BigDecimal("89.97"), 3);
+
+        // Then
+        verify(rollupRepository).increment(7L, MARCH, 1L, 0L, new BigDecimal("89.97"), 3L);
+        verify(rollupRepository).increment(OrderMonthlyRollup.GLOBAL_USER_ID, MARCH, 1L, 0L, new BigDecimal("89.97"), 3L);
+        verify(rollupRepository, never()).saveAndFlush(any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void recordOutcome_PaymentFailed_CountsOrderWithoutRevenue() {
+        // Given
+        when(rollupRepository.increment(anyLong(), eq(MARCH), eq(0L), eq(1L), eq(BigDecimal.ZERO), eq(0L))).thenReturn(1);
+
+        // When
+        orderReportService.recordOutcome(7L, PLACED_IN_MARCH, Order.OrderStatus.PAYMENT_FAILED, new BigDecimal("89.97"), 3);
+
+        // Then
+        verify(rollupRepository).increment(7L, MARCH, 0L, 1L, BigDecimal.ZERO, 0L);
+        verify(rollupRepository).increment(OrderMonthlyRollup.GLOBAL_USER_ID, MARCH, 0L, 1L, BigDecimal.ZERO, 0L);
+    }
+
+    @Test
+    void recordOutcome_OtherStatus_IsIgnored() {
+        // When
+        orderReportService.recordOutcome(7L, PLACED_IN_MARCH, Order.OrderStatus.PENDING, new BigDecimal("89.97"), 3);
+
+        // Then
+        verifyNoInteractions(rollupRepository);
+    }
+
+    @Test
+    void recordOutcome_FirstOrderOfMonth_CreatesRowInOwnTransactionThenIncrements() {
+        // Given - the user's row is missing, the global row exists
+        when(rollupRepository.increment(eq(7L), eq(MARCH), eq(1L), eq(0L), any(BigDecimal.class), eq(1L)))
+                .thenReturn(0, 1);
+        when(rollupRepository.increment(eq(OrderMonthlyRollup.GLOBAL_USER_ID), eq(MARCH), eq(1L), eq(0L), any(BigDecimal.class), eq(1L)))
+                .thenReturn(1);
+        when(rollupRepository.existsByUserIdAndMonthStart(7L, MARCH)).thenReturn(false);
+
+        // When
+        orderReportService.recordOutcome(7L, PLACED_IN_MARCH, Order.OrderStatus.CONFIRMED, new BigDecimal("29.99"), 1);
+
+        // Then
+        ArgumentCaptor<OrderMonthlyRollup> created = ArgumentCaptor.forClass(OrderMonthlyRollup.class);
+        verify(rollupRepository).saveAndFlush(created.capture());
+        assertEquals(7L, created.getValue().getUserId());
+        assertEquals(MARCH, created.getValue().getMonthStart());
+        assertEquals(0L, created.getValue().getOrderCount());
+        verify(transactionManager).commit(any());
+        verify(rollupRepository, times(2)).increment(7L, MARCH, 1L, 0L, new BigDecimal("29.99"), 1L);
+    }
+
+    @Test
+    void recordOutcome_RowCreatedConcurrently_StillIncrements() {
+        // Given
+        when(rollupRepository.increment(eq(7L), eq(MARCH), eq(1L), eq(0L), any(BigDecimal.class), eq(1L)))
+                .thenReturn(0, 1);
+        when(rollupRepository.increment(eq(OrderMonthlyRollup.GLOBAL_USER_ID), eq(MARCH), eq(1L), eq(0L), any(BigDecimal.class), eq(1L)))
+                .thenReturn(1);
+        when(rollupRepository.existsByUserIdAndMonthStart(7L, MARCH)).thenReturn(false);
+        when(rollupRepository.saveAndFlush(any(OrderMonthlyRollup.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // When
+        orderReportService.recordOutcome(7L, PLACED_IN_MARCH, Order.OrderStatus.CONFIRMED, new BigDecimal("29.99"), 1);
+
+        // Then
+        verify(transactionManager).rollback(any());
+        verify(rollupRepository, times(2)).increment(7L, MARCH, 1L, 0L, new BigDecimal("29.99"), 1L);
+    }
+
+    @Test
+    void getUserMonthlyReports_FillsMissingMonthsWithZeros() {
+        // Given
+        OrderMonthlyRollup march = new OrderMonthlyRollup(1L, 7L, MARCH, 3L, 2L, 1L, new BigDecimal("100.00"), 5L);
+        when(rollupRepository.findByUserIdAndMonthStartBetweenOrderByMonthStart(7L, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 4, 1)))
+                .thenReturn(List.of(march));
+
+        // When
+        List<MonthlyOrderReport> reports = orderReportService.getUserMonthlyReports(7L, YearMonth.of(2025, 2), YearMonth.of(2025, 4));
+
+        // Then
+        assertEquals(List.of("2025-02", "2025-03", "2025-04"), reports.stream().map(MonthlyOrderReport::getMonth).toList());
+        assertEquals(0L, reports.get(0).getOrderCount());
+        assertEquals(3L, reports.get(1).getOrderCount());
+        assertEquals(new BigDecimal("100.00"), reports.get(1).getRevenue());
+        assertEquals(new BigDecimal("50.00"), reports.get(1).getAverageOrderValue());
+        assertEquals(BigDecimal.ZERO, reports.get(2).getRevenue());
+    }
+
+    @Test
+    void getGlobalMonthlyReports_DefaultsToLastTwelveMonths() {
+        // Given
+        when(rollupRepository.findByUserIdAndMonthStartBetweenOrderByMonthStart(
+                OrderMonthlyRollup.GLOBAL_USER_ID, LocalDate.of(2024, 7, 1), LocalDate.of(2025, 6, 1)))
+                .thenReturn(List.of());
+
+        // When
+        List<MonthlyOrderReport> reports = orderReportService.getGlobalMonthlyReports(null, null);
+
+        // Then
+        assertEquals(12, reports.size());
+        assertEquals("2024-07", reports.get(0).getMonth());
+        assertEquals("2025-06", reports.get(11).getMonth());
+    }
+
+    @Test
+    void getUserMonthlyReports_InvalidRange_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> orderReportService.getUserMonthlyReports(7L, YearMonth.of(2025, 5), YearMonth.of(2025, 4)));
+        assertThrows(IllegalArgumentException.class,
+                () -> orderReportService.getUserMonthlyReports(7L, YearMonth.of(2010, 1), YearMonth.of(2025, 4)));
+        verifyNoInteractions(rollupRepository);
+    }
+}
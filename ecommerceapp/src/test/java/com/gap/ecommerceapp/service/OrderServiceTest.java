@@ -1,25 +1,37 @@
 package com.gap.ecommerceapp.service;
 
-import com.gap.ecommerceapp.client.BankServiceClient;
 import com.gap.ecommerceapp.dto.*;
 import com.gap.ecommerceapp.exception.InsufficientStockException;
 import com.gap.ecommerceapp.exception.ResourceNotFoundException;
 import com.gap.ecommerceapp.model.*;
 import com.gap.ecommerceapp.repository.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -44,7 +56,34 @@ class OrderServiceTest {
     private UserService userService;
 
     @Mock
-    private BankServiceClient bankServiceClient;
+    private PaymentGateway paymentGateway;
+
+    @Mock
+    private StockHoldService stockHoldService;
+
+    @Mock
+    private ObjectProvider<WriteBehindCartStore> cartStoreProvider;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private OrderReportService orderReportService;
+
+    @Mock
+    private MerchantSettlementService merchantSettlementService;
+
+    @Mock
+    private OrderNumberGenerator orderNumberGenerator;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
 
     @InjectMocks
     private OrderService orderService;
@@ -100,6 +139,8 @@ class OrderServiceTest {
         buyNowRequest.setProductId(1L);
         buyNowRequest.setQuantity(2);
         buyNowRequest.setBankAccountNumber("1234567890");
+
+        transactionTemplate.setTransactionManager(transactionManager);
     }
 
     @Test
@@ -132,6 +173,328 @@ class OrderServiceTest {
         assertThrows(InsufficientStockException.class, () -> orderService.checkout(checkoutRequest));
     }
 
+    @Test
+    void checkout_ShouldClaimHeldStock_AndTakeOnlyTheRest() {
+        // Given
+        testProduct.setStockQuantity(1); // Only enough because one unit is already held for the cart
+        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(cartItemRepository.findByUserId(1L)).thenReturn(Arrays.asList(testCartItem));
+        when(stockHoldService.getHeldQuantity(1L, 1L)).thenReturn(1);
+        when(stockHoldService.claim(1L, 1L)).thenReturn(1);
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(productService.updateStocks(Map.of(1L, 1))).thenReturn(List.of(1L));
+
+        // When & Then
+        assertThrows(InsufficientStockException.class, () -> orderService.checkout(checkoutRequest));
+        verify(productService).updateStocks(Map.of(1L, 1));
+        verify(orderItemRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void checkout_Success_PaysBetweenTwoTransactions() {
+        // Given
+        stubCheckoutUpToPayment();
+        when(paymentGateway.transfer(any(TransferRequest.class)))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.SUCCESS, "42", null));
+
+        // When
+        OrderResponse result = orderService.checkout(checkoutRequest);
+
+        // Then
+        assertEquals("CONFIRMED", result.getStatus());
+        assertEquals("42", result.getPaymentTransactionId());
+        InOrder stages = inOrder(transactionManager, paymentGateway, outboxService);
+        stages.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        stages.verify(transactionManager).commit(any());
+        stages.verify(paymentGateway).transfer(any(TransferRequest.class));
+        stages.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        // The order event is written to the outbox inside the finalize transaction
+        stages.verify(outboxService).enqueue(eq("orders"), eq(1L), any(OrderResponse.class));
+        stages.verify(transactionManager).commit(any());
+        verify(cartItemRepository).deleteByUserId(1L);
+        verify(orderReportService).recordOutcome(1L, testOrder.getCreatedAt(), Order.OrderStatus.CONFIRMED,
+                new BigDecimal("59.98"), 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkout_SavesAllOrderItemsAndTakesAllStockInOneCall() {
+        // Given
+        Product jeans = new Product();
+        jeans.setId(2L);
+        jeans.setName("Jeans");
+        jeans.setPrice(new BigDecimal("59.99"));
+        jeans.setStockQuantity(10);
+        CartItem jeansItem = new CartItem();
+        jeansItem.setId(2L);
+        jeansItem.setProduct(jeans);
+        jeansItem.setQuantity(1);
+        jeansItem.setUnitPrice(new BigDecimal("59.99"));
+
+        testOrder.setStatus(Order.OrderStatus.PENDING);
+        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(cartItemRepository.findByUserId(1L)).thenReturn(Arrays.asList(testCartItem, jeansItem));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testOrder));
+        when(productService.updateStocks(Map.of(1L, 2, 2L, 1))).thenReturn(List.of());
+        when(paymentGateway.transfer(any(TransferRequest.class)))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.ERROR, null, "Bank down"));
+
+        // When
+        orderService.checkout(checkoutRequest);
+
+        // Then
+        ArgumentCaptor<List<OrderItem>> saved = ArgumentCaptor.forClass(List.class);
+        verify(orderItemRepository).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        verify(orderItemRepository, never()).save(any(OrderItem.class));
+        verify(productService, never()).updateStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void checkout_BatchedSettlement_DebitsCustomerAndQueuesMerchantCredit() {
+        // Given
+        stubCheckoutUpToPayment();
+        when(merchantSettlementService.isBatched()).thenReturn(true);
+        when(paymentGateway.debit(any(TransferRequest.class)))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.SUCCESS, "42", null));
+
+        // When
+        OrderResponse result = orderService.checkout(checkoutRequest);
+
+        // Then
+        assertEquals("CONFIRMED", result.getStatus());
+        verify(paymentGateway, never()).transfer(any(TransferRequest.class));
+        verify(merchantSettlementService).enqueue("42", "1349885778", new BigDecimal("59.98"));
+    }
+
+    @Test
+    void checkout_PaymentFailed_KeepsCartAndReleasesStock() {
+        // Given
+        stubCheckoutUpToPayment();
+        when(paymentGateway.transfer(any(TransferRequest.class)))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.DECLINED, null, "HTTP 400"));
+
+        // When
+        OrderResponse result = orderService.checkout(checkoutRequest);
+
+        // Then
+        assertEquals("PAYMENT_FAILED", result.getStatus());
+        verify(productService).releaseStocks(Map.of(1L, 2));
+        verify(cartItemRepository, never()).deleteByUserId(anyLong());
+        verifyNoInteractions(outboxService);
+        verify(orderReportService).recordOutcome(1L, testOrder.getCreatedAt(), Order.OrderStatus.PAYMENT_FAILED,
+                new BigDecimal("59.98"), 2);
+    }
+
+    @Test
+    void checkout_PaymentTimedOut_KeepsStockAndCartUntilReconciled() {
+        // Given - the bank may have moved the money before the read timed out
+        stubCheckoutUpToPayment();
+        when(paymentGateway.transfer(any(TransferRequest.class)))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.TIMEOUT, null, "Bank did not answer in time"));
+
+        // When
+        OrderResponse result = orderService.checkout(checkoutRequest);
+
+        // Then
+        assertEquals("PAYMENT_UNKNOWN", result.getStatus());
+        ArgumentCaptor<TransferRequest> sent = ArgumentCaptor.forClass(TransferRequest.class);
+        verify(paymentGateway).transfer(sent.capture());
+        assertEquals("ORD-123456", sent.getValue().getReference());
+        verify(productService, never()).releaseStocks(anyMap());
+        verify(cartItemRepository, never()).deleteByUserId(anyLong());
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void reconcilePayments_PaymentFound_ConfirmsOrderWithoutTouchingCart() {
+        // Given
+        stubUnknownPayment();
+        when(paymentGateway.findPayment("ORD-123456"))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.SUCCESS, "42", null));
+
+        // When
+        orderService.reconcilePayments();
+
+        // Then
+        assertEquals(Order.OrderStatus.CONFIRMED, testOrder.getStatus());
+        assertEquals("42", testOrder.getPaymentTransactionId());
+        verify(productService, never()).releaseStocks(anyMap());
+        verify(cartItemRepository, never()).deleteByUserId(anyLong());
+        verify(outboxService).enqueue(eq("orders"), eq(1L), any(OrderResponse.class));
+        verify(orderReportService).recordOutcome(1L, testOrder.getCreatedAt(), Order.OrderStatus.CONFIRMED,
+                new BigDecimal("59.98"), 2);
+    }
+
+    @Test
+    void reconcilePayments_BatchedSettlement_QueuesTheRecoveredDebit() {
+        // Given - the debit went through but the instance stopped before the order was confirmed
+        stubUnknownPayment();
+        testOrder.setStatus(Order.OrderStatus.PENDING);
+        when(merchantSettlementService.isBatched()).thenReturn(true);
+        when(paymentGateway.findPayment("ORD-123456"))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.SUCCESS, "42", null));
+
+        // When
+        orderService.reconcilePayments();
+
+        // Then
+        assertEquals(Order.OrderStatus.CONFIRMED, testOrder.getStatus());
+        verify(merchantSettlementService).enqueue("42", "1349885778", new BigDecimal("59.98"));
+    }
+
+    @Test
+    void reconcilePayments_NoPaymentRecorded_FailsOrderAndReleasesStock() {
+        // Given
+        stubUnknownPayment();
+        when(paymentGateway.findPayment("ORD-123456"))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.DECLINED, null, "HTTP 404"));
+
+        // When
+        orderService.reconcilePayments();
+
+        // Then
+        assertEquals(Order.OrderStatus.PAYMENT_FAILED, testOrder.getStatus());
+        verify(productService).releaseStocks(Map.of(1L, 2));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    void reconcilePayments_BankCannotAnswer_LeavesOrderUnknown() {
+        // Given
+        testOrder.setStatus(Order.OrderStatus.PAYMENT_UNKNOWN);
+        when(orderRepository.findByStatusInCreatedBefore(anyCollection(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(testOrder));
+        when(paymentGateway.findPayment("ORD-123456"))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.TIMEOUT, null, "Bank did not answer in time"));
+
+        // When
+        orderService.reconcilePayments();
+
+        // Then
+        assertEquals(Order.OrderStatus.PAYMENT_UNKNOWN, testOrder.getStatus());
+        verify(orderRepository, never()).save(any(Order.class));
+        verifyNoInteractions(transactionManager, productService);
+    }
+
+    @Test
+    void reconcilePayments_StalePendingOrder_IsResolvedLikeAnUnknownOne() {
+        // Given - the instance went down between the payment and finalize stages
+        stubUnknownPayment();
+        testOrder.setStatus(Order.OrderStatus.PENDING);
+        when(paymentGateway.findPayment("ORD-123456"))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.SUCCESS, "42", null));
+
+        // When
+        orderService.reconcilePayments();
+
+        // Then
+        assertEquals(Order.OrderStatus.CONFIRMED, testOrder.getStatus());
+        verify(orderRepository).findByStatusInCreatedBefore(
+                eq(List.of(Order.OrderStatus.PENDING, Order.OrderStatus.PAYMENT_UNKNOWN)), any(LocalDateTime.class),
+                eq(PageRequest.of(0, 100)));
+    }
+
+    @Test
+    void checkout_OrderResolvedBySweepWhilePaying_IsLeftAsItIs() {
+        // Given
+        stubCheckoutUpToPayment();
+        when(orderRepository.findByIdForUpdate(1L)).thenAnswer(invocation -> {
+            testOrder.setStatus(Order.OrderStatus.PAYMENT_FAILED);
+            return Optional.of(testOrder);
+        });
+        when(paymentGateway.transfer(any(TransferRequest.class)))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.SUCCESS, "42", null));
+
+        // When
+        OrderResponse result = orderService.checkout(checkoutRequest);
+
+        // Then
+        assertEquals("PAYMENT_FAILED", result.getStatus());
+        verify(orderRepository, times(1)).save(any(Order.class));
+        verifyNoInteractions(outboxService, orderReportService);
+    }
+
+    @Test
+    void checkoutAsync_AfterShutdown_LeavesOrderPendingForTheSweep() throws Exception {
+        // Given
+        testOrder.setStatus(Order.OrderStatus.PENDING);
+        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(cartItemRepository.findByUserId(1L)).thenReturn(Arrays.asList(testCartItem));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(productService.updateStocks(Map.of(1L, 2))).thenReturn(List.of());
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+        orderService.shutdown();
+
+        // When
+        OrderResponse pending = orderService.checkoutAsync(checkoutRequest);
+
+        // Then
+        assertEquals("PENDING", pending.getStatus());
+        assertEquals("PENDING", orderService.awaitOrder(1L, Duration.ofSeconds(1)).get(1, TimeUnit.SECONDS).getStatus());
+        verifyNoInteractions(paymentGateway);
+    }
+
+    @Test
+    void checkoutAsync_ReturnsPendingOrder_AndAwaitOrderCompletesOnceFinalized() throws Exception {
+        // Given
+        stubCheckoutUpToPayment();
+        when(paymentGateway.transfer(any(TransferRequest.class)))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.SUCCESS, "42", null));
+
+        // When
+        // Read if the payment stage is already over when awaitOrder looks
+        lenient().when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+        OrderResponse pending = orderService.checkoutAsync(checkoutRequest);
+        OrderResponse finished = orderService.awaitOrder(1L, Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("PENDING", pending.getStatus());
+        assertEquals("CONFIRMED", finished.getStatus());
+    }
+
+    @Test
+    void awaitOrder_NothingInFlight_ReturnsCurrentState() throws Exception {
+        // Given
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
+        when(orderItemRepository.findByOrderId(1L)).thenReturn(Arrays.asList(testOrderItem));
+
+        // When
+        OrderResponse result = orderService.awaitOrder(1L, Duration.ofSeconds(5)).get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("CONFIRMED", result.getStatus());
+    }
+
+    @Test
+    void checkout_WithIdempotencyKey_RunsThroughIdempotencyService() {
+        // Given
+        OrderResponse stored = OrderResponse.builder().orderId(7L).status("CONFIRMED").build();
+        when(idempotencyService.execute(eq("key-1"), eq("checkout"), eq(checkoutRequest), any())).thenReturn(stored);
+
+        // When
+        OrderResponse result = orderService.checkout(checkoutRequest, "key-1");
+
+        // Then
+        assertSame(stored, result);
+        verifyNoInteractions(paymentGateway, orderRepository);
+    }
+
+    @Test
+    void checkoutAsync_WithIdempotencyKey_RunsThroughIdempotencyService() {
+        // Given
+        OrderResponse stored = OrderResponse.builder().orderId(7L).status("PENDING").build();
+        when(idempotencyService.execute(eq("key-1"), eq("checkout-async"), eq(checkoutRequest), any())).thenReturn(stored);
+
+        // When
+        OrderResponse result = orderService.checkoutAsync(checkoutRequest, "key-1");
+
+        // Then
+        assertSame(stored, result);
+        verifyNoInteractions(paymentGateway, orderRepository);
+    }
+
     @Test
     void buyNow_UserNotFound_ThrowsException() {
         // Given
@@ -143,8 +506,8 @@ class OrderServiceTest {
 
     @Test
     void buyNow_ProductNotFound_ThrowsException() {
-        // Given
-        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        // Given - the lookups run concurrently, so the user lookup may be cancelled before it runs
+        lenient().when(userService.findById(1L)).thenReturn(Optional.of(testUser));
         when(productService.getProductById(1L)).thenReturn(Optional.empty());
 
         // When & Then
@@ -155,26 +518,149 @@ class OrderServiceTest {
     void buyNow_InsufficientStock_ThrowsException() {
         // Given
         testProduct.setStockQuantity(1); // Less than requested quantity (2)
+        lenient().when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+
+        // When & Then
+        assertThrows(InsufficientStockException.class, () -> orderService.buyNow(buyNowRequest));
+    }
+
+    @Test
+    void buyNow_BankAccountNotFound_ThrowsBeforeAnyOrderIsCreated() {
+        // Given
+        lenient().when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        lenient().when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+        doThrow(new IllegalArgumentException("Bank account not found: 1234567890"))
+                .when(paymentGateway).verifyAccount("1234567890");
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> orderService.buyNow(buyNowRequest));
+        verifyNoInteractions(orderRepository, orderItemRepository);
+        verify(productService, never()).updateStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void buyNow_StockTakenConcurrently_ThrowsException() {
+        // Given
         when(userService.findById(1L)).thenReturn(Optional.of(testUser));
         when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(productService.updateStock(1L, 2)).thenReturn(false);
 
         // When & Then
         assertThrows(InsufficientStockException.class, () -> orderService.buyNow(buyNowRequest));
+        verify(productService, never()).saveProduct(any(Product.class));
     }
 
     @Test
-    void getUserOrderResponses_Success() {
+    void buyNow_PaymentFailed_ReleasesReservedStock() {
         // Given
-        when(orderRepository.findByUserIdOrderByCreatedAtDesc(1L)).thenReturn(Arrays.asList(testOrder));
-        when(orderItemRepository.findByOrderId(1L)).thenReturn(Arrays.asList(testOrderItem));
+        testOrder.setStatus(Order.OrderStatus.PENDING);
+        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(productService.getProductById(1L)).thenReturn(Optional.of(testProduct));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testOrder));
+        when(productService.updateStock(1L, 2)).thenReturn(true);
+        when(paymentGateway.transfer(any(TransferRequest.class)))
+                .thenReturn(new PaymentGateway.PaymentResult(PaymentGateway.Outcome.DECLINED, null, "HTTP 400"));
 
         // When
-        List<OrderResponse> result = orderService.getUserOrderResponses(1L);
+        OrderResponse result = orderService.buyNow(buyNowRequest);
 
         // Then
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(1L, result.get(0).getOrderId());
+        assertEquals("PAYMENT_FAILED", result.getStatus());
+        verify(productService, times(1)).releaseStocks(Map.of(1L, 2));
+    }
+
+    @Test
+    void getOrderHistory_ReturnsSummariesWithoutItems_AndCursorForNextPage() {
+        // Given
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+        when(orderRepository.findSummariesByUserId(eq(1L), any(Pageable.class))).thenReturn(List.of(
+                summary(3L, now), summary(2L, now), summary(1L, now.minusDays(1))));
+
+        // When
+        OrderHistoryResponse result = orderService.getOrderHistory(1L, null, 2, false);
+
+        // Then
+        assertEquals(List.of(3L, 2L), result.getOrders().stream().map(OrderResponse::getOrderId).toList());
+        assertNull(result.getOrders().get(0).getOrderItems());
+        assertNotNull(result.getNextCursor());
+        verify(orderRepository).findSummariesByUserId(1L, PageRequest.of(0, 3));
+        verifyNoInteractions(orderItemRepository);
+    }
+
+    @Test
+    void getOrderHistory_ContinuesAfterCursor() {
+        // Given
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+        when(orderRepository.findSummariesByUserId(eq(1L), any(Pageable.class))).thenReturn(List.of(
+                summary(3L, now), summary(2L, now), summary(1L, now.minusDays(1))));
+        String cursor = orderService.getOrderHistory(1L, null, 2, false).getNextCursor();
+        when(orderRepository.findSummariesByUserIdBefore(eq(1L), eq(now), eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(summary(1L, now.minusDays(1))));
+
+        // When
+        OrderHistoryResponse result = orderService.getOrderHistory(1L, cursor, 2, false);
+
+        // Then
+        assertEquals(List.of(1L), result.getOrders().stream().map(OrderResponse::getOrderId).toList());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getOrderHistory_FetchesItemsForWholePageInOneQuery() {
+        // Given
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+        Order secondOrder = new Order();
+        secondOrder.setId(2L);
+        OrderItem secondItem = new OrderItem();
+        secondItem.setId(2L);
+        secondItem.setOrder(secondOrder);
+        secondItem.setProduct(testProduct);
+        secondItem.setQuantity(1);
+        secondItem.setUnitPrice(new BigDecimal("29.99"));
+        when(orderRepository.findSummariesByUserId(eq(1L), any(Pageable.class)))
+                .thenReturn(List.of(summary(2L, now), summary(1L, now.minusDays(1))));
+        when(orderItemRepository.findByOrderIdIn(List.of(2L, 1L))).thenReturn(List.of(testOrderItem, secondItem));
+
+        // When
+        OrderHistoryResponse result = orderService.getOrderHistory(1L, null, null, true);
+
+        // Then
+        assertEquals(1, result.getOrders().get(0).getOrderItems().size());
+        assertEquals(2, result.getOrders().get(1).getOrderItems().get(0).getQuantity());
+        verify(orderItemRepository, times(1)).findByOrderIdIn(anyCollection());
+        verify(orderItemRepository, never()).findByOrderId(anyLong());
+    }
+
+    @Test
+    void getUserOrderResponses_ReadsOnePageWithItems() {
+        // Given
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+        List<OrderRepository.OrderSummary> firstPage = new ArrayList<>();
+        for (long orderId = 101; orderId >= 1; orderId--) {
+            firstPage.add(summary(orderId, now));
+        }
+        when(orderRepository.findSummariesByUserId(1L, PageRequest.of(0, 101))).thenReturn(firstPage);
+        when(orderItemRepository.findByOrderIdIn(anyCollection())).thenReturn(List.of(testOrderItem));
+
+        // When
+        OrderHistoryResponse result = orderService.getUserOrderResponses(1L, null, null);
+
+        // Then - the 101st order is left for the next page
+        assertEquals(100, result.getOrders().size());
+        assertEquals(101L, result.getOrders().get(0).getOrderId());
+        assertEquals(2L, result.getOrders().get(99).getOrderId());
+        assertNotNull(result.getNextCursor());
+        verify(orderRepository, never()).findSummariesByUserIdBefore(anyLong(), any(), anyLong(), any());
+        verify(orderItemRepository, times(1)).findByOrderIdIn(anyCollection());
+        verify(orderItemRepository, never()).findByOrderId(anyLong());
+    }
+
+    @Test
+    void getOrderHistory_InvalidCursor_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrderHistory(1L, "not-a-cursor", null, false));
     }
 
     @Test
@@ -199,4 +685,42 @@ class OrderServiceTest {
         // When & Then
         assertThrows(ResourceNotFoundException.class, () -> orderService.getOrderResponseById(1L));
     }
+
+    private void stubCheckoutUpToPayment() {
+        testOrder.setStatus(Order.OrderStatus.PENDING);
+        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(cartItemRepository.findByUserId(1L)).thenReturn(Arrays.asList(testCartItem));
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testOrder));
+        when(orderItemRepository.findByOrderId(1L)).thenReturn(Arrays.asList(testOrderItem));
+        when(productService.updateStocks(Map.of(1L, 2))).thenReturn(List.of());
+    }
+
+    private void stubUnknownPayment() {
+        testOrder.setStatus(Order.OrderStatus.PAYMENT_UNKNOWN);
+        testOrder.setFromCart(true);
+        when(orderRepository.findByStatusInCreatedBefore(anyCollection(), any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(testOrder));
+        when(orderRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testOrder));
+        when(orderRepository.save(testOrder)).thenReturn(testOrder);
+        when(orderItemRepository.findByOrderId(1L)).thenReturn(Arrays.asList(testOrderItem));
+    }
+
+    private OrderRepository.OrderSummary summary(Long orderId, LocalDateTime createdAt) {
+        return new TestSummary(orderId, "ORD-" + orderId, 1L, "John Doe", new BigDecimal("59.98"),
+                Order.OrderStatus.CONFIRMED, "TXN-" + orderId, createdAt);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class TestSummary implements OrderRepository.OrderSummary {
+        private final Long id;
+        private final String orderNumber;
+        private final Long userId;
+        private final String userName;
+        private final BigDecimal totalAmount;
+        private final Order.OrderStatus status;
+        private final String paymentTransactionId;
+        private final LocalDateTime createdAt;
+    }
 }
@@ -0,0 +1,159 @@
+package com.gap.ecommerceapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gap.ecommerceapp.dto.OrderResponse;
+import com.gap.ecommerceapp.dto.OutboxStatsResponse;
+import com.gap.ecommerceapp.model.OutboxEvent;
+import com.gap.ecommerceapp.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private KafkaTemplate<String, OrderResponse> kafkaTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Clock clock = Clock.fixed(Instant.parse("2025-01-01T12:00:00Z"), ZoneId.systemDefault());
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxService(outboxEventRepository, kafkaTemplate, objectMapper, 10, Duration.ofSeconds(1), clock);
+    }
+
+    @Test
+    void enqueue_ShouldStoreSerializedOrderResponse() throws Exception {
+        // When
+        outboxService.enqueue("orders", 5L, orderResponse(5L));
+
+        // Then
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository).save(saved.capture());
+        assertEquals("orders", saved.getValue().getTopic());
+        assertEquals(5L, saved.getValue().getAggregateId());
+        assertEquals(5L, objectMapper.readValue(saved.getValue().getPayload(), OrderResponse.class).getOrderId());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void relayBatch_ShouldPublishKeyedByOrderId_AndDeletePublishedEvents() throws Exception {
+        // Given
+        when(outboxEventRepository.findOldest(any(Pageable.class))).thenReturn(List.of(event(1L, 5L), event(2L, 6L)));
+        when(kafkaTemplate.send(anyString(), anyString(), any(OrderResponse.class))).thenReturn(acked());
+
+        // When
+        int read = outboxService.relayBatch();
+
+        // Then
+        assertEquals(2, read);
+        verify(kafkaTemplate).send(eq("orders"), eq("5"), any(OrderResponse.class));
+        verify(kafkaTemplate).send(eq("orders"), eq("6"), any(OrderResponse.class));
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        assertEquals(2L, outboxService.stats().getPublishedTotal());
+    }
+
+    @Test
+    void relayBatch_ShouldStopAnOrdersChainAtItsFirstFailure() throws Exception {
+        // Given - two events for order 5, one for order 6
+        when(outboxEventRepository.findOldest(any(Pageable.class)))
+                .thenReturn(List.of(event(1L, 5L), event(2L, 6L), event(3L, 5L)));
+        when(kafkaTemplate.send(anyString(), eq("5"), any(OrderResponse.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("broker down")));
+        when(kafkaTemplate.send(anyString(), eq("6"), any(OrderResponse.class))).thenReturn(acked());
+
+        // When
+        int read = outboxService.relayBatch();
+
+        // Then
+        assertEquals(0, read);
+        verify(kafkaTemplate, times(1)).send(anyString(), eq("5"), any(OrderResponse.class));
+        verify(outboxEventRepository).deleteAllByIdInBatch(List.of(2L));
+        assertEquals(2L, outboxService.stats().getFailedTotal());
+    }
+
+    @Test
+    void relayBatch_ShouldSendEventsOfOneOrderInSequence() throws Exception {
+        // Given
+        CompletableFuture<SendResult<String, OrderResponse>> firstAck = new CompletableFuture<>();
+        when(outboxEventRepository.findOldest(any(Pageable.class))).thenReturn(List.of(event(1L, 5L), event(2L, 5L)));
+        when(kafkaTemplate.send(anyString(), eq("5"), any(OrderResponse.class))).thenReturn(firstAck, acked());
+
+        // When - the second send must wait for the first acknowledgement
+        CompletableFuture<Integer> relayed = CompletableFuture.supplyAsync(outboxService::relayBatch);
+        Thread.sleep(100);
+        verify(kafkaTemplate, times(1)).send(anyString(), eq("5"), any(OrderResponse.class));
+        firstAck.complete(null);
+
+        // Then
+        assertEquals(2, relayed.get());
+        verify(kafkaTemplate, times(2)).send(anyString(), eq("5"), any(OrderResponse.class));
+    }
+
+    @Test
+    void relay_ShouldDoNothing_WhenOutboxIsEmpty() {
+        // Given
+        when(outboxEventRepository.findOldest(any(Pageable.class))).thenReturn(List.of());
+
+        // When
+        outboxService.relay();
+
+        // Then
+        verifyNoInteractions(kafkaTemplate);
+        verify(outboxEventRepository, never()).deleteAllByIdInBatch(anyIterable());
+    }
+
+    @Test
+    void stats_ShouldReportLag() {
+        // Given
+        when(outboxEventRepository.count()).thenReturn(3L);
+        when(outboxEventRepository.findOldestCreatedAt()).thenReturn(Optional.of(LocalDateTime.now(clock).minusSeconds(4)));
+
+        // When
+        OutboxStatsResponse stats = outboxService.stats();
+
+        // Then
+        assertEquals(3L, stats.getPendingEvents());
+        assertEquals(4000L, stats.getOldestPendingAgeMillis());
+        assertEquals(0L, stats.getPublishedTotal());
+    }
+
+    private OutboxEvent event(Long id, Long orderId) throws Exception {
+        return new OutboxEvent(id, "orders", orderId, objectMapper.writeValueAsString(orderResponse(orderId)),
+                LocalDateTime.now(clock));
+    }
+
+    private OrderResponse orderResponse(Long orderId) {
+        return OrderResponse.builder()
+                .orderId(orderId)
+                .orderNumber("ORD-" + orderId)
+                .totalAmount(new BigDecimal("10.00"))
+                .status("CONFIRMED")
+                .build();
+    }
+
+    private static CompletableFuture<SendResult<String, OrderResponse>> acked() {
+        return CompletableFuture.completedFuture(null);
+    }
+}
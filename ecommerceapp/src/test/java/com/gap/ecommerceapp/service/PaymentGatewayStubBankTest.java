@@ -0,0 +1,147 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.dto.TransferRequest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the real Feign client and PaymentGateway against a stub BankApp on a local port, so the
+// configured timeouts and the way Feign surfaces each failure are exercised end to end
+@SpringBootTest
+class PaymentGatewayStubBankTest {
+
+    private static HttpServer stubBank;
+    private static final AtomicInteger REQUESTS = new AtomicInteger();
+    // What the stub does with the next transfer: "ok", "declined", "error" or "slow"
+    private static volatile String mode = "ok";
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @DynamicPropertySource
+    static void stubBankProperties(DynamicPropertyRegistry registry) throws IOException {
+        stubBank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stubBank.createContext("/api/transfers", PaymentGatewayStubBankTest::handleTransfer);
+        // A slow response must not hold up the next test's request
+        stubBank.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        stubBank.start();
+        registry.add("bank.service.url", () -> "http://localhost:" + stubBank.getAddress().getPort());
+        registry.add("spring.cloud.openfeign.client.config.BankApp.read-timeout", () -> "300");
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:paymentgatewaystubbankdb");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("eureka.client.enabled", () -> "false");
+        // Large enough that these tests never open the circuit
+        registry.add("ecommerce.payment.circuit.minimum-calls", () -> "20");
+    }
+
+    @AfterAll
+    static void stopStubBank() {
+        stubBank.stop(0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        REQUESTS.set(0);
+    }
+
+    @Test
+    void transfer_BankAccepts_ReturnsTransactionId() {
+        // Given
+        mode = "ok";
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.transfer(transferRequest());
+
+        // Then
+        assertTrue(result.isSuccess());
+        assertEquals("77", result.getTransactionId());
+        assertEquals(1, REQUESTS.get());
+    }
+
+    @Test
+    void transfer_BankRejectsRequest_IsDeclined() {
+        // Given
+        mode = "declined";
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.transfer(transferRequest());
+
+        // Then
+        assertEquals(PaymentGateway.Outcome.DECLINED, result.getOutcome());
+        assertEquals(1, REQUESTS.get());
+    }
+
+    @Test
+    void transfer_BankFails_IsNotRetried() {
+        // Given
+        mode = "error";
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.transfer(transferRequest());
+
+        // Then
+        assertEquals(PaymentGateway.Outcome.ERROR, result.getOutcome());
+        assertEquals(1, REQUESTS.get());
+    }
+
+    @Test
+    void transfer_BankTooSlow_TimesOutWithoutRetry() {
+        // Given
+        mode = "slow";
+
+        // When
+        long started = System.nanoTime();
+        PaymentGateway.PaymentResult result = paymentGateway.transfer(transferRequest());
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        // Then
+        assertEquals(PaymentGateway.Outcome.TIMEOUT, result.getOutcome());
+        assertTrue(elapsedMillis < 1500, "took " + elapsedMillis + " ms");
+        assertEquals(1, REQUESTS.get());
+    }
+
+    private static void handleTransfer(HttpExchange exchange) throws IOException {
+        REQUESTS.incrementAndGet();
+        exchange.getRequestBody().readAllBytes();
+        switch (mode) {
+            case "declined" -> respond(exchange, 400, "{\"error\":\"Insufficient funds\"}");
+            case "error" -> respond(exchange, 500, "{\"error\":\"Internal error\"}");
+            case "slow" -> {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, 200, "{\"id\":78}");
+            }
+            default -> respond(exchange, 200, "{\"id\":77,\"amount\":59.98,\"transactionType\":\"TRANSFER\"}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private TransferRequest transferRequest() {
+        return new TransferRequest("1234567890", "1349885778", new BigDecimal("59.98"));
+    }
+}
@@ -0,0 +1,250 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.client.BankServiceClient;
+import com.gap.ecommerceapp.dto.PaymentOutcomeStats;
+import com.gap.ecommerceapp.dto.PaymentStatsResponse;
+import com.gap.ecommerceapp.dto.Transaction;
+import com.gap.ecommerceapp.dto.TransferRequest;
+import feign.FeignException;
+import feign.Request;
+import feign.RetryableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentGatewayTest {
+
+    private static final Request REQUEST = Request.create(Request.HttpMethod.POST, "http://bank/api/transfers",
+            Map.of(), null, StandardCharsets.UTF_8, null);
+
+    @Mock
+    private BankServiceClient bankServiceClient;
+
+    private PaymentGateway paymentGateway;
+    private TransferRequest transferRequest;
+
+    @BeforeEach
+    void setUp() {
+        // Opens once 2 of the last 4 calls failed
+        CircuitBreaker circuitBreaker = new CircuitBreaker(4, 2, 0.5, Duration.ofMinutes(1), 1, Clock.systemUTC());
+        paymentGateway = new PaymentGateway(bankServiceClient, 1, Duration.ZERO, 3, Duration.ZERO, circuitBreaker);
+
+        transferRequest = new TransferRequest();
+        transferRequest.setFromAccountNumber("1234567890");
+        transferRequest.setToAccountNumber("1349885778");
+        transferRequest.setAmount(new BigDecimal("59.98"));
+    }
+
+    @Test
+    void transfer_Success_ReturnsTransactionId() {
+        // Given
+        when(bankServiceClient.transferFunds(transferRequest)).thenReturn(ResponseEntity.ok(transaction(42L)));
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.transfer(transferRequest);
+
+        // Then
+        assertTrue(result.isSuccess());
+        assertEquals("42", result.getTransactionId());
+        assertEquals(1L, outcome(paymentGateway.stats(), "SUCCESS").getCount());
+    }
+
+    @Test
+    void debit_UsesDebitEndpoint() {
+        // Given
+        when(bankServiceClient.debit(transferRequest)).thenReturn(ResponseEntity.ok(transaction(43L)));
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.debit(transferRequest);
+
+        // Then
+        assertEquals("43", result.getTransactionId());
+        verify(bankServiceClient, never()).transferFunds(any(TransferRequest.class));
+    }
+
+    @Test
+    void transfer_ConnectionRefused_IsRetried() {
+        // Given
+        when(bankServiceClient.transferFunds(transferRequest))
+                .thenThrow(retryable(new ConnectException("Connection refused")))
+                .thenReturn(ResponseEntity.ok(transaction(42L)));
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.transfer(transferRequest);
+
+        // Then
+        assertTrue(result.isSuccess());
+        verify(bankServiceClient, times(2)).transferFunds(transferRequest);
+        assertEquals(1L, paymentGateway.stats().getRetriesTotal());
+    }
+
+    @Test
+    void transfer_ConnectionRefusedEveryTime_GivesUpAfterMaxAttempts() {
+        // Given
+        when(bankServiceClient.transferFunds(transferRequest)).thenThrow(retryable(new ConnectException("Connection refused")));
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.transfer(transferRequest);
+
+        // Then
+        assertEquals(PaymentGateway.Outcome.ERROR, result.getOutcome());
+        verify(bankServiceClient, times(3)).transferFunds(transferRequest);
+    }
+
+    @Test
+    void transfer_ReadTimeout_IsNotRetried() {
+        // Given - the bank may already have moved the money
+        when(bankServiceClient.transferFunds(transferRequest)).thenThrow(retryable(new SocketTimeoutException("Read timed out")));
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.transfer(transferRequest);
+
+        // Then
+        assertEquals(PaymentGateway.Outcome.TIMEOUT, result.getOutcome());
+        verify(bankServiceClient, times(1)).transferFunds(transferRequest);
+    }
+
+    @Test
+    void transfer_Declined_DoesNotOpenCircuit() {
+        // Given
+        when(bankServiceClient.transferFunds(transferRequest))
+                .thenThrow(new FeignException.BadRequest("Insufficient funds", REQUEST, null, Map.of()));
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            assertEquals(PaymentGateway.Outcome.DECLINED, paymentGateway.transfer(transferRequest).getOutcome());
+        }
+
+        // Then
+        assertEquals("CLOSED", paymentGateway.stats().getCircuitState());
+        verify(bankServiceClient, times(4)).transferFunds(transferRequest);
+    }
+
+    @Test
+    void transfer_ServerErrors_OpenCircuit_ThenFailFast() {
+        // Given
+        when(bankServiceClient.transferFunds(transferRequest))
+                .thenThrow(new FeignException.InternalServerError("Bank error", REQUEST, null, Map.of()));
+        paymentGateway.transfer(transferRequest);
+        paymentGateway.transfer(transferRequest);
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.transfer(transferRequest);
+
+        // Then
+        assertEquals(PaymentGateway.Outcome.REJECTED, result.getOutcome());
+        assertEquals("OPEN", paymentGateway.stats().getCircuitState());
+        verify(bankServiceClient, times(2)).transferFunds(transferRequest);
+    }
+
+    @Test
+    void transfer_BulkheadFull_IsRejectedWithoutCallingBank() throws Exception {
+        // Given - the only slot is held by a call the bank has not answered yet
+        CountDownLatch inBank = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bankServiceClient.transferFunds(any(TransferRequest.class))).thenAnswer(invocation -> {
+            inBank.countDown();
+            release.await();
+            return ResponseEntity.ok(transaction(42L));
+        });
+        CompletableFuture<PaymentGateway.PaymentResult> first =
+                CompletableFuture.supplyAsync(() -> paymentGateway.transfer(transferRequest));
+        assertTrue(inBank.await(5, TimeUnit.SECONDS));
+
+        // When
+        PaymentGateway.PaymentResult second = paymentGateway.transfer(transferRequest);
+
+        // Then
+        assertEquals(PaymentGateway.Outcome.REJECTED, second.getOutcome());
+        assertEquals(1, paymentGateway.stats().getInFlightCalls());
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS).isSuccess());
+        verify(bankServiceClient, times(1)).transferFunds(any(TransferRequest.class));
+    }
+
+    @Test
+    void verifyAccount_UnknownAccount_ThrowsException() {
+        // Given
+        when(bankServiceClient.getAccount("1234567890"))
+                .thenThrow(new FeignException.NotFound("Not found", REQUEST, null, Map.of()));
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> paymentGateway.verifyAccount("1234567890"));
+    }
+
+    @Test
+    void verifyAccount_BankUnreachable_LeavesItToThePayment() {
+        // Given
+        when(bankServiceClient.getAccount("1234567890")).thenThrow(retryable(new ConnectException("Connection refused")));
+
+        // When & Then
+        assertDoesNotThrow(() -> paymentGateway.verifyAccount("1234567890"));
+    }
+
+    @Test
+    void findPayment_Recorded_ReturnsTransactionId() {
+        // Given
+        when(bankServiceClient.findByReference("ORD-1")).thenReturn(ResponseEntity.ok(transaction(42L)));
+
+        // When
+        PaymentGateway.PaymentResult result = paymentGateway.findPayment("ORD-1");
+
+        // Then
+        assertTrue(result.isSuccess());
+        assertEquals("42", result.getTransactionId());
+        assertEquals(0L, outcome(paymentGateway.stats(), "SUCCESS").getCount());
+    }
+
+    @Test
+    void findPayment_NothingRecorded_IsDeclined() {
+        // Given
+        when(bankServiceClient.findByReference("ORD-1"))
+                .thenThrow(new FeignException.NotFound("Not found", REQUEST, null, Map.of()));
+
+        // When & Then
+        assertEquals(PaymentGateway.Outcome.DECLINED, paymentGateway.findPayment("ORD-1").getOutcome());
+    }
+
+    @Test
+    void findPayment_BankCannotLookUp_IsAnErrorNotADecline() {
+        // Given
+        when(bankServiceClient.findByReference("ORD-1"))
+                .thenThrow(new FeignException.Conflict("Ledger enabled", REQUEST, null, Map.of()));
+
+        // When & Then
+        assertEquals(PaymentGateway.Outcome.ERROR, paymentGateway.findPayment("ORD-1").getOutcome());
+    }
+
+    private RetryableException retryable(Exception cause) {
+        return new RetryableException(-1, cause.getMessage(), Request.HttpMethod.POST, cause, (Long) null, REQUEST);
+    }
+
+    private Transaction transaction(Long id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        return transaction;
+    }
+
+    private PaymentOutcomeStats outcome(PaymentStatsResponse stats, String outcome) {
+        return stats.getOutcomes().stream().filter(o -> o.getOutcome().equals(outcome)).findFirst().orElseThrow();
+    }
+}
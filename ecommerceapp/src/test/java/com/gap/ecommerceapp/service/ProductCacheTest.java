@@ -0,0 +1,119 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.dto.CacheStatsResponse;
+import com.gap.ecommerceapp.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheTest {
+
+    private AtomicLong now;
+    private ProductCache productCache;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        productCache = new ProductCache(2, Duration.ofMinutes(10), now::get);
+    }
+
+    @Test
+    void get_ShouldReturnCatalogFieldsWithoutStock() {
+        productCache.put(createProduct(1L, "T-Shirt"));
+
+        Product cached = productCache.get(1L);
+
+        assertNotNull(cached);
+        assertEquals(1L, cached.getId());
+        assertEquals("T-Shirt", cached.getName());
+        assertEquals(new BigDecimal("29.99"), cached.getPrice());
+        assertNull(cached.getStockQuantity());
+    }
+
+    @Test
+    void get_ShouldReturnIndependentCopies() {
+        productCache.put(createProduct(1L, "T-Shirt"));
+
+        productCache.get(1L).setName("Changed");
+
+        assertEquals("T-Shirt", productCache.get(1L).getName());
+    }
+
+    @Test
+    void get_ShouldCountHitsAndMisses() {
+        productCache.put(createProduct(1L, "T-Shirt"));
+
+        productCache.get(1L);
+        productCache.get(1L);
+        productCache.get(2L);
+
+        CacheStatsResponse stats = productCache.stats();
+        assertEquals(2L, stats.getHits());
+        assertEquals(1L, stats.getMisses());
+        assertEquals(2.0 / 3, stats.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void get_ShouldExpireEntriesAfterTtl() {
+        productCache.put(createProduct(1L, "T-Shirt"));
+
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+
+        assertNull(productCache.get(1L));
+        assertEquals(1L, productCache.stats().getExpirations());
+        assertEquals(0, productCache.stats().getSize());
+    }
+
+    @Test
+    void put_ShouldEvictLeastRecentlyUsedEntry_WhenFull() {
+        productCache.put(createProduct(1L, "T-Shirt"));
+        productCache.put(createProduct(2L, "Jeans"));
+        productCache.get(1L);
+
+        productCache.put(createProduct(3L, "Jacket"));
+
+        assertNotNull(productCache.get(1L));
+        assertNull(productCache.get(2L));
+        assertNotNull(productCache.get(3L));
+        assertEquals(1L, productCache.stats().getEvictions());
+    }
+
+    @Test
+    void invalidate_ShouldRemoveEntry() {
+        productCache.put(createProduct(1L, "T-Shirt"));
+
+        productCache.invalidate(1L);
+
+        assertNull(productCache.get(1L));
+    }
+
+    @Test
+    void put_ShouldDropFill_WhenProductWasInvalidatedAfterItWasRead() {
+        long version = productCache.version(1L);
+        Product stale = createProduct(1L, "T-Shirt");
+        // A save lands between the fill's database read and its put
+        productCache.invalidate(1L);
+
+        productCache.put(stale, version);
+
+        assertNull(productCache.get(1L));
+        productCache.put(createProduct(1L, "Polo"), productCache.version(1L));
+        assertEquals("Polo", productCache.get(1L).getName());
+    }
+
+    private Product createProduct(Long id, String name) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory("Clothing");
+        product.setDescription("Cotton");
+        product.setPrice(new BigDecimal("29.99"));
+        product.setStockQuantity(10);
+        return product;
+    }
+}
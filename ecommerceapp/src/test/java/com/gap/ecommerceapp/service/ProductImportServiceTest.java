@@ -0,0 +1,190 @@
+package com.gap.ecommerceapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gap.ecommerceapp.dto.ProductImportReport;
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductImportService productImportService;
+
+    @BeforeEach
+    void setUp() {
+        productImportService = new ProductImportService(productRepository, productService, entityManager,
+                new TransactionTemplate(transactionManager), new ObjectMapper(), 500);
+        lenient().when(productRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void importProducts_ShouldInsertCsvRowsInBatches() {
+        // Given
+        String csv = """
+                name,category,description,price,stockQuantity
+                Tee,Men's Tops,"Soft, light cotton",9.99,5
+                Hat,Accessories,,14.50,0
+                Scarf,Accessories,"Knit ""chunky"" scarf",19.00,12
+                """;
+
+        // When
+        ProductImportReport report = productImportService.importProducts(stream(csv), ProductImportService.Format.CSV, 2);
+
+        // Then
+        assertEquals(3, report.getTotalRows());
+        assertEquals(3, report.getImportedRows());
+        assertEquals(0, report.getRejectedRows());
+        assertEquals(List.of(2, 1), report.getBatches().stream().map(ProductImportReport.BatchResult::getRows).toList());
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+        verify(productService, times(2)).refreshCatalogIndexes(anyList());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Product>> saved = ArgumentCaptor.forClass(List.class);
+        verify(productRepository, times(2)).saveAll(saved.capture());
+        Product tee = saved.getAllValues().get(0).get(0);
+        assertEquals("Soft, light cotton", tee.getDescription());
+        assertEquals(new BigDecimal("9.99"), tee.getPrice());
+        assertNull(saved.getAllValues().get(0).get(1).getDescription());
+        assertEquals("Knit \"chunky\" scarf", saved.getAllValues().get(1).get(0).getDescription());
+    }
+
+    @Test
+    void importProducts_ShouldRejectInvalidRowsAndKeepGoing() {
+        // Given
+        String csv = """
+                name,price,stockQuantity
+                Tee,9.99,5
+                ,9.99,5
+                Hat,abc,1
+                Scarf,19.00,-2
+                Belt,25.00
+                Sock,3.00,10
+                """;
+
+        // When
+        ProductImportReport report = productImportService.importProducts(stream(csv), ProductImportService.Format.CSV, null);
+
+        // Then
+        assertEquals(6, report.getTotalRows());
+        assertEquals(2, report.getImportedRows());
+        assertEquals(4, report.getRejectedRows());
+        assertEquals(List.of(3, 4, 5, 6), report.getRejected().stream().map(ProductImportReport.RejectedRow::getLine).toList());
+        assertEquals("name is required", report.getRejected().get(0).getReason());
+        assertEquals(1, report.getBatches().size());
+    }
+
+    @Test
+    void importProducts_ShouldReportFailedBatchAndKeepGoing() {
+        // Given
+        String csv = """
+                name,price,stockQuantity
+                Tee,9.99,5
+                Hat,14.50,0
+                Scarf,19.00,12
+                Sock,3.00,10
+                Belt,25.00,4
+                """;
+        when(productRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        ProductImportReport report = productImportService.importProducts(stream(csv), ProductImportService.Format.CSV, 2);
+
+        // Then
+        assertEquals(5, report.getTotalRows());
+        assertEquals(3, report.getImportedRows());
+        assertEquals(0, report.getRejectedRows());
+        assertEquals(2, report.getFailedRows());
+        assertEquals(3, report.getBatches().size());
+        ProductImportReport.BatchResult failed = report.getBatches().get(1);
+        assertEquals(0, failed.getRows());
+        assertEquals(2, failed.getFailedRows());
+        assertEquals(4, failed.getFirstLine());
+        assertEquals(5, failed.getLastLine());
+        assertEquals("duplicate key", failed.getError());
+        assertNull(report.getBatches().get(2).getError());
+        verify(productService, times(2)).refreshCatalogIndexes(anyList());
+    }
+
+    @Test
+    void importProducts_ShouldReadOneJsonObjectPerLine() {
+        // Given
+        String ndjson = """
+                {"name":"Tee","category":"Men's Tops","price":9.99,"stockQuantity":5}
+                {"name":"Hat","price":"14.50","stockQuantity":0}
+                {"name":"Broken",
+                ["not","an","object"]
+                """;
+
+        // When
+        ProductImportReport report = productImportService.importProducts(stream(ndjson), ProductImportService.Format.NDJSON, null);
+
+        // Then
+        assertEquals(2, report.getImportedRows());
+        assertEquals(2, report.getRejectedRows());
+        assertTrue(report.getRejected().get(0).getReason().startsWith("Malformed JSON"));
+        assertEquals("Expected a JSON object", report.getRejected().get(1).getReason());
+    }
+
+    @Test
+    void importProducts_ShouldRequireHeaderColumns() {
+        // Given
+        String csv = "name,category\nTee,Men's Tops\n";
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+                () -> productImportService.importProducts(stream(csv), ProductImportService.Format.CSV, null));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void importProducts_ShouldRejectOutOfRangeBatchSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> productImportService.importProducts(stream(""), ProductImportService.Format.CSV, 0));
+    }
+
+    @Test
+    void parseCsvLine_ShouldHandleQuotesAndEmptyFields() {
+        assertEquals(List.of("a", "", "b,c", "d\"e"), ProductImportService.parseCsvLine("a,,\"b,c\",\"d\"\"e\""));
+        assertThrows(IllegalArgumentException.class, () -> ProductImportService.parseCsvLine("\"open"));
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
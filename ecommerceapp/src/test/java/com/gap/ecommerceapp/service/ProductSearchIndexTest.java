@@ -0,0 +1,119 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.service.ProductSearchIndex.SearchHit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        productSearchIndex = new ProductSearchIndex();
+        productSearchIndex.rebuild(List.of(
+                createProduct(1L, "Classic White T-Shirt", "Men's Tops", "Premium 100% cotton classic white t-shirt."),
+                createProduct(2L, "Slim Fit Jeans", "Men's Bottoms", "Dark wash slim fit jeans with stretch denim."),
+                createProduct(3L, "High-Waisted Jeans", "Women's Bottoms", "High-waisted skinny jeans in dark indigo."),
+                createProduct(4L, "Denim Jacket", "Men's Outerwear", "Classic blue denim jacket.")
+        ));
+    }
+
+    @Test
+    void search_ShouldMatchName_CaseInsensitive() {
+        assertEquals(List.of(1L), ids("SHIRT"));
+    }
+
+    @Test
+    void search_ShouldMatchDescriptionAndCategory() {
+        assertEquals(List.of(2L, 4L), ids("denim"));
+        assertEquals(List.of(2L, 3L), ids("bottoms"));
+    }
+
+    @Test
+    void search_ShouldMatchTermPrefix() {
+        assertEquals(List.of(2L, 3L), ids("jean"));
+    }
+
+    @Test
+    void search_ShouldIntersectAllTokens() {
+        assertEquals(List.of(3L), ids("dark women"));
+        assertTrue(ids("jeans jacket").isEmpty());
+    }
+
+    @Test
+    void search_ShouldReturnEmpty_WhenQueryHasNoTokens() {
+        assertTrue(ids("  --  ").isEmpty());
+        assertTrue(ids(null).isEmpty());
+    }
+
+    @Test
+    void index_ShouldReplaceTermsOfUpdatedProduct() {
+        productSearchIndex.index(createProduct(4L, "Bomber Jacket", "Men's Outerwear", "Olive green bomber."));
+
+        assertEquals(List.of(2L), ids("denim"));
+        assertEquals(List.of(4L), ids("bomber"));
+        assertEquals(4, productSearchIndex.size());
+    }
+
+    @Test
+    void index_ShouldAddNewProduct() {
+        productSearchIndex.index(createProduct(5L, "Denim Shorts", "Men's Bottoms", null));
+
+        assertEquals(List.of(2L, 4L, 5L), ids("denim"));
+    }
+
+    @Test
+    void remove_ShouldDropProductFromPostings() {
+        productSearchIndex.remove(2L);
+
+        assertEquals(List.of(3L), ids("jeans"));
+        assertEquals(3, productSearchIndex.size());
+    }
+
+    @Test
+    void search_ShouldRankNameMatchAboveDescriptionMatch() {
+        productSearchIndex.index(createProduct(5L, "Canvas Tote Bag", "Accessories", "Fits a denim jacket."));
+
+        List<SearchHit> hits = productSearchIndex.search("jacket");
+
+        assertEquals(List.of(4L, 5L), hits.stream().map(SearchHit::getProductId).toList());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+
+    @Test
+    void search_ShouldRankExactTermAbovePrefixMatch() {
+        productSearchIndex.index(createProduct(5L, "Jean Shorts", "Men's Bottoms", null));
+
+        assertEquals(5L, productSearchIndex.search("jean").get(0).getProductId());
+    }
+
+    @Test
+    void all_ShouldReturnEveryProductInIdOrder() {
+        assertEquals(List.of(1L, 2L, 3L, 4L), productSearchIndex.all().stream().map(SearchHit::getProductId).toList());
+    }
+
+    private List<Long> ids(String query) {
+        return productSearchIndex.search(query).stream()
+                .map(SearchHit::getProductId)
+                .sorted()
+                .toList();
+    }
+
+    private Product createProduct(Long id, String name, String category, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory(category);
+        product.setDescription(description);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(10);
+        return product;
+    }
+}
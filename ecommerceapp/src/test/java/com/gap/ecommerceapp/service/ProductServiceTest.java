@@ -1,7 +1,10 @@
 package com.gap.ecommerceapp.service;
 
+import com.gap.ecommerceapp.dto.CategoryFacetResponse;
+import com.gap.ecommerceapp.dto.ProductSearchResponse;
 import com.gap.ecommerceapp.model.Product;
 import com.gap.ecommerceapp.repository.ProductRepository;
+import com.gap.ecommerceapp.service.ProductSearchIndex.SearchHit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,9 +13,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -23,6 +30,18 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Mock
+    private CategoryFacetService categoryFacetService;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
     @InjectMocks
     private ProductService productService;
 
@@ -105,6 +124,117 @@ class ProductServiceTest {
         verify(productRepository, times(1)).findById(productId);
     }
 
+    @Test
+    void getProductById_ShouldPopulateCache_OnMiss() {
+        // Arrange
+        when(productCache.version(1L)).thenReturn(5L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct1));
+
+        // Act
+        productService.getProductById(1L);
+
+        // Assert
+        verify(productCache, times(1)).put(testProduct1, 5L);
+    }
+
+    @Test
+    void getProductById_ShouldServeCatalogFromCache_AndStockFromDatabase() {
+        // Arrange
+        Product cached = new Product();
+        cached.setId(1L);
+        cached.setName("T-Shirt");
+        cached.setPrice(new BigDecimal("29.99"));
+        when(productCache.get(1L)).thenReturn(cached);
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(7));
+
+        // Act
+        Optional<Product> result = productService.getProductById(1L);
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertEquals("T-Shirt", result.get().getName());
+        assertEquals(7, result.get().getStockQuantity());
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getProductById_ShouldInvalidateCache_WhenProductWasDeleted() {
+        // Arrange
+        when(productCache.get(1L)).thenReturn(new Product());
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.empty());
+
+        // Act
+        Optional<Product> result = productService.getProductById(1L);
+
+        // Assert
+        assertFalse(result.isPresent());
+        verify(productCache, times(1)).invalidate(1L);
+    }
+
+    @Test
+    void getProductById_ShouldDropFacetContribution_WhenProductWasDeleted() {
+        // Arrange
+        when(productCache.get(1L)).thenReturn(new Product());
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.empty());
+
+        // Act
+        productService.getProductById(1L);
+
+        // Assert
+        verify(categoryFacetService, times(1)).remove(1L);
+        verify(categoryFacetService, never()).update(any(Product.class));
+    }
+
+    @Test
+    void getProductsByIds_ShouldServeHitsFromCache_AndLoadMissesInOneQuery() {
+        // Arrange
+        Product cached = new Product();
+        cached.setId(1L);
+        cached.setName("T-Shirt");
+        when(productCache.get(anyLong())).thenReturn(null);
+        when(productCache.get(1L)).thenReturn(cached);
+        when(productRepository.findStockLevelsByIdIn(Set.of(1L))).thenReturn(List.of(stockLevel(1L, 7)));
+        when(productRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(testProduct2));
+
+        // Act
+        List<Product> result = productService.getProductsByIds(List.of(2L, 1L, 3L, 2L));
+
+        // Assert
+        assertEquals(List.of(2L, 1L), result.stream().map(Product::getId).toList());
+        assertEquals(7, result.get(1).getStockQuantity());
+        verify(productRepository, times(1)).findAllById(List.of(2L, 3L));
+        verify(productCache, times(1)).put(testProduct2, 0L);
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getProductsByIds_ShouldDropCachedProductsThatWereDeleted() {
+        // Arrange
+        Product cached = new Product();
+        cached.setId(1L);
+        when(productCache.get(1L)).thenReturn(cached);
+        when(productRepository.findStockLevelsByIdIn(Set.of(1L))).thenReturn(List.of());
+
+        // Act
+        List<Product> result = productService.getProductsByIds(List.of(1L));
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(productCache, times(1)).invalidate(1L);
+        verify(categoryFacetService, times(1)).remove(1L);
+        verify(productRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void getProductsByIds_ShouldRejectOversizedBatch() {
+        // Arrange
+        List<Long> ids = LongStream.rangeClosed(1, 101).boxed().toList();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsByIds(ids));
+        verifyNoInteractions(productRepository);
+    }
+
     @Test
     void getProductsByCategory_ShouldReturnProductsInCategory() {
         // Arrange
@@ -136,83 +266,133 @@ class ProductServiceTest {
     }
 
     @Test
-    void searchProducts_ShouldReturnMatchingProducts() {
+    void searchProducts_ShouldReturnRankedMatches() {
         // Arrange
-        String keyword = "shirt";
-        List<Product> expectedProducts = Arrays.asList(testProduct1);
-        when(productRepository.searchProducts(keyword)).thenReturn(expectedProducts);
+        when(productSearchIndex.search("clothing")).thenReturn(List.of(new SearchHit(2L, 3.5), new SearchHit(1L, 1.2)));
+        when(productRepository.findAllById(List.of(2L, 1L))).thenReturn(Arrays.asList(testProduct1, testProduct2));
 
         // Act
-        List<Product> result = productService.searchProducts(keyword);
+        ProductSearchResponse result = productService.searchProducts("clothing", null, null);
 
         // Assert
-        assertEquals(1, result.size());
-        assertEquals(expectedProducts, result);
-        verify(productRepository, times(1)).searchProducts(keyword);
+        assertEquals(List.of(testProduct2, testProduct1), result.getItems());
+        assertEquals(2, result.getTotalMatches());
+        assertNull(result.getNextCursor());
     }
 
     @Test
-    void searchProducts_ShouldReturnAllProducts_WhenKeywordIsNull() {
+    void searchProducts_ShouldNotHitRepository_WhenIndexHasNoMatches() {
         // Arrange
-        List<Product> allProducts = Arrays.asList(testProduct1, testProduct2);
-        when(productRepository.findAll()).thenReturn(allProducts);
+        when(productSearchIndex.search("unknown")).thenReturn(List.of());
 
         // Act
-        List<Product> result = productService.searchProducts(null);
+        ProductSearchResponse result = productService.searchProducts("unknown", null, null);
 
         // Assert
-        assertEquals(2, result.size());
-        assertEquals(allProducts, result);
-        verify(productRepository, times(1)).findAll();
-        verify(productRepository, never()).searchProducts(anyString());
+        assertTrue(result.getItems().isEmpty());
+        assertEquals(0, result.getTotalMatches());
+        verify(productRepository, never()).findAllById(any());
     }
 
     @Test
-    void searchProducts_ShouldReturnAllProducts_WhenKeywordIsEmpty() {
+    void searchProducts_ShouldPageWithCursor() {
         // Arrange
-        List<Product> allProducts = Arrays.asList(testProduct1, testProduct2);
-        when(productRepository.findAll()).thenReturn(allProducts);
+        List<SearchHit> hits = List.of(new SearchHit(2L, 3.5), new SearchHit(1L, 1.2));
+        when(productSearchIndex.search("clothing")).thenReturn(hits);
+        when(productRepository.findAllById(List.of(2L))).thenReturn(List.of(testProduct2));
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(testProduct1));
 
         // Act
-        List<Product> result = productService.searchProducts("");
+        ProductSearchResponse firstPage = productService.searchProducts("clothing", null, 1);
+        ProductSearchResponse secondPage = productService.searchProducts("clothing", firstPage.getNextCursor(), 1);
 
         // Assert
-        assertEquals(2, result.size());
-        assertEquals(allProducts, result);
-        verify(productRepository, times(1)).findAll();
-        verify(productRepository, never()).searchProducts(anyString());
+        assertEquals(List.of(testProduct2), firstPage.getItems());
+        assertNotNull(firstPage.getNextCursor());
+        assertEquals(List.of(testProduct1), secondPage.getItems());
+        assertNull(secondPage.getNextCursor());
     }
 
     @Test
-    void searchProducts_ShouldReturnAllProducts_WhenKeywordIsWhitespace() {
+    void searchProducts_ShouldPageCatalog_WhenKeywordIsBlank() {
         // Arrange
-        List<Product> allProducts = Arrays.asList(testProduct1, testProduct2);
-        when(productRepository.findAll()).thenReturn(allProducts);
+        when(productSearchIndex.all()).thenReturn(List.of(new SearchHit(1L, 0.0), new SearchHit(2L, 0.0)));
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(testProduct1));
 
         // Act
-        List<Product> result = productService.searchProducts("   ");
+        ProductSearchResponse result = productService.searchProducts("   ", null, 1);
 
         // Assert
-        assertEquals(2, result.size());
-        assertEquals(allProducts, result);
-        verify(productRepository, times(1)).findAll();
-        verify(productRepository, never()).searchProducts(anyString());
+        assertEquals(List.of(testProduct1), result.getItems());
+        assertEquals(2, result.getTotalMatches());
+        assertNotNull(result.getNextCursor());
+        verify(productSearchIndex, never()).search(anyString());
+        verify(productRepository, never()).findAll();
     }
 
     @Test
     void searchProducts_ShouldTrimKeywordAndSearch() {
         // Arrange
-        String keyword = "  shirt  ";
-        String trimmedKeyword = "shirt";
-        List<Product> expectedProducts = Arrays.asList(testProduct1);
-        when(productRepository.searchProducts(trimmedKeyword)).thenReturn(expectedProducts);
+        when(productSearchIndex.search("shirt")).thenReturn(List.of());
 
         // Act
-        List<Product> result = productService.searchProducts(keyword);
+        productService.searchProducts("  shirt  ", null, null);
 
         // Assert
-        assertEquals(1, result.size());
-        verify(productRepository, times(1)).searchProducts(trimmedKeyword);
+        verify(productSearchIndex, times(1)).search("shirt");
+    }
+
+    @Test
+    void searchProducts_ShouldRejectMalformedCursor() {
+        // Arrange
+        when(productSearchIndex.search("shirt")).thenReturn(List.of(new SearchHit(1L, 1.0)));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.searchProducts("shirt", "not-a-cursor", null));
+    }
+
+    @Test
+    void streamSearchResults_ShouldHydrateInChunksUpToLimit() {
+        // Arrange
+        when(productSearchIndex.search("clothing")).thenReturn(List.of(new SearchHit(1L, 2.0), new SearchHit(2L, 1.0)));
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(testProduct1));
+        List<Product> streamed = new ArrayList<>();
+
+        // Act
+        productService.streamSearchResults("clothing", 1, streamed::add);
+
+        // Assert
+        assertEquals(List.of(testProduct1), streamed);
+    }
+
+    @Test
+    void initializeCatalogIndexes_ShouldBuildIndexAndFacetsFromOneScan() {
+        // Arrange
+        List<Product> products = Arrays.asList(testProduct1, testProduct2);
+        when(productRepository.findAll()).thenReturn(products);
+
+        // Act
+        productService.initializeCatalogIndexes();
+
+        // Assert
+        verify(productRepository, times(1)).findAll();
+        verify(productSearchIndex, times(1)).rebuild(products);
+        verify(categoryFacetService, times(1)).rebuild(products);
+    }
+
+    @Test
+    void getCategoryFacets_ShouldNotQueryRepository() {
+        // Arrange
+        List<CategoryFacetResponse> facets = List.of(new CategoryFacetResponse("Clothing", 2, 1));
+        when(categoryFacetService.getFacets()).thenReturn(facets);
+
+        // Act
+        List<CategoryFacetResponse> result = productService.getCategoryFacets();
+
+        // Assert
+        assertEquals(facets, result);
+        verifyNoInteractions(productRepository);
     }
 
     @Test
@@ -254,94 +434,88 @@ class ProductServiceTest {
         // Assert
         assertEquals(testProduct1, result);
         verify(productRepository, times(1)).save(testProduct1);
+        verify(productSearchIndex, times(1)).index(testProduct1);
+        verify(productCache, times(1)).invalidate(1L);
+        verify(categoryFacetService, times(1)).update(testProduct1);
     }
 
     @Test
-    void updateStock_ShouldUpdateSuccessfully_WhenSufficientStock() {
+    void updateStock_ShouldReserveThroughReservationService() {
         // Arrange
-        Long productId = 1L;
-        Integer quantity = 5;
-        testProduct1.setStockQuantity(10);
-        when(productRepository.findById(productId)).thenReturn(Optional.of(testProduct1));
-        when(productRepository.save(testProduct1)).thenReturn(testProduct1);
+        when(stockReservationService.reserve(1L, 5)).thenReturn(true);
 
         // Act
-        boolean result = productService.updateStock(productId, quantity);
+        boolean result = productService.updateStock(1L, 5);
 
         // Assert
         assertTrue(result);
-        assertEquals(5, testProduct1.getStockQuantity()); // 10 - 5 = 5
-        verify(productRepository, times(1)).findById(productId);
-        verify(productRepository, times(1)).save(testProduct1);
+        verify(productCache, times(1)).invalidate(1L);
+        verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
-    void updateStock_ShouldReturnFalse_WhenInsufficientStock() {
+    void updateStock_ShouldReturnFalse_WhenReservationRejected() {
         // Arrange
-        Long productId = 1L;
-        Integer quantity = 15; // More than available stock (10)
-        testProduct1.setStockQuantity(10);
-        when(productRepository.findById(productId)).thenReturn(Optional.of(testProduct1));
+        when(stockReservationService.reserve(1L, 15)).thenReturn(false);
 
         // Act
-        boolean result = productService.updateStock(productId, quantity);
+        boolean result = productService.updateStock(1L, 15);
 
         // Assert
         assertFalse(result);
-        assertEquals(10, testProduct1.getStockQuantity()); // Should remain unchanged
-        verify(productRepository, times(1)).findById(productId);
+        verify(productCache, never()).invalidate(anyLong());
         verify(productRepository, never()).save(any(Product.class));
     }
 
     @Test
-    void updateStock_ShouldReturnFalse_WhenProductNotFound() {
-        // Arrange
-        Long productId = 999L;
-        Integer quantity = 5;
-        when(productRepository.findById(productId)).thenReturn(Optional.empty());
-
+    void releaseStock_ShouldReleaseThroughReservationService() {
         // Act
-        boolean result = productService.updateStock(productId, quantity);
+        productService.releaseStock(1L, 3);
 
         // Assert
-        assertFalse(result);
-        verify(productRepository, times(1)).findById(productId);
-        verify(productRepository, never()).save(any(Product.class));
+        verify(stockReservationService, times(1)).release(1L, 3);
     }
 
     @Test
-    void updateStock_ShouldHandleZeroQuantity() {
+    void updateStocks_ShouldInvalidateCachedProducts_OnlyWhenAllWereTaken() {
         // Arrange
-        Long productId = 1L;
-        Integer quantity = 0;
-        testProduct1.setStockQuantity(10);
-        when(productRepository.findById(productId)).thenReturn(Optional.of(testProduct1));
-        when(productRepository.save(testProduct1)).thenReturn(testProduct1);
+        when(stockReservationService.reserveAll(Map.of(1L, 2, 2L, 1))).thenReturn(List.of());
+        when(stockReservationService.reserveAll(Map.of(1L, 50))).thenReturn(List.of(1L));
 
         // Act
-        boolean result = productService.updateStock(productId, quantity);
+        List<Long> taken = productService.updateStocks(Map.of(1L, 2, 2L, 1));
+        List<Long> shortfall = productService.updateStocks(Map.of(1L, 50));
 
         // Assert
-        assertTrue(result);
-        assertEquals(10, testProduct1.getStockQuantity()); // Should remain 10 - 0 = 10
-        verify(productRepository, times(1)).save(testProduct1);
+        assertTrue(taken.isEmpty());
+        assertEquals(List.of(1L), shortfall);
+        verify(productCache, times(1)).invalidate(1L);
+        verify(productCache, times(1)).invalidate(2L);
     }
 
     @Test
-    void updateStock_ShouldReduceStockToZero_WhenExactQuantity() {
+    void saveProduct_ShouldRefreshStockCounter() {
         // Arrange
-        Long productId = 1L;
-        Integer quantity = 10; // Exact stock amount
-        testProduct1.setStockQuantity(10);
-        when(productRepository.findById(productId)).thenReturn(Optional.of(testProduct1));
         when(productRepository.save(testProduct1)).thenReturn(testProduct1);
 
         // Act
-        boolean result = productService.updateStock(productId, quantity);
+        productService.saveProduct(testProduct1);
 
         // Assert
-        assertTrue(result);
-        assertEquals(0, testProduct1.getStockQuantity()); // 10 - 10 = 0
-        verify(productRepository, times(1)).save(testProduct1);
+        verify(stockReservationService, times(1)).refresh(testProduct1);
+    }
+
+    private ProductRepository.StockLevel stockLevel(Long id, Integer stockQuantity) {
+        return new ProductRepository.StockLevel() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getStockQuantity() {
+                return stockQuantity;
+            }
+        };
     }
 }
@@ -0,0 +1,153 @@
+package com.gap.ecommerceapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeOrderNumberGeneratorTest {
+
+    private static final long NOW = SnowflakeOrderNumberGenerator.EPOCH_MILLIS + 1_000_000;
+
+    @Test
+    void next_IsUniqueAcrossThreads() throws Exception {
+        // Given
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(7);
+        int threads = 8;
+        int perThread = 100_000;
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                String previous = null;
+                for (int i = 0; i < perThread; i++) {
+                    String number = generator.next();
+                    // Each thread must also see its own numbers in increasing order
+                    if (!seen.add(number) || (previous != null && previous.compareTo(number) >= 0)) {
+                        return false;
+                    }
+                    previous = number;
+                }
+                return true;
+            }));
+        }
+        start.countDown();
+
+        // Then
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get(1, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+        assertEquals(threads * perThread, seen.size());
+    }
+
+    @Test
+    void next_SortsInGenerationOrder_AcrossMilliseconds() {
+        // Given
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(1, clock::get);
+
+        // When
+        String first = generator.next();
+        String second = generator.next();
+        clock.addAndGet(1);
+        String third = generator.next();
+
+        // Then
+        assertTrue(first.startsWith("ORD-"));
+        assertEquals(17, first.length());
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(second.compareTo(third) < 0);
+    }
+
+    @Test
+    void nextId_EncodesTimeNodeAndSequence() {
+        // Given
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(5, () -> NOW);
+
+        // When
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        // Then
+        int shift = SnowflakeOrderNumberGenerator.NODE_BITS + SnowflakeOrderNumberGenerator.SEQUENCE_BITS;
+        assertEquals(NOW - SnowflakeOrderNumberGenerator.EPOCH_MILLIS, first >>> shift);
+        assertEquals(5, (first >>> SnowflakeOrderNumberGenerator.SEQUENCE_BITS) & SnowflakeOrderNumberGenerator.MAX_NODE_ID);
+        assertEquals(first + 1, second);
+    }
+
+    @Test
+    void next_DifferentNodes_NeverCollide() {
+        // Given - two instances on the same millisecond
+        SnowflakeOrderNumberGenerator nodeA = new SnowflakeOrderNumberGenerator(1, () -> NOW);
+        SnowflakeOrderNumberGenerator nodeB = new SnowflakeOrderNumberGenerator(2, () -> NOW);
+
+        // Then
+        for (int i = 0; i < 1000; i++) {
+            assertNotEquals(nodeA.next(), nodeB.next());
+        }
+    }
+
+    @Test
+    void nextId_SequenceExhausted_WaitsForNextMillisecond() {
+        // Given - the clock advances only after being read many times
+        AtomicLong reads = new AtomicLong();
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(0,
+                () -> NOW + (reads.incrementAndGet() > 10_000 ? 1 : 0));
+
+        // When
+        long last = 0;
+        for (int i = 0; i < 4097; i++) {
+            last = generator.nextId();
+        }
+
+        // Then
+        int shift = SnowflakeOrderNumberGenerator.NODE_BITS + SnowflakeOrderNumberGenerator.SEQUENCE_BITS;
+        assertEquals(NOW + 1 - SnowflakeOrderNumberGenerator.EPOCH_MILLIS, last >>> shift);
+    }
+
+    @Test
+    void nextId_ClockStepsBackSlightly_KeepsIncreasing() {
+        // Given
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(0, clock::get);
+        long before = generator.nextId();
+
+        // When
+        clock.addAndGet(-5);
+        long after = generator.nextId();
+
+        // Then
+        assertTrue(after > before);
+    }
+
+    @Test
+    void nextId_ClockStepsBackTooFar_ThrowsException() {
+        // Given
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeOrderNumberGenerator generator = new SnowflakeOrderNumberGenerator(0, clock::get);
+        generator.nextId();
+
+        // When
+        clock.addAndGet(-60_000);
+
+        // Then
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void constructor_NodeIdOutOfRange_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeOrderNumberGenerator(1024));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeOrderNumberGenerator(-1));
+    }
+}
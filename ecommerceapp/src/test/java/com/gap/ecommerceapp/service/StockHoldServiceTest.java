@@ -0,0 +1,261 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.StockHold;
+import com.gap.ecommerceapp.repository.StockHoldRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.*;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockHoldServiceTest {
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private StockHoldRepository stockHoldRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MutableClock clock;
+    private StockHoldService stockHoldService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T12:00:00Z"));
+        stockHoldService = new StockHoldService(stockReservationService, stockHoldRepository,
+                new TransactionTemplate(transactionManager), true, Duration.ofMinutes(15), clock);
+    }
+
+    @Test
+    void hold_ShouldReserveStockAndRecordHold() {
+        // Given
+        when(stockHoldRepository.findByUserIdAndProductId(1L, 10L)).thenReturn(Optional.empty());
+        when(stockReservationService.reserve(10L, 3)).thenReturn(true);
+
+        // When
+        boolean result = stockHoldService.hold(1L, 10L, 3);
+
+        // Then
+        assertTrue(result);
+        assertEquals(3, stockHoldService.getHeldQuantity(1L, 10L));
+        assertEquals(LocalDateTime.now(clock).plusMinutes(15), stockHoldService.getHolds(1L).get(10L).getExpiresAt());
+        verify(stockHoldRepository).save(any(StockHold.class));
+    }
+
+    @Test
+    void hold_ShouldOnlyTakeOrReturnTheDifference() {
+        // Given
+        StockHold row = new StockHold(5L, 1L, 10L, 3, LocalDateTime.now(clock));
+        when(stockHoldRepository.findByUserIdAndProductId(1L, 10L)).thenReturn(Optional.of(row));
+        when(stockReservationService.reserve(10L, 2)).thenReturn(true);
+
+        // When
+        stockHoldService.hold(1L, 10L, 5);
+        stockHoldService.hold(1L, 10L, 1);
+
+        // Then
+        verify(stockReservationService).reserve(10L, 2);
+        verify(stockReservationService).release(10L, 4);
+        assertEquals(1, stockHoldService.getHeldQuantity(1L, 10L));
+    }
+
+    @Test
+    void hold_ShouldFailWithoutRecording_WhenStockIsShort() {
+        // Given
+        when(stockHoldRepository.findByUserIdAndProductId(1L, 10L)).thenReturn(Optional.empty());
+        when(stockReservationService.reserve(10L, 3)).thenReturn(false);
+
+        // When
+        boolean result = stockHoldService.hold(1L, 10L, 3);
+
+        // Then
+        assertFalse(result);
+        assertTrue(stockHoldService.getHolds(1L).isEmpty());
+        verify(stockHoldRepository, never()).save(any(StockHold.class));
+    }
+
+    @Test
+    void claim_ShouldHandOverHeldQuantityWithoutReleasingStock() {
+        // Given
+        holdThree();
+
+        // When
+        int claimed = stockHoldService.claim(1L, 10L);
+
+        // Then
+        assertEquals(3, claimed);
+        assertEquals(0, stockHoldService.claim(1L, 10L));
+        verify(stockReservationService, never()).release(anyLong(), anyInt());
+        verify(stockHoldRepository).deleteByUserIdAndProductId(1L, 10L);
+    }
+
+    @Test
+    void releaseExpiredHolds_ShouldReleaseOnlyExpiredHolds() {
+        // Given
+        holdThree();
+        clock.advance(Duration.ofMinutes(10));
+
+        // When
+        stockHoldService.releaseExpiredHolds();
+
+        // Then
+        verify(stockReservationService, never()).release(anyLong(), anyInt());
+
+        // When
+        clock.advance(Duration.ofMinutes(6));
+        stockHoldService.releaseExpiredHolds();
+
+        // Then
+        verify(stockReservationService).release(10L, 3);
+        verify(stockHoldRepository).deleteByUserIdAndProductId(1L, 10L);
+        assertTrue(stockHoldService.getHolds(1L).isEmpty());
+    }
+
+    @Test
+    void releaseExpiredHolds_ShouldSkipClaimedHolds() {
+        // Given
+        holdThree();
+        stockHoldService.claim(1L, 10L);
+        clock.advance(Duration.ofMinutes(20));
+
+        // When
+        stockHoldService.releaseExpiredHolds();
+
+        // Then
+        verify(stockReservationService, never()).release(anyLong(), anyInt());
+    }
+
+    @Test
+    void claim_ShouldWaitForSweeperReleasingTheSameHold() throws Exception {
+        // Given - the sweeper is in the middle of returning the expired hold to stock
+        holdThree();
+        clock.advance(Duration.ofMinutes(20));
+        CountDownLatch releasing = new CountDownLatch(1);
+        CountDownLatch finishRelease = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            releasing.countDown();
+            finishRelease.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(stockReservationService).release(10L, 3);
+        CompletableFuture<Void> sweep = CompletableFuture.runAsync(stockHoldService::releaseExpiredHolds);
+        assertTrue(releasing.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<Integer> claimed = CompletableFuture.supplyAsync(() -> stockHoldService.claim(1L, 10L));
+        Thread.sleep(100);
+        assertFalse(claimed.isDone());
+        finishRelease.countDown();
+
+        // Then - the units went back to stock, so checkout must not count them as its own
+        sweep.get(5, TimeUnit.SECONDS);
+        assertEquals(0, claimed.get(5, TimeUnit.SECONDS));
+        assertEquals(0, stockHoldService.getHeldQuantity(1L, 10L));
+        verify(stockHoldRepository, times(1)).deleteByUserIdAndProductId(1L, 10L);
+    }
+
+    @Test
+    void releaseExpiredHolds_ShouldSkipEntriesOfHoldsThatWereRenewed() {
+        // Given
+        holdThree();
+        clock.advance(Duration.ofMinutes(10));
+        when(stockHoldRepository.findByUserIdAndProductId(1L, 10L))
+                .thenReturn(Optional.of(new StockHold(5L, 1L, 10L, 3, LocalDateTime.now(clock))));
+        stockHoldService.hold(1L, 10L, 3);
+
+        // When
+        clock.advance(Duration.ofMinutes(6));
+        stockHoldService.releaseExpiredHolds();
+
+        // Then
+        verify(stockReservationService, never()).release(anyLong(), anyInt());
+        assertEquals(3, stockHoldService.getHeldQuantity(1L, 10L));
+
+        // When
+        clock.advance(Duration.ofMinutes(10));
+        stockHoldService.releaseExpiredHolds();
+
+        // Then
+        verify(stockReservationService, times(1)).release(10L, 3);
+        assertTrue(stockHoldService.getHolds(1L).isEmpty());
+    }
+
+    @Test
+    void releaseExpiredHolds_ShouldRetryFailedRelease() {
+        // Given
+        holdThree();
+        clock.advance(Duration.ofMinutes(20));
+        doThrow(new RuntimeException("DB down")).doNothing().when(stockReservationService).release(10L, 3);
+
+        // When
+        stockHoldService.releaseExpiredHolds();
+        stockHoldService.releaseExpiredHolds();
+
+        // Then
+        verify(stockReservationService, times(2)).release(10L, 3);
+        assertTrue(stockHoldService.getHolds(1L).isEmpty());
+    }
+
+    @Test
+    void loadHolds_ShouldRestorePersistedHolds() {
+        // Given
+        when(stockHoldRepository.findAll()).thenReturn(List.of(
+                new StockHold(1L, 2L, 20L, 4, LocalDateTime.now(clock).minusMinutes(1))));
+
+        // When
+        stockHoldService.loadHolds();
+        stockHoldService.releaseExpiredHolds();
+
+        // Then
+        verify(stockReservationService).release(20L, 4);
+    }
+
+    private void holdThree() {
+        when(stockHoldRepository.findByUserIdAndProductId(1L, 10L)).thenReturn(Optional.empty());
+        when(stockReservationService.reserve(10L, 3)).thenReturn(true);
+        stockHoldService.hold(1L, 10L, 3);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stockreservationdb",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "eureka.client.enabled=false"
+})
+class StockReservationConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void concurrentReservations_ShouldNeverOversell() throws Exception {
+        Long productId = createProduct(100);
+
+        int reserved = hammer(productId, 1);
+
+        assertEquals(100, reserved);
+        assertEquals(0, productRepository.findStockQuantityById(productId).orElseThrow());
+    }
+
+    @Test
+    void concurrentReservations_ShouldNeverOversell_WhenCounterIsStale() throws Exception {
+        Long productId = createProduct(100);
+        assertTrue(stockReservationService.reserve(productId, 1));
+
+        // Another node takes stock behind this node's counter
+        productRepository.decrementStock(productId, 50);
+
+        int reserved = hammer(productId, 1);
+
+        assertEquals(49, reserved);
+        assertEquals(0, productRepository.findStockQuantityById(productId).orElseThrow());
+    }
+
+    @Test
+    void concurrentReservationsAndReleases_ShouldConserveStock() throws Exception {
+        Long productId = createProduct(40);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger outstanding = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    if (stockReservationService.reserve(productId, 2)) {
+                        outstanding.addAndGet(2);
+                        if (i % 2 == 0) {
+                            stockReservationService.release(productId, 2);
+                            outstanding.addAndGet(-2);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int stock = productRepository.findStockQuantityById(productId).orElseThrow();
+        assertTrue(stock >= 0);
+        assertEquals(40, stock + outstanding.get());
+    }
+
+    private int hammer(Long productId, int quantity) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    if (stockReservationService.reserve(productId, quantity)) {
+                        reserved.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        return reserved.get();
+    }
+
+    private Long createProduct(int stockQuantity) {
+        Product product = new Product();
+        product.setName("Stress Test Tee");
+        product.setCategory("Test");
+        product.setPrice(new BigDecimal("10.00"));
+        product.setStockQuantity(stockQuantity);
+        return productRepository.save(product).getId();
+    }
+}
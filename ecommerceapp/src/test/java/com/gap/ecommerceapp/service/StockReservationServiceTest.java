@@ -0,0 +1,201 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CategoryFacetService categoryFacetService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private StockReservationService stockReservationService;
+
+    @Test
+    void reserve_ShouldDecrementCounterAndDatabase() {
+        // Given
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+        when(productRepository.decrementStock(1L, 4)).thenReturn(1);
+
+        // When
+        boolean result = stockReservationService.reserve(1L, 4);
+
+        // Then
+        assertTrue(result);
+        assertEquals(Optional.of(6), stockReservationService.getAvailableStock(1L));
+        verify(categoryFacetService).updateStockLevel(1L, 6);
+    }
+
+    @Test
+    void reserve_ShouldRejectWithoutTouchingDatabase_WhenCounterIsShort() {
+        // Given
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(3));
+        stockReservationService.getAvailableStock(1L);
+
+        // When
+        boolean result = stockReservationService.reserve(1L, 5);
+
+        // Then
+        assertFalse(result);
+        verify(productRepository, never()).decrementStock(anyLong(), anyInt());
+        verify(productRepository, times(1)).findStockQuantityById(1L);
+    }
+
+    @Test
+    void reserve_ShouldResyncCounter_WhenDatabaseHasLess() {
+        // Given
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10), Optional.of(2));
+        when(productRepository.decrementStock(1L, 5)).thenReturn(0);
+
+        // When
+        boolean result = stockReservationService.reserve(1L, 5);
+
+        // Then
+        assertFalse(result);
+        assertEquals(Optional.of(2), stockReservationService.getAvailableStock(1L));
+    }
+
+    @Test
+    void reserve_ShouldReturnFalse_WhenProductNotFound() {
+        // Given
+        when(productRepository.findStockQuantityById(99L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertFalse(stockReservationService.reserve(99L, 1));
+        verify(productRepository, never()).decrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void reserve_ShouldRejectNegativeQuantity() {
+        assertThrows(IllegalArgumentException.class, () -> stockReservationService.reserve(1L, -1));
+    }
+
+    @Test
+    void release_ShouldIncrementCounterAndDatabase() {
+        // Given
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(0));
+        stockReservationService.getAvailableStock(1L);
+        when(productRepository.incrementStock(1L, 3)).thenReturn(1);
+
+        // When
+        stockReservationService.release(1L, 3);
+
+        // Then
+        assertEquals(Optional.of(3), stockReservationService.getAvailableStock(1L));
+        verify(categoryFacetService).updateStockLevel(1L, 3);
+    }
+
+    @Test
+    void refresh_ShouldResetCounterFromSavedProduct() {
+        // Given
+        Product product = new Product();
+        product.setId(1L);
+        product.setStockQuantity(42);
+
+        // When
+        stockReservationService.refresh(product);
+
+        // Then
+        assertEquals(Optional.of(42), stockReservationService.getAvailableStock(1L));
+        verify(productRepository, never()).findStockQuantityById(anyLong());
+    }
+
+    @Test
+    void reserveAll_ShouldSendAllDecrementsAsOneBatch() {
+        // Given
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+        when(productRepository.findStockQuantityById(2L)).thenReturn(Optional.of(5));
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE products SET stock_quantity = stock_quantity -"), anyList()))
+                .thenReturn(new int[]{1, 1});
+
+        // When
+        List<Long> shortfall = stockReservationService.reserveAll(quantities(1L, 4, 2L, 5));
+
+        // Then
+        assertTrue(shortfall.isEmpty());
+        assertEquals(Optional.of(6), stockReservationService.getAvailableStock(1L));
+        assertEquals(Optional.of(0), stockReservationService.getAvailableStock(2L));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        verify(productRepository, never()).decrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void reserveAll_ShouldTakeNothing_WhenACounterIsShort() {
+        // Given
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+        when(productRepository.findStockQuantityById(2L)).thenReturn(Optional.of(1));
+        stockReservationService.getAvailableStock(2L);
+
+        // When
+        List<Long> shortfall = stockReservationService.reserveAll(quantities(1L, 4, 2L, 5));
+
+        // Then
+        assertEquals(List.of(2L), shortfall);
+        assertEquals(Optional.of(10), stockReservationService.getAvailableStock(1L));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void reserveAll_ShouldUndoUpdatedRows_WhenDatabaseHasLess() {
+        // Given
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(10));
+        when(productRepository.findStockQuantityById(2L)).thenReturn(Optional.of(5), Optional.of(2));
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE products SET stock_quantity = stock_quantity -"), anyList()))
+                .thenReturn(new int[]{1, 0});
+
+        // When
+        List<Long> shortfall = stockReservationService.reserveAll(quantities(1L, 4, 2L, 5));
+
+        // Then
+        assertEquals(List.of(2L), shortfall);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE products SET stock_quantity = stock_quantity +"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[1].equals(1L)));
+        assertEquals(Optional.of(10), stockReservationService.getAvailableStock(1L));
+        assertEquals(Optional.of(2), stockReservationService.getAvailableStock(2L));
+    }
+
+    @Test
+    void releaseAll_ShouldSendAllIncrementsAsOneBatch() {
+        // Given
+        when(productRepository.findStockQuantityById(1L)).thenReturn(Optional.of(0));
+        stockReservationService.getAvailableStock(1L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+
+        // When
+        stockReservationService.releaseAll(quantities(1L, 3, 2L, 2));
+
+        // Then
+        assertEquals(Optional.of(3), stockReservationService.getAvailableStock(1L));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        verify(productRepository, never()).incrementStock(anyLong(), anyInt());
+    }
+
+    private static Map<Long, Integer> quantities(Long firstId, int first, Long secondId, int second) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(firstId, first);
+        quantities.put(secondId, second);
+        return quantities;
+    }
+}
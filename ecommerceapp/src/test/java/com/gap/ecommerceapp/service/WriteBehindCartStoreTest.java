@@ -0,0 +1,292 @@
+package com.gap.ecommerceapp.service;
+
+import com.gap.ecommerceapp.model.Cart;
+import com.gap.ecommerceapp.model.CartItem;
+import com.gap.ecommerceapp.model.Product;
+import com.gap.ecommerceapp.repository.CartItemRepository;
+import com.gap.ecommerceapp.repository.CartRepository;
+import com.gap.ecommerceapp.repository.UserRepository;
+import com.gap.ecommerceapp.exception.InsufficientStockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindCartStoreTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicLong now = new AtomicLong(SECOND);
+    private WriteBehindCartStore cartStore;
+    private Product shirt;
+    private Product jeans;
+
+    @BeforeEach
+    void setUp() {
+        cartStore = new WriteBehindCartStore(cartRepository, cartItemRepository, userRepository, jdbcTemplate,
+                transactionManager, Duration.ofSeconds(1), 100, Duration.ofMinutes(30), now::get);
+        shirt = createProduct(10L, "T-Shirt", "19.99");
+        jeans = createProduct(20L, "Jeans", "59.99");
+        lenient().when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(101L);
+        lenient().when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cartWithId(7L)));
+    }
+
+    @Test
+    void addQuantity_ShouldUpdateMemoryWithoutWritingToDatabase() {
+        // When
+        cartStore.addQuantity(1L, shirt, 2, quantity -> { });
+        WriteBehindCartStore.Line line = cartStore.addQuantity(1L, shirt, 1, quantity -> { });
+
+        // Then
+        assertEquals(101L, line.getCartItemId());
+        assertEquals(3, line.getQuantity());
+        assertEquals(1, cartStore.getLines(1L).size());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertEquals(1, cartStore.getDirtyCartCount());
+    }
+
+    @Test
+    void addQuantity_ShouldLeaveCartUnchanged_WhenCheckRejects() {
+        // When & Then
+        assertThrows(InsufficientStockException.class, () -> cartStore.addQuantity(1L, shirt, 5, quantity -> {
+            throw new InsufficientStockException("Insufficient stock");
+        }));
+        assertTrue(cartStore.getLines(1L).isEmpty());
+        assertEquals(0, cartStore.getDirtyCartCount());
+    }
+
+    @Test
+    void addQuantity_ShouldAllocateLineIdsFromOneSequenceBlock() {
+        // When
+        WriteBehindCartStore.Line first = cartStore.addQuantity(1L, shirt, 1, quantity -> { });
+        WriteBehindCartStore.Line second = cartStore.addQuantity(1L, jeans, 1, quantity -> { });
+
+        // Then
+        assertEquals(101L, first.getCartItemId());
+        assertEquals(102L, second.getCartItemId());
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Long.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushDue_ShouldCoalesceChangesIntoOneBatch_OnceMaxLagIsReached() {
+        // Given
+        cartStore.addQuantity(1L, shirt, 1, quantity -> { });
+        cartStore.addQuantity(1L, shirt, 1, quantity -> { });
+        cartStore.addQuantity(1L, jeans, 1, quantity -> { });
+
+        // When - still inside the lag window
+        now.addAndGet(SECOND / 2);
+        cartStore.flushDue();
+
+        // Then
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+
+        // When
+        now.addAndGet(SECOND / 2);
+        cartStore.flushDue();
+
+        // Then
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("MERGE"), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertArrayEquals(new Object[]{101L, 7L, 10L, 2, new BigDecimal("19.99")}, rows.getValue().get(0));
+        assertEquals(0, cartStore.getDirtyCartCount());
+    }
+
+    @Test
+    void removeLine_ShouldDeleteOnFlush() {
+        // Given
+        WriteBehindCartStore.Line line = cartStore.addQuantity(1L, shirt, 1, quantity -> { });
+        cartStore.flushAll();
+        clearInvocations(jdbcTemplate);
+
+        // When
+        Optional<WriteBehindCartStore.Line> removed = cartStore.removeLine(line.getCartItemId());
+        cartStore.flushAll();
+
+        // Then
+        assertTrue(removed.isPresent());
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE"), anyList());
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("MERGE"), anyList());
+    }
+
+    @Test
+    void flushAll_ShouldKeepChangesDirty_WhenWriteFails() {
+        // Given
+        cartStore.addQuantity(1L, shirt, 1, quantity -> { });
+        when(jdbcTemplate.batchUpdate(startsWith("MERGE"), anyList()))
+                .thenThrow(new RuntimeException("DB down"))
+                .thenReturn(new int[]{1});
+
+        // When
+        cartStore.flushAll();
+
+        // Then
+        assertEquals(1, cartStore.getDirtyCartCount());
+
+        // When
+        cartStore.flushAll();
+
+        // Then
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("MERGE"), anyList());
+        assertEquals(0, cartStore.getDirtyCartCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushAll_ShouldCreateCartAgain_WhenFlushThatCreatedItRolledBack() {
+        // Given - the cart row saved in the failed flush was rolled back with it
+        when(cartItemRepository.findByUserId(2L)).thenReturn(List.of());
+        when(cartRepository.findByUserId(2L)).thenReturn(Optional.empty());
+        when(cartRepository.save(any(Cart.class))).thenReturn(cartWithId(8L), cartWithId(9L));
+        cartStore.addQuantity(2L, shirt, 1, quantity -> { });
+        when(jdbcTemplate.batchUpdate(startsWith("MERGE"), anyList()))
+                .thenThrow(new RuntimeException("DB down"))
+                .thenReturn(new int[]{1});
+        cartStore.flushAll();
+
+        // When
+        cartStore.flushAll();
+
+        // Then
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("MERGE"), rows.capture());
+        assertEquals(9L, rows.getValue().get(0)[1]);
+        verify(cartRepository, times(2)).save(any(Cart.class));
+        assertEquals(0, cartStore.getDirtyCartCount());
+    }
+
+    @Test
+    void flush_ShouldWaitForWriteAlreadyInFlight() throws Exception {
+        // Given - a flushAll that has taken the cart's changes and is still writing them
+        cartStore.addQuantity(1L, shirt, 1, quantity -> { });
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(startsWith("MERGE"), anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            commit.await();
+            return new int[]{1};
+        });
+        Thread background = new Thread(cartStore::flushAll);
+        background.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(() -> cartStore.flush(1L));
+
+        // Then
+        assertThrows(TimeoutException.class, () -> flush.get(200, TimeUnit.MILLISECONDS));
+        commit.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        background.join();
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("MERGE"), anyList());
+    }
+
+    @Test
+    void getLines_ShouldReloadCartFromDatabase_OnMiss() {
+        // Given
+        CartItem cartItem = new CartItem();
+        cartItem.setId(55L);
+        cartItem.setCart(cartWithId(7L));
+        cartItem.setProduct(shirt);
+        cartItem.setQuantity(4);
+        cartItem.setUnitPrice(new BigDecimal("19.99"));
+        when(cartItemRepository.findByUserId(2L)).thenReturn(List.of(cartItem));
+
+        // When
+        List<WriteBehindCartStore.Line> lines = cartStore.getLines(2L);
+        cartStore.getLines(2L);
+
+        // Then
+        assertEquals(1, lines.size());
+        assertEquals(55L, lines.get(0).getCartItemId());
+        assertEquals(4, lines.get(0).getQuantity());
+        verify(cartItemRepository, times(1)).findByUserId(2L);
+    }
+
+    @Test
+    void updateQuantity_ShouldFindOwnerOfUnloadedLine() {
+        // Given
+        CartItem cartItem = new CartItem();
+        cartItem.setId(55L);
+        cartItem.setCart(cartWithId(7L));
+        cartItem.setProduct(shirt);
+        cartItem.setQuantity(4);
+        cartItem.setUnitPrice(new BigDecimal("19.99"));
+        when(cartItemRepository.findUserIdById(55L)).thenReturn(Optional.of(2L));
+        when(cartItemRepository.findByUserId(2L)).thenReturn(List.of(cartItem));
+
+        // When
+        Optional<WriteBehindCartStore.Line> line = cartStore.updateQuantity(55L, 1, current -> { });
+
+        // Then
+        assertTrue(line.isPresent());
+        assertEquals(1, line.get().getQuantity());
+        assertEquals(1, cartStore.getDirtyCartCount());
+    }
+
+    @Test
+    void flushDue_ShouldEvictIdleCleanCarts() {
+        // Given
+        when(cartItemRepository.findByUserId(2L)).thenReturn(List.of());
+        cartStore.getLines(2L);
+
+        // When
+        now.addAndGet(Duration.ofMinutes(31).toNanos());
+        cartStore.flushDue();
+        cartStore.getLines(2L);
+
+        // Then
+        verify(cartItemRepository, times(2)).findByUserId(2L);
+    }
+
+    private Product createProduct(Long id, String name, String price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(new BigDecimal(price));
+        product.setStockQuantity(100);
+        return product;
+    }
+
+    private Cart cartWithId(Long id) {
+        Cart cart = new Cart();
+        cart.setId(id);
+        return cart;
+    }
+}